@@ -0,0 +1,166 @@
+-- Schema for the entities in com.smartemail.model, as ddl-auto=update creates it on MySQL. Generated with
+-- Hibernate schema export (MySQLDialect); regenerate it when an entity changes. Instances running the fast-startup
+-- profile only validate the schema, so apply this (or the changes since the last release) before rolling them out.
+
+create table categories (
+    id bigint not null auto_increment,
+    description varchar(500),
+    name varchar(255) not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table change_log (
+    created_at datetime(6) not null,
+    entity_id bigint,
+    id bigint not null auto_increment,
+    user_id bigint,
+    origin_node varchar(64) not null,
+    action enum ('CREATED','UPDATED','DELETED') not null,
+    entity_type enum ('USER','CATEGORY','TEMPLATE','EMAIL'),
+    primary key (id)
+) engine=InnoDB;
+
+create table email_threads (
+    message_count integer not null,
+    created_at datetime(6) not null,
+    id bigint not null auto_increment,
+    last_activity_at datetime(6),
+    last_email_id bigint,
+    user_id bigint not null,
+    thread_key varchar(32) not null,
+    participants varchar(1000),
+    subject varchar(255) not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table emails (
+    archived bit not null,
+    category_id bigint not null,
+    duplicate_of bigint,
+    id bigint not null auto_increment,
+    received_at datetime(6) not null,
+    thread_id bigint,
+    updated_at datetime(6),
+    user_id bigint not null,
+    body varchar(5000),
+    recipient varchar(255) not null,
+    sender varchar(255) not null,
+    subject varchar(255) not null,
+    sentiment enum ('POSITIVE','NEGATIVE','NEUTRAL'),
+    primary key (id)
+) engine=InnoDB;
+
+create table followups (
+    due_date datetime(6) not null,
+    email_id bigint not null,
+    id bigint not null auto_increment,
+    updated_at datetime(6),
+    status enum ('PENDING','DONE','SNOOZED','OVERDUE') not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table outbox_events (
+    aggregate_id bigint not null,
+    created_at datetime(6) not null,
+    id bigint not null auto_increment,
+    user_id bigint,
+    aggregate_type enum ('EMAIL','FOLLOW_UP','TEMPLATE') not null,
+    event_type enum ('CREATED','UPDATED','DELETED') not null,
+    payload mediumtext,
+    primary key (id)
+) engine=InnoDB;
+
+create table outbox_offsets (
+    shard_id integer not null,
+    id bigint not null auto_increment,
+    last_event_id bigint not null,
+    updated_at datetime(6),
+    consumer varchar(64) not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table sync_tombstones (
+    deleted_at datetime(6) not null,
+    entity_id bigint not null,
+    id bigint not null auto_increment,
+    user_id bigint not null,
+    entity_type enum ('EMAIL','FOLLOW_UP') not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table templates (
+    created_at datetime(6) not null,
+    id bigint not null auto_increment,
+    user_id bigint not null,
+    body varchar(5000),
+    title varchar(255) not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table user_shards (
+    shard_id integer not null,
+    assigned_at datetime(6) not null,
+    user_id bigint not null,
+    primary key (user_id)
+) engine=InnoDB;
+
+create table users (
+    created_at datetime(6) not null,
+    id bigint not null auto_increment,
+    email varchar(255) not null,
+    name varchar(255) not null,
+    primary key (id)
+) engine=InnoDB;
+
+alter table categories
+   add constraint UK_t8o6pivur7nn124jehx7cygw5 unique (name);
+
+create index idx_change_log_created
+   on change_log (created_at);
+
+create index idx_email_threads_activity
+   on email_threads (user_id, last_activity_at);
+
+alter table email_threads
+   add constraint uk_email_threads_key unique (user_id, thread_key);
+
+create index idx_emails_thread
+   on emails (thread_id, received_at);
+
+create index idx_emails_user_updated
+   on emails (user_id, updated_at, id);
+
+create index idx_outbox_events_created
+   on outbox_events (created_at);
+
+alter table outbox_offsets
+   add constraint uk_outbox_offsets_consumer unique (consumer, shard_id);
+
+create index idx_sync_tombstones_user
+   on sync_tombstones (user_id, deleted_at, id);
+
+create index idx_sync_tombstones_deleted
+   on sync_tombstones (deleted_at);
+
+alter table users
+   add constraint UK_6dotkott2kjsp8vw4d0m25fb7 unique (email);
+
+alter table emails
+   add constraint FKgyyal19v3egcs3doivvcim3gt
+   foreign key (category_id)
+   references categories (id);
+
+alter table emails
+   add constraint FK41wb6kvdemvj1602iltrfr1uo
+   foreign key (user_id)
+   references users (id);
+
+alter table followups
+   add constraint FK1uxsg3i9beh29in0xol6ha7mr
+   foreign key (email_id)
+   references emails (id);
+
+alter table templates
+   add constraint FK1ap5cnda0wnqhkqnyiel99tp
+   foreign key (user_id)
+   references users (id);
@@ -0,0 +1,166 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.smartemail.config.EntitySerializers;
+import com.smartemail.model.Email;
+import com.smartemail.model.FollowUp;
+import com.smartemail.model.Template;
+
+// Bytes per page and serialization time per page for the list responses, comparing Jackson's reflection-based
+// bean serializers with EntitySerializers in JSON, CBOR and Smile. Mappers are configured as in JacksonConfig.
+// Run through scripts/serialization-benchmark.sh.
+public class SerializationBenchmark {
+
+    private static final String[] SENDERS = {
+            "alice.johnson@example.com", "billing@vendor.example", "noreply@calendar.example",
+            "bob.smith@example.com", "support@helpdesk.example"
+    };
+    private static final String[] SUBJECTS = {
+            "Quarterly planning", "Invoice overdue", "Meeting moved to Thursday", "Re: project status",
+            "Your ticket has been updated"
+    };
+    private static final String BODY = "Hello Ann, following up on the budget review and the roadmap for next "
+            + "quarter. Could you send your notes before Friday so we can finalize the numbers? The shared "
+            + "document has the latest figures and a few open questions from finance. Thanks, and have a good week.";
+
+    private static final int ROUNDS = 20;
+
+    private record Dataset(String name, List<?> page) {}
+
+    private record Format(String name, ObjectMapper mapper) {}
+
+    public static void main(String[] args) throws IOException {
+        int pageSize = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+
+        ObjectMapper reflection = json().build();
+        List<Format> formats = List.of(
+                new Format("json (reflection)", reflection),
+                new Format("json", json().modulesToInstall(new EntitySerializers()).build()),
+                new Format("cbor", json().modulesToInstall(new EntitySerializers()).factory(new CBORFactory()).build()),
+                new Format("smile", json().modulesToInstall(new EntitySerializers()).factory(SmileFactory.builder()
+                        .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES).build()).build()));
+        List<Dataset> datasets = List.of(
+                new Dataset("emails", emails(pageSize)),
+                new Dataset("followups", followUps(pageSize)),
+                new Dataset("templates", templates(pageSize)));
+
+        System.out.printf("Page of %d, median of %d rounds of %d pages per format after as many warm-up rounds%n%n",
+                pageSize, ROUNDS, iterations / ROUNDS);
+        System.out.printf("%-10s %-18s %10s %10s %12s%n", "page", "format", "bytes", "gzip", "us/page");
+        for (Dataset dataset : datasets) {
+            JsonNode expected = reflection.readTree(reflection.writeValueAsBytes(dataset.page()));
+            for (Format format : formats) {
+                // Every encoding must carry the same document as Jackson's own JSON
+                if (!format.mapper().readTree(format.mapper().writeValueAsBytes(dataset.page())).equals(expected)) {
+                    throw new IllegalStateException(format.name() + " differs from reflection JSON for " + dataset.name());
+                }
+            }
+            double[] micros = microsPerPage(formats, dataset.page(), iterations);
+            for (int f = 0; f < formats.size(); f++) {
+                byte[] bytes = formats.get(f).mapper().writeValueAsBytes(dataset.page());
+                System.out.printf("%-10s %-18s %10d %10d %12.1f%n", dataset.name(), formats.get(f).name(),
+                        bytes.length, gzip(bytes).length, micros[f]);
+            }
+        }
+    }
+
+    // Boot's defaults: ISO-8601 dates and the well-known modules
+    private static Jackson2ObjectMapperBuilder json() {
+        return Jackson2ObjectMapperBuilder.json().featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    // Formats take turns within each round, so JIT and GC pauses do not favour whichever runs last
+    private static double[] microsPerPage(List<Format> formats, List<?> page, int iterations) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(1 << 20);
+        int perRound = Math.max(1, iterations / ROUNDS);
+        long[][] samples = new long[formats.size()][ROUNDS];
+        for (int round = 0; round < 2 * ROUNDS; round++) {
+            for (int f = 0; f < formats.size(); f++) {
+                ObjectMapper mapper = formats.get(f).mapper();
+                long start = System.nanoTime();
+                for (int i = 0; i < perRound; i++) {
+                    out.reset();
+                    mapper.writeValue(out, page);
+                }
+                if (round >= ROUNDS) {
+                    samples[f][round - ROUNDS] = System.nanoTime() - start;
+                }
+            }
+        }
+        double[] micros = new double[formats.size()];
+        for (int f = 0; f < formats.size(); f++) {
+            Arrays.sort(samples[f]);
+            micros[f] = samples[f][ROUNDS / 2] / 1000.0 / perRound;
+        }
+        return micros;
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.toByteArray();
+    }
+
+    private static List<Email> emails(int count) {
+        LocalDateTime now = LocalDateTime.of(2024, 5, 17, 9, 30, 15, 123456000);
+        List<Email> emails = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Email email = new Email(42L, SENDERS[i % SENDERS.length], "ann.lee@example.com",
+                    SUBJECTS[i % SUBJECTS.length] + " #" + i, BODY, (long) (i % 4 + 1),
+                    Email.Sentiment.values()[i % 3]);
+            email.setId(1000L + i);
+            email.setThreadId(500L + i / 3);
+            email.setReceivedAt(now.minusMinutes(i * 7L));
+            email.setUpdatedAt(now.minusMinutes(i * 5L));
+            FollowUp followUp = followUp(i, now);
+            email.setFollowUps(i % 2 == 0 ? List.of(followUp) : List.of());
+            emails.add(email);
+        }
+        return emails;
+    }
+
+    private static List<FollowUp> followUps(int count) {
+        LocalDateTime now = LocalDateTime.of(2024, 5, 17, 9, 30, 15, 123456000);
+        List<FollowUp> followUps = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            followUps.add(followUp(i, now));
+        }
+        return followUps;
+    }
+
+    private static FollowUp followUp(int i, LocalDateTime now) {
+        FollowUp followUp = new FollowUp(1000L + i, now.plusDays(i % 10), FollowUp.Status.values()[i % 4]);
+        followUp.setId(2000L + i);
+        followUp.setUpdatedAt(now.minusHours(i));
+        return followUp;
+    }
+
+    private static List<Template> templates(int count) {
+        LocalDateTime now = LocalDateTime.of(2024, 5, 17, 9, 30, 15, 123456000);
+        List<Template> templates = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Template template = new Template(42L, "Reply " + i,
+                    "Hi {name}, thanks for your message about {subject}. I will get back to you by {date}. " + i);
+            template.setId(3000L + i);
+            template.setCreatedAt(now.minusDays(i));
+            templates.add(template);
+        }
+        return templates;
+    }
+}
@@ -0,0 +1,15 @@
+#!/usr/bin/env bash
+# Measures SentimentAnalyzer.analyze with JMH: ns per email for short, typical and long synthetic bodies (2, 12 and
+# 120 sentences), and ns per input byte in the analyze:bytes rows.
+#
+#   scripts/sentiment-benchmark.sh [JMH options]
+#
+# Builds the benchmark profile and runs SentimentAnalyzerBenchmark from src/jmh/java. Options are passed to JMH,
+# e.g. -p sentences=120 for one size or -prof gc for allocation rates.
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+mvn -B -q -Pbenchmark -DskipTests package
+
+java -jar target/benchmark/smart-email-assistant-1.0.0.jar SentimentAnalyzerBenchmark "$@"
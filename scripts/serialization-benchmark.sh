@@ -0,0 +1,18 @@
+#!/usr/bin/env bash
+# Compares bytes per page (raw and gzipped) and serialization time per page for the email, follow-up and
+# template list responses: Jackson's reflection-based JSON against EntitySerializers in JSON, CBOR and Smile.
+#
+#   scripts/serialization-benchmark.sh [page-size] [iterations]
+#
+# Runs outside the application on synthetic pages (default 100 entities, 2000 iterations) so database time
+# does not hide serialization time.
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+WORK=target/serialization-bench
+mkdir -p "$WORK"
+
+mvn -B -q compile
+mvn -B -q dependency:build-classpath -Dmdep.includeScope=runtime -Dmdep.outputFile="$WORK/classpath.txt"
+
+java -cp "target/classes:$(cat "$WORK/classpath.txt")" scripts/SerializationBenchmark.java "$@"
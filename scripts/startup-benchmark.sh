@@ -0,0 +1,96 @@
+#!/usr/bin/env bash
+# Measures time from JVM launch to the first successful GET /api/emails/{id} against an embedded H2 database,
+# for the default startup and for the fast-startup build (AOT + CDS + validate + lazy initialization), the last
+# also with the JIT limited to C1 (-XX:TieredStopAtLevel=1).
+#
+#   scripts/startup-benchmark.sh [runs]
+#
+# Builds the fast-startup jar when it is missing (mvn -Pfast-startup -DskipTests package), seeds an H2 file
+# database with one email, trains the CDS archive, then starts each mode `runs` times (default 5).
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+RUNS=${1:-5}
+PORT=${PORT:-18181}
+BUILD=target/fast-startup
+JAR=$BUILD/smart-email-assistant-1.0.0.jar
+WORK=target/startup-bench
+H2_VERSION=2.2.224
+BASE=http://localhost:$PORT/api
+
+if [ ! -f "$JAR" ] || [ ! -d "$BUILD/lib" ] || [ ! -d "$BUILD/spring-aot" ]; then
+    mvn -B -q -Pfast-startup -DskipTests package
+fi
+rm -rf "$WORK" && mkdir -p "$WORK"
+mvn -B -q dependency:copy -Dartifact=com.h2database:h2:$H2_VERSION -DoutputDirectory="$WORK"
+
+CLASSPATH="$JAR:$WORK/h2-$H2_VERSION.jar"
+DB_ARGS=(
+    "--spring.datasource.url=jdbc:h2:file:$PWD/$WORK/emaildb;MODE=MySQL;NON_KEYWORDS=USER,VALUE"
+    --spring.datasource.username=sa --spring.datasource.password=
+    --spring.datasource.driver-class-name=org.h2.Driver
+    --spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect
+    "--server.port=$PORT"
+)
+FAST_JVM=(-Dspring.aot.enabled=true)
+FAST_ARGS=(--spring.profiles.active=fast-startup)
+
+launch() {
+    java "$@" > "$WORK/app.log" 2>&1 &
+    echo $!
+}
+
+stop() {
+    kill "$1" 2>/dev/null || true
+    wait "$1" 2>/dev/null || true
+}
+
+# Prints milliseconds from launch until GET /emails/1 returns 200
+time_to_first_email() {
+    local start pid
+    start=$(date +%s%N)
+    pid=$(launch "$@")
+    until [ "$(curl -s -o /dev/null -w '%{http_code}' "$BASE/emails/1")" = 200 ]; do
+        if ! kill -0 "$pid" 2>/dev/null; then
+            echo "Application exited before serving, see $WORK/app.log" >&2
+            exit 1
+        fi
+        sleep 0.02
+    done
+    echo $(( ($(date +%s%N) - start) / 1000000 ))
+    stop "$pid"
+}
+
+# Seed: the default startup creates the schema, the API creates the email
+pid=$(launch -cp "$CLASSPATH" com.smartemail.SmartEmailAssistantApplication "${DB_ARGS[@]}")
+until curl -s -o /dev/null "$BASE/actuator/health"; do sleep 0.2; done
+curl -s -o /dev/null -X POST "$BASE/users" -H 'Content-Type: application/json' \
+    -d '{"name":"Bench","email":"bench@example.com","password":"benchmark"}'
+curl -s -o /dev/null -X POST "$BASE/categories" -H 'Content-Type: application/json' -d '{"name":"Bench","userId":1}'
+curl -s -o /dev/null -X POST "$BASE/emails" -H 'Content-Type: application/json' \
+    -d '{"userId":1,"categoryId":1,"sender":"a@example.com","recipient":"bench@example.com","subject":"Hi","body":"Hello"}'
+stop "$pid"
+
+# CDS training run: the context refreshes once and the JVM dumps every class it loaded
+java -XX:ArchiveClassesAtExit="$WORK/app.jsa" -Dspring.context.exit=onRefresh "${FAST_JVM[@]}" \
+    -cp "$CLASSPATH" com.smartemail.SmartEmailAssistantApplication "${DB_ARGS[@]}" "${FAST_ARGS[@]}" \
+    > "$WORK/cds-training.log" 2>&1
+
+report() {
+    local name=$1; shift
+    local times=()
+    for _ in $(seq "$RUNS"); do
+        times+=("$(time_to_first_email "$@")")
+    done
+    printf '%-28s %s ms (runs: %s)\n' "$name" \
+        "$(printf '%s\n' "${times[@]}" | sort -n | awk '{a[NR]=$1} END {print a[int((NR+1)/2)]}')" "${times[*]}"
+}
+
+echo "Time to first GET /emails/1, median of $RUNS"
+report "default" -cp "$CLASSPATH" com.smartemail.SmartEmailAssistantApplication "${DB_ARGS[@]}"
+report "fast-startup" "${FAST_JVM[@]}" -cp "$CLASSPATH" com.smartemail.SmartEmailAssistantApplication \
+    "${DB_ARGS[@]}" "${FAST_ARGS[@]}"
+report "fast-startup + CDS" -XX:SharedArchiveFile="$WORK/app.jsa" "${FAST_JVM[@]}" -cp "$CLASSPATH" \
+    com.smartemail.SmartEmailAssistantApplication "${DB_ARGS[@]}" "${FAST_ARGS[@]}"
+report "fast-startup + CDS + C1" -XX:TieredStopAtLevel=1 -XX:SharedArchiveFile="$WORK/app.jsa" "${FAST_JVM[@]}" \
+    -cp "$CLASSPATH" com.smartemail.SmartEmailAssistantApplication "${DB_ARGS[@]}" "${FAST_ARGS[@]}"
@@ -0,0 +1,95 @@
+package com.smartemail.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.smartemail.model.Email;
+import com.smartemail.service.SentimentAnalyzer;
+
+// Time per SentimentAnalyzer.analyze call on short, typical and long synthetic emails. Each call scores the next of
+// 1024 pre-built bodies, so branch prediction cannot learn a single input. The analyze:bytes row counts input bytes
+// as operations, so it reads as ns per byte. Run through scripts/sentiment-benchmark.sh.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SentimentAnalyzerBenchmark {
+
+    private static final String[] SENTENCES = {
+            "Thanks for the quick turnaround on the report.",
+            "I am not happy with how the migration went last night!",
+            "The numbers look really good this quarter.",
+            "Could you send the slides before Friday?",
+            "This is extremely frustrating and the customer is upset!!",
+            "We didn't see any problems during the rollout.",
+            "Let me know if anything is unclear; happy to help.",
+            "The meeting moved to Thursday at 10.",
+            "Great work everyone, the launch was a success!",
+            "Unfortunately the invoice is still overdue."
+    };
+
+    private static final int BODIES = 1024;
+
+    // Sentences per body
+    @Param({"2", "12", "120"})
+    private int sentences;
+
+    private SentimentAnalyzer analyzer;
+    private String[] bodies;
+    private int[] bodyBytes;
+    private int next;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Input {
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        analyzer = new SentimentAnalyzer();
+        analyzer.init();
+        Random random = new Random(42);
+        bodies = new String[BODIES];
+        bodyBytes = new int[BODIES];
+        for (int i = 0; i < BODIES; i++) {
+            StringBuilder body = new StringBuilder("Hi Ann,\n");
+            for (int s = 0; s < sentences; s++) {
+                body.append(SENTENCES[random.nextInt(SENTENCES.length)]).append(s % 4 == 3 ? '\n' : ' ');
+            }
+            bodies[i] = body.append("\nBest, Bob").toString();
+            bodyBytes[i] = bodies[i].getBytes(StandardCharsets.UTF_8).length;
+        }
+    }
+
+    @Benchmark
+    public Email.Sentiment analyze(Input input) {
+        int i = next;
+        next = (i + 1) & (BODIES - 1);
+        input.bytes += bodyBytes[i];
+        return analyzer.analyze("Update", bodies[i]);
+    }
+}
@@ -0,0 +1,15 @@
+package com.smartemail.config;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import com.smartemail.service.AdmissionControl;
+
+// Marks a handler as expensive; AdmissionInterceptor rate-limits it per user under the given class's limits
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Admission {
+    AdmissionControl.EndpointClass value();
+}
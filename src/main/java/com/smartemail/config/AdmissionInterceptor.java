@@ -0,0 +1,71 @@
+package com.smartemail.config;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import com.smartemail.service.AdmissionControl;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+// Runs AdmissionControl for handlers marked @Admission; a refusal surfaces as 429 through the exception handler
+@Component
+public class AdmissionInterceptor implements HandlerInterceptor {
+
+    private static final String PERMIT_ATTRIBUTE = AdmissionInterceptor.class.getName() + ".permit";
+
+    @Autowired
+    private AdmissionControl admissionControl;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!(handler instanceof HandlerMethod method)) {
+            return true;
+        }
+        Admission admission = method.getMethodAnnotation(Admission.class);
+        if (admission != null) {
+            request.setAttribute(PERMIT_ATTRIBUTE, admissionControl.admit(admission.value(), userKey(request)));
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+            Exception ex) {
+        if (request.getAttribute(PERMIT_ATTRIBUTE) instanceof AdmissionControl.Permit permit) {
+            request.removeAttribute(PERMIT_ATTRIBUTE);
+            permit.release();
+        }
+    }
+
+    // Hands the request's permit to work that continues after the response, which must release it. Without one,
+    // for example with admission disabled, the returned permit is a no-op
+    public static AdmissionControl.Permit takePermit(HttpServletRequest request) {
+        if (request.getAttribute(PERMIT_ATTRIBUTE) instanceof AdmissionControl.Permit permit) {
+            request.removeAttribute(PERMIT_ATTRIBUTE);
+            return permit;
+        }
+        return AdmissionControl.Permit.NONE;
+    }
+
+    // Requests naming a user are limited per user, the rest per client like read-your-writes tracking
+    @SuppressWarnings("unchecked")
+    private static String userKey(HttpServletRequest request) {
+        Map<String, String> pathVariables =
+                (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        String userId = pathVariables != null ? pathVariables.get("userId") : null;
+        if (userId == null) {
+            userId = request.getParameter("userId");
+        }
+        if (userId != null) {
+            return "user:" + userId;
+        }
+        String clientId = request.getHeader(ReadYourWritesFilter.CLIENT_ID_HEADER);
+        return "client:" + (clientId != null ? clientId : request.getRemoteAddr());
+    }
+}
@@ -0,0 +1,59 @@
+package com.smartemail.config;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import com.smartemail.service.AdmissionControl;
+
+@Component
+@ConfigurationProperties("emails.admission")
+public class AdmissionProperties {
+
+    private boolean enabled = true;
+
+    // Expensive requests are shed while this many threads wait for a pooled connection
+    private int shedWaitingThreshold = 10;
+
+    private long shedRetryAfterSeconds = 2;
+
+    private Map<AdmissionControl.EndpointClass, Limit> limits = new EnumMap<>(AdmissionControl.EndpointClass.class);
+
+    public static class Limit {
+        private double ratePerSecond = 5;
+        private int burst = 20;
+        private int maxConcurrentPerUser = 4;
+        // Across all users; 0 means no cap
+        private int maxConcurrent = 0;
+
+        public double getRatePerSecond() { return ratePerSecond; }
+        public void setRatePerSecond(double ratePerSecond) { this.ratePerSecond = ratePerSecond; }
+
+        public int getBurst() { return burst; }
+        public void setBurst(int burst) { this.burst = burst; }
+
+        public int getMaxConcurrentPerUser() { return maxConcurrentPerUser; }
+        public void setMaxConcurrentPerUser(int maxConcurrentPerUser) { this.maxConcurrentPerUser = maxConcurrentPerUser; }
+
+        public int getMaxConcurrent() { return maxConcurrent; }
+        public void setMaxConcurrent(int maxConcurrent) { this.maxConcurrent = maxConcurrent; }
+    }
+
+    public Limit limitFor(AdmissionControl.EndpointClass endpointClass) {
+        return limits.computeIfAbsent(endpointClass, key -> new Limit());
+    }
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public int getShedWaitingThreshold() { return shedWaitingThreshold; }
+    public void setShedWaitingThreshold(int shedWaitingThreshold) { this.shedWaitingThreshold = shedWaitingThreshold; }
+
+    public long getShedRetryAfterSeconds() { return shedRetryAfterSeconds; }
+    public void setShedRetryAfterSeconds(long shedRetryAfterSeconds) { this.shedRetryAfterSeconds = shedRetryAfterSeconds; }
+
+    public Map<AdmissionControl.EndpointClass, Limit> getLimits() { return limits; }
+    public void setLimits(Map<AdmissionControl.EndpointClass, Limit> limits) { this.limits = limits; }
+}
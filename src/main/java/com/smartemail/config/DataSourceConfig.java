@@ -0,0 +1,112 @@
+package com.smartemail.config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@Configuration
+public class DataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "emails.datasource.replica.enabled", havingValue = "true")
+    @ConfigurationProperties("emails.datasource.replica")
+    public HikariDataSource replicaDataSource() {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("replica");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    public ShardPools shardPools(ShardingProperties shardingProperties, ObjectProvider<MeterRegistry> meterRegistry) {
+        ShardPools shardPools = new ShardPools(shardingProperties);
+        // Shard pools are not beans, so Boot's pool metrics do not see them
+        meterRegistry.ifAvailable(registry -> shardPools.getPools().forEach(
+                pool -> pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry))));
+        return shardPools;
+    }
+
+    @Bean
+    public WorkloadPools workloadPools(WorkloadProperties workloadProperties, DataSourceProperties dataSourceProperties,
+                                       ObjectProvider<MeterRegistry> meterRegistry) {
+        WorkloadPools workloadPools = new WorkloadPools(workloadProperties, dataSourceProperties);
+        meterRegistry.ifAvailable(registry -> workloadPools.getPools().values().forEach(
+                pool -> pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry))));
+        return workloadPools;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                 @Qualifier("replicaDataSource") ObjectProvider<DataSource> replicaDataSource,
+                                 ReadYourWritesTracker readYourWritesTracker,
+                                 ShardPools shardPools,
+                                 WorkloadPools workloadPools) {
+        DataSource primary = workloadPools.getPools().isEmpty() ? primaryDataSource
+                : workloadRouting(primaryDataSource, workloadPools);
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(ReplicaRoutingDataSource.Route.PRIMARY, primary);
+        targets.put(ReplicaRoutingDataSource.Route.REPLICA, replicaDataSource.getIfAvailable(() -> primary));
+
+        ReplicaRoutingDataSource routingDataSource = new ReplicaRoutingDataSource(readYourWritesTracker);
+        routingDataSource.setTargetDataSources(targets);
+        routingDataSource.setDefaultTargetDataSource(primary);
+        routingDataSource.afterPropertiesSet();
+
+        // Defer connection checkout until the first statement, after the transaction's read-only flag is known
+        DataSource shardZero = new LazyConnectionDataSourceProxy(routingDataSource);
+        if (shardPools.getPools().isEmpty()) {
+            return shardZero;
+        }
+
+        Map<Object, Object> shards = new HashMap<>();
+        shards.put(0, shardZero);
+        for (int i = 0; i < shardPools.getPools().size(); i++) {
+            shards.put(i + 1, shardPools.getPools().get(i));
+        }
+
+        ShardRoutingDataSource shardRoutingDataSource = new ShardRoutingDataSource();
+        shardRoutingDataSource.setTargetDataSources(shards);
+        shardRoutingDataSource.setDefaultTargetDataSource(shardZero);
+        shardRoutingDataSource.afterPropertiesSet();
+
+        return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+    }
+
+    // Batch and write work get their own pools on the primary; interactive work keeps the primary pool
+    private static DataSource workloadRouting(DataSource primaryDataSource, WorkloadPools workloadPools) {
+        Map<Object, Object> workloads = new HashMap<>(workloadPools.getPools());
+        workloads.put(WorkloadClass.INTERACTIVE, primaryDataSource);
+
+        WorkloadRoutingDataSource workloadRoutingDataSource = new WorkloadRoutingDataSource();
+        workloadRoutingDataSource.setTargetDataSources(workloads);
+        workloadRoutingDataSource.setDefaultTargetDataSource(primaryDataSource);
+        workloadRoutingDataSource.afterPropertiesSet();
+        return workloadRoutingDataSource;
+    }
+}
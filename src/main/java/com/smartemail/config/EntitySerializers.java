@@ -0,0 +1,164 @@
+package com.smartemail.config;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.smartemail.model.Email;
+import com.smartemail.model.FollowUp;
+import com.smartemail.model.Template;
+
+// Serializers for the entities that make up large list responses. They write the same fields in the same order as
+// Jackson's bean serializer, without its per-property reflective accessors, and with the field names encoded once.
+// Fields added to these entities must be added here too. Back references (user, category, email) are left out,
+// as @JsonBackReference does.
+public class EntitySerializers extends SimpleModule {
+
+    private static final SerializableString ID = new SerializedString("id");
+    private static final SerializableString USER_ID = new SerializedString("userId");
+    private static final SerializableString SENDER = new SerializedString("sender");
+    private static final SerializableString RECIPIENT = new SerializedString("recipient");
+    private static final SerializableString SUBJECT = new SerializedString("subject");
+    private static final SerializableString BODY = new SerializedString("body");
+    private static final SerializableString CATEGORY_ID = new SerializedString("categoryId");
+    private static final SerializableString SENTIMENT = new SerializedString("sentiment");
+    private static final SerializableString ARCHIVED = new SerializedString("archived");
+    private static final SerializableString THREAD_ID = new SerializedString("threadId");
+    private static final SerializableString DUPLICATE_OF = new SerializedString("duplicateOf");
+    private static final SerializableString RECEIVED_AT = new SerializedString("receivedAt");
+    private static final SerializableString UPDATED_AT = new SerializedString("updatedAt");
+    private static final SerializableString FOLLOW_UPS = new SerializedString("followUps");
+    private static final SerializableString EMAIL_ID = new SerializedString("emailId");
+    private static final SerializableString DUE_DATE = new SerializedString("dueDate");
+    private static final SerializableString STATUS = new SerializedString("status");
+    private static final SerializableString TITLE = new SerializedString("title");
+    private static final SerializableString CREATED_AT = new SerializedString("createdAt");
+
+    public EntitySerializers() {
+        super("EntitySerializers");
+        addSerializer(Email.class, new EmailSerializer());
+        addSerializer(FollowUp.class, new FollowUpSerializer());
+        addSerializer(Template.class, new TemplateSerializer());
+    }
+
+    static final class EmailSerializer extends StdSerializer<Email> {
+        private final FollowUpSerializer followUpSerializer = new FollowUpSerializer();
+
+        EmailSerializer() {
+            super(Email.class);
+        }
+
+        @Override
+        public void serialize(Email email, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(email);
+            writeNumber(gen, ID, email.getId());
+            writeNumber(gen, USER_ID, email.getUserId());
+            writeString(gen, SENDER, email.getSender());
+            writeString(gen, RECIPIENT, email.getRecipient());
+            writeString(gen, SUBJECT, email.getSubject());
+            writeString(gen, BODY, email.getBody());
+            writeNumber(gen, CATEGORY_ID, email.getCategoryId());
+            writeEnum(gen, SENTIMENT, email.getSentiment());
+            gen.writeFieldName(ARCHIVED);
+            if (email.getArchived() == null) {
+                gen.writeNull();
+            } else {
+                gen.writeBoolean(email.getArchived());
+            }
+            writeNumber(gen, THREAD_ID, email.getThreadId());
+            writeNumber(gen, DUPLICATE_OF, email.getDuplicateOf());
+            writeDate(gen, provider, RECEIVED_AT, email.getReceivedAt());
+            writeDate(gen, provider, UPDATED_AT, email.getUpdatedAt());
+            gen.writeFieldName(FOLLOW_UPS);
+            List<FollowUp> followUps = email.getFollowUps();
+            if (followUps == null) {
+                gen.writeNull();
+            } else {
+                gen.writeStartArray(followUps, followUps.size());
+                for (FollowUp followUp : followUps) {
+                    followUpSerializer.serialize(followUp, gen, provider);
+                }
+                gen.writeEndArray();
+            }
+            gen.writeEndObject();
+        }
+    }
+
+    static final class FollowUpSerializer extends StdSerializer<FollowUp> {
+        FollowUpSerializer() {
+            super(FollowUp.class);
+        }
+
+        @Override
+        public void serialize(FollowUp followUp, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(followUp);
+            writeNumber(gen, ID, followUp.getId());
+            writeNumber(gen, EMAIL_ID, followUp.getEmailId());
+            writeDate(gen, provider, DUE_DATE, followUp.getDueDate());
+            writeEnum(gen, STATUS, followUp.getStatus());
+            writeDate(gen, provider, UPDATED_AT, followUp.getUpdatedAt());
+            gen.writeEndObject();
+        }
+    }
+
+    static final class TemplateSerializer extends StdSerializer<Template> {
+        TemplateSerializer() {
+            super(Template.class);
+        }
+
+        @Override
+        public void serialize(Template template, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(template);
+            writeNumber(gen, ID, template.getId());
+            writeNumber(gen, USER_ID, template.getUserId());
+            writeString(gen, TITLE, template.getTitle());
+            writeString(gen, BODY, template.getBody());
+            writeDate(gen, provider, CREATED_AT, template.getCreatedAt());
+            gen.writeEndObject();
+        }
+    }
+
+    private static void writeNumber(JsonGenerator gen, SerializableString name, Long value) throws IOException {
+        gen.writeFieldName(name);
+        if (value == null) {
+            gen.writeNull();
+        } else {
+            gen.writeNumber(value);
+        }
+    }
+
+    private static void writeString(JsonGenerator gen, SerializableString name, String value) throws IOException {
+        gen.writeFieldName(name);
+        if (value == null) {
+            gen.writeNull();
+        } else {
+            gen.writeString(value);
+        }
+    }
+
+    private static void writeEnum(JsonGenerator gen, SerializableString name, Enum<?> value) throws IOException {
+        gen.writeFieldName(name);
+        if (value == null) {
+            gen.writeNull();
+        } else {
+            gen.writeString(value.name());
+        }
+    }
+
+    // Dates go through the mapper's own serializer so they keep the configured format
+    private static void writeDate(JsonGenerator gen, SerializerProvider provider, SerializableString name,
+                                  LocalDateTime value) throws IOException {
+        gen.writeFieldName(name);
+        if (value == null) {
+            gen.writeNull();
+        } else {
+            provider.defaultSerializeValue(value, gen);
+        }
+    }
+}
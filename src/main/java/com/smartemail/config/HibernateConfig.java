@@ -0,0 +1,21 @@
+package com.smartemail.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.smartemail.instrumentation.QueryCountingInterceptor;
+
+@Configuration
+public class HibernateConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer queryCountingCustomizer() {
+        QueryCountingInterceptor interceptor = new QueryCountingInterceptor();
+        return properties -> {
+            properties.put(AvailableSettings.STATEMENT_INSPECTOR, interceptor);
+            properties.put(AvailableSettings.INTERCEPTOR, interceptor);
+        };
+    }
+}
@@ -0,0 +1,37 @@
+package com.smartemail.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+
+// JSON stays the default; clients that send Accept: application/cbor or application/x-jackson-smile get the same
+// documents in a binary encoding. All three mappers come from Boot's builder, so they share modules and settings.
+@Configuration
+public class JacksonConfig {
+
+    // Boot registers Module beans with every mapper built from Jackson2ObjectMapperBuilder
+    @Bean
+    public EntitySerializers entitySerializers() {
+        return new EntitySerializers();
+    }
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    // Pages repeat the same senders and recipients, which Smile can write once and back-reference
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        SmileFactory factory = SmileFactory.builder()
+                .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                .build();
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(factory).build());
+    }
+}
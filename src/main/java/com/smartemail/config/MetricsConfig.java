@@ -0,0 +1,37 @@
+package com.smartemail.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.smartemail.service.StatusWriteBuffer;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+@Configuration
+public class MetricsConfig {
+
+    // Enables @Timed on service methods
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+
+    @Bean
+    public MeterBinder statusWriteBufferMetrics(StatusWriteBuffer statusWriteBuffer) {
+        return registry -> {
+            Gauge.builder("emails.write_behind.pending", statusWriteBuffer, StatusWriteBuffer::getPendingCount)
+                    .description("Buffered status changes not yet written")
+                    .register(registry);
+            FunctionCounter.builder("emails.write_behind.buffered", statusWriteBuffer, StatusWriteBuffer::getBufferedChanges)
+                    .description("Status changes accepted into the write-behind buffer")
+                    .register(registry);
+            FunctionCounter.builder("emails.write_behind.written", statusWriteBuffer, StatusWriteBuffer::getWrittenRows)
+                    .description("Rows written by write-behind flushes")
+                    .register(registry);
+        };
+    }
+}
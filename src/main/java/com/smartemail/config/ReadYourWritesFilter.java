@@ -0,0 +1,33 @@
+package com.smartemail.config;
+
+import java.io.IOException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+@Component
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    public static final String CLIENT_ID_HEADER = "X-Client-Id";
+
+    @Autowired
+    private ReadYourWritesTracker readYourWritesTracker;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String clientId = request.getHeader(CLIENT_ID_HEADER);
+        readYourWritesTracker.bindClient(clientId != null ? clientId : request.getRemoteAddr());
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            readYourWritesTracker.clearClient();
+        }
+    }
+}
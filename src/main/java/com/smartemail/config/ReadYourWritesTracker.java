@@ -0,0 +1,50 @@
+package com.smartemail.config;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+// Remembers which clients wrote recently so their reads can stay on the primary until the replica catches up
+@Component
+public class ReadYourWritesTracker {
+
+    private static final ThreadLocal<String> currentClient = new ThreadLocal<>();
+
+    @Value("${emails.datasource.replica.read-your-writes-window-ms:5000}")
+    private long windowMillis;
+
+    private final Map<String, Long> lastWriteAt = new ConcurrentHashMap<>();
+
+    public void bindClient(String clientKey) {
+        currentClient.set(clientKey);
+    }
+
+    public void clearClient() {
+        currentClient.remove();
+    }
+
+    public void recordWrite() {
+        String client = currentClient.get();
+        if (client != null) {
+            lastWriteAt.put(client, System.currentTimeMillis());
+        }
+    }
+
+    public boolean hasRecentWrite() {
+        String client = currentClient.get();
+        if (client == null) {
+            return false;
+        }
+        Long writtenAt = lastWriteAt.get(client);
+        return writtenAt != null && System.currentTimeMillis() - writtenAt < windowMillis;
+    }
+
+    @Scheduled(fixedDelay = 60000)
+    public void evictExpired() {
+        long cutoff = System.currentTimeMillis() - windowMillis;
+        lastWriteAt.values().removeIf(writtenAt -> writtenAt < cutoff);
+    }
+}
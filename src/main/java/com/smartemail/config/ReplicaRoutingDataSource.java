@@ -0,0 +1,112 @@
+package com.smartemail.config;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Sends read-only transactions to the replica unless the client wrote within the read-your-writes window
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Route {
+        PRIMARY, REPLICA
+    }
+
+    private static final Set<String> WRITE_METHODS = Set.of("executeUpdate", "executeLargeUpdate", "executeBatch",
+            "executeLargeBatch");
+
+    private final ReadYourWritesTracker readYourWritesTracker;
+
+    public ReplicaRoutingDataSource(ReadYourWritesTracker readYourWritesTracker) {
+        this.readYourWritesTracker = readYourWritesTracker;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return readYourWritesTracker.hasRecentWrite() ? Route.PRIMARY : Route.REPLICA;
+        }
+        return Route.PRIMARY;
+    }
+
+    // A read-write transaction that only reads must not pin the client to the primary, so statements are watched
+    // for DML. Lazy loads outside a transaction read from the primary but are not writes
+    @Override
+    public Connection getConnection() throws SQLException {
+        return watched(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return watched(super.getConnection(username, password));
+    }
+
+    private Connection watched(Connection connection) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return connection;
+        }
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {Connection.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    if (result instanceof Statement statement && Statement.class.isAssignableFrom(method.getReturnType())) {
+                        String sql = args != null && args.length > 0 && args[0] instanceof String text ? text : null;
+                        return watched(statement, method.getReturnType(), sql);
+                    }
+                    return result;
+                });
+    }
+
+    private Statement watched(Statement statement, Class<?> type, String preparedSql) {
+        return (Statement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {type},
+                (proxy, method, args) -> {
+                    Object result = invoke(statement, method, args);
+                    if (WRITE_METHODS.contains(method.getName())) {
+                        wrote();
+                    } else if (method.getName().equals("execute")) {
+                        String sql = args != null && args.length > 0 && args[0] instanceof String text ? text : preparedSql;
+                        if (sql == null || !isQuery(sql)) {
+                            wrote();
+                        }
+                    }
+                    return result;
+                });
+    }
+
+    // Replica lag counts from the commit, and a rolled-back write leaves nothing to read back
+    private void wrote() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            readYourWritesTracker.recordWrite();
+        } else if (TransactionSynchronizationManager.getSynchronizations().stream()
+                .noneMatch(synchronization -> synchronization instanceof WriteRecorder)) {
+            TransactionSynchronizationManager.registerSynchronization(new WriteRecorder());
+        }
+    }
+
+    private class WriteRecorder implements TransactionSynchronization {
+        @Override
+        public void afterCommit() {
+            readYourWritesTracker.recordWrite();
+        }
+    }
+
+    private static boolean isQuery(String sql) {
+        String statement = sql.stripLeading();
+        return statement.regionMatches(true, 0, "select", 0, 6) || statement.regionMatches(true, 0, "with", 0, 4);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
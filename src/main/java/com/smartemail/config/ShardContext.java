@@ -0,0 +1,28 @@
+package com.smartemail.config;
+
+// Shard the current thread's next connection is routed to; unset means shard 0
+public final class ShardContext {
+
+    private static final ThreadLocal<Integer> currentShard = new ThreadLocal<>();
+
+    private ShardContext() {}
+
+    public static int current() {
+        Integer shard = currentShard.get();
+        return shard != null ? shard : 0;
+    }
+
+    public static Integer bind(int shard) {
+        Integer previous = currentShard.get();
+        currentShard.set(shard);
+        return previous;
+    }
+
+    public static void restore(Integer previous) {
+        if (previous == null) {
+            currentShard.remove();
+        } else {
+            currentShard.set(previous);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.smartemail.config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+// Owns the Hikari pools of the additional shards so they are closed with the context
+public class ShardPools implements AutoCloseable {
+
+    private final List<HikariDataSource> pools = new ArrayList<>();
+
+    public ShardPools(ShardingProperties properties) {
+        if (!properties.isActive()) {
+            return;
+        }
+        for (int i = 0; i < properties.getShards().size(); i++) {
+            ShardingProperties.Shard shard = properties.getShards().get(i);
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setPoolName("shard-" + (i + 1));
+            dataSource.setJdbcUrl(shard.getJdbcUrl());
+            dataSource.setUsername(shard.getUsername());
+            dataSource.setPassword(shard.getPassword());
+            if (shard.getDriverClassName() != null) {
+                dataSource.setDriverClassName(shard.getDriverClassName());
+            }
+            dataSource.setMaximumPoolSize(shard.getMaximumPoolSize());
+            pools.add(dataSource);
+        }
+    }
+
+    public List<HikariDataSource> getPools() {
+        return Collections.unmodifiableList(pools);
+    }
+
+    @Override
+    public void close() {
+        pools.forEach(HikariDataSource::close);
+    }
+}
@@ -0,0 +1,65 @@
+package com.smartemail.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties("emails.sharding")
+public class ShardingProperties {
+
+    private boolean enabled = false;
+
+    // Ids generated on shard N start at N << idRangeBits so they stay unique across shards
+    private int idRangeBits = 40;
+
+    private int copyChunkSize = 1000;
+
+    // Additional shards; shard 0 is always the primary datasource
+    private List<Shard> shards = new ArrayList<>();
+
+    public static class Shard {
+        private String jdbcUrl;
+        private String username;
+        private String password;
+        private String driverClassName;
+        private int maximumPoolSize = 10;
+
+        public String getJdbcUrl() { return jdbcUrl; }
+        public void setJdbcUrl(String jdbcUrl) { this.jdbcUrl = jdbcUrl; }
+
+        public String getUsername() { return username; }
+        public void setUsername(String username) { this.username = username; }
+
+        public String getPassword() { return password; }
+        public void setPassword(String password) { this.password = password; }
+
+        public String getDriverClassName() { return driverClassName; }
+        public void setDriverClassName(String driverClassName) { this.driverClassName = driverClassName; }
+
+        public int getMaximumPoolSize() { return maximumPoolSize; }
+        public void setMaximumPoolSize(int maximumPoolSize) { this.maximumPoolSize = maximumPoolSize; }
+    }
+
+    public boolean isActive() {
+        return enabled && !shards.isEmpty();
+    }
+
+    public int getShardCount() {
+        return isActive() ? shards.size() + 1 : 1;
+    }
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public int getIdRangeBits() { return idRangeBits; }
+    public void setIdRangeBits(int idRangeBits) { this.idRangeBits = idRangeBits; }
+
+    public int getCopyChunkSize() { return copyChunkSize; }
+    public void setCopyChunkSize(int copyChunkSize) { this.copyChunkSize = copyChunkSize; }
+
+    public List<Shard> getShards() { return shards; }
+    public void setShards(List<Shard> shards) { this.shards = shards; }
+}
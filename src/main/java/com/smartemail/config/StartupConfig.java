@@ -0,0 +1,40 @@
+package com.smartemail.config;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.util.ReflectionUtils;
+
+import jakarta.annotation.PostConstruct;
+
+@Configuration
+public class StartupConfig {
+
+    private static final List<Class<? extends java.lang.annotation.Annotation>> EAGER_MARKERS =
+            List.of(Scheduled.class, EventListener.class, PostConstruct.class);
+
+    // Under spring.main.lazy-initialization a bean is only created when something asks for it. Beans with scheduled
+    // jobs, event listeners or startup work (worker threads, meters, index loading) are asked for by nobody, so they
+    // stay eager; controllers, repositories and plain services are created on first use.
+    @Bean
+    public static LazyInitializationExcludeFilter eagerBackgroundBeans() {
+        return (beanName, beanDefinition, beanType) -> beanType != null && hasEagerMarker(beanType);
+    }
+
+    private static boolean hasEagerMarker(Class<?> beanType) {
+        for (Method method : ReflectionUtils.getUniqueDeclaredMethods(beanType, ReflectionUtils.USER_DECLARED_METHODS)) {
+            for (Class<? extends java.lang.annotation.Annotation> marker : EAGER_MARKERS) {
+                if (AnnotatedElementUtils.hasAnnotation(method, marker)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
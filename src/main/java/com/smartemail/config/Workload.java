@@ -0,0 +1,13 @@
+package com.smartemail.config;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Runs a service method within its workload class's bulkhead and on its connection pool; see WorkloadAspect
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Workload {
+    WorkloadClass value();
+}
@@ -0,0 +1,29 @@
+package com.smartemail.config;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import com.smartemail.service.WorkloadBulkheads;
+
+// Outermost advice, so a @Transactional method's transaction starts once the call holds its class's slot
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class WorkloadAspect {
+
+    @Autowired
+    private WorkloadBulkheads workloadBulkheads;
+
+    // The annotation is read from the method rather than bound, since binding needs advice that runs after ours
+    @Around("@annotation(com.smartemail.config.Workload)")
+    public Object runAsWorkload(ProceedingJoinPoint joinPoint) throws Throwable {
+        Workload workload = ((MethodSignature) joinPoint.getSignature()).getMethod().getAnnotation(Workload.class);
+        return workloadBulkheads.execute(workload.value(), joinPoint::proceed);
+    }
+}
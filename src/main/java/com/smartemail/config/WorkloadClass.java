@@ -0,0 +1,11 @@
+package com.smartemail.config;
+
+// Work that gets its own executor and connection pool, so one kind cannot starve another
+public enum WorkloadClass {
+    // Clicks: single emails, inbox and thread pages, searches
+    INTERACTIVE,
+    // Long-running reads and jobs: exports, bulk operations, sweeps
+    BATCH,
+    // Creates, updates and deletes
+    WRITE
+}
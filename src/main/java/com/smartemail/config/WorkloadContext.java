@@ -0,0 +1,39 @@
+package com.smartemail.config;
+
+// Workload class the current thread runs as; unset means a request thread that has not entered one yet
+public final class WorkloadContext {
+
+    private static final ThreadLocal<WorkloadClass> currentClass = new ThreadLocal<>();
+
+    private WorkloadContext() {}
+
+    public static WorkloadClass current() {
+        return currentClass.get();
+    }
+
+    public static WorkloadClass bind(WorkloadClass workloadClass) {
+        WorkloadClass previous = currentClass.get();
+        currentClass.set(workloadClass);
+        return previous;
+    }
+
+    public static void restore(WorkloadClass previous) {
+        if (previous == null) {
+            currentClass.remove();
+        } else {
+            currentClass.set(previous);
+        }
+    }
+
+    // For background workers that own their threads: everything they run uses the class's pool
+    public static Runnable wrap(WorkloadClass workloadClass, Runnable work) {
+        return () -> {
+            WorkloadClass previous = bind(workloadClass);
+            try {
+                work.run();
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+}
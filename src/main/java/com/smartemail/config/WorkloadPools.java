@@ -0,0 +1,45 @@
+package com.smartemail.config;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+// Owns the primary-database pools of the workload classes that have their own, so they are closed with the context
+public class WorkloadPools implements AutoCloseable {
+
+    private final Map<WorkloadClass, HikariDataSource> pools = new EnumMap<>(WorkloadClass.class);
+
+    public WorkloadPools(WorkloadProperties properties, DataSourceProperties dataSourceProperties) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        for (WorkloadClass workloadClass : WorkloadClass.values()) {
+            WorkloadProperties.Settings settings = properties.settingsFor(workloadClass);
+            if (workloadClass == WorkloadClass.INTERACTIVE || settings.getPoolSize() <= 0) {
+                continue;
+            }
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setPoolName(workloadClass.name().toLowerCase());
+            dataSource.setJdbcUrl(dataSourceProperties.determineUrl());
+            dataSource.setUsername(dataSourceProperties.determineUsername());
+            dataSource.setPassword(dataSourceProperties.determinePassword());
+            dataSource.setDriverClassName(dataSourceProperties.determineDriverClassName());
+            dataSource.setMaximumPoolSize(settings.getPoolSize());
+            dataSource.setConnectionTimeout(settings.getConnectionTimeoutMs());
+            pools.put(workloadClass, dataSource);
+        }
+    }
+
+    public Map<WorkloadClass, HikariDataSource> getPools() {
+        return Collections.unmodifiableMap(pools);
+    }
+
+    @Override
+    public void close() {
+        pools.values().forEach(HikariDataSource::close);
+    }
+}
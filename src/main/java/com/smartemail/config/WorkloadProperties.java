@@ -0,0 +1,60 @@
+package com.smartemail.config;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties("emails.workload")
+public class WorkloadProperties {
+
+    private boolean enabled = false;
+
+    // Retry-After sent when a class's queue is full
+    private long retryAfterSeconds = 1;
+
+    private Map<WorkloadClass, Settings> classes = new EnumMap<>(WorkloadClass.class);
+
+    public static class Settings {
+        // Calls of the class running at once
+        private int maxConcurrent = 4;
+        // Calls allowed to wait for a slot; more are refused
+        private int queueCapacity = 50;
+        // How long a caller waits for a slot; a call that has started is never timed out
+        private long timeoutMs = 10000;
+        // Connections of the class's own pool; 0 shares the primary pool, which interactive always does
+        private int poolSize = 0;
+        private long connectionTimeoutMs = 30000;
+
+        public int getMaxConcurrent() { return maxConcurrent; }
+        public void setMaxConcurrent(int maxConcurrent) { this.maxConcurrent = maxConcurrent; }
+
+        public int getQueueCapacity() { return queueCapacity; }
+        public void setQueueCapacity(int queueCapacity) { this.queueCapacity = queueCapacity; }
+
+        public long getTimeoutMs() { return timeoutMs; }
+        public void setTimeoutMs(long timeoutMs) { this.timeoutMs = timeoutMs; }
+
+        public int getPoolSize() { return poolSize; }
+        public void setPoolSize(int poolSize) { this.poolSize = poolSize; }
+
+        public long getConnectionTimeoutMs() { return connectionTimeoutMs; }
+        public void setConnectionTimeoutMs(long connectionTimeoutMs) { this.connectionTimeoutMs = connectionTimeoutMs; }
+    }
+
+    public Settings settingsFor(WorkloadClass workloadClass) {
+        Settings settings = classes.get(workloadClass);
+        return settings != null ? settings : new Settings();
+    }
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public long getRetryAfterSeconds() { return retryAfterSeconds; }
+    public void setRetryAfterSeconds(long retryAfterSeconds) { this.retryAfterSeconds = retryAfterSeconds; }
+
+    public Map<WorkloadClass, Settings> getClasses() { return classes; }
+    public void setClasses(Map<WorkloadClass, Settings> classes) { this.classes = classes; }
+}
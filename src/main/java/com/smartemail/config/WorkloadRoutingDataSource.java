@@ -0,0 +1,13 @@
+package com.smartemail.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+// Picks the primary database pool of the current workload class; threads outside any class count as interactive
+public class WorkloadRoutingDataSource extends AbstractRoutingDataSource {
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        WorkloadClass workloadClass = WorkloadContext.current();
+        return workloadClass != null ? workloadClass : WorkloadClass.INTERACTIVE;
+    }
+}
@@ -22,9 +22,24 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.smartemail.config.Admission;
+import com.smartemail.model.BulkEmailRequest;
+import com.smartemail.model.BulkJob;
 import com.smartemail.model.Email;
+import com.smartemail.model.EmailSummary;
+import com.smartemail.model.EmailThread;
+import com.smartemail.model.IngestTicket;
+import com.smartemail.service.AddressSuggester;
+import com.smartemail.service.AdmissionControl;
+import com.smartemail.service.BulkEmailService;
+import com.smartemail.service.CategoryClassifier;
+import com.smartemail.service.EmailIngestPipeline;
 import com.smartemail.service.EmailService;
+import com.smartemail.service.EmailSyncService;
 import com.smartemail.service.EmailReplyService;
+import com.smartemail.service.NearDuplicateDetector;
+import com.smartemail.service.TemplateRecommender;
+import com.smartemail.service.TemplateService;
 
 import jakarta.validation.Valid;
 import java.util.Map;
@@ -40,6 +55,18 @@ public class EmailController {
     @Autowired
     private EmailReplyService emailReplyService;
     
+    @Autowired
+    private BulkEmailService bulkEmailService;
+    
+    @Autowired
+    private EmailIngestPipeline emailIngestPipeline;
+    
+    @Autowired
+    private EmailSyncService emailSyncService;
+    
+    @Autowired
+    private TemplateService templateService;
+    
     @GetMapping
     public ResponseEntity<List<Email>> getAllEmails() {
         List<Email> emails = emailService.getAllEmails();
@@ -82,19 +109,110 @@ public class EmailController {
         return ResponseEntity.ok(unarchivedEmail);
     }
     
+    @PostMapping("/bulk/archive")
+    public ResponseEntity<BulkJob> bulkArchive(@RequestBody BulkEmailRequest request) {
+        BulkJob job = bulkEmailService.submit(BulkJob.Operation.ARCHIVE, request);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+    }
+    
+    @PostMapping("/bulk/unarchive")
+    public ResponseEntity<BulkJob> bulkUnarchive(@RequestBody BulkEmailRequest request) {
+        BulkJob job = bulkEmailService.submit(BulkJob.Operation.UNARCHIVE, request);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+    }
+    
+    @PostMapping("/bulk/delete")
+    public ResponseEntity<BulkJob> bulkDelete(@RequestBody BulkEmailRequest request) {
+        BulkJob job = bulkEmailService.submit(BulkJob.Operation.DELETE, request);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+    }
+    
+    @GetMapping("/bulk/{jobId}")
+    public ResponseEntity<BulkJob> getBulkJob(@PathVariable String jobId) {
+        BulkJob job = bulkEmailService.getJob(jobId);
+        return ResponseEntity.ok(job);
+    }
+    
+    @PostMapping("/ingest")
+    public ResponseEntity<IngestTicket> ingestEmail(@Valid @RequestBody Email email) {
+        IngestTicket ticket = emailIngestPipeline.submit(email);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(ticket);
+    }
+    
+    @GetMapping("/ingest/{ticketId}")
+    public ResponseEntity<IngestTicket> getIngestTicket(@PathVariable String ticketId) {
+        IngestTicket ticket = emailIngestPipeline.getTicket(ticketId);
+        return ResponseEntity.ok(ticket);
+    }
+    
+    @GetMapping("/ingest/queues")
+    public ResponseEntity<Map<String, Integer>> getIngestQueueDepths() {
+        return ResponseEntity.ok(emailIngestPipeline.getQueueDepths());
+    }
+    
     @GetMapping("/user/{userId}")
     public ResponseEntity<List<Email>> getEmailsByUserId(@PathVariable Long userId) {
         List<Email> emails = emailService.getEmailsByUserId(userId);
         return ResponseEntity.ok(emails);
     }
+    
+    @GetMapping("/user/{userId}/inbox")
+    public ResponseEntity<Page<EmailSummary>> getInbox(
+            @PathVariable Long userId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        Page<EmailSummary> inbox = emailService.getInbox(userId, page, size);
+        return ResponseEntity.ok(inbox);
+    }
+    
+    @GetMapping("/user/{userId}/changes")
+    public ResponseEntity<EmailSyncService.ChangeSet> getChanges(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String since,
+            @RequestParam(required = false) Integer limit) {
+        EmailSyncService.ChangeSet changes = emailSyncService.getChanges(userId, since, limit);
+        return ResponseEntity.ok(changes);
+    }
+    
+    @GetMapping("/user/{userId}/threads")
+    public ResponseEntity<Page<EmailThread>> getThreads(
+            @PathVariable Long userId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        Page<EmailThread> threads = emailService.getThreadsForUser(userId, page, size);
+        return ResponseEntity.ok(threads);
+    }
+    
+    @GetMapping("/user/{userId}/threads/{threadId}")
+    public ResponseEntity<List<Email>> getThreadEmails(@PathVariable Long userId, @PathVariable Long threadId) {
+        List<Email> emails = emailService.getThreadEmails(userId, threadId);
+        return ResponseEntity.ok(emails);
+    }
+    
+    @GetMapping("/user/{userId}/addresses/suggest")
+    public ResponseEntity<List<AddressSuggester.AddressSuggestion>> suggestAddresses(
+            @PathVariable Long userId,
+            @RequestParam(defaultValue = "") String prefix,
+            @RequestParam(defaultValue = "10") int limit) {
+        List<AddressSuggester.AddressSuggestion> suggestions = emailService.suggestAddresses(userId, prefix, limit);
+        return ResponseEntity.ok(suggestions);
+    }
+    
+    @GetMapping("/user/{userId}/duplicates")
+    public ResponseEntity<List<NearDuplicateDetector.DuplicateCluster>> getDuplicateClusters(@PathVariable Long userId) {
+        List<NearDuplicateDetector.DuplicateCluster> clusters = emailService.getDuplicateClusters(userId);
+        return ResponseEntity.ok(clusters);
+    }
 
     @GetMapping("/sender")
+    @Admission(AdmissionControl.EndpointClass.SEARCH)
 public ResponseEntity<List<Email>> getEmailsBySender(@RequestParam String sender) {
     List<Email> emails = emailService.searchEmails(sender, null, null, null, null, null, 0, Integer.MAX_VALUE, "receivedAt", "desc").getContent();
     return ResponseEntity.ok(emails);
 }
     
     @GetMapping("/search")
+    @Admission(AdmissionControl.EndpointClass.SEARCH)
     public ResponseEntity<Page<Email>> searchEmails(
             @RequestParam(required = false) String sender,
             @RequestParam(required = false) String recipient,
@@ -113,6 +231,7 @@ public ResponseEntity<List<Email>> getEmailsBySender(@RequestParam String sender
     }
     
     @GetMapping("/export")
+    @Admission(AdmissionControl.EndpointClass.EXPORT)
     public ResponseEntity<String> exportEmails(
             @RequestParam Long userId,
             @RequestParam(defaultValue = "json") String format) throws IOException {
@@ -140,7 +259,14 @@ public ResponseEntity<List<Email>> getEmailsBySender(@RequestParam String sender
                 .body(exportData);
     }
     
+    @PostMapping("/classify")
+    public ResponseEntity<CategoryClassifier.Prediction> classifyEmail(@RequestBody Map<String, String> content) {
+        CategoryClassifier.Prediction prediction = emailService.classify(content.get("subject"), content.get("body"));
+        return ResponseEntity.ok(prediction);
+    }
+    
     @PostMapping("/{id}/generate-reply")
+    @Admission(AdmissionControl.EndpointClass.REPLY)
     public ResponseEntity<Map<String, String>> generateReply(@PathVariable Long id) {
         Email email = emailService.getEmailById(id);
         Map<String, String> reply = emailReplyService.generateReply(
@@ -151,7 +277,17 @@ public ResponseEntity<List<Email>> getEmailsBySender(@RequestParam String sender
         return ResponseEntity.ok(reply);
     }
     
+    @GetMapping("/{id}/suggested-templates")
+    public ResponseEntity<List<TemplateRecommender.TemplateSuggestion>> getSuggestedTemplates(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "5") int limit) {
+        Email email = emailService.getEmailById(id);
+        List<TemplateRecommender.TemplateSuggestion> suggestions = templateService.suggestTemplates(email, limit);
+        return ResponseEntity.ok(suggestions);
+    }
+    
     @PostMapping("/generate-reply")
+    @Admission(AdmissionControl.EndpointClass.REPLY)
     public ResponseEntity<Map<String, String>> generateReplyFromContent(
             @RequestParam String subject,
             @RequestParam String body,
@@ -0,0 +1,67 @@
+package com.smartemail.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.smartemail.config.Admission;
+import com.smartemail.config.AdmissionInterceptor;
+import com.smartemail.model.ExportJob;
+import com.smartemail.service.AdmissionControl;
+import com.smartemail.service.ExportService;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+@RestController
+@RequestMapping("/exports")
+@CrossOrigin(origins = "*")
+public class ExportController {
+
+    @Autowired
+    private ExportService exportService;
+
+    // The export slot stays taken until the job finishes, not just until the 202 is sent
+    @PostMapping
+    @Admission(AdmissionControl.EndpointClass.EXPORT)
+    public ResponseEntity<ExportJob> createExport(
+            @RequestParam Long userId,
+            @RequestParam(defaultValue = "json") String format,
+            HttpServletRequest request) {
+        ExportJob job = exportService.submit(userId, format, AdmissionInterceptor.takePermit(request));
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+    }
+
+    @GetMapping("/{jobId}")
+    public ResponseEntity<ExportJob> getExport(@PathVariable String jobId) {
+        ExportJob job = exportService.getJob(jobId);
+        return ResponseEntity.ok(job);
+    }
+
+    @DeleteMapping("/{jobId}")
+    public ResponseEntity<Void> deleteExport(@PathVariable String jobId) {
+        exportService.delete(jobId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/{jobId}/file")
+    public ResponseEntity<?> downloadExport(@PathVariable String jobId,
+                                            @RequestHeader HttpHeaders requestHeaders,
+                                            HttpServletRequest request) {
+        ExportJob job = exportService.getJob(jobId);
+        if (job.getStatus() != ExportJob.Status.COMPLETED) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(job);
+        }
+        return SpoolFiles.download(exportService.getFile(job), job.getBytes(), job.getFormat().getContentType(),
+                job.getFilename(), requestHeaders, request);
+    }
+}
@@ -0,0 +1,46 @@
+package com.smartemail.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.smartemail.model.ImportJob;
+import com.smartemail.service.EmailImportService;
+
+@RestController
+@RequestMapping("/imports")
+@CrossOrigin(origins = "*")
+public class ImportController {
+
+    @Autowired
+    private EmailImportService emailImportService;
+
+    @PostMapping
+    public ResponseEntity<ImportJob> createImport(
+            @RequestParam Long userId,
+            @RequestParam Long categoryId,
+            @RequestParam String path) {
+        ImportJob job = emailImportService.submit(userId, categoryId, path);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+    }
+
+    @GetMapping("/{jobId}")
+    public ResponseEntity<ImportJob> getImport(@PathVariable String jobId) {
+        ImportJob job = emailImportService.getJob(jobId);
+        return ResponseEntity.ok(job);
+    }
+
+    @DeleteMapping("/{jobId}")
+    public ResponseEntity<Void> deleteImport(@PathVariable String jobId) {
+        emailImportService.delete(jobId);
+        return ResponseEntity.noContent().build();
+    }
+}
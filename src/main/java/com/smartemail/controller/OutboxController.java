@@ -0,0 +1,23 @@
+package com.smartemail.controller;
+
+import com.smartemail.service.OutboxRelay;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/admin/outbox")
+@CrossOrigin(origins = "*")
+public class OutboxController {
+    
+    @Autowired
+    private OutboxRelay outboxRelay;
+    
+    @GetMapping("/offsets")
+    public ResponseEntity<List<Map<String, Object>>> getOffsets() {
+        return ResponseEntity.ok(outboxRelay.getOffsets());
+    }
+}
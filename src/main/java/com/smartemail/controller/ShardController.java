@@ -0,0 +1,28 @@
+package com.smartemail.controller;
+
+import com.smartemail.service.ShardRebalancer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/admin/shards")
+@CrossOrigin(origins = "*")
+public class ShardController {
+    
+    @Autowired
+    private ShardRebalancer shardRebalancer;
+    
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getShardSummary() {
+        return ResponseEntity.ok(shardRebalancer.getShardSummary());
+    }
+    
+    @PostMapping("/users/{userId}/move")
+    public ResponseEntity<Map<String, Object>> moveUser(@PathVariable Long userId, @RequestParam int targetShard) {
+        Map<String, Object> result = shardRebalancer.moveUser(userId, targetShard);
+        return ResponseEntity.ok(result);
+    }
+}
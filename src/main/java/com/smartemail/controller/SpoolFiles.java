@@ -0,0 +1,63 @@
+package com.smartemail.controller;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+// Serves finished export files with single-range support
+final class SpoolFiles {
+
+    // Tomcat's sendfile hand-off, the same one its DefaultServlet uses for static files
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private SpoolFiles() {}
+
+    static ResponseEntity<?> download(Path file, long length, String contentType, String filename,
+                                      HttpHeaders requestHeaders, HttpServletRequest request) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType(contentType));
+        headers.setContentDisposition(ContentDisposition.attachment().filename(filename).build());
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (!Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            // Spring answers Range requests for resource bodies itself, copying through the heap
+            return ResponseEntity.ok().headers(headers).body(new FileSystemResource(file));
+        }
+
+        long start = 0;
+        long end = length - 1;
+        HttpStatus status = HttpStatus.OK;
+        List<HttpRange> ranges = requestHeaders.getRange();
+        // Multi-range requests are rare for downloads and get the whole file
+        if (ranges.size() == 1) {
+            start = ranges.get(0).getRangeStart(length);
+            end = ranges.get(0).getRangeEnd(length);
+            if (start >= length || start > end) {
+                return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                        .header(HttpHeaders.CONTENT_RANGE, "bytes */" + length)
+                        .build();
+            }
+            status = HttpStatus.PARTIAL_CONTENT;
+            headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        }
+        headers.setContentLength(end - start + 1);
+
+        // Tomcat streams the file from the page cache once the handler returns without writing a body
+        request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+        request.setAttribute(SENDFILE_START, start);
+        request.setAttribute(SENDFILE_END, end + 1);
+        return ResponseEntity.status(status).headers(headers).build();
+    }
+}
@@ -1,6 +1,8 @@
 package com.smartemail.controller;
 
+import com.smartemail.config.Admission;
 import com.smartemail.model.Template;
+import com.smartemail.service.AdmissionControl;
 import com.smartemail.service.TemplateService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -56,6 +58,7 @@ public class TemplateController {
     }
     
     @PostMapping("/{id}/process")
+    @Admission(AdmissionControl.EndpointClass.TEMPLATE)
     public ResponseEntity<String> processTemplate(@PathVariable Long id, @RequestBody Map<String, String> variables) {
         String processedContent = templateService.processTemplate(id, variables);
         return ResponseEntity.ok(processedContent);
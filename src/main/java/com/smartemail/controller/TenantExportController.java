@@ -0,0 +1,58 @@
+package com.smartemail.controller;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import com.smartemail.model.TenantExportJob;
+import com.smartemail.service.TenantExportService;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+@RestController
+@RequestMapping("/admin/exports")
+@CrossOrigin(origins = "*")
+public class TenantExportController {
+    
+    @Autowired
+    private TenantExportService tenantExportService;
+    
+    @PostMapping
+    public ResponseEntity<TenantExportJob> startExport() {
+        TenantExportJob job = tenantExportService.submit();
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+    }
+    
+    @GetMapping
+    public ResponseEntity<List<TenantExportJob>> getExports() {
+        return ResponseEntity.ok(tenantExportService.getJobs());
+    }
+    
+    @GetMapping("/{jobId}")
+    public ResponseEntity<TenantExportJob> getExport(@PathVariable String jobId) {
+        return ResponseEntity.ok(tenantExportService.getJob(jobId));
+    }
+    
+    @GetMapping("/{jobId}/files/{name}")
+    public ResponseEntity<?> downloadFile(@PathVariable String jobId, @PathVariable String name,
+                                          @RequestHeader HttpHeaders requestHeaders,
+                                          HttpServletRequest request) throws IOException {
+        TenantExportJob job = tenantExportService.getJob(jobId);
+        Path file = tenantExportService.getFile(job, name);
+        String contentType = name.endsWith(".jsonl") ? "application/x-ndjson" : "application/json";
+        return SpoolFiles.download(file, Files.size(file), contentType, name, requestHeaders, request);
+    }
+    
+    @DeleteMapping("/{jobId}")
+    public ResponseEntity<Void> deleteExport(@PathVariable String jobId) throws IOException {
+        tenantExportService.delete(jobId);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,8 @@
+package com.smartemail.exception;
+
+// The token points before the oldest retained tombstone; the client has to resync from scratch
+public class SyncTokenExpiredException extends RuntimeException {
+    public SyncTokenExpiredException(String message) {
+        super(message);
+    }
+}
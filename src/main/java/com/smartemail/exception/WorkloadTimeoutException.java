@@ -0,0 +1,8 @@
+package com.smartemail.exception;
+
+public class WorkloadTimeoutException extends RuntimeException {
+
+    public WorkloadTimeoutException(String message) {
+        super(message);
+    }
+}
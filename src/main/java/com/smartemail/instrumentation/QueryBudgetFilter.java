@@ -0,0 +1,83 @@
+package com.smartemail.instrumentation;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+@Component
+public class QueryBudgetFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryBudgetFilter.class);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${emails.query-budget.enabled:true}")
+    private boolean enabled;
+
+    @Value("${emails.query-budget.max-statements:10}")
+    private int maxStatements;
+
+    @Value("${emails.query-budget.repeat-threshold:3}")
+    private int repeatThreshold;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        QueryCounter.start(request.getMethod() + " " + request.getRequestURI());
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            QueryStats stats = QueryCounter.stop();
+            report(request, stats);
+        }
+    }
+
+    private void report(HttpServletRequest request, QueryStats stats) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+        String endpoint = request.getMethod() + " " + uri;
+
+        DistributionSummary.builder("http.server.requests.statements")
+                .description("JDBC statements issued by Hibernate per request")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .register(meterRegistry)
+                .record(stats.getStatementCount());
+        DistributionSummary.builder("http.server.requests.entity_loads")
+                .description("Entities loaded by Hibernate per request")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .register(meterRegistry)
+                .record(stats.getEntityLoadCount());
+
+        Map<String, Integer> repeated = stats.getRepeatedShapes(repeatThreshold);
+        if (!repeated.isEmpty()) {
+            log.warn("Possible N+1 on {} ({}): {}", endpoint, request.getRequestURI(), repeated);
+        }
+        if (stats.getStatementCount() > maxStatements) {
+            log.warn("Query budget exceeded on {} ({}): {} statements, {} entity loads, budget {}",
+                    endpoint, request.getRequestURI(), stats.getStatementCount(), stats.getEntityLoadCount(),
+                    maxStatements);
+        }
+    }
+}
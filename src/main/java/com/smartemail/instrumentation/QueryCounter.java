@@ -0,0 +1,64 @@
+package com.smartemail.instrumentation;
+
+// Thread-bound query accounting. Requests are wrapped by QueryBudgetFilter; tests can wrap any block:
+//
+//   QueryCounter.start("GET /users");
+//   mockMvc.perform(get("/users"));
+//   QueryCounter.stop().assertMaxStatements(2);
+//
+// or, after a MockMvc call, inspect QueryCounter.lastCompleted().
+public final class QueryCounter {
+
+    private static final ThreadLocal<QueryStats> current = new ThreadLocal<>();
+    private static final ThreadLocal<QueryStats> lastCompleted = new ThreadLocal<>();
+
+    private QueryCounter() {}
+
+    public static QueryStats start(String endpoint) {
+        QueryStats stats = new QueryStats(endpoint);
+        current.set(stats);
+        return stats;
+    }
+
+    public static QueryStats current() {
+        return current.get();
+    }
+
+    // Lets work handed to another thread count against the request waiting for it; returns what was bound before
+    public static QueryStats bind(QueryStats stats) {
+        QueryStats previous = current.get();
+        if (stats == null) {
+            current.remove();
+        } else {
+            current.set(stats);
+        }
+        return previous;
+    }
+
+    public static QueryStats stop() {
+        QueryStats stats = current.get();
+        current.remove();
+        if (stats != null) {
+            lastCompleted.set(stats);
+        }
+        return stats;
+    }
+
+    public static QueryStats lastCompleted() {
+        return lastCompleted.get();
+    }
+
+    static void statement(String sql) {
+        QueryStats stats = current.get();
+        if (stats != null) {
+            stats.recordStatement(sql);
+        }
+    }
+
+    static void entityLoad() {
+        QueryStats stats = current.get();
+        if (stats != null) {
+            stats.recordEntityLoad();
+        }
+    }
+}
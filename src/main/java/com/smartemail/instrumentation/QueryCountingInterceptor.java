@@ -0,0 +1,21 @@
+package com.smartemail.instrumentation;
+
+import org.hibernate.Interceptor;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.type.Type;
+
+// Registered with Hibernate as both statement inspector and interceptor
+public class QueryCountingInterceptor implements StatementInspector, Interceptor {
+
+    @Override
+    public String inspect(String sql) {
+        QueryCounter.statement(sql);
+        return sql;
+    }
+
+    @Override
+    public boolean onLoad(Object entity, Object id, Object[] state, String[] propertyNames, Type[] types) {
+        QueryCounter.entityLoad();
+        return false;
+    }
+}
@@ -0,0 +1,85 @@
+package com.smartemail.instrumentation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+// Statements and entity loads observed while handling one request (or one test block). Workload executor threads
+// record into the same instance, and may still do so after a timed-out caller has read it, so counts are concurrent
+public class QueryStats {
+
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern NUMBER = Pattern.compile("\\b\\d+\\b");
+    private static final Pattern STRING = Pattern.compile("'[^']*'");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final String endpoint;
+    private final AtomicInteger statementCount = new AtomicInteger();
+    private final AtomicInteger entityLoadCount = new AtomicInteger();
+    private final Map<String, Integer> shapes = new ConcurrentHashMap<>();
+
+    public QueryStats(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    void recordStatement(String sql) {
+        statementCount.incrementAndGet();
+        shapes.merge(shapeOf(sql), 1, Integer::sum);
+    }
+
+    void recordEntityLoad() {
+        entityLoadCount.incrementAndGet();
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public int getStatementCount() {
+        return statementCount.get();
+    }
+
+    public int getEntityLoadCount() {
+        return entityLoadCount.get();
+    }
+
+    // Statement shapes executed at least `threshold` times, the usual N+1 signature
+    public Map<String, Integer> getRepeatedShapes(int threshold) {
+        Map<String, Integer> repeated = new LinkedHashMap<>();
+        shapes.forEach((shape, count) -> {
+            if (count >= threshold) {
+                repeated.put(shape, count);
+            }
+        });
+        return repeated;
+    }
+
+    public void assertMaxStatements(int max) {
+        int statements = statementCount.get();
+        if (statements > max) {
+            throw new AssertionError(endpoint + " executed " + statements + " statements, budget is " + max
+                    + "; statements by shape: " + shapes);
+        }
+    }
+
+    public void assertNoRepeatedShapes(int threshold) {
+        Map<String, Integer> repeated = getRepeatedShapes(threshold);
+        if (!repeated.isEmpty()) {
+            throw new AssertionError(endpoint + " repeated statements (possible N+1): " + repeated);
+        }
+    }
+
+    static String shapeOf(String sql) {
+        String shape = STRING.matcher(sql).replaceAll("?");
+        shape = NUMBER.matcher(shape).replaceAll("?");
+        shape = IN_LIST.matcher(shape).replaceAll("(?...)");
+        return WHITESPACE.matcher(shape).replaceAll(" ").trim().toLowerCase();
+    }
+
+    @Override
+    public String toString() {
+        return endpoint + ": " + statementCount.get() + " statements, " + entityLoadCount.get() + " entity loads";
+    }
+}
@@ -0,0 +1,54 @@
+package com.smartemail.instrumentation;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Marker;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+
+// Keeps one in N events for loggers under a prefix, decided before the message is formatted.
+// Events above maxLevel (e.g. warnings) always pass.
+public class SamplingTurboFilter extends TurboFilter {
+
+    private String loggerPrefix;
+    private int keepOneIn = 1;
+    private Level maxLevel = Level.DEBUG;
+
+    private final AtomicLong counter = new AtomicLong();
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        // isDebugEnabled()-style checks carry no format; sampling those would compound with the log call itself
+        if (!isStarted() || keepOneIn <= 1 || format == null || level == null) {
+            return FilterReply.NEUTRAL;
+        }
+        if (level.toInt() > maxLevel.toInt() || !logger.getName().startsWith(loggerPrefix)) {
+            return FilterReply.NEUTRAL;
+        }
+        return counter.getAndIncrement() % keepOneIn == 0 ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+
+    @Override
+    public void start() {
+        if (loggerPrefix == null) {
+            addError("No loggerPrefix set for sampling filter " + getName());
+            return;
+        }
+        super.start();
+    }
+
+    public void setLoggerPrefix(String loggerPrefix) {
+        this.loggerPrefix = loggerPrefix;
+    }
+
+    public void setKeepOneIn(int keepOneIn) {
+        this.keepOneIn = keepOneIn;
+    }
+
+    public void setMaxLevel(String maxLevel) {
+        this.maxLevel = Level.toLevel(maxLevel, Level.DEBUG);
+    }
+}
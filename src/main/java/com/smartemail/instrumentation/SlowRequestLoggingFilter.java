@@ -0,0 +1,41 @@
+package com.smartemail.instrumentation;
+
+import java.io.IOException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+@Component
+public class SlowRequestLoggingFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(SlowRequestLoggingFilter.class);
+
+    @Value("${emails.logging.slow-request-ms:1000}")
+    private long slowRequestMillis;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            if (elapsedMillis >= slowRequestMillis) {
+                log.warn("Slow request method={} uri={} pattern={} status={} durationMs={}",
+                        request.getMethod(), request.getRequestURI(),
+                        request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE),
+                        response.getStatus(), elapsedMillis);
+            }
+        }
+    }
+}
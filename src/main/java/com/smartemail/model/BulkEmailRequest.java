@@ -0,0 +1,102 @@
+package com.smartemail.model;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class BulkEmailRequest {
+    // Always required; every bulk operation is scoped to one user's emails
+    private Long userId;
+
+    // Either an explicit id list or the searchEmails filter fields
+    private List<Long> ids;
+
+    private String sender;
+    private String recipient;
+    private String subject;
+    private Long categoryId;
+    private Email.Sentiment sentiment;
+    private Boolean archived;
+
+    // Only emails received strictly before this instant are affected
+    private LocalDateTime olderThan;
+
+    // Default constructor
+    public BulkEmailRequest() {}
+
+    public boolean hasIds() {
+        return ids != null && !ids.isEmpty();
+    }
+
+    // Getters and Setters
+    public List<Long> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<Long> ids) {
+        this.ids = ids;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public String getSender() {
+        return sender;
+    }
+
+    public void setSender(String sender) {
+        this.sender = sender;
+    }
+
+    public String getRecipient() {
+        return recipient;
+    }
+
+    public void setRecipient(String recipient) {
+        this.recipient = recipient;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public void setSubject(String subject) {
+        this.subject = subject;
+    }
+
+    public Long getCategoryId() {
+        return categoryId;
+    }
+
+    public void setCategoryId(Long categoryId) {
+        this.categoryId = categoryId;
+    }
+
+    public Email.Sentiment getSentiment() {
+        return sentiment;
+    }
+
+    public void setSentiment(Email.Sentiment sentiment) {
+        this.sentiment = sentiment;
+    }
+
+    public Boolean getArchived() {
+        return archived;
+    }
+
+    public void setArchived(Boolean archived) {
+        this.archived = archived;
+    }
+
+    public LocalDateTime getOlderThan() {
+        return olderThan;
+    }
+
+    public void setOlderThan(LocalDateTime olderThan) {
+        this.olderThan = olderThan;
+    }
+}
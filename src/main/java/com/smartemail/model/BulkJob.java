@@ -0,0 +1,80 @@
+package com.smartemail.model;
+
+import java.time.LocalDateTime;
+
+public class BulkJob {
+    private final String id;
+    private final Operation operation;
+    private volatile Status status = Status.PENDING;
+    private volatile long total;
+    private volatile long processed;
+    private volatile String error;
+    private final LocalDateTime createdAt = LocalDateTime.now();
+    private volatile LocalDateTime finishedAt;
+
+    public enum Operation {
+        ARCHIVE, UNARCHIVE, DELETE
+    }
+
+    public enum Status {
+        PENDING, RUNNING, COMPLETED, FAILED
+    }
+
+    public BulkJob(String id, Operation operation) {
+        this.id = id;
+        this.operation = operation;
+    }
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    public long getProcessed() {
+        return processed;
+    }
+
+    public void setProcessed(long processed) {
+        this.processed = processed;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+}
@@ -0,0 +1,126 @@
+package com.smartemail.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+// One committed write, appended so other app nodes can evict what they cached for it.
+// A null entityId means "any of this type for the user"; a null entityType means everything.
+@Entity
+@Table(name = "change_log", indexes = @Index(name = "idx_change_log_created", columnList = "created_at"))
+public class ChangeLogEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entity_type", length = 16)
+    private EntityType entityType;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Action action;
+
+    @Column(name = "entity_id")
+    private Long entityId;
+
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "origin_node", nullable = false, length = 64)
+    private String originNode;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    public enum EntityType {
+        USER, CATEGORY, TEMPLATE, EMAIL
+    }
+
+    public enum Action {
+        CREATED, UPDATED, DELETED
+    }
+
+    // Default constructor
+    public ChangeLogEntry() {}
+
+    public ChangeLogEntry(EntityType entityType, Action action, Long entityId, Long userId, String originNode) {
+        this.entityType = entityType;
+        this.action = action;
+        this.entityId = entityId;
+        this.userId = userId;
+        this.originNode = originNode;
+    }
+
+    // Published locally when a node may have missed entries and has to drop all cached state
+    public static ChangeLogEntry everything(String originNode) {
+        return new ChangeLogEntry(null, Action.UPDATED, null, null, originNode);
+    }
+
+    public boolean isEverything() {
+        return entityType == null;
+    }
+
+    public boolean is(EntityType type) {
+        return entityType == type;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public EntityType getEntityType() {
+        return entityType;
+    }
+
+    public void setEntityType(EntityType entityType) {
+        this.entityType = entityType;
+    }
+
+    public Action getAction() {
+        return action;
+    }
+
+    public void setAction(Action action) {
+        this.action = action;
+    }
+
+    public Long getEntityId() {
+        return entityId;
+    }
+
+    public void setEntityId(Long entityId) {
+        this.entityId = entityId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public String getOriginNode() {
+        return originNode;
+    }
+
+    public void setOriginNode(String originNode) {
+        this.originNode = originNode;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -5,13 +5,16 @@ import com.fasterxml.jackson.annotation.JsonManagedReference;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
-import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "emails")
+@Table(name = "emails", indexes = {
+        @Index(name = "idx_emails_thread", columnList = "thread_id, received_at"),
+        @Index(name = "idx_emails_user_updated", columnList = "user_id, updated_at, id")
+})
 public class Email {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -41,7 +44,7 @@ public class Email {
     @Column(length = 5000)
     private String body;
 
-    @NotNull(message = "Category ID is required")
+    // Optional on input when the category classifier is allowed to fill it in
     @Column(name = "category_id", nullable = false)
     private Long categoryId;
 
@@ -56,10 +59,22 @@ public class Email {
     @Column(nullable = false)
     private Boolean archived = false;
 
-    @CreationTimestamp
+    @Column(name = "thread_id")
+    private Long threadId;
+
+    // Earlier email this one was detected as a near-duplicate of
+    @Column(name = "duplicate_of")
+    private Long duplicateOf;
+
+    // Set on insert unless an import carries the message's original date
     @Column(name = "received_at", nullable = false, updatable = false)
     private LocalDateTime receivedAt;
 
+    // Also bumped when one of its follow-ups changes, so delta sync only has to follow emails
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
     @OneToMany(mappedBy = "email", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JsonManagedReference("email-followups")
     private List<FollowUp> followUps;
@@ -68,6 +83,13 @@ public class Email {
         POSITIVE, NEGATIVE, NEUTRAL
     }
 
+    @PrePersist
+    void defaultReceivedAt() {
+        if (receivedAt == null) {
+            receivedAt = LocalDateTime.now();
+        }
+    }
+
     // Default constructor
     public Email() {}
 
@@ -180,6 +202,30 @@ public class Email {
         this.receivedAt = receivedAt;
     }
 
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public Long getThreadId() {
+        return threadId;
+    }
+
+    public void setThreadId(Long threadId) {
+        this.threadId = threadId;
+    }
+
+    public Long getDuplicateOf() {
+        return duplicateOf;
+    }
+
+    public void setDuplicateOf(Long duplicateOf) {
+        this.duplicateOf = duplicateOf;
+    }
+
     public List<FollowUp> getFollowUps() {
         return followUps;
     }
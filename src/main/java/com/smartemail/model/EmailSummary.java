@@ -0,0 +1,112 @@
+package com.smartemail.model;
+
+import java.time.LocalDateTime;
+
+// Inbox row without the full body or follow-ups
+public class EmailSummary {
+    private final Long id;
+    private final Long userId;
+    private final String sender;
+    private final String recipient;
+    private final String subject;
+    private final String snippet;
+    private final Long categoryId;
+    private final Email.Sentiment sentiment;
+    private final boolean archived;
+    private final Long threadId;
+    private final LocalDateTime receivedAt;
+
+    public EmailSummary(Email email, int snippetLength) {
+        this.id = email.getId();
+        this.userId = email.getUserId();
+        this.sender = email.getSender();
+        this.recipient = email.getRecipient();
+        this.subject = email.getSubject();
+        this.snippet = snippetOf(email.getBody(), snippetLength);
+        this.categoryId = email.getCategoryId();
+        this.sentiment = email.getSentiment();
+        this.archived = Boolean.TRUE.equals(email.getArchived());
+        this.threadId = email.getThreadId();
+        this.receivedAt = email.getReceivedAt();
+    }
+
+    private EmailSummary(EmailSummary other, boolean archived) {
+        this.id = other.id;
+        this.userId = other.userId;
+        this.sender = other.sender;
+        this.recipient = other.recipient;
+        this.subject = other.subject;
+        this.snippet = other.snippet;
+        this.categoryId = other.categoryId;
+        this.sentiment = other.sentiment;
+        this.archived = archived;
+        this.threadId = other.threadId;
+        this.receivedAt = other.receivedAt;
+    }
+
+    public EmailSummary withArchived(boolean archived) {
+        return archived == this.archived ? this : new EmailSummary(this, archived);
+    }
+
+    private static String snippetOf(String body, int length) {
+        if (body == null) {
+            return null;
+        }
+        String collapsed = body.replaceAll("\\s+", " ").trim();
+        return collapsed.length() <= length ? collapsed : collapsed.substring(0, length);
+    }
+
+    // Rough heap footprint, used to keep the hot-inbox cache under its memory cap
+    public long estimatedBytes() {
+        return 96 + 2L * (length(sender) + length(recipient) + length(subject) + length(snippet));
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    // Getters
+    public Long getId() {
+        return id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getSender() {
+        return sender;
+    }
+
+    public String getRecipient() {
+        return recipient;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public String getSnippet() {
+        return snippet;
+    }
+
+    public Long getCategoryId() {
+        return categoryId;
+    }
+
+    public Email.Sentiment getSentiment() {
+        return sentiment;
+    }
+
+    public boolean getArchived() {
+        return archived;
+    }
+
+    public Long getThreadId() {
+        return threadId;
+    }
+
+    public LocalDateTime getReceivedAt() {
+        return receivedAt;
+    }
+}
@@ -0,0 +1,128 @@
+package com.smartemail.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+// Summary row per conversation, maintained on every email write so thread listings never touch the emails table
+@Entity
+@Table(name = "email_threads",
+       uniqueConstraints = @UniqueConstraint(name = "uk_email_threads_key", columnNames = {"user_id", "thread_key"}),
+       indexes = @Index(name = "idx_email_threads_activity", columnList = "user_id, last_activity_at"))
+public class EmailThread {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    // Hash of the normalized subject and participant set
+    @JsonIgnore
+    @Column(name = "thread_key", nullable = false, length = 32)
+    private String threadKey;
+
+    @Column(nullable = false)
+    private String subject;
+
+    @Column(length = 1000)
+    private String participants;
+
+    @Column(name = "message_count", nullable = false)
+    private Integer messageCount = 0;
+
+    @Column(name = "last_email_id")
+    private Long lastEmailId;
+
+    @Column(name = "last_activity_at")
+    private LocalDateTime lastActivityAt;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    // Default constructor
+    public EmailThread() {}
+
+    public EmailThread(Long userId, String threadKey, String subject, String participants) {
+        this.userId = userId;
+        this.threadKey = threadKey;
+        this.subject = subject;
+        this.participants = participants;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public String getThreadKey() {
+        return threadKey;
+    }
+
+    public void setThreadKey(String threadKey) {
+        this.threadKey = threadKey;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public void setSubject(String subject) {
+        this.subject = subject;
+    }
+
+    public String getParticipants() {
+        return participants;
+    }
+
+    public void setParticipants(String participants) {
+        this.participants = participants;
+    }
+
+    public Integer getMessageCount() {
+        return messageCount;
+    }
+
+    public void setMessageCount(Integer messageCount) {
+        this.messageCount = messageCount;
+    }
+
+    public Long getLastEmailId() {
+        return lastEmailId;
+    }
+
+    public void setLastEmailId(Long lastEmailId) {
+        this.lastEmailId = lastEmailId;
+    }
+
+    public LocalDateTime getLastActivityAt() {
+        return lastActivityAt;
+    }
+
+    public void setLastActivityAt(LocalDateTime lastActivityAt) {
+        this.lastActivityAt = lastActivityAt;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,115 @@
+package com.smartemail.model;
+
+import java.time.LocalDateTime;
+
+public class ExportJob {
+    private final String id;
+    private final Long userId;
+    private final Format format;
+    private volatile Status status = Status.PENDING;
+    private volatile long total;
+    private volatile long processed;
+    private volatile long bytes;
+    private volatile String error;
+    private final LocalDateTime createdAt = LocalDateTime.now();
+    private volatile LocalDateTime finishedAt;
+
+    public enum Format {
+        JSON("json", "application/json"), CSV("csv", "text/csv");
+
+        private final String extension;
+        private final String contentType;
+
+        Format(String extension, String contentType) {
+            this.extension = extension;
+            this.contentType = contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+    }
+
+    public enum Status {
+        PENDING, RUNNING, COMPLETED, FAILED, CANCELLED
+    }
+
+    public ExportJob(String id, Long userId, Format format) {
+        this.id = id;
+        this.userId = userId;
+        this.format = format;
+    }
+
+    public String getFilename() {
+        return "emails_" + userId + "." + format.getExtension();
+    }
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    public long getProcessed() {
+        return processed;
+    }
+
+    public void setProcessed(long processed) {
+        this.processed = processed;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public void setBytes(long bytes) {
+        this.bytes = bytes;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+}
@@ -3,6 +3,7 @@ package com.smartemail.model;
 import com.fasterxml.jackson.annotation.JsonBackReference;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
+import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDateTime;
 
@@ -30,6 +31,10 @@ public class FollowUp {
     @Column(nullable = false)
     private Status status = Status.PENDING;
 
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
     public enum Status {
         PENDING, DONE, SNOOZED, OVERDUE
     }
@@ -84,4 +89,12 @@ public class FollowUp {
     public void setStatus(Status status) {
         this.status = status;
     }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,126 @@
+package com.smartemail.model;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ImportJob {
+    private final String id;
+    private final Long userId;
+    private final Long categoryId;
+    private final String source;
+    private volatile Status status = Status.PENDING;
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong imported = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final List<MessageError> errors = new CopyOnWriteArrayList<>();
+    private volatile String error;
+    private final LocalDateTime createdAt = LocalDateTime.now();
+    private volatile LocalDateTime finishedAt;
+
+    public enum Status {
+        PENDING, RUNNING, COMPLETED, FAILED, CANCELLED
+    }
+
+    // A message that was not imported; source is its position in the mbox or its path in the directory
+    public static class MessageError {
+        private final String source;
+        private final String messageId;
+        private final String error;
+
+        public MessageError(String source, String messageId, String error) {
+            this.source = source;
+            this.messageId = messageId;
+            this.error = error;
+        }
+
+        public String getSource() { return source; }
+        public String getMessageId() { return messageId; }
+        public String getError() { return error; }
+    }
+
+    public ImportJob(String id, Long userId, Long categoryId, String source) {
+        this.id = id;
+        this.userId = userId;
+        this.categoryId = categoryId;
+        this.source = source;
+    }
+
+    public void addRead() {
+        total.incrementAndGet();
+    }
+
+    public void addImported(long count) {
+        imported.addAndGet(count);
+    }
+
+    // Every failure is counted, only the first maxErrors are kept with their details
+    public void addFailure(MessageError failure, int maxErrors) {
+        failed.incrementAndGet();
+        if (errors.size() < maxErrors) {
+            errors.add(failure);
+        }
+    }
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public Long getCategoryId() {
+        return categoryId;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public long getTotal() {
+        return total.get();
+    }
+
+    public long getImported() {
+        return imported.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public List<MessageError> getErrors() {
+        return errors;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+}
@@ -0,0 +1,61 @@
+package com.smartemail.model;
+
+import java.time.LocalDateTime;
+
+public class IngestTicket {
+    private final String id;
+    private volatile Status status = Status.QUEUED;
+    private volatile Long emailId;
+    private volatile String error;
+    private final LocalDateTime createdAt = LocalDateTime.now();
+    private volatile LocalDateTime finishedAt;
+
+    public enum Status {
+        QUEUED, VALIDATED, ENRICHED, PERSISTED, REJECTED, FAILED
+    }
+
+    public IngestTicket(String id) {
+        this.id = id;
+    }
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public Long getEmailId() {
+        return emailId;
+    }
+
+    public void setEmailId(Long emailId) {
+        this.emailId = emailId;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+}
@@ -0,0 +1,108 @@
+package com.smartemail.model;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+// Change event written in the same transaction as the row it describes, on the same shard.
+// Ids order events within a shard; the relay hands them to sinks in that order.
+@Entity
+@Table(name = "outbox_events", indexes = @Index(name = "idx_outbox_events_created", columnList = "created_at"))
+public class OutboxEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "aggregate_type", nullable = false, length = 16)
+    private AggregateType aggregateType;
+
+    @Column(name = "aggregate_id", nullable = false)
+    private Long aggregateId;
+
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", nullable = false, length = 16)
+    private EventType eventType;
+
+    // JSON of the new state, or only the changed fields for partial updates; empty for deletes.
+    // The length makes MySQL use mediumtext; a bare @Lob String is tinytext (255 bytes)
+    @JsonRawValue
+    @Lob
+    @Column(length = 1_000_000)
+    private String payload;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public enum AggregateType {
+        EMAIL, FOLLOW_UP, TEMPLATE
+    }
+
+    public enum EventType {
+        CREATED, UPDATED, DELETED
+    }
+
+    // Default constructor
+    public OutboxEvent() {}
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public AggregateType getAggregateType() {
+        return aggregateType;
+    }
+
+    public void setAggregateType(AggregateType aggregateType) {
+        this.aggregateType = aggregateType;
+    }
+
+    public Long getAggregateId() {
+        return aggregateId;
+    }
+
+    public void setAggregateId(Long aggregateId) {
+        this.aggregateId = aggregateId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public EventType getEventType() {
+        return eventType;
+    }
+
+    public void setEventType(EventType eventType) {
+        this.eventType = eventType;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
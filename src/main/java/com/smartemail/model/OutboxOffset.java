@@ -0,0 +1,76 @@
+package com.smartemail.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+// Last outbox event id a sink has received from one shard; stored on shard 0
+@Entity
+@Table(name = "outbox_offsets",
+       uniqueConstraints = @UniqueConstraint(name = "uk_outbox_offsets_consumer", columnNames = {"consumer", "shard_id"}))
+public class OutboxOffset {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 64)
+    private String consumer;
+
+    @Column(name = "shard_id", nullable = false)
+    private Integer shardId;
+
+    @Column(name = "last_event_id", nullable = false)
+    private Long lastEventId = 0L;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    // Default constructor
+    public OutboxOffset() {}
+
+    public OutboxOffset(String consumer, Integer shardId) {
+        this.consumer = consumer;
+        this.shardId = shardId;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getConsumer() {
+        return consumer;
+    }
+
+    public void setConsumer(String consumer) {
+        this.consumer = consumer;
+    }
+
+    public Integer getShardId() {
+        return shardId;
+    }
+
+    public void setShardId(Integer shardId) {
+        this.shardId = shardId;
+    }
+
+    public Long getLastEventId() {
+        return lastEventId;
+    }
+
+    public void setLastEventId(Long lastEventId) {
+        this.lastEventId = lastEventId;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
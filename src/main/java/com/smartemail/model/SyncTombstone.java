@@ -0,0 +1,87 @@
+package com.smartemail.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+// Marks a deleted email or follow-up so delta sync can tell clients to drop it; lives on the owner's shard.
+// An email tombstone also covers the email's follow-ups, and an email moved to another user leaves one
+// behind for its previous owner.
+@Entity
+@Table(name = "sync_tombstones", indexes = {
+        @Index(name = "idx_sync_tombstones_user", columnList = "user_id, deleted_at, id"),
+        @Index(name = "idx_sync_tombstones_deleted", columnList = "deleted_at")
+})
+public class SyncTombstone {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entity_type", nullable = false, length = 16)
+    private EntityType entityType;
+
+    @Column(name = "entity_id", nullable = false)
+    private Long entityId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "deleted_at", nullable = false)
+    private LocalDateTime deletedAt;
+
+    public enum EntityType {
+        EMAIL, FOLLOW_UP
+    }
+
+    // Default constructor
+    public SyncTombstone() {}
+
+    public SyncTombstone(EntityType entityType, Long entityId, Long userId) {
+        this.entityType = entityType;
+        this.entityId = entityId;
+        this.userId = userId;
+        this.deletedAt = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public EntityType getEntityType() {
+        return entityType;
+    }
+
+    public void setEntityType(EntityType entityType) {
+        this.entityType = entityType;
+    }
+
+    public Long getEntityId() {
+        return entityId;
+    }
+
+    public void setEntityId(Long entityId) {
+        this.entityId = entityId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public LocalDateTime getDeletedAt() {
+        return deletedAt;
+    }
+
+    public void setDeletedAt(LocalDateTime deletedAt) {
+        this.deletedAt = deletedAt;
+    }
+}
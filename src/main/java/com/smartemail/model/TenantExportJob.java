@@ -0,0 +1,120 @@
+package com.smartemail.model;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// A full export of the emails table, split into id ranges per shard; serialized as the export's manifest
+public class TenantExportJob {
+    private final String id;
+    private final int parallelism;
+    private volatile Status status = Status.PENDING;
+    private volatile List<Partition> partitions = List.of();
+    private volatile long total;
+    private final AtomicLong processed = new AtomicLong();
+    private volatile String error;
+    private final LocalDateTime createdAt = LocalDateTime.now();
+    private volatile LocalDateTime finishedAt;
+
+    public enum Status {
+        PENDING, RUNNING, COMPLETED, FAILED
+    }
+
+    // Rows with fromId < id <= toId on one shard, written as JSON lines to its own file
+    public static class Partition {
+        private final int shard;
+        private final long fromId;
+        private final long toId;
+        private final String file;
+        private volatile Status status = Status.PENDING;
+        private volatile long rows;
+        private volatile long bytes;
+        private volatile String sha256;
+
+        public Partition(int shard, long fromId, long toId, String file) {
+            this.shard = shard;
+            this.fromId = fromId;
+            this.toId = toId;
+            this.file = file;
+        }
+
+        public int getShard() { return shard; }
+        public long getFromId() { return fromId; }
+        public long getToId() { return toId; }
+        public String getFile() { return file; }
+        public Status getStatus() { return status; }
+        public void setStatus(Status status) { this.status = status; }
+        public long getRows() { return rows; }
+        public void setRows(long rows) { this.rows = rows; }
+        public long getBytes() { return bytes; }
+        public void setBytes(long bytes) { this.bytes = bytes; }
+        public String getSha256() { return sha256; }
+        public void setSha256(String sha256) { this.sha256 = sha256; }
+    }
+
+    public TenantExportJob(String id, int parallelism) {
+        this.id = id;
+        this.parallelism = parallelism;
+    }
+
+    public void addProcessed(long rows) {
+        processed.addAndGet(rows);
+    }
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public List<Partition> getPartitions() {
+        return partitions;
+    }
+
+    public void setPartitions(List<Partition> partitions) {
+        this.partitions = partitions;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    public long getProcessed() {
+        return processed.get();
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+}
@@ -0,0 +1,54 @@
+package com.smartemail.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "user_shards")
+public class UserShard {
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "shard_id", nullable = false)
+    private Integer shardId;
+
+    @Column(name = "assigned_at", nullable = false)
+    private LocalDateTime assignedAt;
+
+    // Default constructor
+    public UserShard() {}
+
+    // Constructor with parameters
+    public UserShard(Long userId, Integer shardId) {
+        this.userId = userId;
+        this.shardId = shardId;
+        this.assignedAt = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Integer getShardId() {
+        return shardId;
+    }
+
+    public void setShardId(Integer shardId) {
+        this.shardId = shardId;
+    }
+
+    public LocalDateTime getAssignedAt() {
+        return assignedAt;
+    }
+
+    public void setAssignedAt(LocalDateTime assignedAt) {
+        this.assignedAt = assignedAt;
+    }
+}
@@ -0,0 +1,24 @@
+package com.smartemail.repository;
+
+import com.smartemail.model.ChangeLogEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ChangeLogRepository extends JpaRepository<ChangeLogEntry, Long> {
+    List<ChangeLogEntry> findByIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable);
+
+    @Query("SELECT COALESCE(MAX(c.id), 0) FROM ChangeLogEntry c")
+    long findMaxId();
+
+    @Modifying
+    @Query("DELETE FROM ChangeLogEntry c WHERE c.createdAt < :cutoff")
+    int deleteOlderThan(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -4,11 +4,15 @@ import com.smartemail.model.Email;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface EmailRepository extends JpaRepository<Email, Long> {
@@ -36,4 +40,126 @@ public interface EmailRepository extends JpaRepository<Email, Long> {
     List<Email> findByCategoryId(Long categoryId);
     
     List<Email> findBySentiment(Email.Sentiment sentiment);
+    
+    List<Email> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+    
+    List<Email> findByIdBetweenOrderByIdAsc(Long fromId, Long toId, Pageable pageable);
+    
+    @Query("SELECT MAX(e.id) FROM Email e")
+    Long findMaxId();
+    
+    List<Email> findByUserIdAndIdGreaterThanOrderByIdAsc(Long userId, Long id, Pageable pageable);
+    
+    long countByUserId(Long userId);
+    
+    List<Email> findByThreadIdIsNullAndIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+    
+    List<Email> findByThreadIdOrderByReceivedAtAsc(Long threadId);
+    
+    Optional<Email> findFirstByThreadIdOrderByReceivedAtDescIdDesc(Long threadId);
+    
+    @Query("SELECT e.sender, COUNT(e), MAX(e.receivedAt) FROM Email e WHERE e.userId = :userId GROUP BY e.sender")
+    List<Object[]> countSendersByUserId(@Param("userId") Long userId);
+    
+    @Query("SELECT e.recipient, COUNT(e), MAX(e.receivedAt) FROM Email e WHERE e.userId = :userId GROUP BY e.recipient")
+    List<Object[]> countRecipientsByUserId(@Param("userId") Long userId);
+    
+    @Query("SELECT e.threadId, e.id FROM Email e WHERE e.id IN :ids AND e.threadId IS NOT NULL")
+    List<Object[]> findThreadIdsByIds(@Param("ids") Collection<Long> ids);
+    
+    @Query("SELECT e.id, e.userId FROM Email e WHERE e.id IN :ids")
+    List<Object[]> findOwnersByIds(@Param("ids") Collection<Long> ids);
+    
+    @Modifying
+    @Query("UPDATE Email e SET e.threadId = :threadId, e.updatedAt = :now WHERE e.id = :id")
+    int updateThreadId(@Param("id") Long id, @Param("threadId") Long threadId, @Param("now") LocalDateTime now);
+    
+    // Delta sync walks a user's changes in (updatedAt, id) order; idx_emails_user_updated serves it
+    @Query("SELECT e FROM Email e WHERE e.userId = :userId AND e.updatedAt < :until " +
+           "AND (e.updatedAt > :after OR (e.updatedAt = :after AND e.id > :afterId)) ORDER BY e.updatedAt, e.id")
+    List<Email> findChangedSince(@Param("userId") Long userId, @Param("after") LocalDateTime after,
+                                 @Param("afterId") Long afterId, @Param("until") LocalDateTime until,
+                                 Pageable pageable);
+    
+    // Loads the follow-ups of already fetched emails in one query
+    @Query("SELECT DISTINCT e FROM Email e LEFT JOIN FETCH e.followUps WHERE e.id IN :ids")
+    List<Email> fetchFollowUps(@Param("ids") Collection<Long> ids);
+    
+    // Follow-ups are synced as part of their email, so writing one has to bump the email too
+    @Modifying
+    @Query("UPDATE Email e SET e.updatedAt = :now WHERE e.id IN :ids")
+    int touch(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+    
+    @Modifying
+    @Query("UPDATE Email e SET e.updatedAt = e.receivedAt WHERE e.updatedAt IS NULL")
+    int backfillUpdatedAt();
+    
+    // Bulk operations walk the matching ids in keyset order and apply set-based statements per chunk
+    @Query("SELECT e.id FROM Email e WHERE " +
+           "(:userId IS NULL OR e.userId = :userId) AND " +
+           "(:sender IS NULL OR LOWER(e.sender) LIKE LOWER(CONCAT('%', :sender, '%'))) AND " +
+           "(:recipient IS NULL OR LOWER(e.recipient) LIKE LOWER(CONCAT('%', :recipient, '%'))) AND " +
+           "(:subject IS NULL OR LOWER(e.subject) LIKE LOWER(CONCAT('%', :subject, '%'))) AND " +
+           "(:categoryId IS NULL OR e.categoryId = :categoryId) AND " +
+           "(:sentiment IS NULL OR e.sentiment = :sentiment) AND " +
+           "(:archived IS NULL OR e.archived = :archived) AND " +
+           "(:olderThan IS NULL OR e.receivedAt < :olderThan) AND " +
+           "e.id > :afterId ORDER BY e.id")
+    List<Long> findIdsForBulk(@Param("userId") Long userId,
+                              @Param("sender") String sender,
+                              @Param("recipient") String recipient,
+                              @Param("subject") String subject,
+                              @Param("categoryId") Long categoryId,
+                              @Param("sentiment") Email.Sentiment sentiment,
+                              @Param("archived") Boolean archived,
+                              @Param("olderThan") LocalDateTime olderThan,
+                              @Param("afterId") Long afterId,
+                              Pageable pageable);
+    
+    @Query("SELECT COUNT(e) FROM Email e WHERE " +
+           "(:userId IS NULL OR e.userId = :userId) AND " +
+           "(:sender IS NULL OR LOWER(e.sender) LIKE LOWER(CONCAT('%', :sender, '%'))) AND " +
+           "(:recipient IS NULL OR LOWER(e.recipient) LIKE LOWER(CONCAT('%', :recipient, '%'))) AND " +
+           "(:subject IS NULL OR LOWER(e.subject) LIKE LOWER(CONCAT('%', :subject, '%'))) AND " +
+           "(:categoryId IS NULL OR e.categoryId = :categoryId) AND " +
+           "(:sentiment IS NULL OR e.sentiment = :sentiment) AND " +
+           "(:archived IS NULL OR e.archived = :archived) AND " +
+           "(:olderThan IS NULL OR e.receivedAt < :olderThan)")
+    long countForBulk(@Param("userId") Long userId,
+                      @Param("sender") String sender,
+                      @Param("recipient") String recipient,
+                      @Param("subject") String subject,
+                      @Param("categoryId") Long categoryId,
+                      @Param("sentiment") Email.Sentiment sentiment,
+                      @Param("archived") Boolean archived,
+                      @Param("olderThan") LocalDateTime olderThan);
+    
+    @Query("SELECT e.id FROM Email e WHERE e.id IN :ids AND " +
+           "(:userId IS NULL OR e.userId = :userId) AND " +
+           "(:olderThan IS NULL OR e.receivedAt < :olderThan)")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids,
+                               @Param("userId") Long userId,
+                               @Param("olderThan") LocalDateTime olderThan);
+    
+    @Modifying
+    @Query("UPDATE Email e SET e.archived = :archived, e.updatedAt = :now WHERE e.id IN :ids")
+    int updateArchivedByIds(@Param("ids") Collection<Long> ids, @Param("archived") Boolean archived,
+                            @Param("now") LocalDateTime now);
+    
+    @Query("SELECT e.duplicateOf, e.id FROM Email e WHERE e.duplicateOf IN :ids ORDER BY e.duplicateOf, e.id")
+    List<Object[]> findDuplicatesOf(@Param("ids") Collection<Long> ids);
+    
+    @Modifying
+    @Query("UPDATE Email e SET e.duplicateOf = :representativeId, e.updatedAt = :now "
+            + "WHERE e.duplicateOf = :previousId AND e.id <> :representativeId")
+    int updateDuplicateOf(@Param("previousId") Long previousId, @Param("representativeId") Long representativeId,
+                          @Param("now") LocalDateTime now);
+    
+    @Modifying
+    @Query("UPDATE Email e SET e.duplicateOf = NULL, e.updatedAt = :now WHERE e.id = :id")
+    int clearDuplicateOf(@Param("id") Long id, @Param("now") LocalDateTime now);
+    
+    @Modifying
+    @Query("DELETE FROM Email e WHERE e.id IN :ids")
+    int deleteByIds(@Param("ids") Collection<Long> ids);
 }
\ No newline at end of file
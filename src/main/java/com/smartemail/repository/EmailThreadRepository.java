@@ -0,0 +1,45 @@
+package com.smartemail.repository;
+
+import com.smartemail.model.EmailThread;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface EmailThreadRepository extends JpaRepository<EmailThread, Long> {
+    Optional<EmailThread> findByUserIdAndThreadKey(Long userId, String threadKey);
+    
+    Page<EmailThread> findByUserIdOrderByLastActivityAtDesc(Long userId, Pageable pageable);
+    
+    // Counts are adjusted in place so concurrent writers to one thread do not lose updates
+    @Modifying
+    @Query("UPDATE EmailThread t SET t.messageCount = t.messageCount + :count, " +
+           "t.lastEmailId = CASE WHEN t.lastActivityAt IS NULL OR t.lastActivityAt <= :at THEN :emailId ELSE t.lastEmailId END, " +
+           "t.lastActivityAt = CASE WHEN t.lastActivityAt IS NULL OR t.lastActivityAt <= :at THEN :at ELSE t.lastActivityAt END " +
+           "WHERE t.id = :id")
+    int addMessages(@Param("id") Long id, @Param("count") int count,
+                    @Param("emailId") Long emailId, @Param("at") LocalDateTime at);
+    
+    @Modifying
+    @Query("UPDATE EmailThread t SET t.messageCount = t.messageCount - :count WHERE t.id = :id")
+    int removeMessages(@Param("id") Long id, @Param("count") int count);
+    
+    @Modifying
+    @Query("UPDATE EmailThread t SET t.lastEmailId = :emailId, t.lastActivityAt = :at WHERE t.id = :id")
+    int setLatest(@Param("id") Long id, @Param("emailId") Long emailId, @Param("at") LocalDateTime at);
+    
+    @Modifying
+    @Query("DELETE FROM EmailThread t WHERE t.id = :id AND t.messageCount <= 0")
+    int deleteIfEmpty(@Param("id") Long id);
+    
+    @Modifying
+    @Query("DELETE FROM EmailThread t WHERE t.userId = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
+}
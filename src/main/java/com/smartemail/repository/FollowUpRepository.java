@@ -2,10 +2,13 @@ package com.smartemail.repository;
 
 import com.smartemail.model.FollowUp;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -19,4 +22,11 @@ public interface FollowUpRepository extends JpaRepository<FollowUp, Long> {
     
     @Query("SELECT f FROM FollowUp f WHERE f.status = 'OVERDUE'")
     List<FollowUp> findAllOverdue();
+    
+    @Query("SELECT f.id, e.userId FROM FollowUp f JOIN f.email e WHERE f.id IN :ids")
+    List<Object[]> findOwnersByIds(@Param("ids") Collection<Long> ids);
+    
+    @Modifying
+    @Query("DELETE FROM FollowUp f WHERE f.emailId IN :emailIds")
+    int deleteByEmailIds(@Param("emailIds") Collection<Long> emailIds);
 }
\ No newline at end of file
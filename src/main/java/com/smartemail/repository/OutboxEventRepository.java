@@ -0,0 +1,23 @@
+package com.smartemail.repository;
+
+import com.smartemail.model.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+    List<OutboxEvent> findByIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable);
+    
+    long countByIdGreaterThan(Long afterId);
+    
+    @Modifying
+    @Query("DELETE FROM OutboxEvent o WHERE o.id <= :maxId AND o.createdAt < :cutoff")
+    int deleteRelayed(@Param("maxId") Long maxId, @Param("cutoff") LocalDateTime cutoff);
+}
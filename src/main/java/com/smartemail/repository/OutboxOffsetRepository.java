@@ -0,0 +1,24 @@
+package com.smartemail.repository;
+
+import com.smartemail.model.OutboxOffset;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface OutboxOffsetRepository extends JpaRepository<OutboxOffset, Long> {
+    // Held while a batch is handed to the sink, so one node at a time relays a consumer's shard
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM OutboxOffset o WHERE o.consumer = :consumer AND o.shardId = :shardId")
+    Optional<OutboxOffset> findForUpdate(@Param("consumer") String consumer, @Param("shardId") Integer shardId);
+    
+    List<OutboxOffset> findByShardId(Integer shardId);
+    
+    List<OutboxOffset> findAllByOrderByConsumerAscShardIdAsc();
+}
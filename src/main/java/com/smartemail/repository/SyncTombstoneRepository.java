@@ -0,0 +1,36 @@
+package com.smartemail.repository;
+
+import com.smartemail.model.SyncTombstone;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface SyncTombstoneRepository extends JpaRepository<SyncTombstone, Long> {
+    @Query("SELECT t FROM SyncTombstone t WHERE t.userId = :userId AND t.deletedAt < :until " +
+           "AND (t.deletedAt > :after OR (t.deletedAt = :after AND t.id > :afterId)) ORDER BY t.deletedAt, t.id")
+    List<SyncTombstone> findDeletedSince(@Param("userId") Long userId, @Param("after") LocalDateTime after,
+                                         @Param("afterId") Long afterId, @Param("until") LocalDateTime until,
+                                         Pageable pageable);
+    
+    // For statement-level deletes; must run before the emails are removed
+    @Modifying
+    @Query(value = "INSERT INTO sync_tombstones (entity_type, entity_id, user_id, deleted_at) " +
+                   "SELECT 'EMAIL', id, user_id, :deletedAt FROM emails WHERE id IN :ids", nativeQuery = true)
+    int insertForEmails(@Param("ids") Collection<Long> ids, @Param("deletedAt") LocalDateTime deletedAt);
+    
+    @Modifying
+    @Query("DELETE FROM SyncTombstone t WHERE t.deletedAt < :cutoff")
+    int deleteOlderThan(@Param("cutoff") LocalDateTime cutoff);
+    
+    @Modifying
+    @Query("DELETE FROM SyncTombstone t WHERE t.userId = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
+}
@@ -0,0 +1,14 @@
+package com.smartemail.repository;
+
+import com.smartemail.model.UserShard;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface UserShardRepository extends JpaRepository<UserShard, Long> {
+    @Query("SELECT u.shardId, COUNT(u) FROM UserShard u GROUP BY u.shardId")
+    List<Object[]> countUsersPerShard();
+}
@@ -0,0 +1,302 @@
+package com.smartemail.service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.smartemail.model.ChangeLogEntry;
+import com.smartemail.model.Email;
+import com.smartemail.repository.EmailRepository;
+
+// Per-user trie of sender and recipient addresses for autocomplete. Every node caches its best completions,
+// so a suggestion is a walk down the prefix plus a copy of at most `top-k` entries.
+// Ranks are frequency with exponential decay by age, stored in log form so they stay comparable over time.
+@Component
+public class AddressSuggester {
+
+    private static final Pattern ADDRESS_SEPARATOR = Pattern.compile("[,;]");
+
+    @Autowired
+    private EmailRepository emailRepository;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Value("${emails.addresses.top-k:10}")
+    private int topK;
+
+    @Value("${emails.addresses.half-life-days:30}")
+    private double halfLifeDays;
+
+    @Value("${emails.addresses.max-users:1000}")
+    private int maxUsers;
+
+    // Least recently used users are dropped and rebuilt from one aggregate query when they come back
+    private final Map<Long, UserIndex> indexes = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, UserIndex> eldest) {
+            return size() > maxUsers;
+        }
+    };
+
+    private static class Entry {
+        final String address;
+        long count;
+        LocalDateTime lastSeen;
+        double rank = Double.NEGATIVE_INFINITY;
+
+        Entry(String address) {
+            this.address = address;
+        }
+    }
+
+    private static class Node {
+        char[] labels = new char[0];
+        Node[] children = new Node[0];
+        Entry[] best = new Entry[0];
+
+        Node child(char label, boolean create) {
+            int i = Arrays.binarySearch(labels, label);
+            if (i >= 0) {
+                return children[i];
+            }
+            if (!create) {
+                return null;
+            }
+            int at = -i - 1;
+            Node node = new Node();
+            labels = insert(labels, at, label);
+            Node[] grown = new Node[children.length + 1];
+            System.arraycopy(children, 0, grown, 0, at);
+            grown[at] = node;
+            System.arraycopy(children, at, grown, at + 1, children.length - at);
+            children = grown;
+            return node;
+        }
+
+        private static char[] insert(char[] array, int at, char value) {
+            char[] grown = new char[array.length + 1];
+            System.arraycopy(array, 0, grown, 0, at);
+            grown[at] = value;
+            System.arraycopy(array, at, grown, at + 1, array.length - at);
+            return grown;
+        }
+    }
+
+    private static class UserIndex {
+        final Node root = new Node();
+        final Map<String, Entry> entries = new HashMap<>();
+    }
+
+    public static class AddressSuggestion {
+        private final String address;
+        private final long count;
+        private final LocalDateTime lastSeen;
+
+        public AddressSuggestion(String address, long count, LocalDateTime lastSeen) {
+            this.address = address;
+            this.count = count;
+            this.lastSeen = lastSeen;
+        }
+
+        public String getAddress() { return address; }
+        public long getCount() { return count; }
+        public LocalDateTime getLastSeen() { return lastSeen; }
+    }
+
+    public List<AddressSuggestion> suggest(Long userId, String prefix, int limit) {
+        UserIndex index = indexFor(userId);
+        String key = prefix == null ? "" : prefix.trim().toLowerCase(Locale.ROOT);
+        synchronized (index) {
+            Node node = index.root;
+            for (int i = 0; i < key.length() && node != null; i++) {
+                node = node.child(key.charAt(i), false);
+            }
+            if (node == null) {
+                return List.of();
+            }
+            int size = Math.min(Math.min(limit, topK), node.best.length);
+            List<AddressSuggestion> suggestions = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                Entry entry = node.best[i];
+                suggestions.add(new AddressSuggestion(entry.address, entry.count, entry.lastSeen));
+            }
+            return suggestions;
+        }
+    }
+
+    // Only users whose index is loaded are updated; others pick the email up when their index is built
+    public void observe(Email email) {
+        UserIndex index;
+        synchronized (indexes) {
+            index = indexes.get(email.getUserId());
+        }
+        if (index == null) {
+            return;
+        }
+        LocalDateTime seen = email.getReceivedAt() != null ? email.getReceivedAt() : LocalDateTime.now();
+        synchronized (index) {
+            for (String address : addressesOf(email)) {
+                record(index, address, 1, seen);
+            }
+        }
+    }
+
+    public void removeUser(Long userId) {
+        synchronized (indexes) {
+            indexes.remove(userId);
+        }
+    }
+
+    // Counts only grow, so remote deletes and archive flips are ignored; new addresses mean a rebuild
+    @EventListener
+    public void onRemoteChange(ChangeLogEntry change) {
+        if (change.isEverything()) {
+            synchronized (indexes) {
+                indexes.clear();
+            }
+        } else if (change.is(ChangeLogEntry.EntityType.USER)) {
+            removeUser(change.getEntityId());
+        } else if (change.is(ChangeLogEntry.EntityType.EMAIL) && change.getAction() != ChangeLogEntry.Action.DELETED
+                && change.getUserId() != null) {
+            removeUser(change.getUserId());
+        }
+    }
+
+    private UserIndex indexFor(Long userId) {
+        synchronized (indexes) {
+            UserIndex index = indexes.get(userId);
+            if (index != null) {
+                return index;
+            }
+        }
+        UserIndex created = new UserIndex();
+        synchronized (created) {
+            synchronized (indexes) {
+                UserIndex existing = indexes.get(userId);
+                if (existing != null) {
+                    return existing;
+                }
+                // Published while locked: readers wait for the load and emails arriving meanwhile queue behind it
+                indexes.put(userId, created);
+            }
+            try {
+                List<Object[]> rows = shardRouter.readForUser(userId, () -> {
+                    List<Object[]> all = new ArrayList<>(emailRepository.countSendersByUserId(userId));
+                    all.addAll(emailRepository.countRecipientsByUserId(userId));
+                    return all;
+                });
+                for (Object[] row : rows) {
+                    for (String address : split((String) row[0])) {
+                        record(created, address, ((Number) row[1]).longValue(), (LocalDateTime) row[2]);
+                    }
+                }
+            } catch (RuntimeException e) {
+                removeUser(userId);
+                throw e;
+            }
+        }
+        return created;
+    }
+
+    private void record(UserIndex index, String address, long occurrences, LocalDateTime seen) {
+        Entry entry = index.entries.get(address);
+        boolean added = entry == null;
+        if (added) {
+            entry = new Entry(address);
+            index.entries.put(address, entry);
+        }
+        entry.count += occurrences;
+        if (entry.lastSeen == null || seen.isAfter(entry.lastSeen)) {
+            entry.lastSeen = seen;
+        }
+        entry.rank = bump(entry.rank, occurrences, seen);
+
+        // Ranks only grow, so each node's cached best list stays correct by re-placing this one entry
+        update(index.root, entry);
+        Node node = index.root;
+        for (int i = 0; i < address.length(); i++) {
+            node = node.child(address.charAt(i), added);
+            if (node == null) {
+                return;
+            }
+            update(node, entry);
+        }
+        // Also reachable by domain, so typing "acme" finds bob@acme.com
+        int at = address.indexOf('@');
+        if (at >= 0) {
+            node = index.root;
+            for (int i = at + 1; i < address.length(); i++) {
+                node = node.child(address.charAt(i), added);
+                if (node == null) {
+                    return;
+                }
+                update(node, entry);
+            }
+        }
+    }
+
+    private void update(Node node, Entry entry) {
+        Entry[] best = node.best;
+        int position = -1;
+        for (int i = 0; i < best.length; i++) {
+            if (best[i] == entry) {
+                position = i;
+                break;
+            }
+        }
+        if (position < 0) {
+            if (best.length >= topK && best[best.length - 1].rank >= entry.rank) {
+                return;
+            }
+            best = Arrays.copyOf(best, Math.min(best.length + 1, topK));
+            position = best.length - 1;
+            best[position] = entry;
+        }
+        // Bubble the entry up to its place
+        while (position > 0 && best[position - 1].rank < entry.rank) {
+            best[position] = best[position - 1];
+            best[--position] = entry;
+        }
+        node.best = best;
+    }
+
+    // log2 of the decayed count, shifted by time so ranks recorded at different moments compare directly
+    private double bump(double rank, long occurrences, LocalDateTime seen) {
+        double clock = seen.toEpochSecond(ZoneOffset.UTC) / (halfLifeDays * 86400.0);
+        double current = Double.isInfinite(rank) ? 0 : Math.pow(2, rank - clock);
+        return Math.log(current + occurrences) / Math.log(2) + clock;
+    }
+
+    private static List<String> addressesOf(Email email) {
+        List<String> addresses = new ArrayList<>(split(email.getSender()));
+        addresses.addAll(split(email.getRecipient()));
+        return addresses;
+    }
+
+    private static List<String> split(String addresses) {
+        if (addresses == null) {
+            return List.of();
+        }
+        List<String> result = new ArrayList<>(1);
+        for (String address : ADDRESS_SEPARATOR.split(addresses)) {
+            String trimmed = address.trim().toLowerCase(Locale.ROOT);
+            if (!trimmed.isEmpty()) {
+                result.add(trimmed);
+            }
+        }
+        return result;
+    }
+}
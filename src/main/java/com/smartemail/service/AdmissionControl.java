@@ -0,0 +1,229 @@
+package com.smartemail.service;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.smartemail.config.AdmissionProperties;
+import com.smartemail.config.ShardPools;
+import com.smartemail.config.WorkloadPools;
+import com.smartemail.exception.TooManyRequestsException;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
+// Admission for expensive endpoints: each user gets a token bucket and a concurrency cap per endpoint class, each
+// class a cap across users, and everything is shed while requests already queue for a pooled connection. Refusals
+// are 429 with Retry-After, decided before the request takes a connection, so one heavy user cannot drain the pool.
+@Component
+public class AdmissionControl {
+
+    public enum EndpointClass {
+        EXPORT, REPLY, SEARCH, TEMPLATE
+    }
+
+    // Releases the concurrency slots taken by an admitted request. Work that outlives the request, like a background
+    // export, can take the permit over and release it when it ends; releasing twice has no effect
+    public static final class Permit {
+        public static final Permit NONE = new Permit(null, null);
+
+        private final ClassState state;
+        private final UserState user;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(ClassState state, UserState user) {
+            this.state = state;
+            this.user = user;
+        }
+
+        public void release() {
+            if (state != null && released.compareAndSet(false, true)) {
+                user.inFlight.decrementAndGet();
+                state.inFlight.decrementAndGet();
+            }
+        }
+    }
+
+    private static final class ClassState {
+        final AdmissionProperties.Limit limit;
+        final Map<String, UserState> users = new ConcurrentHashMap<>();
+        final AtomicInteger inFlight = new AtomicInteger();
+        Counter admitted;
+        Counter throttled;
+        Counter concurrency;
+        Counter shed;
+
+        ClassState(AdmissionProperties.Limit limit) {
+            this.limit = limit;
+        }
+    }
+
+    private static final class UserState {
+        final AtomicInteger inFlight = new AtomicInteger();
+        private double tokens;
+        private long refilledAt = System.nanoTime();
+
+        UserState(int burst) {
+            this.tokens = burst;
+        }
+
+        // Takes a token, or returns how long until one is available
+        synchronized long tryTake(double ratePerSecond, int burst) {
+            refill(ratePerSecond, burst);
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return (long) Math.ceil((1 - tokens) / ratePerSecond * TimeUnit.SECONDS.toNanos(1));
+        }
+
+        synchronized boolean isIdle(double ratePerSecond, int burst) {
+            refill(ratePerSecond, burst);
+            return inFlight.get() == 0 && tokens >= burst;
+        }
+
+        private void refill(double ratePerSecond, int burst) {
+            long now = System.nanoTime();
+            tokens = Math.min(burst, tokens + (now - refilledAt) * ratePerSecond / TimeUnit.SECONDS.toNanos(1));
+            refilledAt = now;
+        }
+    }
+
+    @Autowired
+    private AdmissionProperties properties;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private HikariDataSource primaryDataSource;
+
+    @Autowired
+    private ShardPools shardPools;
+
+    @Autowired
+    private WorkloadPools workloadPools;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<EndpointClass, ClassState> states = new EnumMap<>(EndpointClass.class);
+
+    @PostConstruct
+    public void init() {
+        for (EndpointClass endpointClass : EndpointClass.values()) {
+            ClassState state = new ClassState(properties.limitFor(endpointClass));
+            String tag = endpointClass.name().toLowerCase();
+            state.admitted = counter(tag, "admitted");
+            state.throttled = counter(tag, "throttled");
+            state.concurrency = counter(tag, "concurrency");
+            state.shed = counter(tag, "shed");
+            Gauge.builder("emails.admission.in_flight", state.inFlight, AtomicInteger::get)
+                    .description("Admitted requests still running")
+                    .tag("class", tag)
+                    .register(meterRegistry);
+            Gauge.builder("emails.admission.tracked_users", state.users, Map::size)
+                    .description("Users with limiter state")
+                    .tag("class", tag)
+                    .register(meterRegistry);
+            states.put(endpointClass, state);
+        }
+        Gauge.builder("emails.admission.connection_waiters", this, AdmissionControl::connectionWaiters)
+                .description("Threads waiting for a pooled connection, the load shedding signal")
+                .register(meterRegistry);
+    }
+
+    public Permit admit(EndpointClass endpointClass, String userKey) {
+        if (!properties.isEnabled()) {
+            return Permit.NONE;
+        }
+        ClassState state = states.get(endpointClass);
+        AdmissionProperties.Limit limit = state.limit;
+
+        // Admitting now would only add to the queue for a connection
+        if (connectionWaiters() >= properties.getShedWaitingThreshold()) {
+            state.shed.increment();
+            throw new TooManyRequestsException("Server is busy, retry later", properties.getShedRetryAfterSeconds());
+        }
+
+        // Counted under the map's lock, so eviction cannot drop the state between lookup and increment
+        int[] userInFlight = new int[1];
+        UserState user = state.users.compute(userKey, (key, existing) -> {
+            UserState current = existing != null ? existing : new UserState(limit.getBurst());
+            userInFlight[0] = current.inFlight.incrementAndGet();
+            return current;
+        });
+        if (userInFlight[0] > limit.getMaxConcurrentPerUser()) {
+            user.inFlight.decrementAndGet();
+            state.concurrency.increment();
+            throw new TooManyRequestsException("Too many concurrent " + label(endpointClass) + " requests", 1);
+        }
+        if (state.inFlight.incrementAndGet() > limit.getMaxConcurrent() && limit.getMaxConcurrent() > 0) {
+            state.inFlight.decrementAndGet();
+            user.inFlight.decrementAndGet();
+            state.concurrency.increment();
+            throw new TooManyRequestsException("Too many concurrent " + label(endpointClass) + " requests", 1);
+        }
+        long waitNanos = user.tryTake(limit.getRatePerSecond(), limit.getBurst());
+        if (waitNanos > 0) {
+            state.inFlight.decrementAndGet();
+            user.inFlight.decrementAndGet();
+            state.throttled.increment();
+            throw new TooManyRequestsException("Rate limit exceeded for " + label(endpointClass) + " requests",
+                    (long) Math.ceil(waitNanos / (double) TimeUnit.SECONDS.toNanos(1)));
+        }
+        state.admitted.increment();
+        return new Permit(state, user);
+    }
+
+    // The busiest pool decides; shard and workload pools only serve part of the traffic, but a full one still means
+    // trouble
+    int connectionWaiters() {
+        int waiting = waiters(primaryDataSource);
+        for (HikariDataSource pool : shardPools.getPools()) {
+            waiting = Math.max(waiting, waiters(pool));
+        }
+        for (HikariDataSource pool : workloadPools.getPools().values()) {
+            waiting = Math.max(waiting, waiters(pool));
+        }
+        return waiting;
+    }
+
+    // Users whose bucket has refilled and who have nothing running carry no state worth keeping
+    @Scheduled(fixedDelayString = "${emails.admission.cleanup-interval-ms:60000}")
+    public void evictIdleUsers() {
+        for (ClassState state : states.values()) {
+            // Re-checked under the map's lock, which admit holds while it takes a slot
+            for (String key : state.users.keySet()) {
+                state.users.computeIfPresent(key, (k, user) ->
+                        user.isIdle(state.limit.getRatePerSecond(), state.limit.getBurst()) ? null : user);
+            }
+        }
+    }
+
+    private static int waiters(HikariDataSource pool) {
+        HikariPoolMXBean bean = pool.getHikariPoolMXBean();
+        return bean == null ? 0 : bean.getThreadsAwaitingConnection();
+    }
+
+    private Counter counter(String endpointClass, String result) {
+        return Counter.builder("emails.admission.requests")
+                .tag("class", endpointClass)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static String label(EndpointClass endpointClass) {
+        return endpointClass.name().toLowerCase();
+    }
+}
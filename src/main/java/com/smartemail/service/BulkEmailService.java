@@ -0,0 +1,212 @@
+package com.smartemail.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.smartemail.config.WorkloadClass;
+import com.smartemail.config.WorkloadContext;
+import com.smartemail.exception.ResourceNotFoundException;
+import com.smartemail.model.BulkEmailRequest;
+import com.smartemail.model.BulkJob;
+import com.smartemail.model.ChangeLogEntry;
+import com.smartemail.model.OutboxEvent;
+import com.smartemail.repository.EmailRepository;
+import com.smartemail.repository.FollowUpRepository;
+import com.smartemail.repository.SyncTombstoneRepository;
+
+import jakarta.annotation.PreDestroy;
+
+@Service
+public class BulkEmailService {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkEmailService.class);
+
+    @Autowired
+    private EmailRepository emailRepository;
+
+    @Autowired
+    private FollowUpRepository followUpRepository;
+
+    @Autowired
+    private SyncTombstoneRepository syncTombstoneRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private StatusWriteBuffer statusWriteBuffer;
+
+    @Autowired
+    private ShardRouter shardRouter;
+    
+    @Autowired
+    private NearDuplicateDetector nearDuplicateDetector;
+    
+    @Autowired
+    private EmailThreadService emailThreadService;
+    
+    @Autowired
+    private HotInboxCache hotInboxCache;
+    
+    @Autowired
+    private ChangeLog changeLog;
+    
+    @Autowired
+    private Outbox outbox;
+
+    @Value("${emails.bulk.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${emails.bulk.job-retention-minutes:60}")
+    private long jobRetentionMinutes;
+
+    private final Map<String, BulkJob> jobs = new ConcurrentHashMap<>();
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    public BulkJob submit(BulkJob.Operation operation, BulkEmailRequest request) {
+        // Without a user, any body would fan out to every shard and touch every tenant's mail
+        if (request.getUserId() == null) {
+            throw new IllegalArgumentException("Bulk requests require userId");
+        }
+        evictFinishedJobs();
+
+        BulkJob job = new BulkJob(UUID.randomUUID().toString(), operation);
+        jobs.put(job.getId(), job);
+        executor.submit(WorkloadContext.wrap(WorkloadClass.BATCH, () -> run(job, request)));
+        return job;
+    }
+
+    public BulkJob getJob(String jobId) {
+        BulkJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new ResourceNotFoundException("Bulk job not found with id: " + jobId);
+        }
+        return job;
+    }
+
+    private void run(BulkJob job, BulkEmailRequest request) {
+        job.setStatus(BulkJob.Status.RUNNING);
+        try {
+            // Apply buffered archive flips first so they cannot overwrite the bulk result later
+            statusWriteBuffer.flush();
+            if (request.hasIds()) {
+                job.setTotal(request.getIds().size());
+            }
+            for (int shard : shardRouter.shardsFor(request.getUserId())) {
+                shardRouter.withShard(shard, () -> {
+                    if (request.hasIds()) {
+                        runForIds(job, request);
+                    } else {
+                        runForFilter(job, request);
+                    }
+                });
+            }
+            job.setStatus(BulkJob.Status.COMPLETED);
+        } catch (Exception e) {
+            log.error("Bulk job {} ({}) failed after {} emails", job.getId(), job.getOperation(), job.getProcessed(), e);
+            job.setError(e.getMessage());
+            job.setStatus(BulkJob.Status.FAILED);
+        } finally {
+            job.setFinishedAt(LocalDateTime.now());
+        }
+    }
+
+    private void runForIds(BulkJob job, BulkEmailRequest request) {
+        List<Long> ids = request.getIds();
+
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            List<Long> chunk = new ArrayList<>(ids.subList(from, Math.min(from + chunkSize, ids.size())));
+            List<Long> matching = new ArrayList<>();
+            int affected = transactionTemplate.execute(status -> {
+                matching.addAll(emailRepository.findExistingIds(chunk, request.getUserId(), request.getOlderThan()));
+                return matching.isEmpty() ? 0 : apply(job.getOperation(), matching);
+            });
+            job.setProcessed(job.getProcessed() + affected);
+            invalidateCaches(job, request, matching);
+        }
+    }
+
+    private void runForFilter(BulkJob job, BulkEmailRequest request) {
+        job.setTotal(job.getTotal() + emailRepository.countForBulk(request.getUserId(), request.getSender(), request.getRecipient(),
+                request.getSubject(), request.getCategoryId(), request.getSentiment(), request.getArchived(),
+                request.getOlderThan()));
+
+        // Keyset pagination on id keeps every chunk an index range scan, even as rows stop matching
+        long afterId = 0L;
+        while (true) {
+            List<Long> chunk = emailRepository.findIdsForBulk(request.getUserId(), request.getSender(),
+                    request.getRecipient(), request.getSubject(), request.getCategoryId(), request.getSentiment(),
+                    request.getArchived(), request.getOlderThan(), afterId, PageRequest.of(0, chunkSize));
+            if (chunk.isEmpty()) {
+                break;
+            }
+            int affected = transactionTemplate.execute(status -> apply(job.getOperation(), chunk));
+            job.setProcessed(job.getProcessed() + affected);
+            invalidateCaches(job, request, chunk);
+            afterId = chunk.get(chunk.size() - 1);
+        }
+    }
+
+    private int apply(BulkJob.Operation operation, List<Long> ids) {
+        switch (operation) {
+            case ARCHIVE:
+            case UNARCHIVE:
+                boolean archived = operation == BulkJob.Operation.ARCHIVE;
+                Map<Long, Map<String, Boolean>> payloads = new HashMap<>();
+                ids.forEach(id -> payloads.put(id, Map.of("archived", archived)));
+                outbox.appendChanges(OutboxEvent.AggregateType.EMAIL, OutboxEvent.EventType.UPDATED, payloads);
+                return emailRepository.updateArchivedByIds(ids, archived, LocalDateTime.now());
+            case DELETE:
+                Map<Long, Object> removals = new HashMap<>();
+                ids.forEach(id -> removals.put(id, null));
+                outbox.appendChanges(OutboxEvent.AggregateType.EMAIL, OutboxEvent.EventType.DELETED, removals);
+                syncTombstoneRepository.insertForEmails(ids, LocalDateTime.now());
+                // Remove follow-ups with one statement instead of cascading through the entity graph
+                followUpRepository.deleteByEmailIds(ids);
+                Map<Long, List<Long>> byThread = emailThreadService.threadsOf(ids);
+                int deleted = emailRepository.deleteByIds(ids);
+                emailThreadService.detachAll(byThread);
+                nearDuplicateDetector.repointDuplicates(ids);
+                return deleted;
+            default:
+                throw new IllegalArgumentException("Unsupported bulk operation: " + operation);
+        }
+    }
+
+    // Runs after the chunk committed, so a rolled-back chunk keeps its near-duplicate signatures
+    private void invalidateCaches(BulkJob job, BulkEmailRequest request, List<Long> ids) {
+        if (job.getOperation() == BulkJob.Operation.DELETE) {
+            nearDuplicateDetector.removeAll(request.getUserId(), ids);
+        }
+        hotInboxCache.invalidate(request.getUserId());
+        changeLog.record(ChangeLogEntry.EntityType.EMAIL,
+                job.getOperation() == BulkJob.Operation.DELETE ? ChangeLogEntry.Action.DELETED : ChangeLogEntry.Action.UPDATED,
+                null, request.getUserId());
+    }
+
+    private void evictFinishedJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(jobRetentionMinutes);
+        jobs.values().removeIf(job -> job.getFinishedAt() != null && job.getFinishedAt().isBefore(cutoff));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
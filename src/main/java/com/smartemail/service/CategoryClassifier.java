@@ -0,0 +1,277 @@
+package com.smartemail.service;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import com.smartemail.model.ChangeLogEntry;
+import com.smartemail.model.Email;
+import com.smartemail.repository.EmailRepository;
+
+// Multinomial naive Bayes over feature-hashed tokens, trained from stored emails and updated on every write.
+// Token counts live in one int[] per category; classification only reads them.
+@Component
+public class CategoryClassifier {
+
+    private static final Logger log = LoggerFactory.getLogger(CategoryClassifier.class);
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final int MAX_TOKENS = 4096;
+
+    @Autowired
+    private EmailRepository emailRepository;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Value("${emails.classifier.feature-bits:18}")
+    private int featureBits;
+
+    @Value("${emails.classifier.train-on-startup:true}")
+    private boolean trainOnStartup;
+
+    @Value("${emails.classifier.training-batch-size:1000}")
+    private int trainingBatchSize;
+
+    private volatile CategoryModel[] models = new CategoryModel[0];
+    private final AtomicLong documentCount = new AtomicLong();
+    private volatile boolean trained;
+
+    private final ThreadLocal<int[]> tokenBuffer = ThreadLocal.withInitial(() -> new int[MAX_TOKENS]);
+
+    private static class CategoryModel {
+        final long categoryId;
+        final int[] counts;
+        long tokenTotal;
+        long documents;
+
+        CategoryModel(long categoryId, int features) {
+            this.categoryId = categoryId;
+            this.counts = new int[features];
+        }
+    }
+
+    public static class Prediction {
+        private final Long categoryId;
+        private final double confidence;
+        private final Map<Long, Double> probabilities;
+
+        public Prediction(Long categoryId, double confidence, Map<Long, Double> probabilities) {
+            this.categoryId = categoryId;
+            this.confidence = confidence;
+            this.probabilities = probabilities;
+        }
+
+        public Long getCategoryId() { return categoryId; }
+        public double getConfidence() { return confidence; }
+        public Map<Long, Double> getProbabilities() { return probabilities; }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void trainFromDatabase() {
+        if (!trainOnStartup) {
+            trained = true;
+            return;
+        }
+        Thread trainer = new Thread(() -> {
+            try {
+                long start = System.currentTimeMillis();
+                for (int shard : shardRouter.shardsFor(null)) {
+                    shardRouter.withShard(shard, this::trainShard);
+                }
+                log.info("Category classifier trained on {} emails in {} ms", documentCount.get(),
+                        System.currentTimeMillis() - start);
+            } catch (Exception e) {
+                log.error("Category classifier training failed", e);
+            } finally {
+                trained = true;
+            }
+        }, "category-classifier-training");
+        trainer.setDaemon(true);
+        trainer.start();
+    }
+
+    // Emails written after the scan starts are learned by their write, so the scan stops at the id it started from
+    private void trainShard() {
+        Long maxId = emailRepository.findMaxId();
+        if (maxId == null) {
+            return;
+        }
+        long afterId = 0L;
+        while (afterId < maxId) {
+            List<Email> batch = emailRepository.findByIdBetweenOrderByIdAsc(afterId + 1, maxId,
+                    PageRequest.of(0, trainingBatchSize));
+            if (batch.isEmpty()) {
+                return;
+            }
+            for (Email email : batch) {
+                learn(email.getCategoryId(), email.getSubject(), email.getBody());
+            }
+            afterId = batch.get(batch.size() - 1).getId();
+        }
+    }
+
+    // Frees the category's counts (an int per feature) and its share of the document prior
+    public synchronized void forget(Long categoryId) {
+        if (categoryId == null) {
+            return;
+        }
+        CategoryModel[] current = models;
+        for (int c = 0; c < current.length; c++) {
+            if (current[c].categoryId == categoryId) {
+                documentCount.addAndGet(-current[c].documents);
+                CategoryModel[] shrunk = new CategoryModel[current.length - 1];
+                System.arraycopy(current, 0, shrunk, 0, c);
+                System.arraycopy(current, c + 1, shrunk, c, current.length - c - 1);
+                models = shrunk;
+                return;
+            }
+        }
+    }
+
+    @EventListener
+    public void onRemoteChange(ChangeLogEntry change) {
+        if (change.is(ChangeLogEntry.EntityType.CATEGORY) && change.getAction() == ChangeLogEntry.Action.DELETED) {
+            forget(change.getEntityId());
+        }
+    }
+
+    public boolean isTrained() {
+        return trained;
+    }
+
+    public void learn(Long categoryId, String subject, String body) {
+        update(categoryId, subject, body, 1);
+    }
+
+    public void unlearn(Long categoryId, String subject, String body) {
+        update(categoryId, subject, body, -1);
+    }
+
+    private synchronized void update(Long categoryId, String subject, String body, int delta) {
+        if (categoryId == null) {
+            return;
+        }
+        CategoryModel model = modelFor(categoryId, delta > 0);
+        if (model == null) {
+            return;
+        }
+        int[] tokens = tokenBuffer.get();
+        int count = tokenize(subject, tokens, 0);
+        count = tokenize(body, tokens, count);
+        for (int i = 0; i < count; i++) {
+            model.counts[tokens[i]] = Math.max(0, model.counts[tokens[i]] + delta);
+        }
+        model.tokenTotal = Math.max(0, model.tokenTotal + (long) delta * count);
+        model.documents = Math.max(0, model.documents + delta);
+        documentCount.addAndGet(delta);
+    }
+
+    public Prediction classify(String subject, String body) {
+        CategoryModel[] current = models;
+        long totalDocuments = documentCount.get();
+        if (current.length == 0 || totalDocuments <= 0) {
+            return new Prediction(null, 0, Map.of());
+        }
+
+        int[] tokens = tokenBuffer.get();
+        int count = tokenize(subject, tokens, 0);
+        count = tokenize(body, tokens, count);
+
+        // Collapse repeated tokens so each distinct feature costs one log per category
+        Arrays.sort(tokens, 0, count);
+        int features = 1 << featureBits;
+        double[] logScores = new double[current.length];
+        for (int c = 0; c < current.length; c++) {
+            CategoryModel model = current[c];
+            double denominator = Math.log(model.tokenTotal + features);
+            double score = Math.log((model.documents + 1.0) / (totalDocuments + current.length));
+            int i = 0;
+            while (i < count) {
+                int feature = tokens[i];
+                int run = 1;
+                while (i + run < count && tokens[i + run] == feature) {
+                    run++;
+                }
+                score += run * (Math.log(model.counts[feature] + 1.0) - denominator);
+                i += run;
+            }
+            logScores[c] = score;
+        }
+
+        // Softmax over log scores for a calibrated-enough confidence
+        double max = Double.NEGATIVE_INFINITY;
+        int best = 0;
+        for (int c = 0; c < logScores.length; c++) {
+            if (logScores[c] > max) {
+                max = logScores[c];
+                best = c;
+            }
+        }
+        double sum = 0;
+        for (double logScore : logScores) {
+            sum += Math.exp(logScore - max);
+        }
+        Map<Long, Double> probabilities = new LinkedHashMap<>();
+        for (int c = 0; c < current.length; c++) {
+            probabilities.put(current[c].categoryId, Math.exp(logScores[c] - max) / sum);
+        }
+        return new Prediction(current[best].categoryId, 1.0 / sum, probabilities);
+    }
+
+    private CategoryModel modelFor(Long categoryId, boolean create) {
+        for (CategoryModel model : models) {
+            if (model.categoryId == categoryId) {
+                return model;
+            }
+        }
+        if (!create) {
+            return null;
+        }
+        CategoryModel model = new CategoryModel(categoryId, 1 << featureBits);
+        CategoryModel[] grown = Arrays.copyOf(models, models.length + 1);
+        grown[grown.length - 1] = model;
+        models = grown;
+        return model;
+    }
+
+    // Writes hashed feature indexes into `tokens` starting at `offset`; returns the new length
+    private int tokenize(String text, int[] tokens, int offset) {
+        if (text == null) {
+            return offset;
+        }
+        int mask = (1 << featureBits) - 1;
+        int count = offset;
+        long hash = FNV_OFFSET;
+        int tokenLength = 0;
+        int length = text.length();
+        for (int i = 0; i <= length && count < tokens.length; i++) {
+            char c = i < length ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                hash = (hash ^ Character.toLowerCase(c)) * FNV_PRIME;
+                tokenLength++;
+            } else if (tokenLength > 0) {
+                // Single characters carry little signal
+                if (tokenLength > 1) {
+                    tokens[count++] = (int) (hash ^ (hash >>> 32)) & mask;
+                }
+                hash = FNV_OFFSET;
+                tokenLength = 0;
+            }
+        }
+        return count;
+    }
+}
@@ -3,9 +3,11 @@ package com.smartemail.service;
 import com.smartemail.exception.ResourceNotFoundException;
 import com.smartemail.exception.DuplicateResourceException;
 import com.smartemail.model.Category;
+import com.smartemail.model.ChangeLogEntry;
 import com.smartemail.repository.CategoryRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -15,10 +17,18 @@ public class CategoryService {
     @Autowired
     private CategoryRepository categoryRepository;
     
+    @Autowired
+    private ChangeLog changeLog;
+    
+    @Autowired
+    private CategoryClassifier categoryClassifier;
+    
+    @Transactional(readOnly = true)
     public List<Category> getAllCategories() {
         return categoryRepository.findAll();
     }
     
+    @Transactional(readOnly = true)
     public Category getCategoryById(Long id) {
         return categoryRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Category not found with id: " + id));
@@ -28,7 +38,9 @@ public class CategoryService {
         if (categoryRepository.existsByName(category.getName())) {
             throw new DuplicateResourceException("Category already exists with name: " + category.getName());
         }
-        return categoryRepository.save(category);
+        Category saved = categoryRepository.save(category);
+        changeLog.record(ChangeLogEntry.EntityType.CATEGORY, ChangeLogEntry.Action.CREATED, saved.getId(), null);
+        return saved;
     }
     
     public Category updateCategory(Long id, Category categoryDetails) {
@@ -43,11 +55,15 @@ public class CategoryService {
         category.setName(categoryDetails.getName());
         category.setDescription(categoryDetails.getDescription());
         
-        return categoryRepository.save(category);
+        Category saved = categoryRepository.save(category);
+        changeLog.record(ChangeLogEntry.EntityType.CATEGORY, ChangeLogEntry.Action.UPDATED, id, null);
+        return saved;
     }
     
     public void deleteCategory(Long id) {
         Category category = getCategoryById(id);
         categoryRepository.delete(category);
+        categoryClassifier.forget(id);
+        changeLog.record(ChangeLogEntry.EntityType.CATEGORY, ChangeLogEntry.Action.DELETED, id, null);
     }
 }
\ No newline at end of file
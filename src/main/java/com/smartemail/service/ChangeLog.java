@@ -0,0 +1,206 @@
+package com.smartemail.service;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.smartemail.config.ShardContext;
+import com.smartemail.model.ChangeLogEntry;
+import com.smartemail.repository.ChangeLogRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
+// Cross-node cache invalidation over an append-only change_log table on shard 0.
+// Services record every committed write; each node tails the table from its own cursor and publishes
+// entries written by other nodes as application events, which in-memory caches listen for to evict.
+@Component
+public class ChangeLog {
+
+    private static final Logger log = LoggerFactory.getLogger(ChangeLog.class);
+
+    @Autowired
+    private ChangeLogRepository changeLogRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${emails.cache-invalidation.enabled:true}")
+    private boolean enabled;
+
+    @Value("${emails.cache-invalidation.node-id:}")
+    private String configuredNodeId;
+
+    @Value("${emails.cache-invalidation.batch-size:500}")
+    private int batchSize;
+
+    // How long a hole in the id sequence is waited on before it is treated as a rolled back insert
+    @Value("${emails.cache-invalidation.settle-ms:10000}")
+    private long settleMillis;
+
+    @Value("${emails.cache-invalidation.retention-minutes:60}")
+    private long retentionMinutes;
+
+    private TransactionTemplate directoryTransaction;
+    private String nodeId;
+    private Counter applied;
+
+    // Every id up to the cursor has been handled; ids above it that were already handled wait in `delivered`
+    private long cursor = -1;
+    private final TreeSet<Long> delivered = new TreeSet<>();
+    private final Map<Long, Long> gapSince = new HashMap<>();
+    private long lastPollMillis;
+
+    @PostConstruct
+    public void init() {
+        directoryTransaction = new TransactionTemplate(transactionManager);
+        directoryTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        nodeId = configuredNodeId == null || configuredNodeId.isBlank()
+                ? UUID.randomUUID().toString() : configuredNodeId;
+        applied = Counter.builder("emails.cache_invalidation.applied")
+                .description("Change log entries from other nodes applied to local caches")
+                .register(meterRegistry);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    // Called after the write committed; a failure here leaves other nodes stale but must not fail the write
+    public void record(ChangeLogEntry.EntityType type, ChangeLogEntry.Action action, Long entityId, Long userId) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            onDirectory(() -> changeLogRepository.save(new ChangeLogEntry(type, action, entityId, userId, nodeId)));
+        } catch (RuntimeException e) {
+            log.warn("Could not record {} {} {} in the change log: {}", action, type, entityId, e.getMessage());
+        }
+    }
+
+    public void recordEmails(ChangeLogEntry.Action action, Collection<Long> emailIds) {
+        if (!enabled || emailIds.isEmpty()) {
+            return;
+        }
+        try {
+            onDirectory(() -> changeLogRepository.saveAll(emailIds.stream()
+                    .map(id -> new ChangeLogEntry(ChangeLogEntry.EntityType.EMAIL, action, id, null, nodeId))
+                    .toList()));
+        } catch (RuntimeException e) {
+            log.warn("Could not record {} changed emails in the change log: {}", emailIds.size(), e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${emails.cache-invalidation.poll-interval-ms:1000}")
+    public synchronized void poll() {
+        if (!enabled) {
+            return;
+        }
+        List<ChangeLogEntry> batch;
+        try {
+            batch = onDirectory(() -> {
+                if (cursor < 0) {
+                    // Caches start empty, so history before startup is irrelevant
+                    cursor = changeLogRepository.findMaxId();
+                    return List.<ChangeLogEntry>of();
+                }
+                return changeLogRepository.findByIdGreaterThanOrderByIdAsc(cursor, PageRequest.of(0, batchSize));
+            });
+        } catch (RuntimeException e) {
+            log.warn("Change log poll failed: {}", e.getMessage());
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        if (lastPollMillis > 0 && now - lastPollMillis > retentionMinutes * 60_000) {
+            log.warn("Change log was not polled for {} ms; entries may have been pruned, dropping all cached state",
+                    now - lastPollMillis);
+            publish(ChangeLogEntry.everything(nodeId));
+        }
+        lastPollMillis = now;
+
+        for (ChangeLogEntry entry : batch) {
+            if (delivered.add(entry.getId()) && !nodeId.equals(entry.getOriginNode())) {
+                publish(entry);
+                applied.increment();
+            }
+        }
+        advance(now);
+    }
+
+    // Auto-increment ids become visible in commit order, not id order, so a hole below a seen entry may
+    // still fill in. The cursor only passes a hole once it has been open for the settle time.
+    private void advance(long now) {
+        while (!delivered.isEmpty()) {
+            long next = cursor + 1;
+            if (delivered.first() == next) {
+                delivered.pollFirst();
+                cursor = next;
+                continue;
+            }
+            long since = gapSince.computeIfAbsent(next, id -> now);
+            if (now - since < settleMillis) {
+                break;
+            }
+            cursor = delivered.first() - 1;
+        }
+        gapSince.keySet().removeIf(id -> id <= cursor);
+    }
+
+    private void publish(ChangeLogEntry entry) {
+        try {
+            eventPublisher.publishEvent(entry);
+        } catch (RuntimeException e) {
+            log.warn("Applying change log entry {} failed", entry.getId(), e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${emails.cache-invalidation.prune-interval-ms:600000}")
+    public void prune() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            int pruned = onDirectory(() ->
+                    changeLogRepository.deleteOlderThan(LocalDateTime.now().minusMinutes(retentionMinutes)));
+            if (pruned > 0) {
+                log.debug("Pruned {} change log entries", pruned);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Change log prune failed: {}", e.getMessage());
+        }
+    }
+
+    private <T> T onDirectory(Supplier<T> work) {
+        Integer previous = ShardContext.bind(0);
+        try {
+            return directoryTransaction.execute(status -> work.get());
+        } finally {
+            ShardContext.restore(previous);
+        }
+    }
+}
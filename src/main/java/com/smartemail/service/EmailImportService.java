@@ -0,0 +1,285 @@
+package com.smartemail.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.smartemail.config.WorkloadClass;
+import com.smartemail.config.WorkloadContext;
+import com.smartemail.exception.ResourceNotFoundException;
+import com.smartemail.exception.TooManyRequestsException;
+import com.smartemail.model.Email;
+import com.smartemail.model.ImportJob;
+import com.smartemail.model.User;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+// Bulk import of mail archives placed under the import directory. A worker walks an mbox file or a tree of .eml
+// files one message at a time and saves them in batches through the ingest pipeline's write path, so memory is
+// bounded by the mapping window and one batch rather than by the archive.
+@Service
+public class EmailImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(EmailImportService.class);
+
+    // Column lengths of the emails table
+    private static final int MAX_FIELD_LENGTH = 255;
+    private static final int MAX_BODY_LENGTH = 5000;
+    private static final String NO_SUBJECT = "(no subject)";
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${emails.import.root-dir:${java.io.tmpdir}/smart-email-imports}")
+    private String rootDirectory;
+
+    @Value("${emails.import.workers:2}")
+    private int workers;
+
+    @Value("${emails.import.queue-capacity:8}")
+    private int queueCapacity;
+
+    @Value("${emails.import.batch-size:500}")
+    private int batchSize;
+
+    @Value("${emails.import.map-window-bytes:67108864}")
+    private int mapWindowBytes;
+
+    @Value("${emails.import.max-message-bytes:26214400}")
+    private int maxMessageBytes;
+
+    @Value("${emails.import.max-errors:1000}")
+    private int maxErrors;
+
+    @Value("${emails.import.retention-minutes:60}")
+    private long retentionMinutes;
+
+    @Value("${emails.import.retry-after-seconds:30}")
+    private long retryAfterSeconds;
+
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+    private Path rootDir;
+    private ThreadPoolExecutor executor;
+    private Counter imported;
+    private Counter failed;
+
+    private record Parsed(String source, MimeParser.Message message) {}
+
+    @PostConstruct
+    public void init() throws IOException {
+        rootDir = Files.createDirectories(Paths.get(rootDirectory)).toRealPath();
+        AtomicInteger threads = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "email-import-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        imported = Counter.builder("emails.import.messages").tag("result", "imported").register(meterRegistry);
+        failed = Counter.builder("emails.import.messages").tag("result", "failed").register(meterRegistry);
+    }
+
+    public ImportJob submit(Long userId, Long categoryId, String path) {
+        userService.getUserById(userId); // Validate user exists
+        categoryService.getCategoryById(categoryId); // Validate category exists
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), userId, categoryId,
+                rootDir.relativize(resolve(path)).toString());
+        jobs.put(job.getId(), job);
+        try {
+            executor.execute(WorkloadContext.wrap(WorkloadClass.BATCH, () -> run(job)));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            throw new TooManyRequestsException("Import queue is full, retry later", retryAfterSeconds);
+        }
+        return job;
+    }
+
+    public ImportJob getJob(String jobId) {
+        ImportJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new ResourceNotFoundException("Import job not found with id: " + jobId);
+        }
+        return job;
+    }
+
+    // Stops a running job after its current batch; emails already saved are kept
+    public void delete(String jobId) {
+        ImportJob job = getJob(jobId);
+        jobs.remove(jobId);
+        if (job.getFinishedAt() == null) {
+            job.setStatus(ImportJob.Status.CANCELLED);
+        }
+    }
+
+    // Archives are read only from inside the import directory, also through symlinks
+    private Path resolve(String path) {
+        try {
+            Path archive = rootDir.resolve(path).toRealPath();
+            if (!archive.startsWith(rootDir) || archive.equals(rootDir)) {
+                throw new IllegalArgumentException("Import path must point inside the import directory");
+            }
+            return archive;
+        } catch (NoSuchFileException e) {
+            throw new ResourceNotFoundException("Import archive not found: " + path);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Import archive cannot be read: " + path);
+        }
+    }
+
+    private void run(ImportJob job) {
+        if (job.getStatus() == ImportJob.Status.CANCELLED) {
+            return;
+        }
+        job.setStatus(ImportJob.Status.RUNNING);
+        try (MailArchive archive = MailArchive.open(rootDir.resolve(job.getSource()), mapWindowBytes, maxMessageBytes)) {
+            List<Parsed> batch = new ArrayList<>(batchSize);
+            MailArchive.RawMessage raw;
+            while (job.getStatus() != ImportJob.Status.CANCELLED && (raw = archive.next()) != null) {
+                job.addRead();
+                if (raw.error() != null) {
+                    reject(job, raw.source(), null, raw.error());
+                    continue;
+                }
+                try {
+                    batch.add(new Parsed(raw.source(), MimeParser.parse(raw.bytes(), MAX_BODY_LENGTH,
+                            archive.quotesFromLines())));
+                } catch (RuntimeException e) {
+                    reject(job, raw.source(), null, "Unreadable message: " + e.getMessage());
+                    continue;
+                }
+                if (batch.size() == batchSize) {
+                    saveBatch(job, batch);
+                    batch.clear();
+                }
+            }
+            if (job.getStatus() == ImportJob.Status.CANCELLED) {
+                return;
+            }
+            if (!batch.isEmpty()) {
+                saveBatch(job, batch);
+            }
+            job.setStatus(ImportJob.Status.COMPLETED);
+            log.info("Import job {} of {} finished: {} imported, {} failed", job.getId(), job.getSource(),
+                    job.getImported(), job.getFailed());
+        } catch (Exception e) {
+            if (job.getStatus() != ImportJob.Status.CANCELLED) {
+                log.error("Import job {} of {} failed after {} messages", job.getId(), job.getSource(),
+                        job.getTotal(), e);
+                job.setError(e.getMessage());
+                job.setStatus(ImportJob.Status.FAILED);
+            }
+        } finally {
+            job.setFinishedAt(LocalDateTime.now());
+        }
+    }
+
+    // The user and category are looked up once per batch instead of once per message
+    private void saveBatch(ImportJob job, List<Parsed> batch) {
+        User user = userService.getUserById(job.getUserId());
+        categoryService.getCategoryById(job.getCategoryId());
+
+        List<Parsed> mapped = new ArrayList<>(batch.size());
+        List<Email> emails = new ArrayList<>(batch.size());
+        for (Parsed parsed : batch) {
+            try {
+                Email email = toEmail(job, user, parsed.message());
+                emailService.enrichNewEmail(email);
+                mapped.add(parsed);
+                emails.add(email);
+            } catch (RuntimeException e) {
+                reject(job, parsed.source(), parsed.message().messageId(), e.getMessage());
+            }
+        }
+        if (emails.isEmpty()) {
+            return;
+        }
+        try {
+            emailService.saveNewEmails(emails);
+            job.addImported(emails.size());
+            imported.increment(emails.size());
+        } catch (Exception e) {
+            // Retry one by one so a single bad message does not fail the whole batch. Emails that kept their id
+            // were committed before the failure and must not be inserted again
+            log.warn("Import batch of {} failed, retrying individually: {}", emails.size(), e.getMessage());
+            for (int i = 0; i < emails.size(); i++) {
+                Email email = emails.get(i);
+                if (email.getId() != null) {
+                    job.addImported(1);
+                    imported.increment();
+                    continue;
+                }
+                try {
+                    emailService.saveNewEmails(List.of(email));
+                    job.addImported(1);
+                    imported.increment();
+                } catch (Exception single) {
+                    reject(job, mapped.get(i).source(), mapped.get(i).message().messageId(), single.getMessage());
+                }
+            }
+        }
+    }
+
+    private Email toEmail(ImportJob job, User user, MimeParser.Message message) {
+        if (message.from() == null) {
+            throw new IllegalArgumentException("Message has no From address");
+        }
+        String recipient = message.to() != null ? message.to() : user.getEmail();
+        String subject = message.subject() == null || message.subject().isBlank() ? NO_SUBJECT : message.subject();
+        Email email = new Email(job.getUserId(), clip(message.from()), clip(recipient), clip(subject.strip()),
+                message.text(), job.getCategoryId(), null);
+        email.setReceivedAt(message.date());
+        return email;
+    }
+
+    private static String clip(String value) {
+        return value.length() > MAX_FIELD_LENGTH ? value.substring(0, MAX_FIELD_LENGTH) : value;
+    }
+
+    private void reject(ImportJob job, String source, String messageId, String error) {
+        job.addFailure(new ImportJob.MessageError(source, messageId, error), maxErrors);
+        failed.increment();
+    }
+
+    @Scheduled(fixedDelayString = "${emails.import.cleanup-interval-ms:60000}")
+    public void evictFinishedJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(retentionMinutes);
+        jobs.values().removeIf(job -> job.getFinishedAt() != null && job.getFinishedAt().isBefore(cutoff));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,286 @@
+package com.smartemail.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.smartemail.config.WorkloadClass;
+import com.smartemail.config.WorkloadContext;
+import com.smartemail.exception.ResourceNotFoundException;
+import com.smartemail.exception.TooManyRequestsException;
+import com.smartemail.model.Email;
+import com.smartemail.model.IngestTicket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+// Asynchronous ingest: accepted emails pass through validate, enrich and persist stages, each fed by a bounded queue.
+// A full stage blocks the one before it, so sustained overload surfaces as 429 at the front instead of timeouts.
+@Service
+public class EmailIngestPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(EmailIngestPipeline.class);
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${emails.ingest.queue-capacity:1024}")
+    private int queueCapacity;
+
+    @Value("${emails.ingest.workers-per-stage:2}")
+    private int workersPerStage;
+
+    @Value("${emails.ingest.batch-size:100}")
+    private int batchSize;
+
+    @Value("${emails.ingest.poll-interval-ms:50}")
+    private long pollIntervalMs;
+
+    @Value("${emails.ingest.retry-after-seconds:1}")
+    private long retryAfterSeconds;
+
+    @Value("${emails.ingest.ticket-retention-minutes:60}")
+    private long ticketRetentionMinutes;
+
+    @Value("${emails.ingest.shutdown-timeout-ms:10000}")
+    private long shutdownTimeoutMs;
+
+    private final Map<String, IngestTicket> tickets = new ConcurrentHashMap<>();
+
+    private Stage validate;
+    private Stage enrich;
+    private Stage persist;
+
+    private Counter accepted;
+    private Counter throttled;
+    private Counter rejected;
+    private Counter persisted;
+    private Counter failed;
+
+    private record Pending(IngestTicket ticket, Email email) {}
+
+    private static class Stage {
+        final String name;
+        final BlockingQueue<Pending> queue;
+        final List<Thread> workers = new ArrayList<>();
+        volatile boolean closed;
+
+        Stage(String name, int capacity) {
+            this.name = name;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        // Workers keep draining after close so nothing accepted is dropped
+        boolean isDrained() {
+            return (closed && queue.isEmpty()) || Thread.currentThread().isInterrupted();
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        validate = new Stage("validate", queueCapacity);
+        enrich = new Stage("enrich", queueCapacity);
+        persist = new Stage("persist", queueCapacity);
+
+        for (Stage stage : List.of(validate, enrich, persist)) {
+            Gauge.builder("emails.ingest.queue.depth", stage.queue, BlockingQueue::size)
+                    .description("Emails waiting for an ingest stage")
+                    .tag("stage", stage.name)
+                    .register(meterRegistry);
+        }
+        accepted = Counter.builder("emails.ingest.accepted").register(meterRegistry);
+        throttled = Counter.builder("emails.ingest.throttled")
+                .description("Submissions refused with 429 because the pipeline was full")
+                .register(meterRegistry);
+        rejected = Counter.builder("emails.ingest.rejected")
+                .description("Emails that failed validation or enrichment")
+                .register(meterRegistry);
+        persisted = Counter.builder("emails.ingest.persisted").register(meterRegistry);
+        failed = Counter.builder("emails.ingest.failed").register(meterRegistry);
+
+        for (int i = 0; i < workersPerStage; i++) {
+            startWorker(validate, i, () -> runStage(validate, enrich, this::validate));
+            startWorker(enrich, i, () -> runStage(enrich, persist, this::enrich));
+        }
+        // A single persister lets batches grow with the arrival rate
+        startWorker(persist, 0, this::runPersister);
+    }
+
+    public IngestTicket submit(Email email) {
+        evictFinishedTickets();
+
+        // Ids are always generated; a client-supplied one would turn the insert into a merge
+        email.setId(null);
+        IngestTicket ticket = new IngestTicket(UUID.randomUUID().toString());
+        tickets.put(ticket.getId(), ticket);
+        if (validate.closed || !validate.queue.offer(new Pending(ticket, email))) {
+            tickets.remove(ticket.getId());
+            throttled.increment();
+            throw new TooManyRequestsException("Ingest queue is full, retry later", retryAfterSeconds);
+        }
+        accepted.increment();
+        return ticket;
+    }
+
+    public IngestTicket getTicket(String ticketId) {
+        IngestTicket ticket = tickets.get(ticketId);
+        if (ticket == null) {
+            throw new ResourceNotFoundException("Ingest ticket not found with id: " + ticketId);
+        }
+        return ticket;
+    }
+
+    public Map<String, Integer> getQueueDepths() {
+        return Map.of(validate.name, validate.queue.size(),
+                      enrich.name, enrich.queue.size(),
+                      persist.name, persist.queue.size());
+    }
+
+    private void validate(Pending pending) {
+        emailService.validateNewEmail(pending.email());
+        pending.ticket().setStatus(IngestTicket.Status.VALIDATED);
+    }
+
+    private void enrich(Pending pending) {
+        emailService.enrichNewEmail(pending.email());
+        pending.ticket().setStatus(IngestTicket.Status.ENRICHED);
+    }
+
+    private void runStage(Stage stage, Stage next, Consumer<Pending> work) {
+        while (!stage.isDrained()) {
+            Pending pending = poll(stage);
+            if (pending == null) {
+                continue;
+            }
+            try {
+                work.accept(pending);
+            } catch (Exception e) {
+                finish(pending, IngestTicket.Status.REJECTED, e.getMessage());
+                rejected.increment();
+                continue;
+            }
+            try {
+                // Blocking here is the backpressure: a slow next stage stalls this one until it catches up
+                next.queue.put(pending);
+            } catch (InterruptedException e) {
+                finish(pending, IngestTicket.Status.FAILED, "Ingest interrupted");
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void runPersister() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (!persist.isDrained()) {
+            Pending first = poll(persist);
+            if (first == null) {
+                continue;
+            }
+            batch.add(first);
+            persist.queue.drainTo(batch, batchSize - 1);
+            persistBatch(batch);
+            batch.clear();
+        }
+    }
+
+    private void persistBatch(List<Pending> batch) {
+        try {
+            emailService.saveNewEmails(batch.stream().map(Pending::email).toList());
+            batch.forEach(this::markPersisted);
+        } catch (Exception e) {
+            // Retry one by one so a single bad row does not fail the whole batch. Emails that kept their id were
+            // committed with another user's batch and must not be inserted again
+            log.warn("Ingest batch of {} failed, retrying individually: {}", batch.size(), e.getMessage());
+            for (Pending pending : batch) {
+                if (pending.email().getId() != null) {
+                    markPersisted(pending);
+                    continue;
+                }
+                try {
+                    emailService.saveNewEmails(List.of(pending.email()));
+                    markPersisted(pending);
+                } catch (Exception single) {
+                    finish(pending, IngestTicket.Status.FAILED, single.getMessage());
+                    failed.increment();
+                }
+            }
+        }
+    }
+
+    private void markPersisted(Pending pending) {
+        pending.ticket().setEmailId(pending.email().getId());
+        finish(pending, IngestTicket.Status.PERSISTED, null);
+        persisted.increment();
+    }
+
+    private void finish(Pending pending, IngestTicket.Status status, String error) {
+        IngestTicket ticket = pending.ticket();
+        ticket.setError(error);
+        ticket.setStatus(status);
+        ticket.setFinishedAt(LocalDateTime.now());
+    }
+
+    private Pending poll(Stage stage) {
+        try {
+            return stage.queue.poll(pollIntervalMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private void startWorker(Stage stage, int index, Runnable loop) {
+        // Every stage feeds the write path, so the whole pipeline runs as write work
+        Thread worker = new Thread(WorkloadContext.wrap(WorkloadClass.WRITE, loop),
+                "ingest-" + stage.name + "-" + index);
+        worker.setDaemon(true);
+        stage.workers.add(worker);
+        worker.start();
+    }
+
+    private void evictFinishedTickets() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(ticketRetentionMinutes);
+        tickets.values().removeIf(ticket -> ticket.getFinishedAt() != null && ticket.getFinishedAt().isBefore(cutoff));
+    }
+
+    // Close stages front to back so each one drains into a downstream stage that is still running
+    @PreDestroy
+    public void shutdown() {
+        long deadline = System.currentTimeMillis() + shutdownTimeoutMs;
+        for (Stage stage : List.of(validate, enrich, persist)) {
+            stage.closed = true;
+            for (Thread worker : stage.workers) {
+                try {
+                    worker.join(Math.max(1, deadline - System.currentTimeMillis()));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+        long abandoned = validate.queue.size() + enrich.queue.size() + persist.queue.size();
+        if (abandoned > 0) {
+            log.warn("Ingest pipeline stopped with {} emails still queued", abandoned);
+        }
+    }
+}
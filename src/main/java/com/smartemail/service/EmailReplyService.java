@@ -1,6 +1,9 @@
 package com.smartemail.service;
 
 import org.springframework.stereotype.Service;
+
+import io.micrometer.core.annotation.Timed;
+
 import java.util.HashMap;
 import java.util.Map;
 import java.util.regex.Pattern;
@@ -9,6 +12,7 @@ import java.util.regex.Matcher;
 @Service
 public class EmailReplyService {
 
+    @Timed(value = "emails.reply.generate", histogram = true)
     public Map<String, String> generateReply(String subject, String body, String senderEmail) {
         Map<String, String> reply = new HashMap<>();
         
@@ -2,24 +2,47 @@ package com.smartemail.service;
 
 import java.io.IOException;
 import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVPrinter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.hibernate.Hibernate;
+import org.springframework.beans.BeanWrapperImpl;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.smartemail.config.Workload;
+import com.smartemail.config.WorkloadClass;
 import com.smartemail.exception.ResourceNotFoundException;
+import com.smartemail.model.ChangeLogEntry;
 import com.smartemail.model.Email;
+import com.smartemail.model.EmailSummary;
+import com.smartemail.model.EmailThread;
+import com.smartemail.model.OutboxEvent;
 import com.smartemail.repository.EmailRepository;
 
+import io.micrometer.core.annotation.Timed;
+
 @Service
 public class EmailService {
     
+    private static final Logger log = LoggerFactory.getLogger(EmailService.class);
+    
     @Autowired
     private EmailRepository emailRepository;
     
@@ -29,25 +52,165 @@ public class EmailService {
     @Autowired
     private CategoryService categoryService;
     
+    @Autowired
+    private StatusWriteBuffer statusWriteBuffer;
+    
+    @Autowired
+    private ShardRouter shardRouter;
+    
+    @Autowired
+    private ShardRebalancer shardRebalancer;
+    
+    @Autowired
+    private SentimentAnalyzer sentimentAnalyzer;
+    
+    @Value("${emails.sentiment.auto-score:true}")
+    private boolean autoScoreSentiment;
+    
+    @Autowired
+    private CategoryClassifier categoryClassifier;
+    
+    @Value("${emails.classifier.auto-fill-category:false}")
+    private boolean autoFillCategory;
+    
+    @Autowired
+    private NearDuplicateDetector nearDuplicateDetector;
+    
+    @Autowired
+    private EmailThreadService emailThreadService;
+    
+    @Autowired
+    private AddressSuggester addressSuggester;
+    
+    @Autowired
+    private HotInboxCache hotInboxCache;
+    
+    @Autowired
+    private ChangeLog changeLog;
+    
+    @Autowired
+    private Outbox outbox;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Transactional(readOnly = true)
+    @Workload(WorkloadClass.BATCH)
     public List<Email> getAllEmails() {
-        return emailRepository.findAll();
+        return statusWriteBuffer.overlayEmails(
+                shardRouter.fanOut(shard -> initializeFollowUps(emailRepository.findAll())));
     }
     
+    @Transactional(readOnly = true)
+    @Workload(WorkloadClass.INTERACTIVE)
     public Email getEmailById(Long id) {
-        return emailRepository.findById(id)
+        return shardRouter.locate(id, shard -> emailRepository.findById(id).map(this::initializeFollowUps))
+                .map(located -> statusWriteBuffer.overlay(located.value()))
                 .orElseThrow(() -> new ResourceNotFoundException("Email not found with id: " + id));
     }
     
+    @Workload(WorkloadClass.WRITE)
     public Email createEmail(Email email) {
+        validateNewEmail(email);
+        enrichNewEmail(email);
+        
+        Email saved = emailThreadService.create(email);
+        categoryClassifier.learn(saved.getCategoryId(), saved.getSubject(), saved.getBody());
+        nearDuplicateDetector.register(saved);
+        addressSuggester.observe(saved);
+        hotInboxCache.added(saved);
+        changeLog.record(ChangeLogEntry.EntityType.EMAIL, ChangeLogEntry.Action.CREATED, saved.getId(), saved.getUserId());
+        return saved;
+    }
+    
+    // The create steps are exposed separately so the ingest pipeline can run them as stages
+    public void validateNewEmail(Email email) {
+        // Arrival time is assigned on insert; only imports keep the date a message carries
+        email.setReceivedAt(null);
+        
         // Validate user exists
         userService.getUserById(email.getUserId());
         
         // Validate category exists
-        categoryService.getCategoryById(email.getCategoryId());
+        if (email.getCategoryId() != null) {
+            categoryService.getCategoryById(email.getCategoryId());
+        } else if (!autoFillCategory) {
+            throw new IllegalArgumentException("Category ID is required");
+        }
+    }
+    
+    public void enrichNewEmail(Email email) {
+        if (email.getCategoryId() == null) {
+            email.setCategoryId(suggestCategory(email.getSubject(), email.getBody()));
+            categoryService.getCategoryById(email.getCategoryId());
+        }
+        
+        if (email.getSentiment() == null && autoScoreSentiment) {
+            email.setSentiment(sentimentAnalyzer.analyze(email.getSubject(), email.getBody()));
+        }
         
-        return emailRepository.save(email);
+        email.setDuplicateOf(nearDuplicateDetector.findDuplicate(email));
+    }
+    
+    // Saves validated emails with one transaction per user instead of one per email. When a user's transaction
+    // fails, that user's emails get their ids cleared, the other users are still saved and the first failure is
+    // rethrown: callers retry exactly the emails left without an id
+    @Workload(WorkloadClass.WRITE)
+    public List<Email> saveNewEmails(List<Email> emails) {
+        Map<Long, List<Email>> byUser = emails.stream()
+                .collect(Collectors.groupingBy(Email::getUserId, LinkedHashMap::new, Collectors.toList()));
+        List<Email> saved = new ArrayList<>(emails.size());
+        List<Long> savedUsers = new ArrayList<>(byUser.size());
+        RuntimeException failure = null;
+        for (Map.Entry<Long, List<Email>> entry : byUser.entrySet()) {
+            try {
+                saved.addAll(emailThreadService.createAll(entry.getKey(), entry.getValue()));
+                savedUsers.add(entry.getKey());
+            } catch (RuntimeException e) {
+                // Rolled back, but save() already assigned identity ids
+                entry.getValue().forEach(email -> {
+                    email.setId(null);
+                    email.setThreadId(null);
+                });
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        // The rows are committed, so a failing in-memory index must not make them look unsaved
+        saved.forEach(email -> {
+            try {
+                categoryClassifier.learn(email.getCategoryId(), email.getSubject(), email.getBody());
+                nearDuplicateDetector.register(email);
+                addressSuggester.observe(email);
+                hotInboxCache.added(email);
+            } catch (RuntimeException e) {
+                log.warn("Saved email {} could not be added to the in-memory indexes: {}", email.getId(), e.getMessage());
+            }
+        });
+        savedUsers.forEach(userId ->
+                changeLog.record(ChangeLogEntry.EntityType.EMAIL, ChangeLogEntry.Action.CREATED, null, userId));
+        if (failure != null) {
+            throw failure;
+        }
+        return saved;
     }
     
+    public CategoryClassifier.Prediction classify(String subject, String body) {
+        return categoryClassifier.classify(subject, body);
+    }
+    
+    private Long suggestCategory(String subject, String body) {
+        Long categoryId = autoFillCategory ? categoryClassifier.classify(subject, body).getCategoryId() : null;
+        if (categoryId == null) {
+            throw new IllegalArgumentException("Category ID is required");
+        }
+        return categoryId;
+    }
+    
+    @Workload(WorkloadClass.WRITE)
     public Email updateEmail(Long id, Email emailDetails) {
         Email email = getEmailById(id);
         
@@ -56,45 +219,164 @@ public class EmailService {
             userService.getUserById(emailDetails.getUserId());
         }
         
+        // A missing category is classified when allowed, otherwise the current one is kept
+        if (emailDetails.getCategoryId() == null) {
+            emailDetails.setCategoryId(autoFillCategory
+                    ? suggestCategory(emailDetails.getSubject(), emailDetails.getBody())
+                    : email.getCategoryId());
+        }
+        
         // Validate category exists if categoryId is being changed
         if (!email.getCategoryId().equals(emailDetails.getCategoryId())) {
             categoryService.getCategoryById(emailDetails.getCategoryId());
         }
         
+        Long previousUserId = email.getUserId();
+        Long previousCategoryId = email.getCategoryId();
+        String previousSubject = email.getSubject();
+        String previousBody = email.getBody();
+        boolean addressesChanged = !email.getSender().equals(emailDetails.getSender())
+                || !email.getRecipient().equals(emailDetails.getRecipient());
         email.setUserId(emailDetails.getUserId());
         email.setSender(emailDetails.getSender());
         email.setRecipient(emailDetails.getRecipient());
         email.setSubject(emailDetails.getSubject());
         email.setBody(emailDetails.getBody());
         email.setCategoryId(emailDetails.getCategoryId());
-        email.setSentiment(emailDetails.getSentiment());
+        email.setSentiment(emailDetails.getSentiment() == null && autoScoreSentiment
+                ? sentimentAnalyzer.analyze(emailDetails.getSubject(), emailDetails.getBody())
+                : emailDetails.getSentiment());
         email.setArchived(emailDetails.getArchived());
         
-        return emailRepository.save(email);
+        // Re-check duplicates against everything except the email's previous content
+        nearDuplicateDetector.remove(previousUserId, id);
+        email.setDuplicateOf(nearDuplicateDetector.findDuplicate(email));
+        
+        statusWriteBuffer.discardEmail(id);
+        Email saved = emailThreadService.update(previousUserId, email);
+        categoryClassifier.unlearn(previousCategoryId, previousSubject, previousBody);
+        categoryClassifier.learn(saved.getCategoryId(), saved.getSubject(), saved.getBody());
+        nearDuplicateDetector.register(saved);
+        if (addressesChanged) {
+            addressSuggester.observe(saved);
+        }
+        if (previousUserId.equals(saved.getUserId())) {
+            hotInboxCache.updated(saved);
+        } else {
+            hotInboxCache.invalidate(previousUserId);
+            hotInboxCache.invalidate(saved.getUserId());
+        }
+        
+        // Follow the new owner to their shard
+        if (shardRouter.isEnabled()
+                && shardRouter.shardForUser(previousUserId) != shardRouter.shardForUser(saved.getUserId())) {
+            shardRebalancer.moveEmail(id, shardRouter.shardForUser(previousUserId),
+                                      shardRouter.shardForUser(saved.getUserId()));
+            emailThreadService.attachMoved(id, saved.getUserId());
+        }
+        changeLog.record(ChangeLogEntry.EntityType.EMAIL, ChangeLogEntry.Action.UPDATED, id, previousUserId);
+        if (!previousUserId.equals(saved.getUserId())) {
+            changeLog.record(ChangeLogEntry.EntityType.EMAIL, ChangeLogEntry.Action.UPDATED, id, saved.getUserId());
+        }
+        return saved;
     }
     
+    @Workload(WorkloadClass.WRITE)
     public void deleteEmail(Long id) {
         Email email = getEmailById(id);
-        emailRepository.delete(email);
+        statusWriteBuffer.discardEmail(id);
+        emailThreadService.delete(email);
+        categoryClassifier.unlearn(email.getCategoryId(), email.getSubject(), email.getBody());
+        nearDuplicateDetector.remove(email.getUserId(), id);
+        hotInboxCache.removed(email.getUserId(), id);
+        changeLog.record(ChangeLogEntry.EntityType.EMAIL, ChangeLogEntry.Action.DELETED, id, email.getUserId());
+    }
+    
+    // First pages come from the hot inbox cache without touching the database
+    @Workload(WorkloadClass.INTERACTIVE)
+    public Page<EmailSummary> getInbox(Long userId, int page, int size) {
+        Page<EmailSummary> cached = hotInboxCache.getCached(userId, page, size);
+        if (cached != null) {
+            return cached;
+        }
+        userService.getUserById(userId); // Validate user exists
+        return hotInboxCache.load(userId, page, size);
+    }
+    
+    @Transactional(readOnly = true)
+    @Workload(WorkloadClass.INTERACTIVE)
+    public Page<EmailThread> getThreadsForUser(Long userId, int page, int size) {
+        userService.getUserById(userId); // Validate user exists
+        return shardRouter.readForUser(userId, () -> emailThreadService.findThreads(userId, page, size));
+    }
+    
+    @Transactional(readOnly = true)
+    @Workload(WorkloadClass.INTERACTIVE)
+    public List<Email> getThreadEmails(Long userId, Long threadId) {
+        userService.getUserById(userId); // Validate user exists
+        return statusWriteBuffer.overlayEmails(shardRouter.readForUser(userId,
+                () -> initializeFollowUps(emailThreadService.findThreadEmails(userId, threadId))));
+    }
+    
+    public List<AddressSuggester.AddressSuggestion> suggestAddresses(Long userId, String prefix, int limit) {
+        userService.getUserById(userId); // Validate user exists
+        return addressSuggester.suggest(userId, prefix, limit);
     }
     
+    public List<NearDuplicateDetector.DuplicateCluster> getDuplicateClusters(Long userId) {
+        userService.getUserById(userId);
+        return nearDuplicateDetector.getClusters(userId);
+    }
+    
+    @Workload(WorkloadClass.WRITE)
     public Email archiveEmail(Long id) {
         Email email = getEmailById(id);
         email.setArchived(true);
-        return emailRepository.save(email);
+        if (statusWriteBuffer.isEnabled()) {
+            statusWriteBuffer.bufferArchived(id, true);
+            hotInboxCache.archived(email.getUserId(), id, true);
+            return email;
+        }
+        Email saved = saveArchived(email);
+        hotInboxCache.archived(saved.getUserId(), id, true);
+        changeLog.record(ChangeLogEntry.EntityType.EMAIL, ChangeLogEntry.Action.UPDATED, id, saved.getUserId());
+        return saved;
     }
     
+    @Workload(WorkloadClass.WRITE)
     public Email unarchiveEmail(Long id) {
         Email email = getEmailById(id);
         email.setArchived(false);
-        return emailRepository.save(email);
+        if (statusWriteBuffer.isEnabled()) {
+            statusWriteBuffer.bufferArchived(id, false);
+            hotInboxCache.archived(email.getUserId(), id, false);
+            return email;
+        }
+        Email saved = saveArchived(email);
+        hotInboxCache.archived(saved.getUserId(), id, false);
+        changeLog.record(ChangeLogEntry.EntityType.EMAIL, ChangeLogEntry.Action.UPDATED, id, saved.getUserId());
+        return saved;
+    }
+    
+    private Email saveArchived(Email email) {
+        return shardRouter.writeForUser(email.getUserId(), () -> transactionTemplate.execute(status -> {
+            Email saved = initializeFollowUps(emailRepository.save(email));
+            outbox.appendChanges(OutboxEvent.AggregateType.EMAIL, OutboxEvent.EventType.UPDATED,
+                    Map.of(saved.getId(), Map.of("archived", saved.getArchived())));
+            return saved;
+        }));
     }
     
+    @Transactional(readOnly = true)
+    @Workload(WorkloadClass.INTERACTIVE)
     public List<Email> getEmailsByUserId(Long userId) {
         userService.getUserById(userId); // Validate user exists
-        return emailRepository.findByUserId(userId);
+        return statusWriteBuffer.overlayEmails(
+                shardRouter.readForUser(userId, () -> initializeFollowUps(emailRepository.findByUserId(userId))));
     }
     
+    @Transactional(readOnly = true)
+    @Workload(WorkloadClass.INTERACTIVE)
     public Page<Email> searchEmails(String sender, String recipient, String subject, 
                                   Long categoryId, Email.Sentiment sentiment, Boolean archived,
                                   int page, int size, String sortBy, String sortDir) {
@@ -105,9 +387,62 @@ public class EmailService {
         
         Pageable pageable = PageRequest.of(page, size, sort);
         
-        return emailRepository.searchEmails(sender, recipient, subject, categoryId, sentiment, archived, pageable);
+        if (!shardRouter.isEnabled()) {
+            Page<Email> emails = emailRepository.searchEmails(sender, recipient, subject, categoryId, sentiment, archived, pageable);
+            List<Email> matching = statusWriteBuffer.overlayEmails(initializeFollowUps(emails.getContent()), archived);
+            return new PageImpl<>(matching, pageable,
+                    emails.getTotalElements() - (emails.getNumberOfElements() - matching.size()));
+        }
+        
+        // Each shard returns its first (page + 1) * size rows in order; merge them and cut out the page
+        int window;
+        try {
+            window = Math.multiplyExact(page + 1, size);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Page " + page + " of size " + size + " is beyond the searchable range");
+        }
+        Pageable shardPageable = PageRequest.of(0, window, sort);
+        long[] total = new long[1];
+        List<Email> fetched = shardRouter.fanOut(shard -> {
+            Page<Email> shardPage = emailRepository.searchEmails(sender, recipient, subject, categoryId,
+                                                                 sentiment, archived, shardPageable);
+            total[0] += shardPage.getTotalElements();
+            return initializeFollowUps(shardPage.getContent());
+        });
+        List<Email> merged = new ArrayList<>(statusWriteBuffer.overlayEmails(fetched, archived));
+        merged.sort(comparatorFor(sort));
+        
+        int from = Math.min(window - size, merged.size());
+        int to = Math.min(from + size, merged.size());
+        return new PageImpl<>(merged.subList(from, to), pageable, total[0] - (fetched.size() - merged.size()));
+    }
+    
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Comparator<Email> comparatorFor(Sort sort) {
+        Comparator<Email> comparator = (a, b) -> 0;
+        for (Sort.Order order : sort) {
+            Comparator<Email> byProperty = Comparator.comparing(
+                    email -> (Comparable) new BeanWrapperImpl(email).getPropertyValue(order.getProperty()),
+                    Comparator.nullsLast(Comparator.naturalOrder()));
+            comparator = comparator.thenComparing(order.isDescending() ? byProperty.reversed() : byProperty);
+        }
+        return comparator;
+    }
+    
+    // Sharded reads and reads on a workload thread return detached entities, so load the follow-ups that get
+    // serialized while the transaction is still open
+    private <T> T initializeFollowUps(T emails) {
+        if (emails instanceof Email email) {
+            Hibernate.initialize(email.getFollowUps());
+        } else if (emails instanceof Iterable<?> iterable) {
+            iterable.forEach(email -> Hibernate.initialize(((Email) email).getFollowUps()));
+        }
+        return emails;
     }
     
+    @Transactional(readOnly = true)
+    @Timed(value = "emails.export", extraTags = {"format", "json"}, histogram = true)
+    @Workload(WorkloadClass.BATCH)
     public String exportEmailsAsJson(Long userId) {
         List<Email> emails = getEmailsByUserId(userId);
         // Simple JSON conversion (you might want to use ObjectMapper for more complex scenarios)
@@ -130,6 +465,9 @@ public class EmailService {
         return json.toString();
     }
     
+    @Transactional(readOnly = true)
+    @Timed(value = "emails.export", extraTags = {"format", "csv"}, histogram = true)
+    @Workload(WorkloadClass.BATCH)
     public String exportEmailsAsCsv(Long userId) throws IOException {
         List<Email> emails = getEmailsByUserId(userId);
         
@@ -0,0 +1,222 @@
+package com.smartemail.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.smartemail.exception.SyncTokenExpiredException;
+import com.smartemail.model.Email;
+import com.smartemail.model.SyncTombstone;
+import com.smartemail.repository.EmailRepository;
+import com.smartemail.repository.SyncTombstoneRepository;
+
+// Delta sync for clients that mirror a mailbox. Changed emails are walked by (updatedAt, id) and deletions by
+// (deletedAt, id); the token carries a cursor into each stream, so a sync costs what changed, not the mailbox size.
+@Service
+public class EmailSyncService {
+
+    private static final Logger log = LoggerFactory.getLogger(EmailSyncService.class);
+
+    private static final String TOKEN_VERSION = "v1";
+    private static final LocalDateTime BEGINNING = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    @Autowired
+    private EmailRepository emailRepository;
+
+    @Autowired
+    private SyncTombstoneRepository syncTombstoneRepository;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private StatusWriteBuffer statusWriteBuffer;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${emails.sync.default-page-size:100}")
+    private int defaultPageSize;
+
+    @Value("${emails.sync.max-page-size:500}")
+    private int maxPageSize;
+
+    // Timestamps are taken before commit, so the newest rows are left for the next sync until in-flight writes land
+    @Value("${emails.sync.settle-ms:2000}")
+    private long settleMillis;
+
+    @Value("${emails.sync.tombstone-retention-days:30}")
+    private int tombstoneRetentionDays;
+
+    public static class ChangeSet {
+        private final List<Email> emails;
+        private final List<Long> deletedEmailIds;
+        private final List<Long> deletedFollowUpIds;
+        private final String nextToken;
+        private final boolean hasMore;
+
+        public ChangeSet(List<Email> emails, List<Long> deletedEmailIds, List<Long> deletedFollowUpIds,
+                         String nextToken, boolean hasMore) {
+            this.emails = emails;
+            this.deletedEmailIds = deletedEmailIds;
+            this.deletedFollowUpIds = deletedFollowUpIds;
+            this.nextToken = nextToken;
+            this.hasMore = hasMore;
+        }
+
+        public List<Email> getEmails() { return emails; }
+        public List<Long> getDeletedEmailIds() { return deletedEmailIds; }
+        public List<Long> getDeletedFollowUpIds() { return deletedFollowUpIds; }
+        public String getNextToken() { return nextToken; }
+        public boolean isHasMore() { return hasMore; }
+    }
+
+    private record Cursor(LocalDateTime at, long id) {}
+
+    private record Token(Cursor emails, Cursor deletions) {}
+
+    @Transactional(readOnly = true)
+    public ChangeSet getChanges(Long userId, String since, Integer limit) {
+        userService.getUserById(userId); // Validate user exists
+        int pageSize = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+        LocalDateTime until = LocalDateTime.now().minusNanos(settleMillis * 1_000_000);
+
+        // A first sync downloads every email; deletions before it are irrelevant to a client without state
+        Token token = since == null || since.isBlank()
+                ? new Token(new Cursor(BEGINNING, 0), new Cursor(until, 0))
+                : decode(since);
+        if (token.deletions().at().isBefore(LocalDateTime.now().minusDays(tombstoneRetentionDays))) {
+            throw new SyncTokenExpiredException("Sync token is older than " + tombstoneRetentionDays
+                    + " days, start a full sync without a token");
+        }
+
+        PageRequest fetch = PageRequest.of(0, pageSize + 1);
+        List<Email> changed = shardRouter.readForUser(userId, () -> {
+            List<Email> emails = emailRepository.findChangedSince(userId, token.emails().at(), token.emails().id(),
+                    until, fetch);
+            if (!emails.isEmpty()) {
+                emailRepository.fetchFollowUps(emails.stream().map(Email::getId).toList());
+            }
+            return emails;
+        });
+        List<SyncTombstone> deleted = shardRouter.readForUser(userId, () ->
+                syncTombstoneRepository.findDeletedSince(userId, token.deletions().at(), token.deletions().id(),
+                        until, fetch));
+
+        // Merge both streams in time order; within a page the later of an update and a deletion wins
+        Map<Long, Email> emails = new LinkedHashMap<>();
+        Set<Long> deletedEmailIds = new LinkedHashSet<>();
+        Set<Long> deletedFollowUpIds = new LinkedHashSet<>();
+        Cursor emailCursor = token.emails();
+        Cursor deletionCursor = token.deletions();
+        int e = 0;
+        int d = 0;
+        while (e + d < pageSize && (e < changed.size() || d < deleted.size())) {
+            boolean takeEmail = d >= deleted.size() || (e < changed.size()
+                    && !changed.get(e).getUpdatedAt().isAfter(deleted.get(d).getDeletedAt()));
+            if (takeEmail) {
+                Email email = changed.get(e++);
+                deletedEmailIds.remove(email.getId());
+                emails.remove(email.getId());
+                emails.put(email.getId(), email);
+                emailCursor = new Cursor(email.getUpdatedAt(), email.getId());
+            } else {
+                SyncTombstone tombstone = deleted.get(d++);
+                if (tombstone.getEntityType() == SyncTombstone.EntityType.EMAIL) {
+                    emails.remove(tombstone.getEntityId());
+                    deletedEmailIds.add(tombstone.getEntityId());
+                } else {
+                    deletedFollowUpIds.add(tombstone.getEntityId());
+                }
+                deletionCursor = new Cursor(tombstone.getDeletedAt(), tombstone.getId());
+            }
+        }
+
+        // A drained stream jumps to the window end, which keeps tokens monotonic and idle tokens from expiring
+        boolean moreEmails = e < changed.size();
+        boolean moreDeletions = d < deleted.size();
+        if (!moreEmails) {
+            emailCursor = new Cursor(until, 0);
+        }
+        if (!moreDeletions) {
+            deletionCursor = new Cursor(until, 0);
+        }
+        return new ChangeSet(statusWriteBuffer.overlayEmails(new ArrayList<>(emails.values())),
+                new ArrayList<>(deletedEmailIds), new ArrayList<>(deletedFollowUpIds),
+                encode(new Token(emailCursor, deletionCursor)), moreEmails || moreDeletions);
+    }
+
+    // Rows written before updated_at existed sort by when they arrived
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillUpdatedAt() {
+        try {
+            AtomicLong backfilled = new AtomicLong();
+            for (int shard : shardRouter.shardsFor(null)) {
+                shardRouter.withShard(shard, () -> backfilled.addAndGet(
+                        transactionTemplate.execute(status -> emailRepository.backfillUpdatedAt())));
+            }
+            if (backfilled.get() > 0) {
+                log.info("Backfilled updated_at for {} existing emails", backfilled.get());
+            }
+        } catch (RuntimeException ex) {
+            log.error("updated_at backfill failed", ex);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${emails.sync.prune-interval-ms:3600000}")
+    public void pruneTombstones() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(tombstoneRetentionDays);
+        for (int shard : shardRouter.shardsFor(null)) {
+            try {
+                shardRouter.withShard(shard, () -> transactionTemplate.execute(status ->
+                        syncTombstoneRepository.deleteOlderThan(cutoff)));
+            } catch (RuntimeException ex) {
+                log.warn("Tombstone prune failed on shard {}: {}", shard, ex.getMessage());
+            }
+        }
+    }
+
+    private static String encode(Token token) {
+        String raw = String.join("|", TOKEN_VERSION,
+                token.emails().at().toString(), Long.toString(token.emails().id()),
+                token.deletions().at().toString(), Long.toString(token.deletions().id()));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Token decode(String token) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split("\\|");
+            if (parts.length != 5 || !TOKEN_VERSION.equals(parts[0])) {
+                throw new IllegalArgumentException("Invalid sync token");
+            }
+            return new Token(new Cursor(LocalDateTime.parse(parts[1]), Long.parseLong(parts[2])),
+                    new Cursor(LocalDateTime.parse(parts[3]), Long.parseLong(parts[4])));
+        } catch (DateTimeParseException | IllegalArgumentException ex) {
+            // NumberFormatException and bad base64 are IllegalArgumentExceptions too
+            throw new IllegalArgumentException("Invalid sync token");
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package com.smartemail.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.hibernate.Hibernate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.DigestUtils;
+
+import com.smartemail.exception.ResourceNotFoundException;
+import com.smartemail.model.Email;
+import com.smartemail.model.EmailThread;
+import com.smartemail.model.OutboxEvent;
+import com.smartemail.model.SyncTombstone;
+import com.smartemail.repository.EmailRepository;
+import com.smartemail.repository.EmailThreadRepository;
+import com.smartemail.repository.SyncTombstoneRepository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.FlushModeType;
+import jakarta.persistence.PersistenceContext;
+
+// Keeps email_threads in step with email writes. Emails share a thread when their normalized subject
+// and participant set match; summaries and outbox events are written in the same transaction as the email row.
+@Service
+public class EmailThreadService {
+
+    private static final Logger log = LoggerFactory.getLogger(EmailThreadService.class);
+
+    // Reply/forward markers in common locales, optional counters like "Re[2]:", and list tags like "[team]"
+    private static final Pattern SUBJECT_PREFIX = Pattern.compile(
+            "^\\s*(?:(?:re|fw|fwd|aw|wg|sv|vs|antw|tr|rif|ref)\\s*(?:\\[\\d+\\]|\\(\\d+\\))?\\s*:|\\[[^\\]]*\\])\\s*",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern ADDRESS_SEPARATOR = Pattern.compile("[,;]");
+    private static final String NO_SUBJECT = "(no subject)";
+    private static final int MAX_PARTICIPANTS_LENGTH = 1000;
+
+    @Autowired
+    private EmailThreadRepository threadRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private EmailRepository emailRepository;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private Outbox outbox;
+
+    @Autowired
+    private SyncTombstoneRepository syncTombstoneRepository;
+
+    @Autowired
+    private NearDuplicateDetector nearDuplicateDetector;
+
+    @Value("${emails.threads.backfill-on-startup:true}")
+    private boolean backfillOnStartup;
+
+    @Value("${emails.threads.backfill-batch-size:500}")
+    private int backfillBatchSize;
+
+    public static String normalizeSubject(String subject) {
+        if (subject == null) {
+            return NO_SUBJECT;
+        }
+        String normalized = subject.trim();
+        Matcher matcher = SUBJECT_PREFIX.matcher(normalized);
+        while (matcher.lookingAt() && matcher.end() > 0) {
+            normalized = normalized.substring(matcher.end());
+            matcher = SUBJECT_PREFIX.matcher(normalized);
+        }
+        normalized = normalized.replaceAll("\\s+", " ").trim();
+        return normalized.isEmpty() ? NO_SUBJECT : normalized;
+    }
+
+    public static String participantsOf(Email email) {
+        TreeSet<String> participants = new TreeSet<>();
+        addAddresses(participants, email.getSender());
+        addAddresses(participants, email.getRecipient());
+        return String.join(", ", participants);
+    }
+
+    private static void addAddresses(TreeSet<String> participants, String addresses) {
+        if (addresses == null) {
+            return;
+        }
+        for (String address : ADDRESS_SEPARATOR.split(addresses)) {
+            String trimmed = address.trim().toLowerCase(Locale.ROOT);
+            if (!trimmed.isEmpty()) {
+                participants.add(trimmed);
+            }
+        }
+    }
+
+    static String threadKey(String normalizedSubject, String participants) {
+        String source = normalizedSubject.toLowerCase(Locale.ROOT) + '\n' + participants;
+        return DigestUtils.md5DigestAsHex(source.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Lookups run on the caller's shard; EmailService adds user validation and routing
+    public Page<EmailThread> findThreads(Long userId, int page, int size) {
+        return threadRepository.findByUserIdOrderByLastActivityAtDesc(userId, PageRequest.of(page, size));
+    }
+
+    public List<Email> findThreadEmails(Long userId, Long threadId) {
+        EmailThread thread = threadRepository.findById(threadId)
+                .filter(found -> found.getUserId().equals(userId))
+                .orElseThrow(() -> new ResourceNotFoundException("Thread not found with id: " + threadId));
+        return emailRepository.findByThreadIdOrderByReceivedAtAsc(thread.getId());
+    }
+
+    public Email create(Email email) {
+        return createAll(email.getUserId(), List.of(email)).get(0);
+    }
+
+    // Saves new emails of one user and their thread summaries in a single transaction
+    public List<Email> createAll(Long userId, List<Email> emails) {
+        return retryOnThreadRace(() -> shardRouter.writeForUser(userId, () -> transactionTemplate.execute(status -> {
+            // Rows written here are inserted on save (identity ids) and never modified afterwards, so an auto-flush
+            // before each query would only dirty-check a persistence context that grows with the batch
+            FlushModeType flushMode = entityManager.getFlushMode();
+            entityManager.setFlushMode(FlushModeType.COMMIT);
+            try {
+                List<Email> saved = new ArrayList<>(emails.size());
+                for (Email email : emails) {
+                    EmailThread thread = threadFor(email);
+                    email.setThreadId(thread.getId());
+                    Email persisted = emailRepository.save(email);
+                    threadRepository.addMessages(thread.getId(), 1, persisted.getId(), persisted.getReceivedAt());
+                    outbox.appendEmail(OutboxEvent.EventType.CREATED, persisted);
+                    saved.add(persisted);
+                }
+                return saved;
+            } finally {
+                entityManager.setFlushMode(flushMode);
+            }
+        })), emails);
+    }
+
+    // Saves an edited email on its current owner's shard and moves it between threads when its key changed.
+    // If the new owner lives on another shard the email leaves its thread here and is re-threaded after the move.
+    public Email update(Long previousUserId, Email email) {
+        Long previousThreadId = email.getThreadId();
+        boolean staysOnShard = shardRouter.shardForUser(previousUserId) == shardRouter.shardForUser(email.getUserId());
+        return retryOnThreadRace(() -> shardRouter.writeForUser(previousUserId, () -> transactionTemplate.execute(status -> {
+            EmailThread thread = staysOnShard ? threadFor(email) : null;
+            Long threadId = thread == null ? null : thread.getId();
+            email.setThreadId(threadId);
+            Email saved = emailRepository.save(email);
+            if (!Objects.equals(previousThreadId, threadId)) {
+                if (thread != null) {
+                    threadRepository.addMessages(threadId, 1, saved.getId(), saved.getReceivedAt());
+                }
+                if (previousThreadId != null) {
+                    detach(previousThreadId, List.of(saved.getId()));
+                }
+            }
+            outbox.appendEmail(OutboxEvent.EventType.UPDATED, saved);
+            Hibernate.initialize(saved.getFollowUps()); // Serialized with the response after the transaction ends
+            if (!previousUserId.equals(saved.getUserId())) {
+                // The previous owner's clients must drop it; the new owner's see it through updatedAt
+                syncTombstoneRepository.save(new SyncTombstone(SyncTombstone.EntityType.EMAIL, saved.getId(), previousUserId));
+            }
+            return saved;
+        })), List.of(email));
+    }
+
+    // Completes update() for an email that has just been copied to its new owner's shard
+    public void attachMoved(Long emailId, Long userId) {
+        retryOnThreadRace(() -> shardRouter.writeForUser(userId, () -> transactionTemplate.execute(status -> {
+            Email email = emailRepository.findById(emailId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Email not found with id: " + emailId));
+            attachExisting(email);
+            return null;
+        })), List.of());
+    }
+
+    public void delete(Email email) {
+        shardRouter.writeForUser(email.getUserId(), () -> transactionTemplate.execute(status -> {
+            emailRepository.delete(email);
+            outbox.appendEmail(OutboxEvent.EventType.DELETED, email);
+            syncTombstoneRepository.save(new SyncTombstone(SyncTombstone.EntityType.EMAIL, email.getId(), email.getUserId()));
+            if (email.getThreadId() != null) {
+                detach(email.getThreadId(), List.of(email.getId()));
+            }
+            nearDuplicateDetector.repointDuplicates(List.of(email.getId()));
+            return null;
+        }));
+    }
+
+    // For bulk deletes; must run in the caller's transaction before the emails are removed
+    public Map<Long, List<Long>> threadsOf(Collection<Long> emailIds) {
+        Map<Long, List<Long>> byThread = new LinkedHashMap<>();
+        for (Object[] row : emailRepository.findThreadIdsByIds(emailIds)) {
+            byThread.computeIfAbsent((Long) row[0], threadId -> new ArrayList<>()).add((Long) row[1]);
+        }
+        return byThread;
+    }
+
+    // For bulk deletes; must run in the caller's transaction after the emails are removed
+    public void detachAll(Map<Long, List<Long>> emailIdsByThread) {
+        emailIdsByThread.forEach(this::detach);
+    }
+
+    public void deleteForUser(Long userId) {
+        shardRouter.writeForUser(userId, () -> transactionTemplate.execute(status -> threadRepository.deleteByUserId(userId)));
+    }
+
+    private EmailThread threadFor(Email email) {
+        String subject = normalizeSubject(email.getSubject());
+        String participants = participantsOf(email);
+        String key = threadKey(subject, participants);
+        // The identity insert runs on save, so a racing writer's duplicate key still fails here without a flush
+        return threadRepository.findByUserIdAndThreadKey(email.getUserId(), key)
+                .orElseGet(() -> threadRepository.save(new EmailThread(email.getUserId(), key,
+                        subject, abbreviate(participants))));
+    }
+
+    private void attachExisting(Email email) {
+        EmailThread thread = threadFor(email);
+        emailRepository.updateThreadId(email.getId(), thread.getId(), LocalDateTime.now());
+        threadRepository.addMessages(thread.getId(), 1, email.getId(), email.getReceivedAt());
+    }
+
+    private void detach(Long threadId, List<Long> removedEmailIds) {
+        threadRepository.removeMessages(threadId, removedEmailIds.size());
+        if (threadRepository.deleteIfEmpty(threadId) > 0) {
+            return;
+        }
+        // The latest message may have been removed; idx_emails_thread makes this a single-row lookup
+        emailRepository.findFirstByThreadIdOrderByReceivedAtDescIdDesc(threadId).ifPresent(latest ->
+                threadRepository.setLatest(threadId, latest.getId(), latest.getReceivedAt()));
+    }
+
+    // Two writers creating the same new thread collide on the unique key; the retry finds the winner's row
+    private <T> T retryOnThreadRace(Supplier<T> work, List<Email> emails) {
+        List<Long> originalIds = emails.stream().map(Email::getId).toList();
+        try {
+            return work.get();
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Thread insert raced with another writer, retrying: {}", e.getMessage());
+            for (int i = 0; i < emails.size(); i++) {
+                emails.get(i).setId(originalIds.get(i));
+            }
+            return work.get();
+        }
+    }
+
+    private static String abbreviate(String participants) {
+        return participants.length() <= MAX_PARTICIPANTS_LENGTH
+                ? participants : participants.substring(0, MAX_PARTICIPANTS_LENGTH - 3) + "...";
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillThreads() {
+        if (!backfillOnStartup) {
+            return;
+        }
+        Thread backfill = new Thread(() -> {
+            try {
+                AtomicLong threaded = new AtomicLong();
+                for (int shard : shardRouter.shardsFor(null)) {
+                    shardRouter.withShard(shard, () -> threaded.addAndGet(backfillShard()));
+                }
+                if (threaded.get() > 0) {
+                    log.info("Assigned threads to {} existing emails", threaded.get());
+                }
+            } catch (Exception e) {
+                log.error("Thread backfill failed", e);
+            }
+        }, "email-thread-backfill");
+        backfill.setDaemon(true);
+        backfill.start();
+    }
+
+    private long backfillShard() {
+        long threaded = 0;
+        long afterId = 0L;
+        while (true) {
+            List<Email> batch = emailRepository.findByThreadIdIsNullAndIdGreaterThanOrderByIdAsc(afterId,
+                    PageRequest.of(0, backfillBatchSize));
+            if (batch.isEmpty()) {
+                return threaded;
+            }
+            transactionTemplate.executeWithoutResult(status -> batch.forEach(this::attachExisting));
+            threaded += batch.size();
+            afterId = batch.get(batch.size() - 1).getId();
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package com.smartemail.service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartemail.config.WorkloadClass;
+import com.smartemail.config.WorkloadContext;
+import com.smartemail.exception.ResourceNotFoundException;
+import com.smartemail.exception.TooManyRequestsException;
+import com.smartemail.model.Email;
+import com.smartemail.model.ExportJob;
+import com.smartemail.repository.EmailRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+// Background exports: a bounded pool streams a user's emails in keyset batches to a spool file, so no request
+// thread or pooled connection is held for the whole export and the finished file outlives client disconnects.
+// Jobs and files are local to the node that ran them.
+@Service
+public class ExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExportService.class);
+
+    private static final String FILE_PREFIX = "export-";
+    private static final String[] CSV_HEADER =
+            {"ID", "Sender", "Recipient", "Subject", "Body", "Sentiment", "Archived", "Received At"};
+
+    @Autowired
+    private EmailRepository emailRepository;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private StatusWriteBuffer statusWriteBuffer;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${emails.export.spool-dir:${java.io.tmpdir}/smart-email-exports}")
+    private String spoolDirectory;
+
+    @Value("${emails.export.workers:2}")
+    private int workers;
+
+    @Value("${emails.export.queue-capacity:16}")
+    private int queueCapacity;
+
+    @Value("${emails.export.batch-size:500}")
+    private int batchSize;
+
+    @Value("${emails.export.retention-minutes:60}")
+    private long retentionMinutes;
+
+    @Value("${emails.export.retry-after-seconds:30}")
+    private long retryAfterSeconds;
+
+    private final Map<String, ExportJob> jobs = new ConcurrentHashMap<>();
+    private Path spoolDir;
+    private ThreadPoolExecutor executor;
+    private Counter completed;
+    private Counter failed;
+
+    @PostConstruct
+    public void init() throws IOException {
+        spoolDir = Files.createDirectories(Paths.get(spoolDirectory));
+        // Jobs are kept in memory, so files left by a previous run can no longer be downloaded
+        try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(spoolDir, FILE_PREFIX + "*")) {
+            for (Path leftover : leftovers) {
+                Files.deleteIfExists(leftover);
+            }
+        }
+        AtomicInteger threads = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "email-export-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        completed = Counter.builder("emails.export.jobs").tag("result", "completed").register(meterRegistry);
+        failed = Counter.builder("emails.export.jobs").tag("result", "failed").register(meterRegistry);
+    }
+
+    // The permit is released once the job has run, failed, been cancelled, or could not be queued
+    public ExportJob submit(Long userId, String format, AdmissionControl.Permit permit) {
+        try {
+            userService.getUserById(userId); // Validate user exists
+            ExportJob job = new ExportJob(UUID.randomUUID().toString(), userId, parseFormat(format));
+            jobs.put(job.getId(), job);
+            try {
+                executor.execute(WorkloadContext.wrap(WorkloadClass.BATCH, () -> {
+                    try {
+                        run(job);
+                    } finally {
+                        permit.release();
+                    }
+                }));
+            } catch (RejectedExecutionException e) {
+                jobs.remove(job.getId());
+                throw new TooManyRequestsException("Export queue is full, retry later", retryAfterSeconds);
+            }
+            return job;
+        } catch (RuntimeException e) {
+            permit.release();
+            throw e;
+        }
+    }
+
+    public ExportJob getJob(String jobId) {
+        ExportJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new ResourceNotFoundException("Export job not found with id: " + jobId);
+        }
+        return job;
+    }
+
+    public Path getFile(ExportJob job) {
+        return fileFor(job);
+    }
+
+    // Cancels a job that has not finished yet and removes its file
+    public void delete(String jobId) {
+        ExportJob job = getJob(jobId);
+        jobs.remove(jobId);
+        if (job.getFinishedAt() == null) {
+            job.setStatus(ExportJob.Status.CANCELLED);
+        }
+        deleteFiles(job);
+    }
+
+    private void run(ExportJob job) {
+        if (job.getStatus() == ExportJob.Status.CANCELLED) {
+            return;
+        }
+        job.setStatus(ExportJob.Status.RUNNING);
+        Path file = fileFor(job);
+        Path part = partFileFor(job);
+        try {
+            job.setTotal(shardRouter.readForUser(job.getUserId(), () -> emailRepository.countByUserId(job.getUserId())));
+            try (FileChannel channel = FileChannel.open(part, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024);
+                if (job.getFormat() == ExportJob.Format.CSV) {
+                    writeCsv(job, out);
+                } else {
+                    writeJson(job, out);
+                }
+                out.flush();
+                channel.force(false);
+            }
+            if (job.getStatus() == ExportJob.Status.CANCELLED) {
+                Files.deleteIfExists(part);
+                return;
+            }
+            Files.move(part, file, StandardCopyOption.ATOMIC_MOVE);
+            job.setBytes(Files.size(file));
+            job.setStatus(ExportJob.Status.COMPLETED);
+            completed.increment();
+        } catch (Exception e) {
+            if (job.getStatus() != ExportJob.Status.CANCELLED) {
+                log.error("Export job {} for user {} failed after {} emails", job.getId(), job.getUserId(),
+                        job.getProcessed(), e);
+                job.setError(e.getMessage());
+                job.setStatus(ExportJob.Status.FAILED);
+                failed.increment();
+            }
+            deleteFiles(job);
+        } finally {
+            job.setFinishedAt(LocalDateTime.now());
+        }
+    }
+
+    private void writeJson(ExportJob job, OutputStream out) throws IOException {
+        // Not closed here, closing would also close the channel before it is forced
+        JsonGenerator json = objectMapper.getFactory().createGenerator(out);
+        json.writeStartArray();
+        forEachBatch(job, batch -> {
+            try {
+                for (Email email : batch) {
+                    json.writeStartObject();
+                    json.writeNumberField("id", email.getId());
+                    json.writeStringField("sender", email.getSender());
+                    json.writeStringField("recipient", email.getRecipient());
+                    json.writeStringField("subject", email.getSubject());
+                    json.writeStringField("body", email.getBody());
+                    json.writeStringField("sentiment", String.valueOf(email.getSentiment()));
+                    json.writeBooleanField("archived", Boolean.TRUE.equals(email.getArchived()));
+                    json.writeStringField("receivedAt", String.valueOf(email.getReceivedAt()));
+                    json.writeEndObject();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        json.writeEndArray();
+        json.flush();
+    }
+
+    private void writeCsv(ExportJob job, OutputStream out) throws IOException {
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        CSVPrinter csv = new CSVPrinter(writer, CSVFormat.DEFAULT.builder().setHeader(CSV_HEADER).build());
+        forEachBatch(job, batch -> {
+            try {
+                for (Email email : batch) {
+                    csv.printRecord(email.getId(), email.getSender(), email.getRecipient(), email.getSubject(),
+                            email.getBody(), email.getSentiment(), email.getArchived(), email.getReceivedAt());
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        csv.flush();
+    }
+
+    // Each batch is a short read of its own, so the connection goes back to the pool between batches
+    private void forEachBatch(ExportJob job, Consumer<List<Email>> writer) {
+        long afterId = 0L;
+        while (job.getStatus() != ExportJob.Status.CANCELLED) {
+            long lastId = afterId;
+            List<Email> batch = shardRouter.readForUser(job.getUserId(), () ->
+                    emailRepository.findByUserIdAndIdGreaterThanOrderByIdAsc(job.getUserId(), lastId,
+                            PageRequest.of(0, batchSize)));
+            if (batch.isEmpty()) {
+                return;
+            }
+            writer.accept(statusWriteBuffer.overlayEmails(batch));
+            job.setProcessed(job.getProcessed() + batch.size());
+            afterId = batch.get(batch.size() - 1).getId();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${emails.export.cleanup-interval-ms:60000}")
+    public void evictFinishedJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(retentionMinutes);
+        jobs.values().removeIf(job -> {
+            if (job.getFinishedAt() != null && job.getFinishedAt().isBefore(cutoff)) {
+                deleteFiles(job);
+                return true;
+            }
+            return false;
+        });
+    }
+
+    private ExportJob.Format parseFormat(String format) {
+        try {
+            return ExportJob.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported export format: " + format);
+        }
+    }
+
+    private Path fileFor(ExportJob job) {
+        return spoolDir.resolve(FILE_PREFIX + job.getId() + "." + job.getFormat().getExtension());
+    }
+
+    private Path partFileFor(ExportJob job) {
+        return spoolDir.resolve(FILE_PREFIX + job.getId() + ".part");
+    }
+
+    private void deleteFiles(ExportJob job) {
+        try {
+            Files.deleteIfExists(fileFor(job));
+            Files.deleteIfExists(partFileFor(job));
+        } catch (IOException e) {
+            log.warn("Could not delete spool files of export job {}: {}", job.getId(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
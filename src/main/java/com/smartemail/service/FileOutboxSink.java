@@ -0,0 +1,52 @@
+package com.smartemail.service;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartemail.model.OutboxEvent;
+
+// Appends outbox events as JSON lines, one file per deployment; mainly for tests and local tailing.
+// Each batch is synced to disk before its offset is committed.
+@Component
+@ConditionalOnProperty(name = "emails.outbox.file-sink.path")
+public class FileOutboxSink implements OutboxSink {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${emails.outbox.file-sink.path}")
+    private Path path;
+
+    @Override
+    public String getName() {
+        return "file";
+    }
+
+    @Override
+    public synchronized void publish(List<OutboxEvent> events) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        try (FileOutputStream out = new FileOutputStream(path.toFile(), true);
+             Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+            for (OutboxEvent event : events) {
+                writer.write(objectMapper.writeValueAsString(event));
+                writer.write('\n');
+            }
+            writer.flush();
+            out.getFD().sync();
+        }
+    }
+}
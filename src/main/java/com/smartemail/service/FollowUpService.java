@@ -1,14 +1,31 @@
 package com.smartemail.service;
 
+import com.smartemail.config.Workload;
+import com.smartemail.config.WorkloadClass;
 import com.smartemail.exception.ResourceNotFoundException;
+import com.smartemail.model.Email;
 import com.smartemail.model.FollowUp;
+import com.smartemail.model.OutboxEvent;
+import com.smartemail.model.SyncTombstone;
+import com.smartemail.repository.EmailRepository;
 import com.smartemail.repository.FollowUpRepository;
+import com.smartemail.repository.SyncTombstoneRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
 
 @Service
 public class FollowUpService {
@@ -16,69 +33,177 @@ public class FollowUpService {
     @Autowired
     private FollowUpRepository followUpRepository;
     
+    @Autowired
+    private EmailRepository emailRepository;
+    
+    @Autowired
+    private SyncTombstoneRepository syncTombstoneRepository;
+    
     @Autowired
     private EmailService emailService;
     
+    @Autowired
+    private StatusWriteBuffer statusWriteBuffer;
+    
+    @Autowired
+    private ShardRouter shardRouter;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Autowired
+    private Outbox outbox;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    private Counter overdueSweeps;
+    private Counter overdueMarked;
+    
+    @PostConstruct
+    public void initMetrics() {
+        overdueSweeps = Counter.builder("followups.overdue.sweeps")
+                .description("Runs of the overdue follow-up sweep")
+                .register(meterRegistry);
+        overdueMarked = Counter.builder("followups.overdue.marked")
+                .description("Follow-ups marked overdue by the sweep")
+                .register(meterRegistry);
+    }
+    
+    @Transactional(readOnly = true)
+    @Workload(WorkloadClass.BATCH)
     public List<FollowUp> getAllFollowUps() {
-        return followUpRepository.findAll();
+        return statusWriteBuffer.overlayFollowUps(shardRouter.fanOut(shard -> followUpRepository.findAll()));
     }
     
+    @Transactional(readOnly = true)
+    @Workload(WorkloadClass.INTERACTIVE)
     public FollowUp getFollowUpById(Long id) {
-        return followUpRepository.findById(id)
+        return shardRouter.locate(id, shard -> followUpRepository.findById(id))
+                .map(located -> statusWriteBuffer.overlay(located.value()))
                 .orElseThrow(() -> new ResourceNotFoundException("Follow-up not found with id: " + id));
     }
     
+    @Workload(WorkloadClass.WRITE)
     public FollowUp createFollowUp(FollowUp followUp) {
         // Validate email exists
-        emailService.getEmailById(followUp.getEmailId());
+        Email email = emailService.getEmailById(followUp.getEmailId());
         
-        return followUpRepository.save(followUp);
+        return shardRouter.writeForUser(email.getUserId(), () -> save(followUp, OutboxEvent.EventType.CREATED, null));
     }
     
+    @Workload(WorkloadClass.WRITE)
     public FollowUp updateFollowUp(Long id, FollowUp followUpDetails) {
         FollowUp followUp = getFollowUpById(id);
+        Long previousEmailId = followUp.getEmailId();
         
         // Validate email exists if emailId is being changed
         if (!followUp.getEmailId().equals(followUpDetails.getEmailId())) {
-            emailService.getEmailById(followUpDetails.getEmailId());
+            Email newEmail = emailService.getEmailById(followUpDetails.getEmailId());
+            if (shardRouter.isEnabled() && shardRouter.shardForUser(newEmail.getUserId())
+                    != shardRouter.shardForUser(emailService.getEmailById(followUp.getEmailId()).getUserId())) {
+                throw new IllegalArgumentException("Follow-up cannot be moved to an email stored on another shard");
+            }
         }
         
         followUp.setEmailId(followUpDetails.getEmailId());
         followUp.setDueDate(followUpDetails.getDueDate());
         followUp.setStatus(followUpDetails.getStatus());
         
-        return followUpRepository.save(followUp);
+        statusWriteBuffer.discardFollowUp(id);
+        return writeForEmail(followUp.getEmailId(), () -> save(followUp, OutboxEvent.EventType.UPDATED, previousEmailId));
     }
     
+    @Workload(WorkloadClass.WRITE)
     public FollowUp updateFollowUpStatus(Long id, FollowUp.Status status) {
         FollowUp followUp = getFollowUpById(id);
         followUp.setStatus(status);
-        return followUpRepository.save(followUp);
+        if (statusWriteBuffer.isEnabled()) {
+            statusWriteBuffer.bufferFollowUpStatus(id, status);
+            return followUp;
+        }
+        return writeForEmail(followUp.getEmailId(), () -> save(followUp, OutboxEvent.EventType.UPDATED, null));
     }
     
+    @Workload(WorkloadClass.WRITE)
     public void deleteFollowUp(Long id) {
         FollowUp followUp = getFollowUpById(id);
-        followUpRepository.delete(followUp);
+        Email email = emailService.getEmailById(followUp.getEmailId());
+        statusWriteBuffer.discardFollowUp(id);
+        shardRouter.writeForUser(email.getUserId(), () -> transactionTemplate.execute(status -> {
+            outbox.appendFollowUp(OutboxEvent.EventType.DELETED, followUp);
+            followUpRepository.delete(followUp);
+            syncTombstoneRepository.save(new SyncTombstone(SyncTombstone.EntityType.FOLLOW_UP, id, email.getUserId()));
+            emailRepository.touch(List.of(email.getId()), LocalDateTime.now());
+            return null;
+        }));
     }
     
+    @Transactional(readOnly = true)
+    @Workload(WorkloadClass.INTERACTIVE)
     public List<FollowUp> getFollowUpsByEmailId(Long emailId) {
-        emailService.getEmailById(emailId); // Validate email exists
-        return followUpRepository.findByEmailId(emailId);
+        Email email = emailService.getEmailById(emailId); // Validate email exists
+        return statusWriteBuffer.overlayFollowUps(
+                shardRouter.readForUser(email.getUserId(), () -> followUpRepository.findByEmailId(emailId)));
     }
     
+    @Transactional(readOnly = true)
+    @Workload(WorkloadClass.INTERACTIVE)
     public List<FollowUp> getOverdueFollowUps() {
-        return followUpRepository.findAllOverdue();
+        return statusWriteBuffer.overlayFollowUps(shardRouter.fanOut(shard -> followUpRepository.findAllOverdue()),
+                FollowUp.Status.OVERDUE);
     }
     
     // Scheduled task to automatically mark overdue follow-ups
     @Scheduled(fixedRate = 3600000) // Run every hour
+    @Workload(WorkloadClass.BATCH)
     public void markOverdueFollowUps() {
-        LocalDateTime now = LocalDateTime.now();
-        List<FollowUp> overdueFollowUps = followUpRepository.findOverdueFollowUps(now);
+        // Make sure buffered status changes are visible to the sweep query
+        statusWriteBuffer.flush();
         
-        for (FollowUp followUp : overdueFollowUps) {
-            followUp.setStatus(FollowUp.Status.OVERDUE);
-            followUpRepository.save(followUp);
+        LocalDateTime now = LocalDateTime.now();
+        for (int shard : shardRouter.shardsFor(null)) {
+            shardRouter.withShard(shard, () -> transactionTemplate.executeWithoutResult(status -> {
+                List<FollowUp> overdueFollowUps = followUpRepository.findOverdueFollowUps(now);
+                
+                Map<Long, Map<String, FollowUp.Status>> payloads = new HashMap<>();
+                Set<Long> emailIds = new HashSet<>();
+                for (FollowUp followUp : overdueFollowUps) {
+                    followUp.setStatus(FollowUp.Status.OVERDUE);
+                    followUpRepository.save(followUp);
+                    payloads.put(followUp.getId(), Map.of("status", FollowUp.Status.OVERDUE));
+                    emailIds.add(followUp.getEmailId());
+                }
+                if (!emailIds.isEmpty()) {
+                    emailRepository.touch(emailIds, LocalDateTime.now());
+                }
+                outbox.appendChanges(OutboxEvent.AggregateType.FOLLOW_UP, OutboxEvent.EventType.UPDATED, payloads);
+                overdueMarked.increment(overdueFollowUps.size());
+            }));
+        }
+        overdueSweeps.increment();
+    }
+    
+    // Bumps the email (and the one it was moved off, if any) so delta sync picks up the follow-up change
+    private FollowUp save(FollowUp followUp, OutboxEvent.EventType eventType, Long previousEmailId) {
+        return transactionTemplate.execute(status -> {
+            FollowUp saved = followUpRepository.save(followUp);
+            outbox.appendFollowUp(eventType, saved);
+            Set<Long> emailIds = new HashSet<>();
+            emailIds.add(saved.getEmailId());
+            if (previousEmailId != null) {
+                emailIds.add(previousEmailId);
+            }
+            emailRepository.touch(emailIds, LocalDateTime.now());
+            return saved;
+        });
+    }
+    
+    // Follow-ups live on the shard of their email's owner
+    private <T> T writeForEmail(Long emailId, Supplier<T> work) {
+        if (!shardRouter.isEnabled()) {
+            return work.get();
         }
+        return shardRouter.writeForUser(emailService.getEmailById(emailId).getUserId(), work);
     }
 }
\ No newline at end of file
@@ -0,0 +1,285 @@
+package com.smartemail.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import com.smartemail.model.ChangeLogEntry;
+import com.smartemail.model.Email;
+import com.smartemail.model.EmailSummary;
+import com.smartemail.repository.EmailRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
+// Newest email summaries per active user, patched on every write so the first inbox pages need no query.
+// Each user's list always holds their newest emails without gaps; pages past it go to the database.
+// Users are evicted least recently used once the user count or estimated memory exceeds its cap.
+@Component
+public class HotInboxCache {
+
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Order.desc("receivedAt"), Sort.Order.desc("id"));
+    private static final Comparator<EmailSummary> NEWEST_FIRST_ORDER = Comparator
+            .comparing(EmailSummary::getReceivedAt, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(EmailSummary::getId, Comparator.reverseOrder());
+
+    @Autowired
+    private EmailRepository emailRepository;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private StatusWriteBuffer statusWriteBuffer;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${emails.hot-inbox.size-per-user:50}")
+    private int sizePerUser;
+
+    @Value("${emails.hot-inbox.max-users:10000}")
+    private int maxUsers;
+
+    @Value("${emails.hot-inbox.max-bytes:67108864}")
+    private long maxBytes;
+
+    @Value("${emails.hot-inbox.snippet-length:160}")
+    private int snippetLength;
+
+    // Access-ordered, so iteration starts at the least recently used user
+    private final LinkedHashMap<Long, Inbox> inboxes = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    // Users being loaded; set to true when a write lands mid-load so the possibly stale result is not kept
+    private final Map<Long, Boolean> loading = new ConcurrentHashMap<>();
+
+    private Counter hits;
+    private Counter misses;
+
+    private static class Inbox {
+        final List<EmailSummary> recent;
+        long total;
+        long bytes;
+
+        Inbox(List<EmailSummary> recent, long total) {
+            this.recent = recent;
+            this.total = total;
+        }
+
+        boolean covers(long end) {
+            return end <= recent.size() || recent.size() >= total;
+        }
+    }
+
+    @PostConstruct
+    public void initMetrics() {
+        hits = Counter.builder("emails.hot_inbox.requests").tag("result", "hit").register(meterRegistry);
+        misses = Counter.builder("emails.hot_inbox.requests").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("emails.hot_inbox.users", this, cache -> cache.getUserCount())
+                .description("Users with a cached inbox")
+                .register(meterRegistry);
+        Gauge.builder("emails.hot_inbox.bytes", this, cache -> cache.getEstimatedBytes())
+                .description("Estimated heap held by cached inbox summaries")
+                .register(meterRegistry);
+    }
+
+    public synchronized int getUserCount() {
+        return inboxes.size();
+    }
+
+    public synchronized long getEstimatedBytes() {
+        return totalBytes;
+    }
+
+    // Returns null when the page is not fully cached
+    public Page<EmailSummary> getCached(Long userId, int page, int size) {
+        long end = (long) (page + 1) * size;
+        synchronized (this) {
+            Inbox inbox = inboxes.get(userId);
+            if (inbox != null && inbox.covers(end)) {
+                hits.increment();
+                return slice(inbox, page, size);
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    public Page<EmailSummary> load(Long userId, int page, int size) {
+        if ((long) (page + 1) * size > sizePerUser) {
+            // Deep pages are not worth caching
+            Page<Email> emails = shardRouter.readForUser(userId,
+                    () -> emailRepository.findByUserId(userId, PageRequest.of(page, size, NEWEST_FIRST)));
+            return statusWriteBuffer.overlayEmails(emails).map(email -> new EmailSummary(email, snippetLength));
+        }
+
+        loading.put(userId, false);
+        Page<Email> newest;
+        try {
+            newest = shardRouter.readForUser(userId,
+                    () -> emailRepository.findByUserId(userId, PageRequest.of(0, sizePerUser, NEWEST_FIRST)));
+        } catch (RuntimeException e) {
+            loading.remove(userId);
+            throw e;
+        }
+        List<EmailSummary> recent = new ArrayList<>(sizePerUser);
+        for (Email email : statusWriteBuffer.overlayEmails(newest.getContent())) {
+            recent.add(new EmailSummary(email, snippetLength));
+        }
+        Inbox inbox = new Inbox(recent, newest.getTotalElements());
+        synchronized (this) {
+            if (!Boolean.TRUE.equals(loading.remove(userId))) {
+                store(userId, inbox);
+            }
+            return slice(inbox, page, size);
+        }
+    }
+
+    public void added(Email email) {
+        markWritten(email.getUserId());
+        EmailSummary summary = new EmailSummary(email, snippetLength);
+        synchronized (this) {
+            Inbox inbox = inboxes.get(email.getUserId());
+            if (inbox == null) {
+                return;
+            }
+            int position = 0;
+            while (position < inbox.recent.size() && NEWEST_FIRST_ORDER.compare(inbox.recent.get(position), summary) < 0) {
+                position++;
+            }
+            // An email older than everything cached may belong to the uncached tail
+            if (position < inbox.recent.size() || inbox.recent.size() >= inbox.total) {
+                inbox.recent.add(position, summary);
+                if (inbox.recent.size() > sizePerUser) {
+                    inbox.recent.remove(inbox.recent.size() - 1);
+                }
+            }
+            inbox.total++;
+            resize(inbox);
+        }
+    }
+
+    public void updated(Email email) {
+        markWritten(email.getUserId());
+        EmailSummary summary = new EmailSummary(email, snippetLength);
+        synchronized (this) {
+            Inbox inbox = inboxes.get(email.getUserId());
+            if (inbox == null) {
+                return;
+            }
+            inbox.recent.replaceAll(cached -> cached.getId().equals(email.getId()) ? summary : cached);
+            resize(inbox);
+        }
+    }
+
+    public synchronized void archived(Long userId, Long emailId, boolean archived) {
+        markWritten(userId);
+        Inbox inbox = inboxes.get(userId);
+        if (inbox != null) {
+            inbox.recent.replaceAll(cached -> cached.getId().equals(emailId) ? cached.withArchived(archived) : cached);
+        }
+    }
+
+    public synchronized void removed(Long userId, Long emailId) {
+        markWritten(userId);
+        Inbox inbox = inboxes.get(userId);
+        if (inbox != null) {
+            inbox.recent.removeIf(cached -> cached.getId().equals(emailId));
+            inbox.total--;
+            resize(inbox);
+        }
+    }
+
+    public synchronized void invalidate(Long userId) {
+        markWritten(userId);
+        Inbox inbox = inboxes.remove(userId);
+        if (inbox != null) {
+            totalBytes -= inbox.bytes;
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        loading.replaceAll((userId, written) -> true);
+        inboxes.clear();
+        totalBytes = 0;
+    }
+
+    // Writes on other nodes are not replayed here, the affected inboxes are reloaded on next use
+    @EventListener
+    public void onRemoteChange(ChangeLogEntry change) {
+        if (change.isEverything()) {
+            invalidateAll();
+        } else if (change.is(ChangeLogEntry.EntityType.USER)) {
+            invalidate(change.getEntityId());
+        } else if (change.is(ChangeLogEntry.EntityType.EMAIL)) {
+            if (change.getUserId() != null) {
+                invalidate(change.getUserId());
+            } else if (change.getEntityId() != null) {
+                invalidateEmail(change.getEntityId());
+            } else {
+                invalidateAll();
+            }
+        }
+    }
+
+    private synchronized void invalidateEmail(Long emailId) {
+        List<Long> holders = new ArrayList<>();
+        inboxes.forEach((userId, inbox) -> {
+            if (inbox.recent.stream().anyMatch(cached -> cached.getId().equals(emailId))) {
+                holders.add(userId);
+            }
+        });
+        holders.forEach(this::invalidate);
+    }
+
+    private void markWritten(Long userId) {
+        loading.replace(userId, true);
+    }
+
+    private Page<EmailSummary> slice(Inbox inbox, int page, int size) {
+        int from = (int) Math.min((long) page * size, inbox.recent.size());
+        int to = (int) Math.min((long) from + size, inbox.recent.size());
+        return new PageImpl<>(new ArrayList<>(inbox.recent.subList(from, to)),
+                PageRequest.of(page, size, NEWEST_FIRST), inbox.total);
+    }
+
+    private void store(Long userId, Inbox inbox) {
+        Inbox previous = inboxes.put(userId, inbox);
+        if (previous != null) {
+            totalBytes -= previous.bytes;
+        }
+        resize(inbox);
+    }
+
+    private void resize(Inbox inbox) {
+        long bytes = 0;
+        for (EmailSummary summary : inbox.recent) {
+            bytes += summary.estimatedBytes();
+        }
+        totalBytes += bytes - inbox.bytes;
+        inbox.bytes = bytes;
+
+        Iterator<Inbox> eldest = inboxes.values().iterator();
+        while ((inboxes.size() > maxUsers || totalBytes > maxBytes) && eldest.hasNext()) {
+            Inbox evicted = eldest.next();
+            eldest.remove();
+            totalBytes -= evicted.bytes;
+        }
+    }
+}
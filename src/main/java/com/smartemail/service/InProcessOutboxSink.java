@@ -0,0 +1,30 @@
+package com.smartemail.service;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import com.smartemail.model.OutboxEvent;
+
+// Republishes outbox events as application events for @EventListener(OutboxEvent) consumers in this JVM.
+// With several nodes each batch goes to whichever node relayed it, like a single consumer group.
+@Component
+@ConditionalOnProperty(name = "emails.outbox.in-process-sink.enabled", havingValue = "true", matchIfMissing = true)
+public class InProcessOutboxSink implements OutboxSink {
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Override
+    public String getName() {
+        return "in-process";
+    }
+
+    @Override
+    public void publish(List<OutboxEvent> events) {
+        events.forEach(eventPublisher::publishEvent);
+    }
+}
@@ -0,0 +1,214 @@
+package com.smartemail.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+// Reads raw messages out of an mbox file or a directory tree of .eml files without loading the archive into memory
+interface MailArchive extends Closeable {
+
+    // A message's bytes, or why it could not be read; the bytes are only valid until the next call to next()
+    record RawMessage(String source, ByteBuffer bytes, String error) {}
+
+    // Returns null once the archive is exhausted
+    RawMessage next() throws IOException;
+
+    // mbox escapes body lines starting with "From " as ">From "
+    boolean quotesFromLines();
+
+    static MailArchive open(Path path, int windowBytes, int maxMessageBytes) throws IOException {
+        return Files.isDirectory(path) ? new EmlDirectory(path, maxMessageBytes) : new Mbox(path, windowBytes, maxMessageBytes);
+    }
+
+    // Messages are slices of a read-only mapping that slides over the file, so only one window is mapped at a time
+    final class Mbox implements MailArchive {
+        private static final byte[] FROM_LINE = "From ".getBytes(StandardCharsets.US_ASCII);
+        private static final byte[] SEPARATOR = "\nFrom ".getBytes(StandardCharsets.US_ASCII);
+        private static final byte[] NEWLINE = {'\n'};
+
+        private final FileChannel channel;
+        private final long size;
+        private final int windowBytes;
+        private final int maxMessageBytes;
+        private MappedByteBuffer window;
+        private long windowStart;
+        private long position;
+        private long count;
+
+        Mbox(Path file, int windowBytes, int maxMessageBytes) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+            this.size = channel.size();
+            // A message must fit in one window to be sliced out of it
+            this.windowBytes = Math.max(windowBytes, maxMessageBytes + 64 * 1024);
+            this.maxMessageBytes = maxMessageBytes;
+        }
+
+        @Override
+        public RawMessage next() throws IOException {
+            while (position < size) {
+                if (window == null || position >= windowStart + window.limit()) {
+                    map(position);
+                }
+                int offset = (int) (position - windowStart);
+                int separator = indexOf(window, SEPARATOR, offset, window.limit());
+                boolean last = separator < 0 && windowStart + window.limit() >= size;
+                if (separator < 0 && !last) {
+                    if (offset > 0) {
+                        map(position); // Slide the window to the message start and look again
+                        continue;
+                    }
+                    count++;
+                    return skipOversized();
+                }
+                int end = last ? window.limit() : separator + 1;
+                position = windowStart + end;
+                int start = offset;
+                if (startsWith(window, offset, end, FROM_LINE)) {
+                    int eol = indexOf(window, NEWLINE, offset, end);
+                    start = eol < 0 ? end : eol + 1;
+                }
+                if (isBlank(window, start, end)) {
+                    continue;
+                }
+                count++;
+                String source = "message " + count + " at byte " + (windowStart + offset);
+                if (end - start > maxMessageBytes) {
+                    return new RawMessage(source, null, "Message exceeds " + maxMessageBytes + " bytes");
+                }
+                return new RawMessage(source, window.slice(start, end - start), null);
+            }
+            return null;
+        }
+
+        // The window starts at the message and still holds no separator; resume at the next one
+        private RawMessage skipOversized() throws IOException {
+            String source = "message " + count + " at byte " + windowStart;
+            while (windowStart + window.limit() < size) {
+                map(windowStart + window.limit() - (SEPARATOR.length - 1));
+                int separator = indexOf(window, SEPARATOR, 0, window.limit());
+                if (separator >= 0) {
+                    position = windowStart + separator + 1;
+                    return new RawMessage(source, null, "Message exceeds " + maxMessageBytes + " bytes");
+                }
+            }
+            position = size;
+            return new RawMessage(source, null, "Message exceeds " + maxMessageBytes + " bytes");
+        }
+
+        private void map(long from) throws IOException {
+            window = channel.map(FileChannel.MapMode.READ_ONLY, from, Math.min(windowBytes, size - from));
+            windowStart = from;
+        }
+
+        @Override
+        public boolean quotesFromLines() {
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    // Small files are read into a reused buffer; mapping each one would pile up mappings until the GC unmaps them
+    final class EmlDirectory implements MailArchive {
+        private static final int MAP_THRESHOLD = 1024 * 1024;
+
+        private final Path root;
+        private final int maxMessageBytes;
+        private final Stream<Path> files;
+        private final Iterator<Path> iterator;
+        private final ByteBuffer buffer = ByteBuffer.allocate(MAP_THRESHOLD);
+
+        EmlDirectory(Path root, int maxMessageBytes) throws IOException {
+            this.root = root;
+            this.maxMessageBytes = maxMessageBytes;
+            this.files = Files.walk(root).filter(file -> Files.isRegularFile(file)
+                    && file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".eml"));
+            this.iterator = files.iterator();
+        }
+
+        @Override
+        public RawMessage next() throws IOException {
+            Path file;
+            try {
+                if (!iterator.hasNext()) {
+                    return null;
+                }
+                file = iterator.next();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            String source = root.relativize(file).toString();
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long length = channel.size();
+                if (length > maxMessageBytes) {
+                    return new RawMessage(source, null, "Message exceeds " + maxMessageBytes + " bytes");
+                }
+                if (length >= MAP_THRESHOLD) {
+                    return new RawMessage(source, channel.map(FileChannel.MapMode.READ_ONLY, 0, length), null);
+                }
+                buffer.clear().limit((int) length);
+                while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                    // Read until full or end of file
+                }
+                return new RawMessage(source, buffer.flip().slice(), null);
+            } catch (IOException e) {
+                return new RawMessage(source, null, "Could not read file: " + e.getMessage());
+            }
+        }
+
+        @Override
+        public boolean quotesFromLines() {
+            return false;
+        }
+
+        @Override
+        public void close() {
+            files.close();
+        }
+    }
+
+    private static int indexOf(ByteBuffer buffer, byte[] pattern, int from, int to) {
+        byte first = pattern[0];
+        for (int i = from; i <= to - pattern.length; i++) {
+            if (buffer.get(i) == first && startsWith(buffer, i, to, pattern)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean startsWith(ByteBuffer buffer, int from, int to, byte[] prefix) {
+        if (to - from < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (buffer.get(from + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isBlank(ByteBuffer buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            byte b = buffer.get(i);
+            if (b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,403 @@
+package com.smartemail.service;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+// Just enough MIME for imports: unfolds headers, decodes encoded words and transfer encodings, and reduces the body
+// to plain text, preferring text/plain alternatives over HTML and skipping attachments
+final class MimeParser {
+
+    private static final int MAX_DEPTH = 8;
+    private static final Pattern ENCODED_WORD = Pattern.compile("=\\?([^?\\s]+)\\?([bBqQ])\\?([^?\\s]*)\\?=");
+    private static final Pattern ENCODED_WORD_GAP = Pattern.compile("\\?=\\s+=\\?");
+    private static final Pattern QUOTED_FROM = Pattern.compile("(?m)^>(>*From )");
+    private static final Pattern DATE_COMMENT = Pattern.compile("\\s*\\([^)]*\\)\\s*$");
+    // RFC 5322 dates including the obsolete forms: optional day of week, two or three digit years, optional seconds
+    // and zone names instead of offsets
+    private static final Pattern DATE = Pattern.compile("(?i)^(?:[a-z]+,?\\s*)?(\\d{1,2})\\s+([a-z]{3})[a-z]*\\s+(\\d{2,4})\\s+"
+            + "(\\d{1,2}):(\\d{2})(?::(\\d{2}))?(?:\\s+([+-]\\d{4}|[a-z]{1,5}))?$");
+    private static final List<String> MONTHS = List.of("jan", "feb", "mar", "apr", "may", "jun", "jul", "aug", "sep",
+            "oct", "nov", "dec");
+    private static final Map<String, Integer> ZONE_HOURS = Map.of("ut", 0, "gmt", 0, "est", -5, "edt", -4, "cst", -6,
+            "cdt", -5, "mst", -7, "mdt", -6, "pst", -8, "pdt", -7);
+    private static final Pattern HTML_INVISIBLE = Pattern.compile("(?is)<(script|style|head)\\b.*?</\\1\\s*>");
+    private static final Pattern HTML_BREAK = Pattern.compile("(?i)<(br|/p|/div|/tr|/li|/h[1-6])\\b[^>]*>");
+    private static final Pattern HTML_TAG = Pattern.compile("<[^>]*>");
+    private static final Pattern BLANK_LINES = Pattern.compile("\\n{3,}");
+
+    record Message(String from, String to, String subject, String messageId, LocalDateTime date, String text) {}
+
+    private record Part(Map<String, String> headers, ByteBuffer body) {}
+
+    private record Text(String value, boolean html) {}
+
+    private MimeParser() {}
+
+    static Message parse(ByteBuffer raw, int maxTextLength, boolean quotedFromLines) {
+        Part message = part(raw);
+        Text text = text(message, 0);
+        String body = text == null ? "" : text.value().replace("\r\n", "\n");
+        if (quotedFromLines) {
+            body = QUOTED_FROM.matcher(body).replaceAll("$1");
+        }
+        body = body.strip();
+        if (body.length() > maxTextLength) {
+            body = body.substring(0, maxTextLength);
+        }
+        Map<String, String> headers = message.headers();
+        String messageId = headers.get("message-id");
+        return new Message(address(decodeWords(headers.get("from"))), address(decodeWords(headers.get("to"))),
+                decodeWords(headers.get("subject")), messageId == null ? null : messageId.replaceAll("[<>]", ""),
+                date(headers.get("date")), body);
+    }
+
+    // Headers up to the first blank line, with folded lines joined; the first occurrence of a header wins
+    private static Part part(ByteBuffer buffer) {
+        Map<String, String> headers = new HashMap<>();
+        String name = null;
+        StringBuilder value = null;
+        int limit = buffer.limit();
+        int position = 0;
+        while (position < limit) {
+            int eol = indexOf(buffer, (byte) '\n', position, limit);
+            int next = eol < 0 ? limit : eol + 1;
+            int lineEnd = eol < 0 ? limit : eol;
+            if (lineEnd > position && buffer.get(lineEnd - 1) == '\r') {
+                lineEnd--;
+            }
+            if (lineEnd == position) {
+                position = next;
+                break;
+            }
+            String line = headerString(buffer, position, lineEnd);
+            if ((line.charAt(0) == ' ' || line.charAt(0) == '\t') && value != null) {
+                value.append(' ').append(line.strip());
+            } else {
+                putHeader(headers, name, value);
+                int colon = line.indexOf(':');
+                name = colon > 0 ? line.substring(0, colon).strip().toLowerCase(Locale.ROOT) : null;
+                value = colon > 0 ? new StringBuilder(line.substring(colon + 1).strip()) : null;
+            }
+            position = next;
+        }
+        putHeader(headers, name, value);
+        return new Part(headers, buffer.slice(position, limit - position));
+    }
+
+    private static void putHeader(Map<String, String> headers, String name, StringBuilder value) {
+        if (name != null) {
+            headers.putIfAbsent(name, value.toString());
+        }
+    }
+
+    private static Text text(Part part, int depth) {
+        String contentType = part.headers().getOrDefault("content-type", "text/plain");
+        String mimeType = mimeType(contentType);
+        String disposition = part.headers().get("content-disposition");
+        if (disposition != null && mimeType(disposition).equals("attachment")) {
+            return null;
+        }
+        if (mimeType.startsWith("multipart/")) {
+            String boundary = parameter(contentType, "boundary");
+            if (boundary == null || depth >= MAX_DEPTH) {
+                return null;
+            }
+            List<Text> texts = new ArrayList<>();
+            for (ByteBuffer body : split(part.body(), boundary)) {
+                Text text = text(part(body), depth + 1);
+                if (text != null && !text.value().isBlank()) {
+                    texts.add(text);
+                }
+            }
+            if (texts.isEmpty()) {
+                return null;
+            }
+            if (mimeType.equals("multipart/alternative")) {
+                return texts.stream().filter(text -> !text.html()).findFirst().orElse(texts.get(0));
+            }
+            return new Text(texts.stream().map(Text::value).collect(Collectors.joining("\n\n")),
+                    texts.stream().allMatch(Text::html));
+        }
+        if (!mimeType.equals("text/plain") && !mimeType.equals("text/html")) {
+            return null;
+        }
+        byte[] bytes = decodeTransfer(part.body(), part.headers().get("content-transfer-encoding"));
+        String value = new String(bytes, charset(parameter(contentType, "charset")));
+        boolean html = mimeType.equals("text/html");
+        return new Text(html ? htmlToText(value) : value, html);
+    }
+
+    // Body parts between "--boundary" lines, up to the closing "--boundary--"
+    private static List<ByteBuffer> split(ByteBuffer body, String boundary) {
+        byte[] delimiter = ("--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        List<ByteBuffer> parts = new ArrayList<>();
+        int limit = body.limit();
+        int position = 0;
+        int partStart = -1;
+        while (position < limit) {
+            int eol = indexOf(body, (byte) '\n', position, limit);
+            int next = eol < 0 ? limit : eol + 1;
+            int lineEnd = eol < 0 ? limit : eol;
+            if (startsWith(body, position, lineEnd, delimiter)) {
+                if (partStart >= 0) {
+                    // The line break before a delimiter belongs to the delimiter
+                    int partEnd = position;
+                    if (partEnd > partStart && body.get(partEnd - 1) == '\n') {
+                        partEnd--;
+                    }
+                    if (partEnd > partStart && body.get(partEnd - 1) == '\r') {
+                        partEnd--;
+                    }
+                    parts.add(body.slice(partStart, partEnd - partStart));
+                }
+                int after = position + delimiter.length;
+                if (after + 1 < lineEnd && body.get(after) == '-' && body.get(after + 1) == '-') {
+                    return parts;
+                }
+                partStart = next;
+            }
+            position = next;
+        }
+        if (partStart >= 0 && partStart < limit) {
+            parts.add(body.slice(partStart, limit - partStart)); // Unterminated last part
+        }
+        return parts;
+    }
+
+    private static byte[] decodeTransfer(ByteBuffer body, String encoding) {
+        byte[] bytes = new byte[body.limit()];
+        body.get(0, bytes);
+        String transferEncoding = encoding == null ? "" : encoding.strip().toLowerCase(Locale.ROOT);
+        if (transferEncoding.equals("base64")) {
+            try {
+                return Base64.getMimeDecoder().decode(bytes);
+            } catch (IllegalArgumentException e) {
+                return new byte[0];
+            }
+        }
+        if (transferEncoding.equals("quoted-printable")) {
+            return decodeQuotedPrintable(bytes);
+        }
+        return bytes;
+    }
+
+    private static byte[] decodeQuotedPrintable(byte[] in) {
+        byte[] out = new byte[in.length];
+        int length = 0;
+        for (int i = 0; i < in.length; i++) {
+            byte b = in[i];
+            if (b != '=') {
+                out[length++] = b;
+            } else if (i + 1 < in.length && in[i + 1] == '\n') {
+                i += 1; // Soft line break
+            } else if (i + 2 < in.length && in[i + 1] == '\r' && in[i + 2] == '\n') {
+                i += 2;
+            } else {
+                int high = i + 2 < in.length ? Character.digit(in[i + 1], 16) : -1;
+                int low = i + 2 < in.length ? Character.digit(in[i + 2], 16) : -1;
+                if (high >= 0 && low >= 0) {
+                    out[length++] = (byte) ((high << 4) | low);
+                    i += 2;
+                } else {
+                    out[length++] = b;
+                }
+            }
+        }
+        return Arrays.copyOf(out, length);
+    }
+
+    // RFC 2047 words; adjacent words in one charset are decoded together since a character may span two of them
+    private static String decodeWords(String value) {
+        if (value == null || !value.contains("=?")) {
+            return value;
+        }
+        String joined = ENCODED_WORD_GAP.matcher(value).replaceAll("?==?");
+        Matcher matcher = ENCODED_WORD.matcher(joined);
+        StringBuilder out = new StringBuilder();
+        ByteArrayOutputStream pending = new ByteArrayOutputStream();
+        Charset pendingCharset = null;
+        int last = 0;
+        while (matcher.find()) {
+            String charsetName = matcher.group(1);
+            int language = charsetName.indexOf('*');
+            Charset charset = charset(language < 0 ? charsetName : charsetName.substring(0, language));
+            if (matcher.start() != last || !charset.equals(pendingCharset)) {
+                flush(out, pending, pendingCharset);
+                out.append(joined, last, matcher.start());
+            }
+            String encoded = matcher.group(3);
+            try {
+                pending.writeBytes(matcher.group(2).equalsIgnoreCase("B")
+                        ? Base64.getMimeDecoder().decode(encoded)
+                        : decodeQuotedPrintable(encoded.replace('_', ' ').getBytes(StandardCharsets.ISO_8859_1)));
+            } catch (IllegalArgumentException e) {
+                pending.writeBytes(matcher.group().getBytes(charset));
+            }
+            pendingCharset = charset;
+            last = matcher.end();
+        }
+        flush(out, pending, pendingCharset);
+        return out.append(joined.substring(last)).toString();
+    }
+
+    private static void flush(StringBuilder out, ByteArrayOutputStream pending, Charset charset) {
+        if (pending.size() > 0) {
+            out.append(new String(pending.toByteArray(), charset));
+            pending.reset();
+        }
+    }
+
+    // First address of a list, without the display name
+    private static String address(String value) {
+        if (value == null) {
+            return null;
+        }
+        boolean quoted = false;
+        int end = value.length();
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == ',' && !quoted) {
+                end = i;
+                break;
+            }
+        }
+        String first = value.substring(0, end);
+        int open = first.lastIndexOf('<');
+        int close = first.indexOf('>', open + 1);
+        String address = (open >= 0 && close > open ? first.substring(open + 1, close) : first).strip();
+        return address.contains("@") ? address : null;
+    }
+
+    private static LocalDateTime date(String value) {
+        if (value == null) {
+            return null;
+        }
+        String cleaned = DATE_COMMENT.matcher(value).replaceAll("").strip().replaceAll("\\s+", " ");
+        Matcher matcher = DATE.matcher(cleaned);
+        int month = matcher.matches() ? MONTHS.indexOf(matcher.group(2).toLowerCase(Locale.ROOT)) + 1 : 0;
+        if (month == 0) {
+            return null;
+        }
+        String yearDigits = matcher.group(3);
+        int year = Integer.parseInt(yearDigits);
+        if (yearDigits.length() == 2) {
+            year += year < 50 ? 2000 : 1900;
+        } else if (yearDigits.length() == 3) {
+            year += 1900;
+        }
+        try {
+            LocalDateTime local = LocalDateTime.of(year, month, Integer.parseInt(matcher.group(1)),
+                    Integer.parseInt(matcher.group(4)), Integer.parseInt(matcher.group(5)),
+                    matcher.group(6) == null ? 0 : Integer.parseInt(matcher.group(6)));
+            return local.atOffset(offset(matcher.group(7))).atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    // Military letters and unknown names carry no reliable offset, which RFC 5322 says to read as -0000
+    private static ZoneOffset offset(String zone) {
+        if (zone == null) {
+            return ZoneOffset.UTC;
+        }
+        if (zone.charAt(0) == '+' || zone.charAt(0) == '-') {
+            int sign = zone.charAt(0) == '-' ? -1 : 1;
+            return ZoneOffset.ofHoursMinutes(sign * Integer.parseInt(zone.substring(1, 3)),
+                    sign * Integer.parseInt(zone.substring(3, 5)));
+        }
+        return ZoneOffset.ofHours(ZONE_HOURS.getOrDefault(zone.toLowerCase(Locale.ROOT), 0));
+    }
+
+    private static String htmlToText(String html) {
+        String text = HTML_INVISIBLE.matcher(html).replaceAll("");
+        text = HTML_BREAK.matcher(text).replaceAll("\n");
+        text = HTML_TAG.matcher(text).replaceAll("");
+        text = text.replace("&nbsp;", " ").replace("&lt;", "<").replace("&gt;", ">")
+                .replace("&quot;", "\"").replace("&#39;", "'").replace("&amp;", "&");
+        return BLANK_LINES.matcher(text).replaceAll("\n\n").strip();
+    }
+
+    private static String mimeType(String header) {
+        int semicolon = header.indexOf(';');
+        return (semicolon < 0 ? header : header.substring(0, semicolon)).strip().toLowerCase(Locale.ROOT);
+    }
+
+    private static String parameter(String header, String name) {
+        String[] segments = header.split(";");
+        for (int i = 1; i < segments.length; i++) {
+            int equals = segments[i].indexOf('=');
+            if (equals > 0 && segments[i].substring(0, equals).strip().equalsIgnoreCase(name)) {
+                String value = segments[i].substring(equals + 1).strip();
+                if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                    value = value.substring(1, value.length() - 1);
+                }
+                return value;
+            }
+        }
+        return null;
+    }
+
+    // Unlabelled and US-ASCII parts are read as UTF-8, which many senders send without saying so
+    private static Charset charset(String name) {
+        if (name == null) {
+            return StandardCharsets.UTF_8;
+        }
+        try {
+            Charset charset = Charset.forName(name.strip());
+            return charset.equals(StandardCharsets.US_ASCII) ? StandardCharsets.UTF_8 : charset;
+        } catch (IllegalArgumentException e) {
+            return StandardCharsets.UTF_8;
+        }
+    }
+
+    // Raw UTF-8 headers are common in practice; anything that is not valid UTF-8 is read as Latin-1
+    private static String headerString(ByteBuffer buffer, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        buffer.get(from, bytes);
+        try {
+            return StandardCharsets.UTF_8.newDecoder().decode(ByteBuffer.wrap(bytes)).toString();
+        } catch (CharacterCodingException e) {
+            return new String(bytes, StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    private static int indexOf(ByteBuffer buffer, byte value, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean startsWith(ByteBuffer buffer, int from, int to, byte[] prefix) {
+        if (to - from < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (buffer.get(from + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
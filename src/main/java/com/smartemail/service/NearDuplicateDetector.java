@@ -0,0 +1,453 @@
+package com.smartemail.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import com.smartemail.model.ChangeLogEntry;
+import com.smartemail.model.Email;
+import com.smartemail.repository.EmailRepository;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
+// Groups near-identical emails per user with MinHash signatures over word bigrams.
+// Signatures are split into bands and each band is hashed to a bucket (LSH), so a lookup probes a fixed
+// number of buckets. Buckets hold cluster representatives, not every email, which keeps lookups constant
+// as a mailbox grows. A user's index is built from their emails on first use and users are evicted least
+// recently used once the user count or estimated memory exceeds its cap.
+@Component
+public class NearDuplicateDetector {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final int BANDS = 8;
+    private static final int ROWS = 4;
+    private static final int HASHES = BANDS * ROWS;
+    private static final int MIN_FEATURES = 3;
+
+    // Signature, cluster, member set and one bucket slot per band; each further member adds a set entry
+    private static final long CLUSTER_BYTES = 16 + HASHES * 8 + 48 + 64 + BANDS * 8;
+    private static final long MEMBER_BYTES = 80;
+
+    @Autowired
+    private EmailRepository emailRepository;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Estimated Jaccard similarity of bigram sets; 8 bands of 4 rows catch ~98% of pairs at 0.8
+    @Value("${emails.duplicates.min-similarity:0.7}")
+    private double minSimilarity;
+
+    @Value("${emails.duplicates.max-bucket-size:16}")
+    private int maxBucketSize;
+
+    @Value("${emails.duplicates.max-users:1000}")
+    private int maxUsers;
+
+    @Value("${emails.duplicates.max-bytes:67108864}")
+    private long maxBytes;
+
+    @Value("${emails.duplicates.indexing-batch-size:1000}")
+    private int indexingBatchSize;
+
+    // Access-ordered, so iteration starts at the least recently used user
+    private final LinkedHashMap<Long, UserIndex> indexes = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    private static class UserIndex {
+        final long userId;
+        // Lookup structure only: a full bucket drops its oldest representative, the cluster itself stays
+        final Map<Long, List<Cluster>> buckets = new HashMap<>();
+        final Set<Cluster> clusters = new LinkedHashSet<>();
+        final Map<Long, Cluster> clusterByEmail = new HashMap<>();
+        long bytes;
+        // What totalBytes currently counts for this user; only changed under the detector's lock
+        long accountedBytes;
+
+        UserIndex(long userId) {
+            this.userId = userId;
+        }
+    }
+
+    private static class Cluster {
+        final long[] signature;
+        long representativeId;
+        final Set<Long> members = new LinkedHashSet<>();
+
+        Cluster(long[] signature, long representativeId) {
+            this.signature = signature;
+            this.representativeId = representativeId;
+            this.members.add(representativeId);
+        }
+    }
+
+    public static class DuplicateCluster {
+        private final Long representativeId;
+        private final List<Long> emailIds;
+
+        public DuplicateCluster(Long representativeId, List<Long> emailIds) {
+            this.representativeId = representativeId;
+            this.emailIds = emailIds;
+        }
+
+        public Long getRepresentativeId() { return representativeId; }
+        public List<Long> getEmailIds() { return emailIds; }
+        public int getSize() { return emailIds.size(); }
+    }
+
+    @PostConstruct
+    public void initMetrics() {
+        Gauge.builder("emails.duplicates.users", this, detector -> detector.getUserCount())
+                .description("Users with a loaded near-duplicate index")
+                .register(meterRegistry);
+        Gauge.builder("emails.duplicates.bytes", this, detector -> detector.getEstimatedBytes())
+                .description("Estimated heap held by near-duplicate indexes")
+                .register(meterRegistry);
+    }
+
+    public synchronized int getUserCount() {
+        return indexes.size();
+    }
+
+    public synchronized long getEstimatedBytes() {
+        return totalBytes;
+    }
+
+    // Returns the representative of the closest existing cluster, or null when the email is new content
+    public Long findDuplicate(Email email) {
+        long[] signature = signature(email.getSubject(), email.getBody());
+        if (signature == null || email.getUserId() == null) {
+            return null;
+        }
+        UserIndex index = indexFor(email.getUserId());
+        synchronized (index) {
+            Cluster match = closest(index, signature);
+            return match == null ? null : match.representativeId;
+        }
+    }
+
+    // Only users whose index is loaded are updated; others pick the email up when their index is built
+    public void register(Email email) {
+        if (email.getId() == null || email.getUserId() == null) {
+            return;
+        }
+        UserIndex index;
+        synchronized (this) {
+            index = indexes.get(email.getUserId());
+        }
+        if (index != null) {
+            synchronized (index) {
+                add(index, email);
+                resize(index);
+            }
+        }
+    }
+
+    public void remove(Long userId, Long emailId) {
+        UserIndex index;
+        synchronized (this) {
+            index = indexes.get(userId);
+        }
+        if (index != null) {
+            synchronized (index) {
+                remove(index, emailId);
+                resize(index);
+            }
+        }
+    }
+
+    public void removeAll(Long userId, Collection<Long> emailIds) {
+        emailIds.forEach(emailId -> remove(userId, emailId));
+    }
+
+    public synchronized void removeUser(Long userId) {
+        UserIndex index = indexes.remove(userId);
+        if (index != null) {
+            totalBytes -= index.accountedBytes;
+        }
+    }
+
+    public synchronized void removeAllUsers() {
+        indexes.clear();
+        totalBytes = 0;
+    }
+
+    // Inserts on other nodes are not replayed here, the affected users are rebuilt on next use
+    @EventListener
+    public void onRemoteChange(ChangeLogEntry change) {
+        if (change.isEverything()) {
+            removeAllUsers();
+        } else if (change.is(ChangeLogEntry.EntityType.USER)) {
+            removeUser(change.getEntityId());
+        } else if (change.is(ChangeLogEntry.EntityType.EMAIL)) {
+            if (change.getAction() == ChangeLogEntry.Action.DELETED && change.getEntityId() != null
+                    && change.getUserId() != null) {
+                remove(change.getUserId(), change.getEntityId());
+            } else if (change.getUserId() != null) {
+                removeUser(change.getUserId());
+            } else {
+                removeAllUsers();
+            }
+        }
+    }
+
+    public List<DuplicateCluster> getClusters(Long userId) {
+        UserIndex index = indexFor(userId);
+        List<DuplicateCluster> result = new ArrayList<>();
+        synchronized (index) {
+            for (Cluster cluster : index.clusters) {
+                if (cluster.members.size() > 1) {
+                    result.add(new DuplicateCluster(cluster.representativeId, new ArrayList<>(cluster.members)));
+                }
+            }
+        }
+        result.sort(Comparator.comparingInt(DuplicateCluster::getSize).reversed());
+        return result;
+    }
+
+    // Must run in the deleting transaction after the emails are removed. Emails that named a deleted email as their
+    // duplicateOf point at the oldest remaining one instead, which becomes the representative, as in remove()
+    public void repointDuplicates(Collection<Long> deletedIds) {
+        Map<Long, List<Long>> byRepresentative = new LinkedHashMap<>();
+        for (Object[] row : emailRepository.findDuplicatesOf(deletedIds)) {
+            byRepresentative.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((Long) row[1]);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        byRepresentative.forEach((deletedId, remaining) -> {
+            Long representativeId = remaining.get(0);
+            emailRepository.clearDuplicateOf(representativeId, now);
+            if (remaining.size() > 1) {
+                emailRepository.updateDuplicateOf(deletedId, representativeId, now);
+            }
+        });
+    }
+
+    private UserIndex indexFor(Long userId) {
+        synchronized (this) {
+            UserIndex index = indexes.get(userId);
+            if (index != null) {
+                return index;
+            }
+        }
+        UserIndex created = new UserIndex(userId);
+        synchronized (created) {
+            synchronized (this) {
+                UserIndex existing = indexes.get(userId);
+                if (existing != null) {
+                    return existing;
+                }
+                // Published while locked: readers wait for the load and emails arriving meanwhile queue behind it
+                indexes.put(userId, created);
+            }
+            try {
+                shardRouter.readForUser(userId, () -> {
+                    long afterId = 0L;
+                    while (true) {
+                        List<Email> batch = emailRepository.findByUserIdAndIdGreaterThanOrderByIdAsc(userId, afterId,
+                                PageRequest.of(0, indexingBatchSize));
+                        batch.forEach(email -> add(created, email));
+                        if (batch.size() < indexingBatchSize) {
+                            return null;
+                        }
+                        afterId = batch.get(batch.size() - 1).getId();
+                    }
+                });
+            } catch (RuntimeException e) {
+                removeUser(userId);
+                throw e;
+            }
+            resize(created);
+        }
+        return created;
+    }
+
+    private void add(UserIndex index, Email email) {
+        long[] signature = signature(email.getSubject(), email.getBody());
+        if (signature == null || index.clusterByEmail.containsKey(email.getId())) {
+            return;
+        }
+        Cluster cluster = closest(index, signature);
+        if (cluster == null) {
+            cluster = new Cluster(signature, email.getId());
+            index.clusters.add(cluster);
+            for (int band = 0; band < BANDS; band++) {
+                List<Cluster> bucket = index.buckets.computeIfAbsent(bandKey(signature, band),
+                        key -> new ArrayList<>(1));
+                // Oldest representatives stop being matched first; their clusters and members are kept
+                if (bucket.size() >= maxBucketSize) {
+                    bucket.remove(0);
+                }
+                bucket.add(cluster);
+            }
+            index.bytes += CLUSTER_BYTES;
+        } else {
+            cluster.members.add(email.getId());
+            index.bytes += MEMBER_BYTES;
+        }
+        index.clusterByEmail.put(email.getId(), cluster);
+    }
+
+    private void remove(UserIndex index, Long emailId) {
+        Cluster cluster = index.clusterByEmail.remove(emailId);
+        if (cluster == null) {
+            return;
+        }
+        cluster.members.remove(emailId);
+        if (cluster.members.isEmpty()) {
+            index.clusters.remove(cluster);
+            for (int band = 0; band < BANDS; band++) {
+                List<Cluster> bucket = index.buckets.get(bandKey(cluster.signature, band));
+                if (bucket != null) {
+                    bucket.remove(cluster);
+                    if (bucket.isEmpty()) {
+                        index.buckets.remove(bandKey(cluster.signature, band));
+                    }
+                }
+            }
+            index.bytes -= CLUSTER_BYTES;
+        } else {
+            if (cluster.representativeId == emailId) {
+                cluster.representativeId = Collections.min(cluster.members);
+            }
+            index.bytes -= MEMBER_BYTES;
+        }
+    }
+
+    // Caller holds the index's lock. Brings the total up to date and evicts least recently used users past either cap
+    private synchronized void resize(UserIndex index) {
+        if (indexes.get(index.userId) != index) {
+            return; // Evicted or dropped meanwhile
+        }
+        totalBytes += index.bytes - index.accountedBytes;
+        index.accountedBytes = index.bytes;
+        Iterator<UserIndex> eldest = indexes.values().iterator();
+        while ((indexes.size() > maxUsers || totalBytes > maxBytes) && eldest.hasNext()) {
+            UserIndex evicted = eldest.next();
+            if (evicted != index) {
+                eldest.remove();
+                totalBytes -= evicted.accountedBytes;
+            }
+        }
+    }
+
+    private Cluster closest(UserIndex index, long[] signature) {
+        Cluster best = null;
+        double bestSimilarity = minSimilarity;
+        for (int band = 0; band < BANDS; band++) {
+            List<Cluster> bucket = index.buckets.get(bandKey(signature, band));
+            if (bucket == null) {
+                continue;
+            }
+            for (Cluster cluster : bucket) {
+                double similarity = similarity(cluster.signature, signature);
+                if (similarity >= bestSimilarity) {
+                    best = cluster;
+                    bestSimilarity = similarity;
+                }
+            }
+        }
+        return best;
+    }
+
+    private static double similarity(long[] a, long[] b) {
+        int equal = 0;
+        for (int i = 0; i < HASHES; i++) {
+            if (a[i] == b[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / HASHES;
+    }
+
+    private static long bandKey(long[] signature, int band) {
+        long key = band;
+        for (int row = band * ROWS; row < (band + 1) * ROWS; row++) {
+            key = key * FNV_PRIME ^ signature[row];
+        }
+        return key;
+    }
+
+    // MinHash over word bigrams; null when there is too little text for a stable signature
+    long[] signature(String subject, String body) {
+        Shingles shingles = new Shingles();
+        shingles.add(subject);
+        shingles.add(body);
+        return shingles.features < MIN_FEATURES ? null : shingles.minimums;
+    }
+
+    private static class Shingles {
+        final long[] minimums = new long[HASHES];
+        long previous;
+        int features;
+
+        Shingles() {
+            Arrays.fill(minimums, Long.MAX_VALUE);
+        }
+
+        void add(String text) {
+            if (text == null) {
+                return;
+            }
+            long hash = FNV_OFFSET;
+            int tokenLength = 0;
+            int length = text.length();
+            for (int i = 0; i <= length; i++) {
+                char c = i < length ? text.charAt(i) : ' ';
+                if (Character.isLetterOrDigit(c)) {
+                    hash = (hash ^ Character.toLowerCase(c)) * FNV_PRIME;
+                    tokenLength++;
+                } else if (tokenLength > 0) {
+                    if (previous != 0) {
+                        addFeature(previous * 31 + hash);
+                    }
+                    previous = hash;
+                    hash = FNV_OFFSET;
+                    tokenLength = 0;
+                }
+            }
+        }
+
+        // Derives all hash functions from two mixed values (h1 + i * h2) instead of mixing once per function
+        private void addFeature(long feature) {
+            long h1 = mix(feature);
+            long h2 = mix(h1) | 1L;
+            long value = h1;
+            for (int i = 0; i < HASHES; i++) {
+                if (Long.compareUnsigned(value, minimums[i]) < 0) {
+                    minimums[i] = value;
+                }
+                value += h2;
+            }
+            features++;
+        }
+
+        private static long mix(long z) {
+            z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+            z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+            return z ^ (z >>> 31);
+        }
+    }
+}
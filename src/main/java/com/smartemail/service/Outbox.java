@@ -0,0 +1,120 @@
+package com.smartemail.service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartemail.model.Email;
+import com.smartemail.model.EmailSummary;
+import com.smartemail.model.FollowUp;
+import com.smartemail.model.OutboxEvent;
+import com.smartemail.model.Template;
+import com.smartemail.repository.EmailRepository;
+import com.smartemail.repository.FollowUpRepository;
+
+// Appends change events to outbox_events. Every method joins the caller's transaction, which must be the
+// one writing the change, so an event exists exactly when its change committed. OutboxRelay ships them.
+@Component
+public class Outbox {
+
+    private static final String INSERT = "INSERT INTO outbox_events "
+            + "(aggregate_type, aggregate_id, user_id, event_type, payload, created_at) VALUES (?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EmailRepository emailRepository;
+
+    @Autowired
+    private FollowUpRepository followUpRepository;
+
+    @Value("${emails.outbox.enabled:true}")
+    private boolean enabled;
+
+    @Value("${emails.outbox.snippet-length:160}")
+    private int snippetLength;
+
+    private record Row(Long aggregateId, Long userId, String payload) {}
+
+    // Emails are described by their summary; the full body is one GET /emails/{id} away
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void appendEmail(OutboxEvent.EventType eventType, Email email) {
+        Object payload = eventType == OutboxEvent.EventType.DELETED ? null : new EmailSummary(email, snippetLength);
+        insert(OutboxEvent.AggregateType.EMAIL, eventType, List.of(new Row(email.getId(), email.getUserId(), json(payload))));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void appendTemplate(OutboxEvent.EventType eventType, Template template) {
+        Object payload = eventType == OutboxEvent.EventType.DELETED ? null : template;
+        insert(OutboxEvent.AggregateType.TEMPLATE, eventType,
+                List.of(new Row(template.getId(), template.getUserId(), json(payload))));
+    }
+
+    // Deletes must be appended before the row is gone, the owner is looked up through its email
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void appendFollowUp(OutboxEvent.EventType eventType, FollowUp followUp) {
+        Object payload = eventType == OutboxEvent.EventType.DELETED ? null : followUp;
+        appendChanges(OutboxEvent.AggregateType.FOLLOW_UP, eventType, Collections.singletonMap(followUp.getId(), payload));
+    }
+
+    // For statement-level writes that only know ids. Ids not on the current shard are skipped, so callers
+    // that apply a batch to every shard can append it on every shard too. Must run before deletes.
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void appendChanges(OutboxEvent.AggregateType type, OutboxEvent.EventType eventType,
+                              Map<Long, ?> payloadById) {
+        if (!enabled || payloadById.isEmpty()) {
+            return;
+        }
+        List<Object[]> owners = type == OutboxEvent.AggregateType.FOLLOW_UP
+                ? followUpRepository.findOwnersByIds(payloadById.keySet())
+                : emailRepository.findOwnersByIds(payloadById.keySet());
+        List<Row> rows = new ArrayList<>(owners.size());
+        for (Object[] owner : owners) {
+            Long id = (Long) owner[0];
+            rows.add(new Row(id, (Long) owner[1], json(payloadById.get(id))));
+        }
+        insert(type, eventType, rows);
+    }
+
+    private void insert(OutboxEvent.AggregateType type, OutboxEvent.EventType eventType, List<Row> rows) {
+        if (!enabled || rows.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT, rows, rows.size(), (ps, row) -> {
+            ps.setString(1, type.name());
+            ps.setLong(2, row.aggregateId());
+            ps.setObject(3, row.userId());
+            ps.setString(4, eventType.name());
+            ps.setString(5, row.payload());
+            ps.setTimestamp(6, now);
+        });
+    }
+
+    private String json(Object payload) {
+        if (payload == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize outbox payload", e);
+        }
+    }
+}
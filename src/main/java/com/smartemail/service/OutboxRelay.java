@@ -0,0 +1,230 @@
+package com.smartemail.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.smartemail.config.ShardContext;
+import com.smartemail.model.OutboxEvent;
+import com.smartemail.model.OutboxOffset;
+import com.smartemail.repository.OutboxEventRepository;
+import com.smartemail.repository.OutboxOffsetRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
+// Ships outbox events from every shard to every sink in id order, in batches, tracking one offset per
+// sink and shard. Offsets only move after the sink accepted the batch, so a failing sink is retried
+// from where it stopped and the other sinks keep going.
+@Component
+public class OutboxRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+    @Autowired
+    private OutboxEventRepository eventRepository;
+
+    @Autowired
+    private OutboxOffsetRepository offsetRepository;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired(required = false)
+    private List<OutboxSink> sinks = List.of();
+
+    @Value("${emails.outbox.enabled:true}")
+    private boolean enabled;
+
+    @Value("${emails.outbox.batch-size:500}")
+    private int batchSize;
+
+    @Value("${emails.outbox.max-batches-per-run:20}")
+    private int maxBatchesPerRun;
+
+    // How long a hole in the id sequence is waited on before it is treated as a rolled back insert
+    @Value("${emails.outbox.settle-ms:2000}")
+    private long settleMillis;
+
+    @Value("${emails.outbox.retention-hours:24}")
+    private long retentionHours;
+
+    private TransactionTemplate directoryTransaction;
+
+    // Per sink and shard: the first id of the hole the offset is waiting at, and since when
+    private final Map<String, Gap> gaps = new ConcurrentHashMap<>();
+
+    private record Gap(long fromId, long sinceMillis) {}
+
+    private final Map<String, Counter> published = new LinkedHashMap<>();
+    private final Map<String, Counter> failures = new LinkedHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        directoryTransaction = new TransactionTemplate(transactionManager);
+        directoryTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        for (OutboxSink sink : sinks) {
+            published.put(sink.getName(), Counter.builder("emails.outbox.published")
+                    .tag("sink", sink.getName()).register(meterRegistry));
+            failures.put(sink.getName(), Counter.builder("emails.outbox.failures")
+                    .tag("sink", sink.getName()).register(meterRegistry));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${emails.outbox.relay-interval-ms:1000}")
+    public void relay() {
+        if (!enabled) {
+            return;
+        }
+        for (OutboxSink sink : sinks) {
+            for (int shard : shardRouter.shardsFor(null)) {
+                try {
+                    int batches = 0;
+                    while (batches++ < maxBatchesPerRun && relayBatch(sink, shard)) {
+                        // Keep draining while batches come back full
+                    }
+                } catch (RuntimeException e) {
+                    failures.get(sink.getName()).increment();
+                    log.warn("Relaying outbox events to {} from shard {} failed, retrying next run: {}",
+                            sink.getName(), shard, e.getMessage());
+                }
+            }
+        }
+    }
+
+    // The offset row stays locked while the sink runs, so only one node relays a sink's shard at a time
+    private boolean relayBatch(OutboxSink sink, int shard) {
+        return onDirectory(() -> {
+            OutboxOffset offset = offsetRepository.findForUpdate(sink.getName(), shard)
+                    .orElseGet(() -> offsetRepository.saveAndFlush(new OutboxOffset(sink.getName(), shard)));
+            List<OutboxEvent> fetched = onShard(shard, () ->
+                    eventRepository.findByIdGreaterThanOrderByIdAsc(offset.getLastEventId(), PageRequest.of(0, batchSize)));
+            List<OutboxEvent> events = settled(sink.getName() + "/" + shard, offset.getLastEventId(), fetched);
+            if (events.isEmpty()) {
+                return false;
+            }
+            try {
+                sink.publish(events);
+            } catch (Exception e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+            offset.setLastEventId(events.get(events.size() - 1).getId());
+            offset.setUpdatedAt(LocalDateTime.now());
+            offsetRepository.save(offset);
+            published.get(sink.getName()).increment(events.size());
+            return events.size() == batchSize;
+        });
+    }
+
+    // Auto-increment ids become visible in commit order, not id order, so a hole below a visible event may
+    // still fill in. Returns the gap-free run above the offset; a hole is only passed once it has been open for
+    // the settle time, as ChangeLog.advance does
+    private List<OutboxEvent> settled(String key, long lastEventId, List<OutboxEvent> events) {
+        long now = System.currentTimeMillis();
+        long expected = lastEventId + 1;
+        int end = 0;
+        for (; end < events.size(); end++) {
+            long id = events.get(end).getId();
+            if (id != expected) {
+                Gap gap = gaps.get(key);
+                if (gap == null || gap.fromId() != expected) {
+                    gap = new Gap(expected, now);
+                    gaps.put(key, gap);
+                }
+                if (now - gap.sinceMillis() < settleMillis) {
+                    break;
+                }
+            }
+            expected = id + 1;
+        }
+        long next = expected;
+        gaps.computeIfPresent(key, (k, gap) -> gap.fromId() < next ? null : gap);
+        return events.subList(0, end);
+    }
+
+    public List<Map<String, Object>> getOffsets() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (OutboxOffset offset : onDirectory(() -> offsetRepository.findAllByOrderByConsumerAscShardIdAsc())) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("consumer", offset.getConsumer());
+            entry.put("shard", offset.getShardId());
+            entry.put("lastEventId", offset.getLastEventId());
+            entry.put("updatedAt", offset.getUpdatedAt());
+            entry.put("lag", onShard(offset.getShardId(),
+                    () -> eventRepository.countByIdGreaterThan(offset.getLastEventId())));
+            result.add(entry);
+        }
+        return result;
+    }
+
+    // Events are kept for the retention period even after every sink has them, so a new sink can catch up
+    @Scheduled(fixedDelayString = "${emails.outbox.prune-interval-ms:600000}")
+    public void prune() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(retentionHours);
+        for (int shard : shardRouter.shardsFor(null)) {
+            try {
+                long relayedEverywhere = relayedByAllSinks(shard);
+                int pruned = onShard(shard, () -> eventRepository.deleteRelayed(relayedEverywhere, cutoff));
+                if (pruned > 0) {
+                    log.debug("Pruned {} outbox events on shard {}", pruned, shard);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Outbox prune on shard {} failed: {}", shard, e.getMessage());
+            }
+        }
+    }
+
+    private long relayedByAllSinks(int shard) {
+        if (sinks.isEmpty()) {
+            return Long.MAX_VALUE;
+        }
+        Map<String, Long> byConsumer = new LinkedHashMap<>();
+        onDirectory(() -> offsetRepository.findByShardId(shard))
+                .forEach(offset -> byConsumer.put(offset.getConsumer(), offset.getLastEventId()));
+        long minimum = Long.MAX_VALUE;
+        for (OutboxSink sink : sinks) {
+            // Offsets of sinks that are no longer configured do not hold events back
+            minimum = Math.min(minimum, byConsumer.getOrDefault(sink.getName(), 0L));
+        }
+        return minimum;
+    }
+
+    // Offsets live on shard 0, events on every shard; each access gets its own short transaction
+    private <T> T onDirectory(Supplier<T> work) {
+        return onShard(0, work);
+    }
+
+    private <T> T onShard(int shard, Supplier<T> work) {
+        Integer previous = ShardContext.bind(shard);
+        try {
+            return directoryTransaction.execute(status -> work.get());
+        } finally {
+            ShardContext.restore(previous);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.smartemail.service;
+
+import java.util.List;
+
+import com.smartemail.model.OutboxEvent;
+
+// Destination for relayed outbox events. A batch is retried until publish returns, so delivery is
+// at least once and sinks should tolerate seeing an event again. The name keys the sink's offsets.
+public interface OutboxSink {
+
+    String getName();
+
+    void publish(List<OutboxEvent> events) throws Exception;
+}
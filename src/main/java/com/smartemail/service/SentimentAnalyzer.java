@@ -0,0 +1,195 @@
+package com.smartemail.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import com.smartemail.model.Email;
+
+import jakarta.annotation.PostConstruct;
+
+// Lexicon-based sentiment scorer with negation and intensifier handling.
+// Tokens are hashed in place while scanning, so scoring allocates nothing per token.
+@Component
+public class SentimentAnalyzer {
+
+    private static final String LEXICON = "sentiment/lexicon.txt";
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final byte KIND_VALENCE = 1;
+    private static final byte KIND_NEGATOR = 2;
+    private static final byte KIND_MODIFIER = 3;
+
+    // Tokens after a negator whose valence is flipped
+    private static final int NEGATION_WINDOW = 3;
+    private static final float NEGATION_FACTOR = -0.74f;
+
+    // Compound scores inside (-threshold, threshold) are neutral
+    private static final double NEUTRAL_THRESHOLD = 0.05;
+
+    private static final String[] NEGATORS = {
+        "not", "no", "never", "none", "nobody", "nothing", "neither", "nor", "cannot", "cant", "dont",
+        "doesnt", "didnt", "isnt", "wasnt", "arent", "werent", "wont", "wouldnt", "shouldnt", "couldnt",
+        "havent", "hasnt", "hadnt", "hardly", "without"
+    };
+
+    private static final String[] MODIFIERS = {
+        "very:1.5", "really:1.5", "extremely:2.0", "so:1.3", "super:1.5", "highly:1.5", "totally:1.5",
+        "absolutely:1.8", "incredibly:1.8", "completely:1.6", "truly:1.4", "most:1.4", "quite:1.2",
+        "slightly:0.5", "somewhat:0.6", "barely:0.4", "little:0.6", "bit:0.7"
+    };
+
+    // Open-addressing table keyed by token hash
+    private long[] keys;
+    private float[] values;
+    private byte[] kinds;
+    private int mask;
+
+    @PostConstruct
+    public void init() throws IOException {
+        List<String[]> lexicon = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new ClassPathResource(LEXICON).getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank() && !line.startsWith("#")) {
+                    lexicon.add(line.split("\t"));
+                }
+            }
+        }
+
+        // Keep the table at most a quarter full so probes stay short
+        int entries = lexicon.size() + NEGATORS.length + MODIFIERS.length;
+        int capacity = Integer.highestOneBit(Math.max(64, entries * 4) - 1) << 1;
+        keys = new long[capacity];
+        values = new float[capacity];
+        kinds = new byte[capacity];
+        mask = capacity - 1;
+
+        for (String[] entry : lexicon) {
+            put(entry[0], Float.parseFloat(entry[1]), KIND_VALENCE);
+        }
+        for (String negator : NEGATORS) {
+            put(negator, 0f, KIND_NEGATOR);
+        }
+        for (String modifier : MODIFIERS) {
+            String[] parts = modifier.split(":");
+            put(parts[0], Float.parseFloat(parts[1]), KIND_MODIFIER);
+        }
+    }
+
+    public Email.Sentiment analyze(String subject, String body) {
+        double score = score(subject) + score(body);
+        double compound = score / Math.sqrt(score * score + 15);
+        if (compound >= NEUTRAL_THRESHOLD) {
+            return Email.Sentiment.POSITIVE;
+        }
+        if (compound <= -NEUTRAL_THRESHOLD) {
+            return Email.Sentiment.NEGATIVE;
+        }
+        return Email.Sentiment.NEUTRAL;
+    }
+
+    public double score(CharSequence text) {
+        if (text == null) {
+            return 0;
+        }
+        double total = 0;
+        // Exclamation marks emphasise their own sentence only; it is added to the total once its closing
+        // punctuation run ends, so "great!!!" counts three marks
+        double sentence = 0;
+        double emphasis = 1;
+        boolean sentenceEnded = false;
+        int negationLeft = 0;
+        float modifier = 1f;
+
+        long hash = FNV_OFFSET;
+        boolean inToken = false;
+        int length = text.length();
+
+        for (int i = 0; i <= length; i++) {
+            char c = i < length ? text.charAt(i) : ' ';
+            if (Character.isLetter(c)) {
+                if (sentenceEnded) {
+                    total += sentence * emphasis;
+                    sentence = 0;
+                    emphasis = 1;
+                    sentenceEnded = false;
+                }
+                hash = (hash ^ Character.toLowerCase(c)) * FNV_PRIME;
+                inToken = true;
+                continue;
+            }
+            if (c == '\'' || c == '’') {
+                // "don't" and "dont" hash the same
+                continue;
+            }
+
+            if (inToken) {
+                int slot = find(hash);
+                if (slot >= 0) {
+                    switch (kinds[slot]) {
+                        case KIND_NEGATOR:
+                            negationLeft = NEGATION_WINDOW;
+                            break;
+                        case KIND_MODIFIER:
+                            modifier *= values[slot];
+                            break;
+                        default:
+                            float valence = values[slot] * modifier;
+                            sentence += negationLeft > 0 ? valence * NEGATION_FACTOR : valence;
+                            modifier = 1f;
+                            negationLeft = 0;
+                    }
+                } else if (negationLeft > 0) {
+                    negationLeft--;
+                }
+                hash = FNV_OFFSET;
+                inToken = false;
+            }
+
+            if (c == '.' || c == '!' || c == '?' || c == ';' || c == '\n') {
+                negationLeft = 0;
+                modifier = 1f;
+                sentenceEnded = true;
+                if (c == '!') {
+                    emphasis *= 1.05;
+                }
+            }
+        }
+        return total + sentence * emphasis;
+    }
+
+    private void put(String word, float value, byte kind) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < word.length(); i++) {
+            hash = (hash ^ Character.toLowerCase(word.charAt(i))) * FNV_PRIME;
+        }
+        int slot = (int) (hash ^ (hash >>> 32)) & mask;
+        while (keys[slot] != 0 && keys[slot] != hash) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = hash;
+        values[slot] = value;
+        kinds[slot] = kind;
+    }
+
+    private int find(long hash) {
+        int slot = (int) (hash ^ (hash >>> 32)) & mask;
+        while (keys[slot] != 0) {
+            if (keys[slot] == hash) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+}
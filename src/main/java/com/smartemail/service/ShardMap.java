@@ -0,0 +1,86 @@
+package com.smartemail.service;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.smartemail.config.ShardContext;
+import com.smartemail.model.ChangeLogEntry;
+import com.smartemail.model.UserShard;
+import com.smartemail.repository.UserShardRepository;
+
+import jakarta.annotation.PostConstruct;
+
+// Directory of user -> shard assignments, stored on shard 0 and cached in memory.
+// Users without an assignment predate sharding and live on shard 0.
+@Component
+public class ShardMap {
+
+    @Autowired
+    private UserShardRepository userShardRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate directoryTransaction;
+
+    private final Map<Long, Integer> cache = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        directoryTransaction = new TransactionTemplate(transactionManager);
+        directoryTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public int getShard(Long userId) {
+        return cache.computeIfAbsent(userId, id -> onDirectory(() ->
+                userShardRepository.findById(id).map(UserShard::getShardId).orElse(0)));
+    }
+
+    public void assign(Long userId, int shard) {
+        onDirectory(() -> userShardRepository.save(new UserShard(userId, shard)));
+        cache.put(userId, shard);
+    }
+
+    public void remove(Long userId) {
+        onDirectory(() -> {
+            userShardRepository.deleteById(userId);
+            return null;
+        });
+        cache.remove(userId);
+    }
+
+    // Another node created, moved or deleted the user
+    @EventListener
+    public void onRemoteChange(ChangeLogEntry change) {
+        if (change.isEverything()) {
+            cache.clear();
+        } else if (change.is(ChangeLogEntry.EntityType.USER)) {
+            cache.remove(change.getEntityId());
+        }
+    }
+
+    public Map<Integer, Long> getUserCounts() {
+        Map<Integer, Long> counts = new TreeMap<>();
+        onDirectory(() -> userShardRepository.countUsersPerShard())
+                .forEach(row -> counts.put(((Number) row[0]).intValue(), ((Number) row[1]).longValue()));
+        return counts;
+    }
+
+    private <T> T onDirectory(Supplier<T> work) {
+        Integer previous = ShardContext.bind(0);
+        try {
+            return directoryTransaction.execute(status -> work.get());
+        } finally {
+            ShardContext.restore(previous);
+        }
+    }
+}
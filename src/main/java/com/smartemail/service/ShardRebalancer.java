@@ -0,0 +1,161 @@
+package com.smartemail.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.smartemail.config.ShardingProperties;
+import com.smartemail.model.ChangeLogEntry;
+
+// Moves a user's emails, follow-ups, templates and sync tombstones between shards while other users keep working.
+// The user's writes wait for the move; reads are served from the source shard until the directory flips.
+@Service
+public class ShardRebalancer {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardRebalancer.class);
+
+    private static final String USER_EMAILS = "SELECT x.* FROM emails x WHERE x.user_id = ?";
+    private static final String USER_FOLLOWUPS =
+            "SELECT x.* FROM followups x JOIN emails e ON x.email_id = e.id WHERE e.user_id = ?";
+    private static final String USER_TEMPLATES = "SELECT x.* FROM templates x WHERE x.user_id = ?";
+    private static final String USER_THREADS = "SELECT x.* FROM email_threads x WHERE x.user_id = ?";
+    private static final String USER_TOMBSTONES = "SELECT x.* FROM sync_tombstones x WHERE x.user_id = ?";
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private ShardMap shardMap;
+
+    @Autowired
+    private ShardingProperties shardingProperties;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StatusWriteBuffer statusWriteBuffer;
+
+    @Autowired
+    private ChangeLog changeLog;
+
+    public Map<String, Object> getShardSummary() {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("enabled", shardRouter.isEnabled());
+        summary.put("shardCount", shardRouter.getShardCount());
+        summary.put("assignedUsers", shardRouter.isEnabled() ? shardMap.getUserCounts() : Map.of());
+        return summary;
+    }
+
+    public Map<String, Object> moveUser(Long userId, int targetShard) {
+        if (!shardRouter.isEnabled()) {
+            throw new IllegalStateException("Sharding is not enabled");
+        }
+        if (targetShard < 0 || targetShard >= shardRouter.getShardCount()) {
+            throw new IllegalArgumentException("Unknown shard: " + targetShard);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("userId", userId);
+        result.put("targetShard", targetShard);
+
+        Lock lock = shardRouter.lockUserForMove(userId);
+        lock.lock();
+        try {
+            int sourceShard = shardRouter.shardForUser(userId);
+            result.put("sourceShard", sourceShard);
+            if (sourceShard == targetShard) {
+                return result;
+            }
+
+            // Pending buffered flips must land on the source before its rows are copied
+            statusWriteBuffer.flush();
+
+            // Leftovers from an interrupted move would collide with the copy
+            purgeUser(userId, targetShard);
+
+            result.put("threads", copyRows("email_threads", USER_THREADS, userId, sourceShard, targetShard));
+            result.put("emails", copyRows("emails", USER_EMAILS, userId, sourceShard, targetShard));
+            result.put("followUps", copyRows("followups", USER_FOLLOWUPS, userId, sourceShard, targetShard));
+            result.put("templates", copyRows("templates", USER_TEMPLATES, userId, sourceShard, targetShard));
+            result.put("tombstones", copyRows("sync_tombstones", USER_TOMBSTONES, userId, sourceShard, targetShard));
+
+            shardMap.assign(userId, targetShard);
+            changeLog.record(ChangeLogEntry.EntityType.USER, ChangeLogEntry.Action.UPDATED, userId, userId);
+            purgeUser(userId, sourceShard);
+
+            log.info("Moved user {} from shard {} to shard {}: {}", userId, sourceShard, targetShard, result);
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Re-homes a single email after its owner changed to a user on another shard
+    public void moveEmail(Long emailId, int sourceShard, int targetShard) {
+        if (sourceShard == targetShard) {
+            return;
+        }
+        copyRows("emails", "SELECT x.* FROM emails x WHERE x.id = ?", emailId, sourceShard, targetShard);
+        copyRows("followups", "SELECT x.* FROM followups x WHERE x.email_id = ?", emailId, sourceShard, targetShard);
+        shardRouter.inShard(sourceShard, false, () -> {
+            jdbcTemplate.update("DELETE FROM followups WHERE email_id = ?", emailId);
+            return jdbcTemplate.update("DELETE FROM emails WHERE id = ?", emailId);
+        });
+    }
+
+    public void moveTemplate(Long templateId, int sourceShard, int targetShard) {
+        if (sourceShard == targetShard) {
+            return;
+        }
+        copyRows("templates", "SELECT x.* FROM templates x WHERE x.id = ?", templateId, sourceShard, targetShard);
+        shardRouter.inShard(sourceShard, false, () ->
+                jdbcTemplate.update("DELETE FROM templates WHERE id = ?", templateId));
+    }
+
+    public void purgeUser(Long userId, int shard) {
+        shardRouter.inShard(shard, false, () -> {
+            jdbcTemplate.update("DELETE FROM followups WHERE email_id IN (SELECT id FROM emails WHERE user_id = ?)", userId);
+            jdbcTemplate.update("DELETE FROM emails WHERE user_id = ?", userId);
+            jdbcTemplate.update("DELETE FROM email_threads WHERE user_id = ?", userId);
+            jdbcTemplate.update("DELETE FROM sync_tombstones WHERE user_id = ?", userId);
+            return jdbcTemplate.update("DELETE FROM templates WHERE user_id = ?", userId);
+        });
+    }
+
+    private long copyRows(String table, String select, Long key, int sourceShard, int targetShard) {
+        int chunkSize = shardingProperties.getCopyChunkSize();
+        String chunkQuery = select + " AND x.id > ? ORDER BY x.id LIMIT " + chunkSize;
+        long copied = 0;
+        long afterId = 0;
+
+        while (true) {
+            long lastId = afterId;
+            List<Map<String, Object>> rows = shardRouter.inShard(sourceShard, true,
+                    () -> jdbcTemplate.queryForList(chunkQuery, key, lastId));
+            if (rows.isEmpty()) {
+                return copied;
+            }
+
+            List<String> columns = new ArrayList<>(rows.get(0).keySet());
+            String insert = "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES ("
+                    + String.join(", ", columns.stream().map(column -> "?").toList()) + ")";
+            List<Object[]> values = new ArrayList<>(rows.size());
+            for (Map<String, Object> row : rows) {
+                values.add(columns.stream().map(row::get).toArray());
+            }
+            shardRouter.inShard(targetShard, false, () -> jdbcTemplate.batchUpdate(insert, values));
+
+            copied += rows.size();
+            afterId = ((Number) rows.get(rows.size() - 1).get("id")).longValue();
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.smartemail.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.smartemail.config.ShardContext;
+import com.smartemail.config.ShardingProperties;
+
+// Runs repository work against the shard that owns a user's emails, follow-ups and templates.
+// With sharding disabled every call runs inline on the single datasource.
+@Component
+public class ShardRouter {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardRouter.class);
+
+    private static final String[] SHARDED_TABLES = {"emails", "followups", "templates", "email_threads", "sync_tombstones"};
+
+    @Autowired
+    private ShardingProperties shardingProperties;
+
+    @Autowired
+    private ShardMap shardMap;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Writes for a user hold the read side; a rebalance holds the write side while it moves the user
+    private final ReadWriteLock[] moveLocks = new ReadWriteLock[256];
+
+    public ShardRouter() {
+        for (int i = 0; i < moveLocks.length; i++) {
+            moveLocks[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    public boolean isEnabled() {
+        return shardingProperties.isActive();
+    }
+
+    public int getShardCount() {
+        return shardingProperties.getShardCount();
+    }
+
+    public int shardForUser(Long userId) {
+        return isEnabled() ? shardMap.getShard(userId) : 0;
+    }
+
+    public void assignNewUser(Long userId) {
+        if (isEnabled()) {
+            shardMap.assign(userId, Math.floorMod(Long.hashCode(userId), getShardCount()));
+        }
+    }
+
+    public void removeUser(Long userId) {
+        if (isEnabled()) {
+            shardMap.remove(userId);
+        }
+    }
+
+    public <T> T readForUser(Long userId, Supplier<T> work) {
+        return inShard(shardForUser(userId), true, work);
+    }
+
+    public <T> T writeForUser(Long userId, Supplier<T> work) {
+        if (!isEnabled()) {
+            return work.get();
+        }
+        Lock lock = moveLock(userId).readLock();
+        lock.lock();
+        try {
+            return inShard(shardForUser(userId), false, work);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Lock lockUserForMove(Long userId) {
+        return moveLock(userId).writeLock();
+    }
+
+    public <T> T inShard(int shard, boolean readOnly, Supplier<T> work) {
+        if (!isEnabled()) {
+            return work.get();
+        }
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        // A new transaction gets its own connection, checked out after the shard is bound
+        transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        transaction.setReadOnly(readOnly);
+
+        Integer previous = ShardContext.bind(shard);
+        try {
+            return transaction.execute(status -> work.get());
+        } finally {
+            ShardContext.restore(previous);
+        }
+    }
+
+    // For callers that manage their own transactions, e.g. chunked background jobs
+    public void withShard(int shard, Runnable work) {
+        Integer previous = ShardContext.bind(shard);
+        try {
+            work.run();
+        } finally {
+            ShardContext.restore(previous);
+        }
+    }
+
+    public List<Integer> shardsFor(Long userId) {
+        if (userId != null) {
+            return List.of(shardForUser(userId));
+        }
+        List<Integer> shards = new ArrayList<>();
+        for (int shard = 0; shard < getShardCount(); shard++) {
+            shards.add(shard);
+        }
+        return shards;
+    }
+
+    // Cross-user queries: run on every shard and concatenate
+    public <T> List<T> fanOut(Function<Integer, List<T>> work) {
+        if (!isEnabled()) {
+            return work.apply(0);
+        }
+        List<T> results = new ArrayList<>();
+        for (int shard = 0; shard < getShardCount(); shard++) {
+            int current = shard;
+            results.addAll(inShard(current, true, () -> work.apply(current)));
+        }
+        return results;
+    }
+
+    // Lookups by id without a user: probe the shard the id was generated on first, then the rest
+    public <T> Optional<Located<T>> locate(Long id, Function<Integer, Optional<T>> finder) {
+        if (!isEnabled()) {
+            return finder.apply(0).map(value -> new Located<>(0, value));
+        }
+        int home = homeShardForId(id);
+        for (int i = 0; i < getShardCount(); i++) {
+            int shard = (home + i) % getShardCount();
+            Optional<T> found = inShard(shard, true, () -> finder.apply(shard));
+            if (found.isPresent()) {
+                return Optional.of(new Located<>(shard, found.get()));
+            }
+        }
+        return Optional.empty();
+    }
+
+    public int homeShardForId(Long id) {
+        int shard = (int) (id >>> shardingProperties.getIdRangeBits());
+        return shard < getShardCount() ? shard : 0;
+    }
+
+    // Give each additional shard its own id range so rows can move between shards without renumbering. Only
+    // counters still below the range are moved: on later starts the counter is past it, and setting it back
+    // would hand out ids of deleted rows again
+    @EventListener(ApplicationReadyEvent.class)
+    public void reserveIdRanges() {
+        if (!isEnabled()) {
+            return;
+        }
+        for (int shard = 1; shard < getShardCount(); shard++) {
+            long base = ((long) shard) << shardingProperties.getIdRangeBits();
+            int reserved = 0;
+            for (String table : SHARDED_TABLES) {
+                reserved += inShard(shard, false, () -> {
+                    if (nextAutoIncrement(table) >= base) {
+                        return 0;
+                    }
+                    jdbcTemplate.execute("ALTER TABLE " + table + " AUTO_INCREMENT = " + base);
+                    return 1;
+                });
+            }
+            if (reserved > 0) {
+                log.info("Reserved id range starting at {} on shard {} for {} tables", base, shard, reserved);
+            }
+        }
+    }
+
+    private long nextAutoIncrement(String table) {
+        try {
+            // MySQL 8 otherwise serves table statistics cached for up to a day
+            jdbcTemplate.execute("SET SESSION information_schema_stats_expiry = 0");
+        } catch (DataAccessException e) {
+            // MySQL 5.7 reads them live
+        }
+        try {
+            Long next = jdbcTemplate.queryForObject("SELECT AUTO_INCREMENT FROM information_schema.TABLES "
+                    + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?", Long.class, table);
+            if (next != null) {
+                return next;
+            }
+        } catch (DataAccessException e) {
+            // Not MySQL; the highest id is the best lower bound of the counter
+        }
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + table, Long.class);
+        return maxId != null ? maxId + 1 : 1;
+    }
+
+    private ReadWriteLock moveLock(Long userId) {
+        return moveLocks[Math.floorMod(Long.hashCode(userId), moveLocks.length)];
+    }
+
+    public record Located<T>(int shard, T value) {}
+}
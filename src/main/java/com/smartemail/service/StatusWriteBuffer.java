@@ -0,0 +1,269 @@
+package com.smartemail.service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.smartemail.model.ChangeLogEntry;
+import com.smartemail.model.Email;
+import com.smartemail.model.FollowUp;
+import com.smartemail.model.OutboxEvent;
+
+import jakarta.annotation.PreDestroy;
+
+// Opt-in write-behind buffer for archive flags and follow-up statuses.
+// Repeated changes to the same row collapse to the last value and are written in JDBC batches.
+@Component
+public class StatusWriteBuffer {
+
+    private static final Logger log = LoggerFactory.getLogger(StatusWriteBuffer.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private ChangeLog changeLog;
+
+    @Autowired
+    private Outbox outbox;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${emails.write-behind.enabled:false}")
+    private boolean enabled;
+
+    @Value("${emails.write-behind.max-pending:1000}")
+    private int maxPending;
+
+    @Value("${emails.write-behind.batch-size:500}")
+    private int batchSize;
+
+    private final Map<Long, Boolean> pendingArchived = new ConcurrentHashMap<>();
+    private final Map<Long, FollowUp.Status> pendingFollowUpStatus = new ConcurrentHashMap<>();
+
+    // Entries claimed by the running flush, still overlaid until their batch has committed
+    private final Map<Long, Boolean> writingArchived = new ConcurrentHashMap<>();
+    private final Map<Long, FollowUp.Status> writingFollowUpStatus = new ConcurrentHashMap<>();
+
+    private final AtomicLong bufferedChanges = new AtomicLong();
+    private final AtomicLong writtenRows = new AtomicLong();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void bufferArchived(Long emailId, boolean archived) {
+        pendingArchived.put(emailId, archived);
+        bufferedChanges.incrementAndGet();
+        flushIfFull();
+    }
+
+    public void bufferFollowUpStatus(Long followUpId, FollowUp.Status status) {
+        pendingFollowUpStatus.put(followUpId, status);
+        bufferedChanges.incrementAndGet();
+        flushIfFull();
+    }
+
+    // A full update or delete supersedes any buffered flip for the same row. Synchronized with flush, so a flip
+    // claimed by a running flush is written before the caller's update instead of after it
+    public synchronized void discardEmail(Long emailId) {
+        pendingArchived.remove(emailId);
+    }
+
+    public synchronized void discardFollowUp(Long followUpId) {
+        pendingFollowUpStatus.remove(followUpId);
+    }
+
+    public Email overlay(Email email) {
+        if (email != null && !(pendingArchived.isEmpty() && writingArchived.isEmpty())) {
+            Boolean archived = pendingArchived.getOrDefault(email.getId(), writingArchived.get(email.getId()));
+            if (archived != null) {
+                email.setArchived(archived);
+            }
+        }
+        return email;
+    }
+
+    public <T extends Iterable<Email>> T overlayEmails(T emails) {
+        if (!(pendingArchived.isEmpty() && writingArchived.isEmpty())) {
+            emails.forEach(this::overlay);
+        }
+        return emails;
+    }
+
+    // A buffered flip can take a row out of the query's archived filter; such rows are dropped, not shown flipped
+    public List<Email> overlayEmails(List<Email> emails, Boolean archived) {
+        overlayEmails(emails);
+        return archived == null ? emails : emails.stream().filter(email -> archived.equals(email.getArchived())).toList();
+    }
+
+    public FollowUp overlay(FollowUp followUp) {
+        if (followUp != null && !(pendingFollowUpStatus.isEmpty() && writingFollowUpStatus.isEmpty())) {
+            FollowUp.Status status = pendingFollowUpStatus.getOrDefault(followUp.getId(),
+                    writingFollowUpStatus.get(followUp.getId()));
+            if (status != null) {
+                followUp.setStatus(status);
+            }
+        }
+        return followUp;
+    }
+
+    public List<FollowUp> overlayFollowUps(List<FollowUp> followUps) {
+        if (!(pendingFollowUpStatus.isEmpty() && writingFollowUpStatus.isEmpty())) {
+            followUps.forEach(this::overlay);
+        }
+        return followUps;
+    }
+
+    public List<FollowUp> overlayFollowUps(List<FollowUp> followUps, FollowUp.Status status) {
+        overlayFollowUps(followUps);
+        return followUps.stream().filter(followUp -> followUp.getStatus() == status).toList();
+    }
+
+    public long getPendingCount() {
+        return pendingArchived.size() + pendingFollowUpStatus.size();
+    }
+
+    public long getBufferedChanges() {
+        return bufferedChanges.get();
+    }
+
+    public long getWrittenRows() {
+        return writtenRows.get();
+    }
+
+    private void flushIfFull() {
+        if (getPendingCount() >= maxPending) {
+            flush();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${emails.write-behind.flush-interval-ms:500}")
+    public void scheduledFlush() {
+        if (enabled) {
+            flush();
+        }
+    }
+
+    public synchronized void flush() {
+        flushArchived();
+        flushFollowUpStatuses();
+    }
+
+    private void flushArchived() {
+        if (pendingArchived.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<Long, Boolean>> snapshot = claim(pendingArchived, writingArchived);
+        if (snapshot.isEmpty()) {
+            return;
+        }
+        Map<Long, Map<String, Boolean>> payloads = new HashMap<>();
+        snapshot.forEach(entry -> payloads.put(entry.getKey(), Map.of("archived", entry.getValue())));
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        try {
+            // Ids are unique across shards, so each shard simply ignores rows it does not own
+            for (int shard : shardRouter.shardsFor(null)) {
+                shardRouter.withShard(shard, () -> transactionTemplate.executeWithoutResult(status -> {
+                    jdbcTemplate.batchUpdate("UPDATE emails SET archived = ?, updated_at = ? WHERE id = ?", snapshot,
+                            batchSize, (ps, entry) -> {
+                                ps.setBoolean(1, entry.getValue());
+                                ps.setTimestamp(2, now);
+                                ps.setLong(3, entry.getKey());
+                            });
+                    outbox.appendChanges(OutboxEvent.AggregateType.EMAIL, OutboxEvent.EventType.UPDATED, payloads);
+                }));
+            }
+        } catch (RuntimeException e) {
+            unclaim(snapshot, pendingArchived, writingArchived);
+            throw e;
+        }
+        writingArchived.clear();
+        writtenRows.addAndGet(snapshot.size());
+        // Other nodes only see the flips once they are written
+        changeLog.recordEmails(ChangeLogEntry.Action.UPDATED, snapshot.stream().map(Map.Entry::getKey).toList());
+        log.debug("Flushed {} buffered archive changes", snapshot.size());
+    }
+
+    private void flushFollowUpStatuses() {
+        if (pendingFollowUpStatus.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<Long, FollowUp.Status>> snapshot = claim(pendingFollowUpStatus, writingFollowUpStatus);
+        if (snapshot.isEmpty()) {
+            return;
+        }
+        Map<Long, Map<String, FollowUp.Status>> payloads = new HashMap<>();
+        snapshot.forEach(entry -> payloads.put(entry.getKey(), Map.of("status", entry.getValue())));
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        try {
+            for (int shard : shardRouter.shardsFor(null)) {
+                shardRouter.withShard(shard, () -> transactionTemplate.executeWithoutResult(status -> {
+                    jdbcTemplate.batchUpdate("UPDATE followups SET status = ?, updated_at = ? WHERE id = ?", snapshot,
+                            batchSize, (ps, entry) -> {
+                                ps.setString(1, entry.getValue().name());
+                                ps.setTimestamp(2, now);
+                                ps.setLong(3, entry.getKey());
+                            });
+                    // Delta sync serves follow-ups with their email
+                    jdbcTemplate.batchUpdate("UPDATE emails SET updated_at = ? WHERE id = (SELECT email_id FROM followups WHERE id = ?)",
+                            snapshot, batchSize, (ps, entry) -> {
+                                ps.setTimestamp(1, now);
+                                ps.setLong(2, entry.getKey());
+                            });
+                    outbox.appendChanges(OutboxEvent.AggregateType.FOLLOW_UP, OutboxEvent.EventType.UPDATED, payloads);
+                }));
+            }
+        } catch (RuntimeException e) {
+            unclaim(snapshot, pendingFollowUpStatus, writingFollowUpStatus);
+            throw e;
+        }
+        writingFollowUpStatus.clear();
+        writtenRows.addAndGet(snapshot.size());
+        log.debug("Flushed {} buffered follow-up status changes", snapshot.size());
+    }
+
+    // Takes entries out of the buffer before writing them: an entry changed again or discarded in the meantime
+    // is not removed, so it is neither written with a stale value nor lost
+    private static <V> List<Map.Entry<Long, V>> claim(Map<Long, V> pending, Map<Long, V> writing) {
+        List<Map.Entry<Long, V>> claimed = new ArrayList<>();
+        for (Map.Entry<Long, V> entry : Map.copyOf(pending).entrySet()) {
+            writing.put(entry.getKey(), entry.getValue());
+            if (pending.remove(entry.getKey(), entry.getValue())) {
+                claimed.add(entry);
+            } else {
+                writing.remove(entry.getKey(), entry.getValue());
+            }
+        }
+        return claimed;
+    }
+
+    // A failed batch goes back to the buffer for the next flush, unless the row was changed again since
+    private static <V> void unclaim(List<Map.Entry<Long, V>> claimed, Map<Long, V> pending, Map<Long, V> writing) {
+        claimed.forEach(entry -> pending.putIfAbsent(entry.getKey(), entry.getValue()));
+        writing.clear();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+}
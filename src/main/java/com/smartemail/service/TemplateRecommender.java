@@ -0,0 +1,342 @@
+package com.smartemail.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.smartemail.model.ChangeLogEntry;
+import com.smartemail.model.Email;
+import com.smartemail.model.Template;
+import com.smartemail.repository.TemplateRepository;
+
+// Ranks a user's templates by TF-IDF cosine similarity to an email. Templates are tokenized once into hashed term
+// counts; a change to one template moves every IDF, so the weights and the inverted index are rebuilt from those
+// counts without going back to the database. Ranking walks the postings of the email's terms only.
+@Component
+public class TemplateRecommender {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final int MAX_TOKENS = 4096;
+
+    // Words every email and template share; IDF alone would still give them weight in small collections
+    private static final Set<Integer> STOP_WORDS = hashAll(
+            "about", "all", "also", "am", "an", "and", "any", "are", "as", "at", "be", "been", "but", "by",
+            "can", "could", "do", "for", "from", "had", "has", "have", "hi", "hello", "if", "in", "is", "it",
+            "its", "me", "my", "no", "not", "of", "on", "or", "our", "please", "so", "that", "the", "their",
+            "them", "there", "this", "to", "us", "was", "we", "were", "will", "with", "would", "you", "your");
+
+    @Autowired
+    private TemplateRepository templateRepository;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Value("${emails.template-suggestions.max-users:1000}")
+    private int maxUsers;
+
+    // Least recently used users are dropped and reloaded with one query when they come back
+    private final Map<Long, UserIndex> indexes = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, UserIndex> eldest) {
+            return size() > maxUsers;
+        }
+    };
+
+    // Distinct term hashes in ascending order with their counts
+    private record Terms(int[] terms, int[] counts) {}
+
+    private record Document(Long templateId, String title, Terms terms) {}
+
+    private record Postings(double idf, int[] documents, float[] weights) {}
+
+    private static class UserIndex {
+        final Map<Long, Document> templates = new LinkedHashMap<>();
+        Document[] documents = new Document[0];
+        Map<Integer, Postings> postings = Map.of();
+    }
+
+    public static class TemplateSuggestion {
+        private final Long templateId;
+        private final String title;
+        private final double score;
+
+        public TemplateSuggestion(Long templateId, String title, double score) {
+            this.templateId = templateId;
+            this.title = title;
+            this.score = score;
+        }
+
+        public Long getTemplateId() { return templateId; }
+        public String getTitle() { return title; }
+        public double getScore() { return score; }
+    }
+
+    // Templates sharing no term with the email are left out, so the list may be shorter than the limit
+    public List<TemplateSuggestion> suggest(Email email, int limit) {
+        Terms query = terms(email.getSubject(), email.getBody());
+        UserIndex index = indexFor(email.getUserId());
+        synchronized (index) {
+            Document[] documents = index.documents;
+            if (documents.length == 0 || query.terms().length == 0 || limit <= 0) {
+                return List.of();
+            }
+            double[] scores = new double[documents.length];
+            double unseenIdf = idf(documents.length, 0);
+            double queryNorm = 0;
+            for (int t = 0; t < query.terms().length; t++) {
+                Postings postings = index.postings.get(query.terms()[t]);
+                double weight = tf(query.counts()[t]) * (postings != null ? postings.idf() : unseenIdf);
+                queryNorm += weight * weight;
+                if (postings != null) {
+                    for (int p = 0; p < postings.documents().length; p++) {
+                        scores[postings.documents()[p]] += weight * postings.weights()[p];
+                    }
+                }
+            }
+            return top(documents, scores, Math.sqrt(queryNorm), limit);
+        }
+    }
+
+    // Only users whose index is loaded are updated; others read the template when their index is built
+    public void templateSaved(Template template) {
+        UserIndex index = loadedIndex(template.getUserId());
+        if (index == null) {
+            return;
+        }
+        Document document = new Document(template.getId(), template.getTitle(),
+                terms(template.getTitle(), template.getBody()));
+        synchronized (index) {
+            index.templates.put(template.getId(), document);
+            reindex(index);
+        }
+    }
+
+    public void templateDeleted(Long userId, Long templateId) {
+        UserIndex index = loadedIndex(userId);
+        if (index == null) {
+            return;
+        }
+        synchronized (index) {
+            if (index.templates.remove(templateId) != null) {
+                reindex(index);
+            }
+        }
+    }
+
+    public void removeUser(Long userId) {
+        synchronized (indexes) {
+            indexes.remove(userId);
+        }
+    }
+
+    // A remote update may have moved the template away from an owner the change does not name
+    @EventListener
+    public void onRemoteChange(ChangeLogEntry change) {
+        if (change.isEverything()) {
+            synchronized (indexes) {
+                indexes.clear();
+            }
+        } else if (change.is(ChangeLogEntry.EntityType.USER)) {
+            removeUser(change.getEntityId());
+        } else if (change.is(ChangeLogEntry.EntityType.TEMPLATE)) {
+            removeUser(change.getUserId());
+            Map<Long, UserIndex> loaded;
+            synchronized (indexes) {
+                loaded = new HashMap<>(indexes);
+            }
+            // Checked outside the map lock, an index may be loading
+            loaded.forEach((userId, index) -> {
+                boolean holds;
+                synchronized (index) {
+                    holds = index.templates.containsKey(change.getEntityId());
+                }
+                if (holds) {
+                    synchronized (indexes) {
+                        indexes.remove(userId, index);
+                    }
+                }
+            });
+        }
+    }
+
+    private UserIndex loadedIndex(Long userId) {
+        synchronized (indexes) {
+            return indexes.get(userId);
+        }
+    }
+
+    private UserIndex indexFor(Long userId) {
+        UserIndex index = loadedIndex(userId);
+        if (index != null) {
+            return index;
+        }
+        UserIndex created = new UserIndex();
+        synchronized (created) {
+            synchronized (indexes) {
+                UserIndex existing = indexes.get(userId);
+                if (existing != null) {
+                    return existing;
+                }
+                // Published while locked: readers wait for the load and template writes meanwhile queue behind it
+                indexes.put(userId, created);
+            }
+            try {
+                List<Template> templates = shardRouter.readForUser(userId, () -> templateRepository.findByUserId(userId));
+                for (Template template : templates) {
+                    created.templates.put(template.getId(), new Document(template.getId(), template.getTitle(),
+                            terms(template.getTitle(), template.getBody())));
+                }
+                reindex(created);
+            } catch (RuntimeException e) {
+                removeUser(userId);
+                throw e;
+            }
+        }
+        return created;
+    }
+
+    // Weights are sublinear TF times smoothed IDF, normalized per template so scores are cosines
+    private static void reindex(UserIndex index) {
+        Document[] documents = index.templates.values().toArray(new Document[0]);
+        Map<Integer, int[]> frequencies = new HashMap<>();
+        for (Document document : documents) {
+            for (int term : document.terms().terms()) {
+                frequencies.computeIfAbsent(term, key -> new int[1])[0]++;
+            }
+        }
+        Map<Integer, Postings> postings = new HashMap<>(frequencies.size() * 2);
+        frequencies.forEach((term, frequency) -> postings.put(term,
+                new Postings(idf(documents.length, frequency[0]), new int[frequency[0]], new float[frequency[0]])));
+
+        Map<Integer, int[]> filled = new HashMap<>(frequencies.size() * 2);
+        for (int d = 0; d < documents.length; d++) {
+            Terms terms = documents[d].terms();
+            double[] weights = new double[terms.terms().length];
+            double norm = 0;
+            for (int t = 0; t < weights.length; t++) {
+                weights[t] = tf(terms.counts()[t]) * postings.get(terms.terms()[t]).idf();
+                norm += weights[t] * weights[t];
+            }
+            norm = Math.sqrt(norm);
+            for (int t = 0; t < weights.length; t++) {
+                Postings posting = postings.get(terms.terms()[t]);
+                int at = filled.computeIfAbsent(terms.terms()[t], key -> new int[1])[0]++;
+                posting.documents()[at] = d;
+                posting.weights()[at] = (float) (weights[t] / norm);
+            }
+        }
+        index.documents = documents;
+        index.postings = postings;
+    }
+
+    private static List<TemplateSuggestion> top(Document[] documents, double[] scores, double queryNorm, int limit) {
+        int[] best = new int[Math.min(limit, documents.length)];
+        int size = 0;
+        for (int d = 0; d < scores.length; d++) {
+            if (scores[d] <= 0 || (size == best.length && scores[best[size - 1]] >= scores[d])) {
+                continue;
+            }
+            int position = size < best.length ? size++ : size - 1;
+            // Shift lower scores down to make room
+            while (position > 0 && scores[best[position - 1]] < scores[d]) {
+                best[position] = best[position - 1];
+                position--;
+            }
+            best[position] = d;
+        }
+        List<TemplateSuggestion> suggestions = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Document document = documents[best[i]];
+            suggestions.add(new TemplateSuggestion(document.templateId(), document.title(), scores[best[i]] / queryNorm));
+        }
+        return suggestions;
+    }
+
+    private static double tf(int count) {
+        return 1 + Math.log(count);
+    }
+
+    private static double idf(int documents, int frequency) {
+        return Math.log((1.0 + documents) / (1.0 + frequency)) + 1;
+    }
+
+    private static Terms terms(String... texts) {
+        int[] tokens = new int[MAX_TOKENS];
+        int count = 0;
+        for (String text : texts) {
+            count = tokenize(text, tokens, count);
+        }
+        // Collapse repeated tokens into counts
+        Arrays.sort(tokens, 0, count);
+        int[] terms = new int[count];
+        int[] counts = new int[count];
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct > 0 && terms[distinct - 1] == tokens[i]) {
+                counts[distinct - 1]++;
+            } else {
+                terms[distinct] = tokens[i];
+                counts[distinct++] = 1;
+            }
+        }
+        return new Terms(Arrays.copyOf(terms, distinct), Arrays.copyOf(counts, distinct));
+    }
+
+    // Writes hashed tokens into `tokens` starting at `offset`; returns the new length. Placeholders such as
+    // {name} are skipped, they say nothing about what the template is for
+    private static int tokenize(String text, int[] tokens, int offset) {
+        if (text == null) {
+            return offset;
+        }
+        int count = offset;
+        long hash = FNV_OFFSET;
+        int tokenLength = 0;
+        boolean inPlaceholder = false;
+        int length = text.length();
+        for (int i = 0; i <= length && count < tokens.length; i++) {
+            char c = i < length ? text.charAt(i) : ' ';
+            if (!inPlaceholder && Character.isLetterOrDigit(c)) {
+                hash = (hash ^ Character.toLowerCase(c)) * FNV_PRIME;
+                tokenLength++;
+                continue;
+            }
+            if (tokenLength > 1) {
+                int token = (int) (hash ^ (hash >>> 32));
+                if (!STOP_WORDS.contains(token)) {
+                    tokens[count++] = token;
+                }
+            }
+            hash = FNV_OFFSET;
+            tokenLength = 0;
+            if (c == '{') {
+                inPlaceholder = true;
+            } else if (c == '}') {
+                inPlaceholder = false;
+            }
+        }
+        return count;
+    }
+
+    private static Set<Integer> hashAll(String... words) {
+        Integer[] hashes = new Integer[words.length];
+        for (int i = 0; i < words.length; i++) {
+            long hash = FNV_OFFSET;
+            for (int c = 0; c < words[i].length(); c++) {
+                hash = (hash ^ words[i].charAt(c)) * FNV_PRIME;
+            }
+            hashes[i] = (int) (hash ^ (hash >>> 32));
+        }
+        return Set.of(hashes);
+    }
+}
@@ -1,10 +1,17 @@
 package com.smartemail.service;
 
 import com.smartemail.exception.ResourceNotFoundException;
+import com.smartemail.model.ChangeLogEntry;
+import com.smartemail.model.Email;
+import com.smartemail.model.OutboxEvent;
 import com.smartemail.model.Template;
 import com.smartemail.repository.TemplateRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.annotation.Timed;
 
 import java.util.List;
 import java.util.regex.Matcher;
@@ -14,18 +21,41 @@ import java.util.Map;
 @Service
 public class TemplateService {
     
+    private static final int MAX_SUGGESTIONS = 50;
+    
     @Autowired
     private TemplateRepository templateRepository;
     
     @Autowired
     private UserService userService;
     
+    @Autowired
+    private ShardRouter shardRouter;
+    
+    @Autowired
+    private ShardRebalancer shardRebalancer;
+    
+    @Autowired
+    private ChangeLog changeLog;
+    
+    @Autowired
+    private Outbox outbox;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    private TemplateRecommender templateRecommender;
+    
+    @Transactional(readOnly = true)
     public List<Template> getAllTemplates() {
-        return templateRepository.findAll();
+        return shardRouter.fanOut(shard -> templateRepository.findAll());
     }
     
+    @Transactional(readOnly = true)
     public Template getTemplateById(Long id) {
-        return templateRepository.findById(id)
+        return shardRouter.locate(id, shard -> templateRepository.findById(id))
+                .map(ShardRouter.Located::value)
                 .orElseThrow(() -> new ResourceNotFoundException("Template not found with id: " + id));
     }
     
@@ -33,7 +63,10 @@ public class TemplateService {
         // Validate user exists
         userService.getUserById(template.getUserId());
         
-        return templateRepository.save(template);
+        Template saved = shardRouter.writeForUser(template.getUserId(), () -> save(template, OutboxEvent.EventType.CREATED));
+        templateRecommender.templateSaved(saved);
+        changeLog.record(ChangeLogEntry.EntityType.TEMPLATE, ChangeLogEntry.Action.CREATED, saved.getId(), saved.getUserId());
+        return saved;
     }
     
     public Template updateTemplate(Long id, Template templateDetails) {
@@ -44,23 +77,60 @@ public class TemplateService {
             userService.getUserById(templateDetails.getUserId());
         }
         
+        Long previousUserId = template.getUserId();
         template.setUserId(templateDetails.getUserId());
         template.setTitle(templateDetails.getTitle());
         template.setBody(templateDetails.getBody());
         
-        return templateRepository.save(template);
+        Template saved = shardRouter.writeForUser(previousUserId, () -> save(template, OutboxEvent.EventType.UPDATED));
+        
+        // Follow the new owner to their shard
+        if (shardRouter.isEnabled()) {
+            shardRebalancer.moveTemplate(id, shardRouter.shardForUser(previousUserId),
+                                         shardRouter.shardForUser(saved.getUserId()));
+        }
+        if (!previousUserId.equals(saved.getUserId())) {
+            templateRecommender.templateDeleted(previousUserId, id);
+        }
+        templateRecommender.templateSaved(saved);
+        changeLog.record(ChangeLogEntry.EntityType.TEMPLATE, ChangeLogEntry.Action.UPDATED, id, saved.getUserId());
+        return saved;
     }
     
     public void deleteTemplate(Long id) {
         Template template = getTemplateById(id);
-        templateRepository.delete(template);
+        shardRouter.writeForUser(template.getUserId(), () -> transactionTemplate.execute(status -> {
+            templateRepository.delete(template);
+            outbox.appendTemplate(OutboxEvent.EventType.DELETED, template);
+            return null;
+        }));
+        templateRecommender.templateDeleted(template.getUserId(), id);
+        changeLog.record(ChangeLogEntry.EntityType.TEMPLATE, ChangeLogEntry.Action.DELETED, id, template.getUserId());
     }
     
+    private Template save(Template template, OutboxEvent.EventType eventType) {
+        return transactionTemplate.execute(status -> {
+            Template saved = templateRepository.save(template);
+            outbox.appendTemplate(eventType, saved);
+            return saved;
+        });
+    }
+    
+    @Transactional(readOnly = true)
     public List<Template> getTemplatesByUserId(Long userId) {
         userService.getUserById(userId); // Validate user exists
-        return templateRepository.findByUserId(userId);
+        return shardRouter.readForUser(userId, () -> templateRepository.findByUserId(userId));
+    }
+    
+    public List<TemplateRecommender.TemplateSuggestion> suggestTemplates(Email email, int limit) {
+        if (limit < 1 || limit > MAX_SUGGESTIONS) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_SUGGESTIONS);
+        }
+        return templateRecommender.suggest(email, limit);
     }
     
+    @Transactional(readOnly = true)
+    @Timed(value = "templates.process", histogram = true)
     public String processTemplate(Long templateId, Map<String, String> variables) {
         Template template = getTemplateById(templateId);
         String processedBody = template.getBody();
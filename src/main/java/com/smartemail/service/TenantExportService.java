@@ -0,0 +1,352 @@
+package com.smartemail.service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartemail.config.WorkloadClass;
+import com.smartemail.config.WorkloadContext;
+import com.smartemail.config.WorkloadPools;
+import com.smartemail.exception.ResourceNotFoundException;
+import com.smartemail.exception.TooManyRequestsException;
+import com.smartemail.model.TenantExportJob;
+import com.zaxxer.hikari.HikariDataSource;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+// Admin export of every email for backups. Each shard's id space is cut into ranges that a fork-join pool
+// exports in parallel, every range through its own forward-only cursor into its own JSON lines file, with a
+// manifest listing the files and their checksums. Ranges are read in separate transactions, so the export is
+// consistent per partition, not a point-in-time snapshot of the whole table.
+@Service
+public class TenantExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(TenantExportService.class);
+
+    private static final String MANIFEST = "manifest.json";
+    private static final String PARTITION_QUERY = "SELECT * FROM emails WHERE id > ? AND id <= ? ORDER BY id";
+    private static final int DEFAULT_FETCH_SIZE = 1000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private WorkloadPools workloadPools;
+
+    @Value("${emails.export.tenant.output-dir:${java.io.tmpdir}/smart-email-tenant-exports}")
+    private String outputDirectory;
+
+    // 0 sizes the pool from the core count, capped so half of the connections it reads through stay free
+    @Value("${emails.export.tenant.parallelism:0}")
+    private int configuredParallelism;
+
+    // Used when there is no batch pool, since the export then reads through the primary pool
+    @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+    private int connectionPoolSize;
+
+    @Value("${emails.export.tenant.rows-per-partition:100000}")
+    private long rowsPerPartition;
+
+    // 0 picks per driver: Integer.MIN_VALUE on MySQL, where Connector/J then streams rows instead of buffering the
+    // whole result, and DEFAULT_FETCH_SIZE elsewhere, since other drivers reject a negative fetch size
+    @Value("${emails.export.tenant.fetch-size:0}")
+    private int fetchSize;
+
+    private final Map<String, TenantExportJob> jobs = new ConcurrentHashMap<>();
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final ExecutorService coordinator = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "tenant-export");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Path outputDir;
+    private int parallelism;
+    private ForkJoinPool pool;
+    private TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    public void init() throws IOException {
+        outputDir = Files.createDirectories(Paths.get(outputDirectory));
+        HikariDataSource batchPool = workloadPools.getPools().get(WorkloadClass.BATCH);
+        int poolSize = batchPool != null ? batchPool.getMaximumPoolSize() : connectionPoolSize;
+        parallelism = configuredParallelism > 0 ? configuredParallelism
+                : Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), poolSize / 2));
+        pool = new ForkJoinPool(parallelism);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        readOnlyTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // One export at a time; a second one would only compete for the same connections
+    public TenantExportJob submit() {
+        if (!running.compareAndSet(false, true)) {
+            throw new TooManyRequestsException("A tenant export is already running", 60);
+        }
+        TenantExportJob job = new TenantExportJob(UUID.randomUUID().toString(), parallelism);
+        jobs.put(job.getId(), job);
+        coordinator.execute(WorkloadContext.wrap(WorkloadClass.BATCH, () -> {
+            try {
+                run(job);
+            } finally {
+                running.set(false);
+            }
+        }));
+        return job;
+    }
+
+    public TenantExportJob getJob(String jobId) {
+        TenantExportJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new ResourceNotFoundException("Tenant export not found with id: " + jobId);
+        }
+        return job;
+    }
+
+    public List<TenantExportJob> getJobs() {
+        return jobs.values().stream().sorted(Comparator.comparing(TenantExportJob::getCreatedAt).reversed()).toList();
+    }
+
+    public Path getFile(TenantExportJob job, String name) {
+        boolean listed = MANIFEST.equals(name)
+                || job.getPartitions().stream().anyMatch(partition -> partition.getFile().equals(name));
+        Path file = directoryFor(job).resolve(name);
+        if (!listed || !Files.isRegularFile(file)) {
+            throw new ResourceNotFoundException("File " + name + " not found in tenant export " + job.getId());
+        }
+        return file;
+    }
+
+    public void delete(String jobId) throws IOException {
+        TenantExportJob job = getJob(jobId);
+        // Locked like the end of run(), so the manifest write cannot land in a directory being removed
+        synchronized (job) {
+            if (job.getFinishedAt() == null) {
+                throw new IllegalArgumentException("Tenant export " + jobId + " is still running");
+            }
+            jobs.remove(jobId);
+            Path directory = directoryFor(job);
+            if (Files.isDirectory(directory)) {
+                try (Stream<Path> files = Files.list(directory)) {
+                    for (Path file : files.toList()) {
+                        Files.deleteIfExists(file);
+                    }
+                }
+                Files.deleteIfExists(directory);
+            }
+        }
+    }
+
+    private void run(TenantExportJob job) {
+        job.setStatus(TenantExportJob.Status.RUNNING);
+        try {
+            Path directory = Files.createDirectories(directoryFor(job));
+            job.setPartitions(plan(job));
+
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (TenantExportJob.Partition partition : job.getPartitions()) {
+                // Pool threads are not the coordinator's, so each task binds the class itself
+                tasks.add(Executors.callable(WorkloadContext.wrap(WorkloadClass.BATCH,
+                        () -> exportPartition(job, partition, directory)), null));
+            }
+            pool.invokeAll(tasks);
+
+            boolean failed = job.getPartitions().stream()
+                    .anyMatch(partition -> partition.getStatus() != TenantExportJob.Status.COMPLETED);
+            job.setStatus(failed ? TenantExportJob.Status.FAILED : TenantExportJob.Status.COMPLETED);
+            if (failed && job.getError() == null) {
+                job.setError("Some partitions failed, see their status in the manifest");
+            }
+        } catch (Exception e) {
+            log.error("Tenant export {} failed", job.getId(), e);
+            job.setError(e.getMessage());
+            job.setStatus(TenantExportJob.Status.FAILED);
+        } finally {
+            synchronized (job) {
+                job.setFinishedAt(LocalDateTime.now());
+                writeManifest(job);
+            }
+        }
+        log.info("Tenant export {} {}: {} rows in {} partitions", job.getId(), job.getStatus(), job.getProcessed(),
+                job.getPartitions().size());
+    }
+
+    // Cuts each shard's id span into equal ranges, enough to fill the pool and to keep partitions bounded
+    private List<TenantExportJob.Partition> plan(TenantExportJob job) {
+        List<TenantExportJob.Partition> partitions = new ArrayList<>();
+        long total = 0;
+        for (int shard : shardRouter.shardsFor(null)) {
+            Map<String, Object> bounds = shardRouter.inShard(shard, true, () -> jdbcTemplate.queryForMap(
+                    "SELECT MIN(id) AS min_id, MAX(id) AS max_id, COUNT(*) AS row_count FROM emails"));
+            long count = ((Number) bounds.get("row_count")).longValue();
+            if (count == 0) {
+                continue;
+            }
+            total += count;
+            long minId = ((Number) bounds.get("min_id")).longValue();
+            long maxId = ((Number) bounds.get("max_id")).longValue();
+            long ranges = Math.max((count + rowsPerPartition - 1) / rowsPerPartition, Math.min(parallelism, count));
+            long step = Math.max(1, (maxId - minId + ranges) / ranges);
+            for (long from = minId - 1; from < maxId; from += step) {
+                long to = Math.min(from + step, maxId);
+                partitions.add(new TenantExportJob.Partition(shard, from, to,
+                        String.format(Locale.ROOT, "emails-%02d-%05d.jsonl", shard, partitions.size())));
+            }
+        }
+        job.setTotal(total);
+        return partitions;
+    }
+
+    private void exportPartition(TenantExportJob job, TenantExportJob.Partition partition, Path directory) {
+        partition.setStatus(TenantExportJob.Status.RUNNING);
+        Path file = directory.resolve(partition.getFile());
+        Path part = directory.resolve(partition.getFile() + ".part");
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            long rows;
+            try (FileChannel channel = FileChannel.open(part, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                OutputStream out = new BufferedOutputStream(
+                        new DigestOutputStream(Channels.newOutputStream(channel), sha256), 64 * 1024);
+                JsonGenerator json = objectMapper.getFactory().createGenerator(out);
+                json.setRootValueSeparator(null); // Rows are newline-terminated by writeRow
+                rows = stream(job, partition, json);
+                json.flush();
+                channel.force(false);
+            }
+            Files.move(part, file, StandardCopyOption.ATOMIC_MOVE);
+            partition.setRows(rows);
+            partition.setBytes(Files.size(file));
+            partition.setSha256(HexFormat.of().formatHex(sha256.digest()));
+            partition.setStatus(TenantExportJob.Status.COMPLETED);
+        } catch (IOException | NoSuchAlgorithmException | RuntimeException e) {
+            log.error("Partition {} of tenant export {} failed", partition.getFile(), job.getId(), e);
+            partition.setStatus(TenantExportJob.Status.FAILED);
+            try {
+                Files.deleteIfExists(part);
+            } catch (IOException ignored) {
+                // Left for the operator to remove with the export
+            }
+        }
+    }
+
+    // One row per line with every column, so the files keep up with schema changes
+    private long stream(TenantExportJob job, TenantExportJob.Partition partition, JsonGenerator json) {
+        long[] rows = {0};
+        shardRouter.withShard(partition.getShard(), () -> readOnlyTransaction.executeWithoutResult(status ->
+                jdbcTemplate.query(connection -> {
+                    PreparedStatement statement = connection.prepareStatement(PARTITION_QUERY,
+                            ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                    statement.setFetchSize(fetchSize != 0 ? fetchSize : defaultFetchSize(connection));
+                    statement.setLong(1, partition.getFromId());
+                    statement.setLong(2, partition.getToId());
+                    return statement;
+                }, resultSet -> {
+                    writeRow(resultSet, json);
+                    rows[0]++;
+                    if (rows[0] % 1000 == 0) {
+                        job.addProcessed(1000);
+                    }
+                })));
+        job.addProcessed(rows[0] % 1000);
+        return rows[0];
+    }
+
+    private static int defaultFetchSize(Connection connection) throws SQLException {
+        return connection.getMetaData().getURL().startsWith("jdbc:mysql:") ? Integer.MIN_VALUE : DEFAULT_FETCH_SIZE;
+    }
+
+    private void writeRow(ResultSet resultSet, JsonGenerator json) throws SQLException {
+        try {
+            ResultSetMetaData metaData = resultSet.getMetaData();
+            json.writeStartObject();
+            for (int column = 1; column <= metaData.getColumnCount(); column++) {
+                json.writeFieldName(metaData.getColumnLabel(column).toLowerCase(Locale.ROOT));
+                Object value = resultSet.getObject(column);
+                if (value instanceof Timestamp timestamp) {
+                    json.writeString(timestamp.toLocalDateTime().toString());
+                } else {
+                    json.writeObject(value);
+                }
+            }
+            json.writeEndObject();
+            json.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeManifest(TenantExportJob job) {
+        try {
+            Path directory = Files.createDirectories(directoryFor(job));
+            Path part = directory.resolve(MANIFEST + ".part");
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(part.toFile(), job);
+            Files.move(part, directory.resolve(MANIFEST), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            log.error("Could not write the manifest of tenant export {}", job.getId(), e);
+        }
+    }
+
+    private Path directoryFor(TenantExportJob job) {
+        return outputDir.resolve(job.getId());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        coordinator.shutdownNow();
+        pool.shutdownNow();
+    }
+}
@@ -2,10 +2,14 @@ package com.smartemail.service;
 
 import com.smartemail.exception.ResourceNotFoundException;
 import com.smartemail.exception.DuplicateResourceException;
+import com.smartemail.model.ChangeLogEntry;
 import com.smartemail.model.User;
+import com.smartemail.repository.SyncTombstoneRepository;
 import com.smartemail.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.List;
 import java.util.Optional;
@@ -16,10 +20,42 @@ public class UserService {
     @Autowired
     private UserRepository userRepository;
     
+    @Autowired
+    private ShardRouter shardRouter;
+    
+    @Autowired
+    private ShardRebalancer shardRebalancer;
+    
+    @Autowired
+    private NearDuplicateDetector nearDuplicateDetector;
+    
+    @Autowired
+    private EmailThreadService emailThreadService;
+    
+    @Autowired
+    private AddressSuggester addressSuggester;
+    
+    @Autowired
+    private TemplateRecommender templateRecommender;
+    
+    @Autowired
+    private HotInboxCache hotInboxCache;
+    
+    @Autowired
+    private ChangeLog changeLog;
+    
+    @Autowired
+    private SyncTombstoneRepository syncTombstoneRepository;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Transactional(readOnly = true)
     public List<User> getAllUsers() {
         return userRepository.findAll();
     }
     
+    @Transactional(readOnly = true)
     public User getUserById(Long id) {
         return userRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + id));
@@ -29,7 +65,10 @@ public class UserService {
         if (userRepository.existsByEmail(user.getEmail())) {
             throw new DuplicateResourceException("User already exists with email: " + user.getEmail());
         }
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        shardRouter.assignNewUser(savedUser.getId());
+        changeLog.record(ChangeLogEntry.EntityType.USER, ChangeLogEntry.Action.CREATED, savedUser.getId(), savedUser.getId());
+        return savedUser;
     }
     
     public User updateUser(Long id, User userDetails) {
@@ -44,14 +83,30 @@ public class UserService {
         user.setName(userDetails.getName());
         user.setEmail(userDetails.getEmail());
         
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        changeLog.record(ChangeLogEntry.EntityType.USER, ChangeLogEntry.Action.UPDATED, id, id);
+        return saved;
     }
     
     public void deleteUser(Long id) {
         User user = getUserById(id);
+        
+        // Rows on other shards are not reached by the JPA cascade
+        if (shardRouter.isEnabled() && shardRouter.shardForUser(id) != 0) {
+            shardRebalancer.purgeUser(id, shardRouter.shardForUser(id));
+        }
+        emailThreadService.deleteForUser(id);
+        shardRouter.writeForUser(id, () -> transactionTemplate.execute(status -> syncTombstoneRepository.deleteByUserId(id)));
         userRepository.delete(user);
+        shardRouter.removeUser(id);
+        nearDuplicateDetector.removeUser(id);
+        addressSuggester.removeUser(id);
+        templateRecommender.removeUser(id);
+        hotInboxCache.invalidate(id);
+        changeLog.record(ChangeLogEntry.EntityType.USER, ChangeLogEntry.Action.DELETED, id, id);
     }
     
+    @Transactional(readOnly = true)
     public Optional<User> findByEmail(String email) {
         return userRepository.findByEmail(email);
     }
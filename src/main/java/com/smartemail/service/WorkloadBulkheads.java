@@ -0,0 +1,148 @@
+package com.smartemail.service;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.smartemail.config.WorkloadClass;
+import com.smartemail.config.WorkloadContext;
+import com.smartemail.config.WorkloadProperties;
+import com.smartemail.exception.TooManyRequestsException;
+import com.smartemail.exception.WorkloadTimeoutException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+
+// One bulkhead per workload class. A @Workload method runs on the caller's thread once it holds one of the class's
+// slots, bound to the class so its connections come from the class's pool. Callers only ever wait before the method
+// starts: a full queue is refused with 429 and a caller that gets no slot in time with 503. A started call is never
+// abandoned, so a write that was begun is also finished. Request threads held by a class are bounded by its slots
+// plus its queue, so a flood of one class cannot take every servlet thread from the others.
+@Component
+public class WorkloadBulkheads {
+
+    private static final Logger log = LoggerFactory.getLogger(WorkloadBulkheads.class);
+
+    @FunctionalInterface
+    public interface Work<T> {
+        T run() throws Throwable;
+    }
+
+    private static final class Bulkhead {
+        Semaphore slots;
+        final AtomicInteger waiting = new AtomicInteger();
+        WorkloadProperties.Settings settings;
+        Counter rejected;
+        Counter timeouts;
+        Timer queueWait;
+    }
+
+    @Autowired
+    private WorkloadProperties properties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${server.tomcat.threads.max:200}")
+    private int requestThreads;
+
+    private final Map<WorkloadClass, Bulkhead> bulkheads = new EnumMap<>(WorkloadClass.class);
+
+    @PostConstruct
+    public void init() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        for (WorkloadClass workloadClass : WorkloadClass.values()) {
+            String tag = workloadClass.name().toLowerCase();
+            Bulkhead bulkhead = new Bulkhead();
+            bulkhead.settings = properties.settingsFor(workloadClass);
+            int maxConcurrent = bulkhead.settings.getMaxConcurrent();
+            bulkhead.slots = new Semaphore(maxConcurrent, true);
+
+            Gauge.builder("emails.workload.active", bulkhead.slots, slots -> maxConcurrent - slots.availablePermits())
+                    .description("Calls of the class running")
+                    .tag("class", tag)
+                    .register(meterRegistry);
+            Gauge.builder("emails.workload.queued", bulkhead.waiting, AtomicInteger::get)
+                    .description("Calls waiting for a slot of the class")
+                    .tag("class", tag)
+                    .register(meterRegistry);
+            bulkhead.rejected = Counter.builder("emails.workload.rejected")
+                    .description("Calls refused because the class's queue was full")
+                    .tag("class", tag)
+                    .register(meterRegistry);
+            bulkhead.timeouts = Counter.builder("emails.workload.timeouts")
+                    .description("Calls refused after waiting the class's timeout for a slot")
+                    .tag("class", tag)
+                    .register(meterRegistry);
+            bulkhead.queueWait = Timer.builder("emails.workload.queue_wait")
+                    .description("Time a call waited for a slot")
+                    .tag("class", tag)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+            bulkheads.put(workloadClass, bulkhead);
+        }
+        int held = bulkheads.values().stream()
+                .mapToInt(bulkhead -> bulkhead.settings.getMaxConcurrent() + bulkhead.settings.getQueueCapacity())
+                .sum();
+        if (held >= requestThreads) {
+            log.warn("Workload classes can hold {} request threads of {}; one class can starve the others", held,
+                    requestThreads);
+        }
+    }
+
+    public Object execute(WorkloadClass workloadClass, Work<?> work) throws Throwable {
+        // Nested calls stay in the class they started in, and an open transaction already holds its connection
+        if (!properties.isEnabled() || WorkloadContext.current() != null
+                || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return work.run();
+        }
+        Bulkhead bulkhead = bulkheads.get(workloadClass);
+        long queuedAt = System.nanoTime();
+        if (!bulkhead.slots.tryAcquire()) {
+            await(workloadClass, bulkhead);
+        }
+        bulkhead.queueWait.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+
+        WorkloadClass previous = WorkloadContext.bind(workloadClass);
+        try {
+            return work.run();
+        } finally {
+            WorkloadContext.restore(previous);
+            bulkhead.slots.release();
+        }
+    }
+
+    private void await(WorkloadClass workloadClass, Bulkhead bulkhead) throws InterruptedException {
+        if (bulkhead.waiting.incrementAndGet() > bulkhead.settings.getQueueCapacity()) {
+            bulkhead.waiting.decrementAndGet();
+            bulkhead.rejected.increment();
+            throw new TooManyRequestsException("Too much " + workloadClass.name().toLowerCase()
+                    + " work queued, retry later", properties.getRetryAfterSeconds());
+        }
+        boolean acquired;
+        try {
+            acquired = bulkhead.slots.tryAcquire(bulkhead.settings.getTimeoutMs(), TimeUnit.MILLISECONDS);
+        } finally {
+            bulkhead.waiting.decrementAndGet();
+        }
+        if (!acquired) {
+            bulkhead.timeouts.increment();
+            throw new WorkloadTimeoutException(workloadClass.name().toLowerCase() + " work did not start within "
+                    + bulkhead.settings.getTimeoutMs() + " ms");
+        }
+    }
+}
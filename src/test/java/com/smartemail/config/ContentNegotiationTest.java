@@ -0,0 +1,177 @@
+package com.smartemail.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.smartemail.model.Category;
+import com.smartemail.model.Email;
+import com.smartemail.model.FollowUp;
+import com.smartemail.model.Template;
+import com.smartemail.model.User;
+import com.smartemail.service.CategoryService;
+import com.smartemail.service.EmailService;
+import com.smartemail.service.UserService;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ContentNegotiationTest {
+
+    private static final MediaType CBOR = MediaType.parseMediaType("application/cbor");
+    private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
+    private final CBORMapper cborMapper = new CBORMapper();
+    private final SmileMapper smileMapper = new SmileMapper();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ServerProperties serverProperties;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private EmailService emailService;
+
+    private Long userId;
+    private Long emailId;
+
+    @BeforeEach
+    void setUp() {
+        long run = System.nanoTime();
+        userId = userService.createUser(new User("Codec " + run, "codec" + run + "@example.com")).getId();
+        Long categoryId = categoryService.createCategory(new Category("Codec " + run, "Codec tests")).getId();
+        for (int i = 0; i < 5; i++) {
+            emailId = emailService.createEmail(new Email(userId, "newsletter@example.com", "ann@example.com",
+                    "Digest " + i, "This week's digest number " + i, categoryId, null)).getId();
+        }
+    }
+
+    @Test
+    void jsonStaysTheDefault() throws Exception {
+        mockMvc.perform(get("/emails/{id}", emailId))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    void cborAndSmileCarryTheSameDocumentAsJson() throws Exception {
+        JsonNode json = objectMapper.readTree(body("/emails/" + emailId, MediaType.APPLICATION_JSON));
+
+        JsonNode cbor = cborMapper.readTree(body("/emails/" + emailId, CBOR));
+        JsonNode smile = smileMapper.readTree(body("/emails/" + emailId, SMILE));
+
+        assertThat(cbor).isEqualTo(json);
+        assertThat(smile).isEqualTo(json);
+        // Boot's date settings apply to the binary mappers too
+        assertThat(cbor.get("receivedAt").isTextual()).isTrue();
+    }
+
+    @Test
+    void smileListsWriteRepeatedValuesOnce() throws Exception {
+        String path = "/emails/user/" + userId;
+        JsonNode json = objectMapper.readTree(body(path, MediaType.APPLICATION_JSON));
+        byte[] smile = body(path, SMILE);
+
+        assertThat(smileMapper.readTree(smile)).isEqualTo(json);
+        assertThat(json).hasSize(5);
+        // Without shared values every "newsletter@example.com" and "ann@example.com" is written in full
+        assertThat(smile.length).isLessThan(smileMapper.writeValueAsBytes(json).length);
+    }
+
+    @Test
+    void binaryRequestBodiesAreAccepted() throws Exception {
+        byte[] category = cborMapper.writeValueAsBytes(Map.of("name", "Cbor " + System.nanoTime()));
+
+        byte[] created = mockMvc.perform(post("/categories").contentType(CBOR).content(category).accept(CBOR))
+                .andExpect(status().isCreated())
+                .andExpect(content().contentTypeCompatibleWith(CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertThat(cborMapper.readTree(created).get("name").asText()).startsWith("Cbor ");
+    }
+
+    @Test
+    void unsupportedMediaTypesAreNotAcceptable() throws Exception {
+        mockMvc.perform(get("/emails/{id}", emailId).accept(MediaType.APPLICATION_XML))
+                .andExpect(status().isNotAcceptable());
+    }
+
+    @Test
+    void binaryEncodingsAreCompressed() {
+        assertThat(serverProperties.getCompression().getEnabled()).isTrue();
+        assertThat(serverProperties.getCompression().getMimeTypes())
+                .contains("application/json", "application/cbor", "application/x-jackson-smile");
+    }
+
+    // The hand-written serializers must keep the output of Jackson's bean serializer
+    @Test
+    void entitySerializersMatchTheBeanSerializers() throws Exception {
+        ObjectMapper beanMapper = JsonMapper.builder()
+                .addModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        LocalDateTime now = LocalDateTime.of(2024, 2, 29, 13, 45, 7, 120_000_000);
+
+        Email email = new Email(7L, "bob@example.com", "ann@example.com", "Quote \"x\"", "Line\nbreak", 3L,
+                Email.Sentiment.POSITIVE);
+        email.setId(11L);
+        email.setArchived(true);
+        email.setThreadId(5L);
+        email.setReceivedAt(now);
+        email.setUpdatedAt(now.plusSeconds(1));
+        FollowUp followUp = new FollowUp(11L, now.plusDays(2), FollowUp.Status.PENDING);
+        followUp.setId(13L);
+        followUp.setEmail(email);
+        followUp.setUpdatedAt(now);
+        email.setFollowUps(List.of(followUp));
+        Template template = new Template(7L, "Thanks", "Thanks, {name}");
+        template.setId(17L);
+        template.setCreatedAt(now);
+        Email bare = new Email(7L, null, null, null, null, null, null);
+
+        for (Object value : List.of(email, followUp, template, bare, List.of(email, bare))) {
+            assertThat(objectMapper.writeValueAsString(value)).isEqualTo(beanMapper.writeValueAsString(value));
+        }
+    }
+
+    private byte[] body(String path, MediaType accept) throws Exception {
+        return mockMvc.perform(get(path).accept(accept))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(accept))
+                .andReturn().getResponse().getContentAsByteArray();
+    }
+}
@@ -0,0 +1,109 @@
+package com.smartemail.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class ReplicaRoutingDataSourceTest {
+
+    private ReadYourWritesTracker tracker;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readOnly;
+    private TransactionTemplate readWrite;
+
+    @BeforeEach
+    void setUp() {
+        tracker = new ReadYourWritesTracker();
+        ReflectionTestUtils.setField(tracker, "windowMillis", 60_000L);
+
+        // Same schema on both databases; only the node name tells them apart
+        DataSource primary = database("primary");
+        DataSource replica = database("replica");
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(tracker);
+        routing.setTargetDataSources(Map.of(ReplicaRoutingDataSource.Route.PRIMARY, primary,
+                ReplicaRoutingDataSource.Route.REPLICA, replica));
+        routing.setDefaultTargetDataSource(primary);
+        routing.afterPropertiesSet();
+
+        // Wrapped as in DataSourceConfig, so the read-only flag is known before a connection is picked
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        readWrite = new TransactionTemplate(transactionManager);
+
+        tracker.bindClient("client-a");
+    }
+
+    @AfterEach
+    void tearDown() {
+        tracker.clearClient();
+    }
+
+    @Test
+    void readOnlyTransactionReadsFromReplica() {
+        assertThat(readOnlyNode()).isEqualTo("replica");
+    }
+
+    @Test
+    void readsStayOnPrimaryAfterWrite() {
+        readWrite.executeWithoutResult(status -> jdbcTemplate.update("INSERT INTO notes (body) VALUES ('hello')"));
+
+        Integer notes = readOnly.execute(status -> jdbcTemplate.queryForObject("SELECT COUNT(*) FROM notes", Integer.class));
+        assertThat(readOnlyNode()).isEqualTo("primary");
+        assertThat(notes).isEqualTo(1);
+    }
+
+    @Test
+    void readsOfOtherClientsStayOnReplica() {
+        readWrite.executeWithoutResult(status -> jdbcTemplate.update("INSERT INTO notes (body) VALUES ('hello')"));
+
+        tracker.bindClient("client-b");
+        assertThat(readOnlyNode()).isEqualTo("replica");
+    }
+
+    @Test
+    void readWriteTransactionWithoutDmlDoesNotPin() {
+        String node = readWrite.execute(status -> jdbcTemplate.queryForObject("SELECT name FROM node", String.class));
+        assertThat(node).isEqualTo("primary");
+
+        assertThat(readOnlyNode()).isEqualTo("replica");
+    }
+
+    @Test
+    void rolledBackWriteDoesNotPin() {
+        readWrite.executeWithoutResult(status -> {
+            jdbcTemplate.update("INSERT INTO notes (body) VALUES ('hello')");
+            status.setRollbackOnly();
+        });
+
+        assertThat(readOnlyNode()).isEqualTo("replica");
+    }
+
+    private String readOnlyNode() {
+        return readOnly.execute(status -> jdbcTemplate.queryForObject("SELECT name FROM node", String.class));
+    }
+
+    private static DataSource database(String name) {
+        DataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + name + "-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE node (name VARCHAR(16))");
+        jdbcTemplate.execute("CREATE TABLE notes (id BIGINT AUTO_INCREMENT PRIMARY KEY, body VARCHAR(255))");
+        jdbcTemplate.update("INSERT INTO node (name) VALUES (?)", name);
+        return dataSource;
+    }
+}
@@ -0,0 +1,110 @@
+package com.smartemail.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartemail.model.User;
+import com.smartemail.service.ExportService;
+import com.smartemail.service.UserService;
+
+// Background exports keep the user's export slot (max-concurrent-per-user=1) until the job is done, not just
+// until the 202 is sent
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ExportAdmissionTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ExportService exportService;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private ExportService target;
+    private Object defaultExecutor;
+    private ThreadPoolExecutor pausedExecutor;
+    private Long userId;
+
+    @BeforeEach
+    void setUp() {
+        long run = System.nanoTime();
+        userId = userService.createUser(new User("Slots " + run, "slots" + run + "@example.com")).getId();
+        // One worker, kept busy until the test lets it go, so submitted jobs stay queued
+        pausedExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(4));
+        pausedExecutor.execute(() -> {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        target = AopTestUtils.getTargetObject(exportService);
+        defaultExecutor = ReflectionTestUtils.getField(target, "executor");
+        ReflectionTestUtils.setField(target, "executor", pausedExecutor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        ReflectionTestUtils.setField(target, "executor", defaultExecutor);
+        pausedExecutor.shutdown();
+    }
+
+    @Test
+    void aQueuedExportHoldsTheUsersSlotUntilItFinishes() throws Exception {
+        String jobId = objectMapper.readTree(mockMvc.perform(post("/exports").param("userId", userId.toString()))
+                .andExpect(status().isAccepted())
+                .andReturn().getResponse().getContentAsString()).get("id").asText();
+
+        mockMvc.perform(post("/exports").param("userId", userId.toString()))
+                .andExpect(status().isTooManyRequests());
+        mockMvc.perform(get("/emails/export").param("userId", userId.toString()))
+                .andExpect(status().isTooManyRequests());
+
+        release.countDown();
+        // Counted once the task returned, which is after the job released its slot
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (pausedExecutor.getCompletedTaskCount() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(exportService.getJob(jobId).getFinishedAt()).isNotNull();
+
+        mockMvc.perform(post("/exports").param("userId", userId.toString()))
+                .andExpect(status().isAccepted());
+    }
+
+    @Test
+    void aRefusedExportGivesTheSlotBack() throws Exception {
+        mockMvc.perform(post("/exports").param("userId", userId.toString()).param("format", "xml"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(post("/exports").param("userId", userId.toString()))
+                .andExpect(status().isAccepted());
+    }
+}
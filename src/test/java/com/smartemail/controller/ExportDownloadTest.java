@@ -0,0 +1,179 @@
+package com.smartemail.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartemail.model.Category;
+import com.smartemail.model.Email;
+import com.smartemail.model.User;
+import com.smartemail.service.CategoryService;
+import com.smartemail.service.EmailService;
+import com.smartemail.service.ExportService;
+import com.smartemail.service.UserService;
+
+// Downloads of finished exports: whole files, single ranges through Spring's resource handling, and the
+// Tomcat sendfile hand-off, which MockMvc can only observe through the request attributes it sets
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ExportDownloadTest {
+
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private ExportService exportService;
+
+    private Long userId;
+
+    @BeforeEach
+    void setUp() {
+        long run = System.nanoTime();
+        userId = userService.createUser(new User("Export " + run, "export" + run + "@example.com")).getId();
+        Long categoryId = categoryService.createCategory(new Category("Export " + run, "Export tests")).getId();
+        for (int i = 0; i < 3; i++) {
+            emailService.createEmail(new Email(userId, "bob@example.com", "ann@example.com", "Report " + i,
+                    "Numbers for week " + i, categoryId, null));
+        }
+    }
+
+    @Test
+    void wholeFileIsServedAsAnAttachment() throws Exception {
+        JsonNode job = finishedExport("csv");
+        byte[] file = Files.readAllBytes(spoolFile(job));
+
+        MvcResult result = mockMvc.perform(get("/exports/{id}/file", job.get("id").asText()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"emails_" + userId + ".csv\""))
+                .andReturn();
+
+        assertThat(result.getResponse().getContentType()).startsWith("text/csv");
+        assertThat(result.getResponse().getContentAsByteArray()).isEqualTo(file);
+        assertThat(new String(file, StandardCharsets.UTF_8)).startsWith("ID,Sender,Recipient").contains("Report 2");
+        assertThat(job.get("bytes").asLong()).isEqualTo(file.length);
+    }
+
+    @Test
+    void aRangeResumesAnInterruptedDownload() throws Exception {
+        JsonNode job = finishedExport("json");
+        byte[] file = Files.readAllBytes(spoolFile(job));
+
+        MvcResult result = mockMvc.perform(get("/exports/{id}/file", job.get("id").asText())
+                        .header(HttpHeaders.RANGE, "bytes=10-"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE,
+                        "bytes 10-" + (file.length - 1) + "/" + file.length))
+                .andReturn();
+
+        byte[] rest = result.getResponse().getContentAsByteArray();
+        assertThat(rest).hasSize(file.length - 10);
+        assertThat(new String(file, 0, 10, StandardCharsets.UTF_8) + new String(rest, StandardCharsets.UTF_8))
+                .isEqualTo(new String(file, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void sendfileGetsTheRequestedRangeAndNoBody() throws Exception {
+        JsonNode job = finishedExport("csv");
+        Path file = spoolFile(job);
+        long length = Files.size(file);
+
+        MvcResult result = mockMvc.perform(get("/exports/{id}/file", job.get("id").asText())
+                        .requestAttr(SENDFILE_SUPPORTED, true)
+                        .header(HttpHeaders.RANGE, "bytes=5-14"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 5-14/" + length))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 10))
+                .andReturn();
+
+        assertThat(result.getResponse().getContentAsByteArray()).isEmpty();
+        assertThat(result.getRequest().getAttribute("org.apache.tomcat.sendfile.filename"))
+                .isEqualTo(file.toAbsolutePath().toString());
+        assertThat(result.getRequest().getAttribute("org.apache.tomcat.sendfile.start")).isEqualTo(5L);
+        // Tomcat's end is exclusive
+        assertThat(result.getRequest().getAttribute("org.apache.tomcat.sendfile.end")).isEqualTo(15L);
+
+        mockMvc.perform(get("/exports/{id}/file", job.get("id").asText()).requestAttr(SENDFILE_SUPPORTED, true))
+                .andExpect(status().isOk())
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, length));
+    }
+
+    @Test
+    void rangesPastTheEndAreNotSatisfiable() throws Exception {
+        JsonNode job = finishedExport("csv");
+        long length = Files.size(spoolFile(job));
+
+        mockMvc.perform(get("/exports/{id}/file", job.get("id").asText())
+                        .requestAttr(SENDFILE_SUPPORTED, true)
+                        .header(HttpHeaders.RANGE, "bytes=" + length + "-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */" + length));
+    }
+
+    @Test
+    void deletedExportsAreGoneWithTheirFile() throws Exception {
+        JsonNode job = finishedExport("json");
+        Path file = spoolFile(job);
+
+        mockMvc.perform(delete("/exports/{id}", job.get("id").asText())).andExpect(status().isNoContent());
+
+        assertThat(file).doesNotExist();
+        mockMvc.perform(get("/exports/{id}/file", job.get("id").asText())).andExpect(status().isNotFound());
+    }
+
+    private JsonNode finishedExport(String format) throws Exception {
+        MvcResult created = mockMvc.perform(post("/exports").param("userId", userId.toString()).param("format", format))
+                .andExpect(status().isAccepted())
+                .andReturn();
+        String jobId = objectMapper.readTree(created.getResponse().getContentAsString()).get("id").asText();
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (true) {
+            JsonNode job = objectMapper.readTree(mockMvc.perform(get("/exports/{id}", jobId))
+                    .andReturn().getResponse().getContentAsString());
+            if (job.hasNonNull("finishedAt") || System.currentTimeMillis() > deadline) {
+                assertThat(job.get("status").asText()).isEqualTo("COMPLETED");
+                return job;
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    private Path spoolFile(JsonNode job) {
+        return exportService.getFile(exportService.getJob(job.get("id").asText()));
+    }
+}
@@ -0,0 +1,115 @@
+package com.smartemail.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartemail.instrumentation.QueryCounter;
+import com.smartemail.instrumentation.QueryStats;
+
+// Statement counts of the list endpoints, as seen by QueryBudgetFilter. Each endpoint is called with one and with
+// several emails per row it lists; a count that grows with the data is an N+1
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ListEndpointQueryCountTest {
+
+    private static final int MAX_STATEMENTS = 10;
+    private static final int REPEAT_THRESHOLD = 3;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private long userId;
+    private long categoryId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        long run = System.nanoTime();
+        userId = create("/users", Map.of("name", "User " + run, "email", "user" + run + "@example.com"));
+        categoryId = create("/categories", Map.of("name", "Category " + run));
+        addEmails(1);
+        create("/templates", Map.of("userId", userId, "title", "Thanks", "body", "Thanks for the update, {name}"));
+    }
+
+    @Test
+    void listEndpointsStayWithinBudgetAndDoNotGrowWithData() throws Exception {
+        List<String> endpoints = List.of(
+                "/users",
+                "/categories",
+                "/emails",
+                "/emails/user/" + userId,
+                "/emails/user/" + userId + "/inbox",
+                "/emails/user/" + userId + "/threads",
+                "/emails/search?sender=sender",
+                "/followups",
+                "/followups/overdue",
+                "/templates",
+                "/templates/user/" + userId);
+
+        Map<String, Integer> before = new LinkedHashMap<>();
+        for (String endpoint : endpoints) {
+            before.put(endpoint, count(endpoint).getStatementCount());
+        }
+
+        addEmails(5);
+        create("/templates", Map.of("userId", userId, "title", "Later", "body", "I will get back to you"));
+
+        for (String endpoint : endpoints) {
+            QueryStats stats = count(endpoint);
+            stats.assertMaxStatements(MAX_STATEMENTS);
+            stats.assertNoRepeatedShapes(REPEAT_THRESHOLD);
+            assertThat(stats.getStatementCount()).as(stats.toString()).isLessThanOrEqualTo(before.get(endpoint));
+        }
+    }
+
+    private QueryStats count(String endpoint) throws Exception {
+        mockMvc.perform(get(endpoint)).andExpect(status().isOk());
+        QueryStats stats = QueryCounter.lastCompleted();
+        assertThat(stats).as("QueryBudgetFilter did not count " + endpoint).isNotNull();
+        return stats;
+    }
+
+    private void addEmails(int count) throws Exception {
+        for (int i = 0; i < count; i++) {
+            long emailId = create("/emails", Map.of(
+                    "userId", userId,
+                    "categoryId", categoryId,
+                    "sender", "sender" + i + "@example.com",
+                    "recipient", "me@example.com",
+                    "subject", "Quarterly report " + i,
+                    "body", "Please review the attached numbers " + i));
+            create("/followups", Map.of("emailId", emailId, "dueDate", LocalDateTime.now().minusDays(1).toString()));
+        }
+    }
+
+    private long create(String path, Map<String, Object> body) throws Exception {
+        String response = mockMvc.perform(post(path)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(body)))
+                .andExpect(status().is2xxSuccessful())
+                .andReturn().getResponse().getContentAsString();
+        JsonNode created = objectMapper.readTree(response);
+        return created.get("id").asLong();
+    }
+}
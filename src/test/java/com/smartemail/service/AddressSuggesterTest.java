@@ -0,0 +1,143 @@
+package com.smartemail.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.smartemail.model.Email;
+import com.smartemail.repository.EmailRepository;
+
+class AddressSuggesterTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 6, 1, 12, 0);
+
+    private EmailRepository emailRepository;
+    private AddressSuggester suggester;
+
+    @BeforeEach
+    void setUp() {
+        emailRepository = mock(EmailRepository.class);
+        ShardRouter shardRouter = mock(ShardRouter.class);
+        when(shardRouter.readForUser(anyLong(), any())).thenAnswer(invocation -> {
+            Supplier<?> work = invocation.getArgument(1);
+            return work.get();
+        });
+        suggester = new AddressSuggester();
+        ReflectionTestUtils.setField(suggester, "emailRepository", emailRepository);
+        ReflectionTestUtils.setField(suggester, "shardRouter", shardRouter);
+        ReflectionTestUtils.setField(suggester, "topK", 3);
+        ReflectionTestUtils.setField(suggester, "halfLifeDays", 30.0);
+        ReflectionTestUtils.setField(suggester, "maxUsers", 10);
+    }
+
+    @Test
+    void frequentAddressesRankFirstAndPrefixesNarrowTheList() {
+        senders(1L, row("ann@example.com", 2, NOW), row("andy@example.com", 5, NOW), row("bob@example.com", 1, NOW));
+
+        assertThat(addresses(suggester.suggest(1L, "", 10)))
+                .containsExactly("andy@example.com", "ann@example.com", "bob@example.com");
+        assertThat(addresses(suggester.suggest(1L, " AN ", 10))).containsExactly("andy@example.com", "ann@example.com");
+        assertThat(addresses(suggester.suggest(1L, "ann", 10))).containsExactly("ann@example.com");
+        assertThat(suggester.suggest(1L, "zed", 10)).isEmpty();
+        assertThat(suggester.suggest(1L, "andy", 10)).singleElement()
+                .satisfies(suggestion -> assertThat(suggestion.getCount()).isEqualTo(5));
+    }
+
+    @Test
+    void oldAddressesDecayBehindRecentOnes() {
+        // Four half-lives old, so eight messages weigh like half of one
+        senders(1L, row("old@example.com", 8, NOW.minusDays(150)), row("new@example.com", 1, NOW));
+
+        assertThat(addresses(suggester.suggest(1L, "", 10))).containsExactly("new@example.com", "old@example.com");
+    }
+
+    @Test
+    void domainsAndRecipientListsAreIndexed() {
+        senders(1L, row("Bob@Acme.com", 1, NOW));
+        when(emailRepository.countRecipientsByUserId(1L)).thenReturn(rows(
+                row("carl@acme.com; dora@example.com", 3, NOW)));
+
+        assertThat(addresses(suggester.suggest(1L, "acme", 10))).containsExactly("carl@acme.com", "bob@acme.com");
+        assertThat(addresses(suggester.suggest(1L, "dora", 10))).containsExactly("dora@example.com");
+    }
+
+    @Test
+    void onlyTheTopEntriesAreKeptPerPrefixAndLimitCapsThem() {
+        senders(1L, row("a1@example.com", 4, NOW), row("a2@example.com", 3, NOW), row("a3@example.com", 2, NOW),
+                row("a4@example.com", 1, NOW));
+
+        assertThat(addresses(suggester.suggest(1L, "a", 10)))
+                .containsExactly("a1@example.com", "a2@example.com", "a3@example.com");
+        assertThat(addresses(suggester.suggest(1L, "a", 2))).containsExactly("a1@example.com", "a2@example.com");
+        // Its own prefix still finds the entry that fell out of the shared lists
+        assertThat(addresses(suggester.suggest(1L, "a4", 10))).containsExactly("a4@example.com");
+    }
+
+    @Test
+    void observedEmailsMoveAddressesUpOnceTheIndexIsLoaded() {
+        senders(1L, row("ann@acme.com", 3, NOW), row("bob@acme.com", 1, NOW));
+        suggester.observe(email(1L, "bob@acme.com", NOW));
+        verify(emailRepository, never()).countSendersByUserId(1L);
+
+        // Recipients count too, so the lists are narrowed to the senders' domain
+        assertThat(addresses(suggester.suggest(1L, "acme", 10))).containsExactly("ann@acme.com", "bob@acme.com");
+
+        for (int i = 0; i < 3; i++) {
+            suggester.observe(email(1L, "bob@acme.com", NOW.plusHours(1)));
+        }
+        suggester.observe(email(1L, "new@acme.com", NOW.plusHours(1)));
+
+        assertThat(addresses(suggester.suggest(1L, "acme", 10)))
+                .containsExactly("bob@acme.com", "ann@acme.com", "new@acme.com");
+        assertThat(suggester.suggest(1L, "bob", 10).get(0).getLastSeen()).isEqualTo(NOW.plusHours(1));
+        verify(emailRepository, times(1)).countSendersByUserId(1L);
+    }
+
+    @Test
+    void removedUsersAreRebuiltOnTheNextSuggestion() {
+        senders(1L, row("ann@example.com", 1, NOW));
+        suggester.suggest(1L, "", 10);
+
+        suggester.removeUser(1L);
+        senders(1L, row("ann@example.com", 1, NOW), row("bob@example.com", 2, NOW));
+
+        assertThat(addresses(suggester.suggest(1L, "", 10))).containsExactly("bob@example.com", "ann@example.com");
+        verify(emailRepository, times(2)).countSendersByUserId(1L);
+    }
+
+    private void senders(Long userId, Object[]... rows) {
+        when(emailRepository.countSendersByUserId(userId)).thenReturn(rows(rows));
+    }
+
+    private static List<Object[]> rows(Object[]... rows) {
+        return new ArrayList<>(List.of(rows));
+    }
+
+    private static Object[] row(String address, long count, LocalDateTime lastSeen) {
+        return new Object[] { address, count, lastSeen };
+    }
+
+    private static List<String> addresses(List<AddressSuggester.AddressSuggestion> suggestions) {
+        return suggestions.stream().map(AddressSuggester.AddressSuggestion::getAddress).toList();
+    }
+
+    private static Email email(Long userId, String sender, LocalDateTime receivedAt) {
+        Email email = new Email(userId, sender, "me@example.com", "Hello", "Body", 1L, null);
+        email.setReceivedAt(receivedAt);
+        return email;
+    }
+}
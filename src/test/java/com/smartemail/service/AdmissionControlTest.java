@@ -0,0 +1,87 @@
+package com.smartemail.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.smartemail.config.AdmissionProperties;
+import com.smartemail.config.ShardPools;
+import com.smartemail.config.WorkloadClass;
+import com.smartemail.config.WorkloadPools;
+import com.smartemail.exception.TooManyRequestsException;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class AdmissionControlTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final HikariPoolMXBean batchPool = mock(HikariPoolMXBean.class);
+    private AdmissionControl admissionControl;
+
+    @BeforeEach
+    void setUp() {
+        AdmissionProperties properties = new AdmissionProperties();
+        properties.setShedWaitingThreshold(5);
+        AdmissionProperties.Limit limit = new AdmissionProperties.Limit();
+        limit.setRatePerSecond(1000);
+        limit.setBurst(1);
+        limit.setMaxConcurrentPerUser(1);
+        properties.getLimits().put(AdmissionControl.EndpointClass.SEARCH, limit);
+
+        ShardPools shardPools = mock(ShardPools.class);
+        WorkloadPools workloadPools = mock(WorkloadPools.class);
+        HikariDataSource batch = mock(HikariDataSource.class);
+        when(batch.getHikariPoolMXBean()).thenReturn(batchPool);
+        when(workloadPools.getPools()).thenReturn(Map.of(WorkloadClass.BATCH, batch));
+
+        admissionControl = new AdmissionControl();
+        ReflectionTestUtils.setField(admissionControl, "properties", properties);
+        ReflectionTestUtils.setField(admissionControl, "primaryDataSource", mock(HikariDataSource.class));
+        ReflectionTestUtils.setField(admissionControl, "shardPools", shardPools);
+        ReflectionTestUtils.setField(admissionControl, "workloadPools", workloadPools);
+        ReflectionTestUtils.setField(admissionControl, "meterRegistry", meterRegistry);
+        admissionControl.init();
+    }
+
+    @Test
+    void queueOnAWorkloadPoolShedsRequests() {
+        when(batchPool.getThreadsAwaitingConnection()).thenReturn(5);
+
+        assertThatThrownBy(() -> admissionControl.admit(AdmissionControl.EndpointClass.SEARCH, "alice"))
+                .isInstanceOf(TooManyRequestsException.class);
+        assertThat(admissionControl.connectionWaiters()).isEqualTo(5);
+    }
+
+    @Test
+    void usersWithRequestsRunningAreNotEvicted() throws InterruptedException {
+        AdmissionControl.Permit permit = admissionControl.admit(AdmissionControl.EndpointClass.SEARCH, "alice");
+        Thread.sleep(5);
+
+        admissionControl.evictIdleUsers();
+
+        // The slot is still held, so a second request of the same user is refused
+        assertThat(trackedUsers()).isEqualTo(1);
+        assertThatThrownBy(() -> admissionControl.admit(AdmissionControl.EndpointClass.SEARCH, "alice"))
+                .isInstanceOf(TooManyRequestsException.class);
+
+        permit.release();
+        Thread.sleep(5);
+        admissionControl.evictIdleUsers();
+
+        assertThat(trackedUsers()).isZero();
+        admissionControl.admit(AdmissionControl.EndpointClass.SEARCH, "alice").release();
+    }
+
+    private double trackedUsers() {
+        return meterRegistry.get("emails.admission.tracked_users").tag("class", "search").gauge().value();
+    }
+}
@@ -0,0 +1,181 @@
+package com.smartemail.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.smartemail.model.BulkEmailRequest;
+import com.smartemail.model.BulkJob;
+import com.smartemail.model.Category;
+import com.smartemail.model.Email;
+import com.smartemail.model.FollowUp;
+import com.smartemail.model.SyncTombstone;
+import com.smartemail.model.User;
+import com.smartemail.repository.EmailRepository;
+import com.smartemail.repository.FollowUpRepository;
+import com.smartemail.repository.SyncTombstoneRepository;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class BulkEmailServiceTest {
+
+    private static final int CHUNK_SIZE = 2;
+
+    @Autowired
+    private BulkEmailService bulkEmailService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private FollowUpService followUpService;
+
+    @Autowired
+    private EmailRepository emailRepository;
+
+    @Autowired
+    private FollowUpRepository followUpRepository;
+
+    @Autowired
+    private SyncTombstoneRepository syncTombstoneRepository;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    private Object defaultChunkSize;
+    private Long categoryId;
+    private Long userId;
+    private Long otherUserId;
+
+    @BeforeEach
+    void setUp() {
+        // Small chunks, so five emails cross two chunk boundaries
+        defaultChunkSize = ReflectionTestUtils.getField(bulkEmailService, "chunkSize");
+        ReflectionTestUtils.setField(bulkEmailService, "chunkSize", CHUNK_SIZE);
+        categoryId = categoryService.createCategory(new Category("Bulk " + System.nanoTime(), "Bulk tests")).getId();
+        userId = createUser("ann");
+        otherUserId = createUser("bob");
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.setField(bulkEmailService, "chunkSize", defaultChunkSize);
+    }
+
+    @Test
+    void bodiesWithoutAUserAreRejected() {
+        assertThatThrownBy(() -> bulkEmailService.submit(BulkJob.Operation.ARCHIVE, new BulkEmailRequest()))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        BulkEmailRequest unscoped = new BulkEmailRequest();
+        unscoped.setArchived(false);
+        unscoped.setOlderThan(LocalDateTime.now());
+        assertThatThrownBy(() -> bulkEmailService.submit(BulkJob.Operation.UNARCHIVE, unscoped))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        BulkEmailRequest idsOnly = new BulkEmailRequest();
+        idsOnly.setIds(List.of(1L));
+        assertThatThrownBy(() -> bulkEmailService.submit(BulkJob.Operation.DELETE, idsOnly))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void filterArchivesEveryMatchAcrossChunksEvenAsRowsStopMatching() {
+        List<Long> ids = createEmails(userId, 5);
+        Long untouched = createEmails(otherUserId, 1).get(0);
+
+        BulkEmailRequest request = new BulkEmailRequest();
+        request.setUserId(userId);
+        request.setArchived(false);
+        BulkJob job = await(bulkEmailService.submit(BulkJob.Operation.ARCHIVE, request));
+
+        assertThat(job.getTotal()).isEqualTo(5);
+        assertThat(job.getProcessed()).isEqualTo(5);
+        assertThat(emailRepository.findAllById(ids)).allMatch(Email::getArchived);
+        assertThat(emailRepository.findById(untouched).orElseThrow().getArchived()).isFalse();
+    }
+
+    @Test
+    void idListOnlyTouchesTheUsersEmails() {
+        List<Long> ids = createEmails(userId, 5);
+        Long othersEmail = createEmails(otherUserId, 1).get(0);
+        List<Long> requested = new ArrayList<>(ids);
+        requested.add(2, othersEmail);
+
+        BulkEmailRequest request = new BulkEmailRequest();
+        request.setUserId(userId);
+        request.setIds(requested);
+        BulkJob job = await(bulkEmailService.submit(BulkJob.Operation.ARCHIVE, request));
+
+        assertThat(job.getProcessed()).isEqualTo(5);
+        assertThat(emailRepository.findAllById(ids)).allMatch(Email::getArchived);
+        assertThat(emailRepository.findById(othersEmail).orElseThrow().getArchived()).isFalse();
+    }
+
+    @Test
+    void deleteRemovesFollowUpsAndWritesTombstones() {
+        List<Long> ids = createEmails(userId, 5);
+        for (Long id : ids) {
+            followUpService.createFollowUp(new FollowUp(id, LocalDateTime.now().plusDays(1), FollowUp.Status.PENDING));
+        }
+        Long kept = createEmails(otherUserId, 1).get(0);
+        followUpService.createFollowUp(new FollowUp(kept, LocalDateTime.now().plusDays(1), FollowUp.Status.PENDING));
+        LocalDateTime before = LocalDateTime.now().minusSeconds(1);
+
+        BulkEmailRequest request = new BulkEmailRequest();
+        request.setUserId(userId);
+        BulkJob job = await(bulkEmailService.submit(BulkJob.Operation.DELETE, request));
+
+        assertThat(job.getProcessed()).isEqualTo(5);
+        assertThat(emailRepository.findAllById(ids)).isEmpty();
+        ids.forEach(id -> assertThat(followUpRepository.findByEmailId(id)).isEmpty());
+        assertThat(followUpRepository.findByEmailId(kept)).hasSize(1);
+        List<SyncTombstone> tombstones = syncTombstoneRepository.findDeletedSince(userId, before, 0L,
+                LocalDateTime.now().plusSeconds(1), PageRequest.of(0, 100));
+        assertThat(tombstones).extracting(SyncTombstone::getEntityId).containsExactlyInAnyOrderElementsOf(ids);
+    }
+
+    private BulkJob await(BulkJob submitted) {
+        long deadline = System.currentTimeMillis() + 10_000;
+        BulkJob job = bulkEmailService.getJob(submitted.getId());
+        while (job.getFinishedAt() == null && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+        assertThat(job.getStatus()).as(String.valueOf(job.getError())).isEqualTo(BulkJob.Status.COMPLETED);
+        return job;
+    }
+
+    private Long createUser(String name) {
+        long run = System.nanoTime();
+        return userService.createUser(new User(name + " " + run, name + run + "@example.com")).getId();
+    }
+
+    private List<Long> createEmails(Long owner, int count) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ids.add(emailService.createEmail(new Email(owner, "sender" + i + "@example.com", "me@example.com",
+                    "Status update " + i, "Weekly numbers " + i + " " + System.nanoTime(), categoryId, null)).getId());
+        }
+        return ids;
+    }
+}
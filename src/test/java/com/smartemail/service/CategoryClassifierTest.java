@@ -0,0 +1,84 @@
+package com.smartemail.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.smartemail.model.ChangeLogEntry;
+import com.smartemail.model.Email;
+import com.smartemail.repository.EmailRepository;
+
+class CategoryClassifierTest {
+
+    private EmailRepository emailRepository;
+    private CategoryClassifier classifier;
+
+    @BeforeEach
+    void setUp() {
+        emailRepository = mock(EmailRepository.class);
+        ShardRouter shardRouter = mock(ShardRouter.class);
+        when(shardRouter.shardsFor(null)).thenReturn(List.of(0));
+        classifier = new CategoryClassifier();
+        ReflectionTestUtils.setField(classifier, "emailRepository", emailRepository);
+        ReflectionTestUtils.setField(classifier, "shardRouter", shardRouter);
+        ReflectionTestUtils.setField(classifier, "featureBits", 10);
+        ReflectionTestUtils.setField(classifier, "trainingBatchSize", 2);
+    }
+
+    @Test
+    void trainingStopsAtTheLargestIdSeenWhenItStarts() {
+        when(emailRepository.findMaxId()).thenReturn(3L);
+        when(emailRepository.findByIdBetweenOrderByIdAsc(eq(1L), eq(3L), any(Pageable.class)))
+                .thenReturn(List.of(email(1L, 1L, "invoice overdue"), email(2L, 1L, "invoice payment")));
+        when(emailRepository.findByIdBetweenOrderByIdAsc(eq(3L), eq(3L), any(Pageable.class)))
+                .thenReturn(List.of(email(3L, 2L, "team lunch")));
+
+        ReflectionTestUtils.invokeMethod(classifier, "trainShard");
+
+        verify(emailRepository, never()).findByIdBetweenOrderByIdAsc(eq(4L), anyLong(), any(Pageable.class));
+        assertThat(classifier.classify("invoice", "overdue").getCategoryId()).isEqualTo(1L);
+    }
+
+    @Test
+    void forgettingACategoryDropsItsModel() {
+        classifier.learn(1L, "invoice overdue", "please pay the invoice");
+        classifier.learn(2L, "team lunch", "lunch on friday");
+
+        classifier.forget(1L);
+
+        CategoryClassifier.Prediction prediction = classifier.classify("invoice overdue", "pay the invoice");
+        assertThat(prediction.getProbabilities()).containsOnlyKeys(2L);
+    }
+
+    @Test
+    void remoteCategoryDeleteDropsTheModel() {
+        classifier.learn(1L, "invoice overdue", "please pay the invoice");
+        classifier.learn(2L, "team lunch", "lunch on friday");
+
+        classifier.onRemoteChange(new ChangeLogEntry(ChangeLogEntry.EntityType.CATEGORY, ChangeLogEntry.Action.UPDATED,
+                1L, null, "node-b"));
+        assertThat(classifier.classify("invoice", null).getProbabilities()).containsOnlyKeys(1L, 2L);
+
+        classifier.onRemoteChange(new ChangeLogEntry(ChangeLogEntry.EntityType.CATEGORY, ChangeLogEntry.Action.DELETED,
+                1L, null, "node-b"));
+        assertThat(classifier.classify("invoice", null).getProbabilities()).containsOnlyKeys(2L);
+    }
+
+    private static Email email(Long id, Long categoryId, String subject) {
+        Email email = new Email(7L, "a@example.com", "b@example.com", subject, null, categoryId, null);
+        email.setId(id);
+        return email;
+    }
+}
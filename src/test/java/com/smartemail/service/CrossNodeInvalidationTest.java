@@ -0,0 +1,113 @@
+package com.smartemail.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.smartemail.SmartEmailAssistantApplication;
+import com.smartemail.model.Category;
+import com.smartemail.model.Email;
+import com.smartemail.model.Template;
+import com.smartemail.model.User;
+
+// Two nodes in one JVM sharing one database: a write on node A must evict what node B cached once B polls the
+// change log
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class CrossNodeInvalidationTest {
+
+    private ConfigurableApplicationContext nodeA;
+    private ConfigurableApplicationContext nodeB;
+    private Long userId;
+    private Long categoryId;
+
+    @BeforeAll
+    void startNodes() {
+        String url = "jdbc:h2:mem:cross-node-" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1;NON_KEYWORDS=USER,VALUE";
+        nodeA = start(url, "node-a");
+        nodeB = start(url, "node-b");
+    }
+
+    @AfterAll
+    void stopNodes() {
+        nodeB.close();
+        nodeA.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        User user = nodeA.getBean(UserService.class).createUser(new User("Ann", "ann" + System.nanoTime() + "@example.com"));
+        userId = user.getId();
+        categoryId = nodeA.getBean(CategoryService.class)
+                .createCategory(new Category("Work " + System.nanoTime(), "Work mail")).getId();
+        // Moves B's cursor past the setup writes
+        nodeB.getBean(ChangeLog.class).poll();
+    }
+
+    @Test
+    void emailWrittenOnAnotherNodeEvictsTheCachedInbox() {
+        createEmail(nodeA, "Quarterly report", "Numbers attached");
+        nodeB.getBean(ChangeLog.class).poll();
+        EmailService emailServiceB = nodeB.getBean(EmailService.class);
+        HotInboxCache hotInboxB = nodeB.getBean(HotInboxCache.class);
+        assertThat(emailServiceB.getInbox(userId, 0, 20).getTotalElements()).isEqualTo(1);
+        assertThat(hotInboxB.getCached(userId, 0, 20)).isNotNull();
+
+        createEmail(nodeA, "Offsite agenda", "Draft agenda for the offsite");
+        assertThat(hotInboxB.getCached(userId, 0, 20).getTotalElements()).isEqualTo(1);
+
+        nodeB.getBean(ChangeLog.class).poll();
+
+        assertThat(hotInboxB.getCached(userId, 0, 20)).isNull();
+        assertThat(emailServiceB.getInbox(userId, 0, 20).getTotalElements()).isEqualTo(2);
+    }
+
+    @Test
+    void templateWrittenOnAnotherNodeEvictsTheSuggestionIndex() {
+        TemplateService templatesA = nodeA.getBean(TemplateService.class);
+        TemplateService templatesB = nodeB.getBean(TemplateService.class);
+        templatesA.createTemplate(new Template(userId, "Meeting reschedule", "Can we move our meeting to next week?"));
+        nodeB.getBean(ChangeLog.class).poll();
+        Email email = new Email(userId, "bob@example.com", "ann@example.com", "Invoice overdue",
+                "The invoice for March is overdue, please confirm the payment date", categoryId, null);
+        assertThat(titles(templatesB.suggestTemplates(email, 5))).doesNotContain("Invoice payment");
+
+        templatesA.createTemplate(new Template(userId, "Invoice payment",
+                "Thanks for the reminder, the overdue invoice payment is scheduled for Friday"));
+        assertThat(titles(templatesB.suggestTemplates(email, 5))).doesNotContain("Invoice payment");
+
+        nodeB.getBean(ChangeLog.class).poll();
+
+        assertThat(titles(templatesB.suggestTemplates(email, 5))).contains("Invoice payment");
+    }
+
+    private void createEmail(ConfigurableApplicationContext node, String subject, String body) {
+        node.getBean(EmailService.class).createEmail(
+                new Email(userId, "bob@example.com", "ann@example.com", subject, body, categoryId, null));
+    }
+
+    private static List<String> titles(List<TemplateRecommender.TemplateSuggestion> suggestions) {
+        return suggestions.stream().map(TemplateRecommender.TemplateSuggestion::getTitle).toList();
+    }
+
+    private static ConfigurableApplicationContext start(String url, String nodeId) {
+        return new SpringApplicationBuilder(SmartEmailAssistantApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test")
+                // Arguments, not default properties, so they win over application-test.properties; otherwise
+                // both nodes would share the test database and drop its tables when they close
+                .run("--spring.datasource.url=" + url,
+                        "--spring.jpa.hibernate.ddl-auto=update",
+                        "--emails.cache-invalidation.node-id=" + nodeId,
+                        // The test polls explicitly
+                        "--emails.cache-invalidation.poll-interval-ms=3600000");
+    }
+}
@@ -0,0 +1,113 @@
+package com.smartemail.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.smartemail.model.ChangeLogEntry;
+import com.smartemail.model.Email;
+
+class EmailServiceTest {
+
+    private EmailThreadService emailThreadService;
+    private NearDuplicateDetector nearDuplicateDetector;
+    private ChangeLog changeLog;
+    private EmailService emailService;
+
+    @BeforeEach
+    void setUp() {
+        emailThreadService = mock(EmailThreadService.class);
+        nearDuplicateDetector = mock(NearDuplicateDetector.class);
+        changeLog = mock(ChangeLog.class);
+        emailService = new EmailService();
+        ReflectionTestUtils.setField(emailService, "emailThreadService", emailThreadService);
+        ReflectionTestUtils.setField(emailService, "nearDuplicateDetector", nearDuplicateDetector);
+        ReflectionTestUtils.setField(emailService, "changeLog", changeLog);
+        ReflectionTestUtils.setField(emailService, "categoryClassifier", mock(CategoryClassifier.class));
+        ReflectionTestUtils.setField(emailService, "addressSuggester", mock(AddressSuggester.class));
+        ReflectionTestUtils.setField(emailService, "hotInboxCache", mock(HotInboxCache.class));
+    }
+
+    @Test
+    void failedUserLeavesItsEmailsWithoutIdsAndOthersCommitted() {
+        Email first = email(1L);
+        Email second = email(2L);
+        when(emailThreadService.createAll(eq(1L), anyList())).thenAnswer(invocation -> saved(invocation.getArgument(1), 10L));
+        when(emailThreadService.createAll(eq(2L), anyList())).thenAnswer(invocation -> {
+            // Identity ids are assigned before the transaction rolls back
+            saved(invocation.getArgument(1), 20L);
+            throw new DataIntegrityViolationException("duplicate key");
+        });
+
+        assertThatThrownBy(() -> emailService.saveNewEmails(List.of(first, second)))
+                .isInstanceOf(DataIntegrityViolationException.class);
+
+        assertThat(first.getId()).isEqualTo(10L);
+        assertThat(second.getId()).isNull();
+        assertThat(second.getThreadId()).isNull();
+        verify(nearDuplicateDetector).register(first);
+        verify(nearDuplicateDetector, never()).register(second);
+        verify(changeLog).record(ChangeLogEntry.EntityType.EMAIL, ChangeLogEntry.Action.CREATED, null, 1L);
+        verify(changeLog, never()).record(ChangeLogEntry.EntityType.EMAIL, ChangeLogEntry.Action.CREATED, null, 2L);
+    }
+
+    @Test
+    void indexFailureAfterCommitDoesNotFailTheSave() {
+        Email email = email(1L);
+        when(emailThreadService.createAll(eq(1L), anyList())).thenAnswer(invocation -> saved(invocation.getArgument(1), 10L));
+        doThrow(new IllegalStateException("index full")).when(nearDuplicateDetector).register(email);
+
+        List<Email> saved = emailService.saveNewEmails(List.of(email));
+
+        assertThat(saved).containsExactly(email);
+        assertThat(email.getId()).isEqualTo(10L);
+    }
+
+    @Test
+    void shardedSearchRejectsPagesWhoseWindowOverflows() {
+        ShardRouter shardRouter = mock(ShardRouter.class);
+        when(shardRouter.isEnabled()).thenReturn(true);
+        when(shardRouter.fanOut(any())).thenReturn(List.of());
+        StatusWriteBuffer statusWriteBuffer = mock(StatusWriteBuffer.class);
+        when(statusWriteBuffer.overlayEmails(anyList(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+        ReflectionTestUtils.setField(emailService, "shardRouter", shardRouter);
+        ReflectionTestUtils.setField(emailService, "statusWriteBuffer", statusWriteBuffer);
+
+        assertThatThrownBy(() -> emailService.searchEmails(null, null, null, null, null, null,
+                2, Integer.MAX_VALUE / 2, "receivedAt", "desc"))
+                .isInstanceOf(IllegalArgumentException.class);
+        verify(shardRouter, never()).fanOut(any());
+
+        // What /emails/sender asks for: one page with everything
+        Page<Email> all = emailService.searchEmails("a@example.com", null, null, null, null, null,
+                0, Integer.MAX_VALUE, "receivedAt", "desc");
+        assertThat(all.getContent()).isEmpty();
+    }
+
+    private static List<Email> saved(List<Email> emails, long firstId) {
+        for (int i = 0; i < emails.size(); i++) {
+            emails.get(i).setId(firstId + i);
+            emails.get(i).setThreadId(firstId + i);
+        }
+        return emails;
+    }
+
+    private static Email email(Long userId) {
+        return new Email(userId, "a@example.com", "b@example.com", "Status", "All good", 1L, Email.Sentiment.NEUTRAL);
+    }
+}
@@ -0,0 +1,188 @@
+package com.smartemail.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartemail.model.Category;
+import com.smartemail.model.Email;
+import com.smartemail.model.User;
+
+// Delta sync against H2: what a client sees across syncs, what the settle window holds back, and expired tokens
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class EmailSyncServiceTest {
+
+    @Autowired
+    private EmailSyncService emailSyncService;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Object defaultSettleMillis;
+    private Long userId;
+    private Long categoryId;
+
+    @BeforeEach
+    void setUp() {
+        defaultSettleMillis = ReflectionTestUtils.getField(target(), "settleMillis");
+        setSettleMillis(0);
+        long run = System.nanoTime();
+        userId = userService.createUser(new User("Ann " + run, "ann" + run + "@example.com")).getId();
+        categoryId = categoryService.createCategory(new Category("Sync " + run, "Sync tests")).getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.setField(target(), "settleMillis", defaultSettleMillis);
+    }
+
+    @Test
+    void createUpdateAndDeleteReachTheClientOnTheNextSync() throws Exception {
+        Email kept = create("Kept");
+        Email removed = create("Removed");
+        settle();
+
+        EmailSyncService.ChangeSet first = emailSyncService.getChanges(userId, null, null);
+        assertThat(ids(first)).containsExactly(kept.getId(), removed.getId());
+        assertThat(first.getDeletedEmailIds()).isEmpty();
+        assertThat(first.isHasMore()).isFalse();
+
+        // Through the API, whose open session the write methods rely on
+        mockMvc.perform(put("/emails/" + kept.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new Email(userId, "bob@example.com",
+                                "ann@example.com", "Kept, renamed", "Body of Kept", categoryId, null))))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete("/emails/" + removed.getId())).andExpect(status().is2xxSuccessful());
+        Email added = create("Added");
+        settle();
+
+        EmailSyncService.ChangeSet second = emailSyncService.getChanges(userId, first.getNextToken(), null);
+        assertThat(ids(second)).containsExactly(kept.getId(), added.getId());
+        assertThat(second.getEmails().get(0).getSubject()).isEqualTo("Kept, renamed");
+        assertThat(second.getDeletedEmailIds()).containsExactly(removed.getId());
+
+        // Nothing changed since; the token still moves forward
+        settle();
+        EmailSyncService.ChangeSet third = emailSyncService.getChanges(userId, second.getNextToken(), null);
+        assertThat(third.getEmails()).isEmpty();
+        assertThat(third.getDeletedEmailIds()).isEmpty();
+    }
+
+    @Test
+    void pagesFollowTheCursorWithoutGapsOrRepeats() {
+        Email a = create("A");
+        Email b = create("B");
+        Email c = create("C");
+        settle();
+
+        EmailSyncService.ChangeSet first = emailSyncService.getChanges(userId, null, 2);
+        EmailSyncService.ChangeSet second = emailSyncService.getChanges(userId, first.getNextToken(), 2);
+
+        assertThat(ids(first)).containsExactly(a.getId(), b.getId());
+        assertThat(first.isHasMore()).isTrue();
+        assertThat(ids(second)).containsExactly(c.getId());
+        assertThat(second.isHasMore()).isFalse();
+    }
+
+    @Test
+    void rowsInsideTheSettleWindowAreHeldBackAndNotSkipped() {
+        setSettleMillis(1000);
+        EmailSyncService.ChangeSet first = emailSyncService.getChanges(userId, null, null);
+
+        // Written now, inside the window of the next sync
+        Email fresh = create("Fresh");
+        // Timestamped before the next sync's window but committed after the first sync, as a slow writer would
+        Email late = create("Late");
+        jdbcTemplate.update("UPDATE emails SET updated_at = ? WHERE id = ?",
+                LocalDateTime.now().minusNanos(800_000_000), late.getId());
+
+        EmailSyncService.ChangeSet early = emailSyncService.getChanges(userId, first.getNextToken(), null);
+        assertThat(ids(early)).isEmpty();
+
+        sleep(1100);
+        EmailSyncService.ChangeSet settled = emailSyncService.getChanges(userId, early.getNextToken(), null);
+        assertThat(ids(settled)).containsExactlyInAnyOrder(fresh.getId(), late.getId());
+    }
+
+    @Test
+    void expiredTokenIsGoneAndMalformedTokenIsRejected() throws Exception {
+        LocalDateTime old = LocalDateTime.now().minusDays(31);
+        String expired = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(("v1|" + old + "|0|" + old + "|0").getBytes(StandardCharsets.UTF_8));
+
+        mockMvc.perform(get("/emails/user/" + userId + "/changes").param("since", expired))
+                .andExpect(status().isGone());
+        mockMvc.perform(get("/emails/user/" + userId + "/changes").param("since", "not-a-token"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private Email create(String subject) {
+        return emailService.createEmail(new Email(userId, "bob@example.com", "ann@example.com", subject,
+                "Body of " + subject, categoryId, null));
+    }
+
+    private static List<Long> ids(EmailSyncService.ChangeSet changes) {
+        return changes.getEmails().stream().map(Email::getId).toList();
+    }
+
+    // With no settle window, a sync only sees rows timestamped strictly before it started
+    private static void settle() {
+        sleep(5);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void setSettleMillis(long millis) {
+        ReflectionTestUtils.setField(target(), "settleMillis", millis);
+    }
+
+    private EmailSyncService target() {
+        return AopTestUtils.getTargetObject(emailSyncService);
+    }
+}
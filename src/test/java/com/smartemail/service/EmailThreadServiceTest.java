@@ -0,0 +1,143 @@
+package com.smartemail.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.smartemail.exception.ResourceNotFoundException;
+import com.smartemail.model.Category;
+import com.smartemail.model.Email;
+import com.smartemail.model.EmailThread;
+import com.smartemail.model.User;
+import com.smartemail.repository.EmailThreadRepository;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class EmailThreadServiceTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 9, 0);
+
+    @Autowired
+    private EmailThreadService emailThreadService;
+
+    @Autowired
+    private EmailThreadRepository threadRepository;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    private Long categoryId;
+    private Long userId;
+
+    @BeforeEach
+    void setUp() {
+        long run = System.nanoTime();
+        categoryId = categoryService.createCategory(new Category("Threads " + run, "Thread tests")).getId();
+        userId = userService.createUser(new User("Thread user " + run, "threads" + run + "@example.com")).getId();
+    }
+
+    @Test
+    void subjectsLoseReplyMarkersAndListTags() {
+        assertThat(EmailThreadService.normalizeSubject("RE: Fwd: [team]  Budget   2024")).isEqualTo("Budget 2024");
+        assertThat(EmailThreadService.normalizeSubject("Re[2]: AW: SV: Plans")).isEqualTo("Plans");
+        assertThat(EmailThreadService.normalizeSubject("Re: ")).isEqualTo("(no subject)");
+        assertThat(EmailThreadService.normalizeSubject(null)).isEqualTo("(no subject)");
+        assertThat(EmailThreadService.normalizeSubject("Regarding the offer")).isEqualTo("Regarding the offer");
+    }
+
+    @Test
+    void participantsAreSortedLowercasedAndDeduplicated() {
+        Email email = new Email(userId, "Bob@Example.com", "ann@example.com; bob@example.com, ", "Hi", "Body",
+                categoryId, null);
+
+        assertThat(EmailThreadService.participantsOf(email)).isEqualTo("ann@example.com, bob@example.com");
+    }
+
+    @Test
+    void repliesShareASummaryThatTracksTheLatestMessage() {
+        Email first = create("ann@example.com", "bob@example.com", "Quarterly plan", START);
+        Email reply = create("bob@example.com", "ann@example.com", "Re: Quarterly plan", START.plusHours(1));
+        Email other = create("carl@example.com", "ann@example.com", "Re: Quarterly plan", START.plusHours(2));
+
+        assertThat(reply.getThreadId()).isEqualTo(first.getThreadId());
+        assertThat(other.getThreadId()).isNotEqualTo(first.getThreadId());
+
+        EmailThread thread = threadRepository.findById(first.getThreadId()).orElseThrow();
+        assertThat(thread.getSubject()).isEqualTo("Quarterly plan");
+        assertThat(thread.getParticipants()).isEqualTo("ann@example.com, bob@example.com");
+        assertThat(thread.getMessageCount()).isEqualTo(2);
+        assertThat(thread.getLastEmailId()).isEqualTo(reply.getId());
+        assertThat(thread.getLastActivityAt()).isEqualTo(START.plusHours(1));
+
+        // Most recent activity first
+        assertThat(emailThreadService.findThreads(userId, 0, 10).getContent())
+                .extracting(EmailThread::getId).containsExactly(other.getThreadId(), first.getThreadId());
+        assertThat(emailThreadService.findThreadEmails(userId, first.getThreadId()))
+                .extracting(Email::getId).containsExactly(first.getId(), reply.getId());
+    }
+
+    @Test
+    void deletingTheLatestMessageRepointsTheSummaryAndTheLastOneRemovesIt() {
+        Email first = create("ann@example.com", "bob@example.com", "Offsite", START);
+        Email reply = create("bob@example.com", "ann@example.com", "RE: Offsite", START.plusHours(1));
+        Long threadId = first.getThreadId();
+
+        emailThreadService.delete(reply);
+
+        EmailThread thread = threadRepository.findById(threadId).orElseThrow();
+        assertThat(thread.getMessageCount()).isEqualTo(1);
+        assertThat(thread.getLastEmailId()).isEqualTo(first.getId());
+        assertThat(thread.getLastActivityAt()).isEqualTo(START);
+
+        emailThreadService.delete(first);
+
+        assertThat(threadRepository.findById(threadId)).isEmpty();
+    }
+
+    @Test
+    void editingTheSubjectMovesTheEmailToAnotherThread() {
+        Email first = create("ann@example.com", "bob@example.com", "Hiring", START);
+        Email second = create("bob@example.com", "ann@example.com", "Re: Hiring", START.plusHours(1));
+        Long hiringThread = first.getThreadId();
+
+        second.setSubject("Travel");
+        Email moved = emailThreadService.update(userId, second);
+
+        assertThat(moved.getThreadId()).isNotEqualTo(hiringThread);
+        EmailThread hiring = threadRepository.findById(hiringThread).orElseThrow();
+        assertThat(hiring.getMessageCount()).isEqualTo(1);
+        assertThat(hiring.getLastEmailId()).isEqualTo(first.getId());
+        EmailThread travel = threadRepository.findById(moved.getThreadId()).orElseThrow();
+        assertThat(travel.getSubject()).isEqualTo("Travel");
+        assertThat(travel.getMessageCount()).isEqualTo(1);
+        assertThat(travel.getLastEmailId()).isEqualTo(second.getId());
+    }
+
+    @Test
+    void anotherUsersThreadIsNotFound() {
+        Email email = create("ann@example.com", "bob@example.com", "Private", START);
+        Long otherUser = userService.createUser(new User("Other " + System.nanoTime(),
+                "other" + System.nanoTime() + "@example.com")).getId();
+
+        assertThatThrownBy(() -> emailThreadService.findThreadEmails(otherUser, email.getThreadId()))
+                .isInstanceOf(ResourceNotFoundException.class);
+        assertThat(emailThreadService.findThreads(otherUser, 0, 10).getContent()).isEmpty();
+    }
+
+    private Email create(String sender, String recipient, String subject, LocalDateTime receivedAt) {
+        Email email = new Email(userId, sender, recipient, subject, "Body of " + subject, categoryId, null);
+        email.setReceivedAt(receivedAt);
+        return emailThreadService.create(email);
+    }
+}
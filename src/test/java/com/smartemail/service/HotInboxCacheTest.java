@@ -0,0 +1,201 @@
+package com.smartemail.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.smartemail.model.Email;
+import com.smartemail.model.EmailSummary;
+import com.smartemail.repository.EmailRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class HotInboxCacheTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 5, 1, 8, 0);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Map<Long, List<Email>> stored = new HashMap<>();
+    private EmailRepository emailRepository;
+    private HotInboxCache cache;
+    private Runnable duringLoad = () -> { };
+
+    @BeforeEach
+    void setUp() {
+        emailRepository = mock(EmailRepository.class);
+        when(emailRepository.findByUserId(anyLong(), any(Pageable.class))).thenAnswer(invocation -> {
+            duringLoad.run();
+            return page(invocation.getArgument(0), invocation.getArgument(1));
+        });
+        ShardRouter shardRouter = mock(ShardRouter.class);
+        when(shardRouter.readForUser(anyLong(), any())).thenAnswer(invocation -> {
+            Supplier<?> work = invocation.getArgument(1);
+            return work.get();
+        });
+        StatusWriteBuffer statusWriteBuffer = mock(StatusWriteBuffer.class);
+        when(statusWriteBuffer.overlayEmails(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        cache = new HotInboxCache();
+        ReflectionTestUtils.setField(cache, "emailRepository", emailRepository);
+        ReflectionTestUtils.setField(cache, "shardRouter", shardRouter);
+        ReflectionTestUtils.setField(cache, "statusWriteBuffer", statusWriteBuffer);
+        ReflectionTestUtils.setField(cache, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(cache, "sizePerUser", 4);
+        ReflectionTestUtils.setField(cache, "maxUsers", 10);
+        ReflectionTestUtils.setField(cache, "maxBytes", Long.MAX_VALUE);
+        ReflectionTestUtils.setField(cache, "snippetLength", 20);
+        cache.initMetrics();
+    }
+
+    @Test
+    void firstPagesAreServedFromTheCacheAndDeepPagesAreNot() {
+        store(1L, 6);
+
+        assertThat(cache.getCached(1L, 0, 2)).isNull();
+        assertThat(ids(cache.load(1L, 0, 2))).containsExactly(6L, 5L);
+
+        Page<EmailSummary> second = cache.getCached(1L, 1, 2);
+        assertThat(ids(second)).containsExactly(4L, 3L);
+        assertThat(second.getTotalElements()).isEqualTo(6);
+        assertThat(cache.getCached(1L, 2, 2)).isNull();
+        assertThat(ids(cache.load(1L, 2, 2))).containsExactly(2L, 1L);
+
+        assertThat(meterRegistry.counter("emails.hot_inbox.requests", "result", "hit").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("emails.hot_inbox.requests", "result", "miss").count()).isEqualTo(2);
+        // The deep page went to the database without replacing the cached window
+        assertThat(ids(cache.getCached(1L, 0, 4))).containsExactly(6L, 5L, 4L, 3L);
+    }
+
+    @Test
+    void writesArePatchedIntoTheCachedInboxWithoutQueries() {
+        store(1L, 6);
+        cache.load(1L, 0, 4);
+
+        cache.added(email(7L, 1L, START.plusHours(7)));
+        cache.updated(withSubject(email(5L, 1L, START.plusHours(5)), "Edited"));
+        cache.archived(1L, 6L, true);
+        cache.removed(1L, 4L);
+
+        Page<EmailSummary> inbox = cache.getCached(1L, 0, 3);
+        assertThat(ids(inbox)).containsExactly(7L, 6L, 5L);
+        assertThat(inbox.getContent().get(1).getArchived()).isTrue();
+        assertThat(inbox.getContent().get(2).getSubject()).isEqualTo("Edited");
+        assertThat(inbox.getTotalElements()).isEqualTo(6);
+        // The oldest cached email was pushed out by the new one, so page two is no longer complete
+        assertThat(cache.getCached(1L, 1, 3)).isNull();
+        verify(emailRepository, times(1)).findByUserId(eq(1L), any(Pageable.class));
+    }
+
+    @Test
+    void olderEmailsOnlyJoinAnInboxThatIsCachedInFull() {
+        store(1L, 6);
+        store(2L, 2);
+        cache.load(1L, 0, 4);
+        cache.load(2L, 0, 4);
+
+        // Might sit between uncached emails, so it is only counted
+        cache.added(email(100L, 1L, START.minusDays(1)));
+        cache.added(email(200L, 2L, START.minusDays(1)));
+
+        assertThat(ids(cache.getCached(1L, 0, 4))).containsExactly(6L, 5L, 4L, 3L);
+        assertThat(cache.getCached(1L, 0, 4).getTotalElements()).isEqualTo(7);
+        assertThat(ids(cache.getCached(2L, 0, 4))).containsExactly(102L, 101L, 200L);
+    }
+
+    @Test
+    void leastRecentlyUsedUsersAreEvictedByCountAndMemory() {
+        ReflectionTestUtils.setField(cache, "maxUsers", 2);
+        store(1L, 1);
+        store(2L, 1);
+        store(3L, 1);
+        cache.load(1L, 0, 4);
+        cache.load(2L, 0, 4);
+        cache.getCached(1L, 0, 4);
+
+        cache.load(3L, 0, 4);
+
+        assertThat(cache.getUserCount()).isEqualTo(2);
+        assertThat(cache.getCached(2L, 0, 4)).isNull();
+        assertThat(cache.getCached(1L, 0, 4)).isNotNull();
+
+        // Over the memory cap once user 3 grows, so the least recently used user goes
+        ReflectionTestUtils.setField(cache, "maxUsers", 10);
+        cache.load(2L, 0, 4);
+        ReflectionTestUtils.setField(cache, "maxBytes", cache.getEstimatedBytes());
+        cache.added(email(9L, 3L, START.plusDays(1)));
+
+        assertThat(cache.getUserCount()).isEqualTo(2);
+        assertThat(cache.getCached(1L, 0, 4)).isNull();
+        assertThat(ids(cache.getCached(3L, 0, 4))).containsExactly(9L, 201L);
+
+        cache.invalidate(3L);
+        assertThat(cache.getUserCount()).isEqualTo(1);
+        assertThat(cache.getEstimatedBytes())
+                .isEqualTo(new EmailSummary(email(101L, 2L, START.plusHours(1)), 20).estimatedBytes());
+    }
+
+    @Test
+    void aWriteDuringALoadKeepsTheLoadedInboxOutOfTheCache() {
+        store(1L, 2);
+        duringLoad = () -> cache.added(email(3L, 1L, START.plusHours(3)));
+
+        assertThat(ids(cache.load(1L, 0, 4))).containsExactly(2L, 1L);
+
+        assertThat(cache.getCached(1L, 0, 4)).isNull();
+        assertThat(cache.getUserCount()).isZero();
+    }
+
+    private void store(Long userId, int count) {
+        List<Email> emails = new ArrayList<>();
+        for (long i = 1; i <= count; i++) {
+            emails.add(email(userId * 100 - 100 + i, userId, START.plusHours(i)));
+        }
+        stored.put(userId, emails);
+    }
+
+    private Page<Email> page(Long userId, Pageable pageable) {
+        List<Email> newest = new ArrayList<>(stored.getOrDefault(userId, List.of()));
+        newest.sort(Comparator.comparing(Email::getReceivedAt).reversed());
+        int from = (int) Math.min(pageable.getOffset(), newest.size());
+        int to = Math.min(from + pageable.getPageSize(), newest.size());
+        return new PageImpl<>(newest.subList(from, to), pageable, newest.size());
+    }
+
+    private static Email email(Long id, Long userId, LocalDateTime receivedAt) {
+        Email email = new Email(userId, "sender@example.com", "me@example.com", "Subject " + id,
+                "Body of email " + id, 1L, null);
+        email.setId(id);
+        email.setArchived(false);
+        email.setReceivedAt(receivedAt);
+        return email;
+    }
+
+    private static Email withSubject(Email email, String subject) {
+        email.setSubject(subject);
+        return email;
+    }
+
+    private static List<Long> ids(Page<EmailSummary> page) {
+        return page.getContent().stream().map(EmailSummary::getId).toList();
+    }
+}
@@ -0,0 +1,132 @@
+package com.smartemail.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MailArchiveTest {
+
+    // Mbox windows are at least maxMessageBytes plus this much
+    private static final int WINDOW_SLACK = 64 * 1024;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void mboxFixtureIsSplitIntoMessagesAndUnquoted() throws Exception {
+        List<MimeParser.Message> messages = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        read(MailArchive.open(resource("mail/sample.mbox"), 1024 * 1024, 10_000), messages, errors);
+
+        assertThat(errors).isEmpty();
+        assertThat(messages).extracting(MimeParser.Message::subject).containsExactly("First", "Second", "Third");
+        assertThat(messages.get(0).text()).isEqualTo("From the archive: quoted by the mbox writer.\nRegular line.");
+        assertThat(messages.get(0).from()).isEqualTo("jane@example.com");
+        assertThat(messages.get(1).date()).isEqualTo(LocalDateTime.of(2024, 3, 6, 9, 0).atOffset(ZoneOffset.UTC)
+                .atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime());
+        assertThat(messages.get(2).text()).isEqualTo("Third body, no trailing blank line.");
+    }
+
+    @Test
+    void emlDirectoryReadsOnlyEmlFilesAndKeepsFromLinesAsTheyAre() throws Exception {
+        List<MimeParser.Message> messages = new ArrayList<>();
+        read(MailArchive.open(resource("mail/eml"), 1024 * 1024, 10_000), messages, new ArrayList<>());
+
+        assertThat(messages).extracting(MimeParser.Message::subject).containsExactlyInAnyOrder("One", "Two");
+        assertThat(messages).extracting(MimeParser.Message::text).contains(">From stays quoted outside mbox.");
+    }
+
+    @Test
+    void messagesSpanningWindowBoundariesAreReadWhole() throws Exception {
+        int maxMessageBytes = 1000;
+        // About five windows of messages with bodies of varying length, so separators land at every offset
+        StringBuilder mbox = new StringBuilder();
+        int count = 0;
+        while (mbox.length() < 5 * (maxMessageBytes + WINDOW_SLACK)) {
+            mbox.append(message(count, "x".repeat(count % 97)));
+            count++;
+        }
+        Path file = Files.writeString(directory.resolve("large.mbox"), mbox, StandardCharsets.US_ASCII);
+
+        List<MimeParser.Message> messages = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        read(MailArchive.open(file, 0, maxMessageBytes), messages, errors);
+
+        assertThat(errors).isEmpty();
+        assertThat(messages).hasSize(count);
+        for (int i = 0; i < count; i++) {
+            assertThat(messages.get(i).subject()).isEqualTo("Message " + i);
+            assertThat(messages.get(i).text()).isEqualTo(("Body " + i + " " + "x".repeat(i % 97)).strip());
+        }
+    }
+
+    @Test
+    void oversizedMessagesAreReportedAndReadingResumesAfterThem() throws Exception {
+        int maxMessageBytes = 1000;
+        String mbox = message(0, "")
+                // Larger than the limit but inside one window
+                + message(1, "y".repeat(5 * maxMessageBytes))
+                + message(2, "")
+                // Larger than a whole window, so no separator is seen while it is mapped
+                + message(3, "z".repeat(3 * (maxMessageBytes + WINDOW_SLACK)))
+                + message(4, "");
+        Path file = Files.writeString(directory.resolve("oversized.mbox"), mbox, StandardCharsets.US_ASCII);
+
+        List<MimeParser.Message> messages = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        read(MailArchive.open(file, 0, maxMessageBytes), messages, errors);
+
+        assertThat(messages).extracting(MimeParser.Message::subject)
+                .containsExactly("Message 0", "Message 2", "Message 4");
+        assertThat(errors).hasSize(2).allMatch(error -> error.contains("exceeds " + maxMessageBytes + " bytes"));
+    }
+
+    @Test
+    void oversizedEmlFilesAreReported() throws Exception {
+        Files.writeString(directory.resolve("big.eml"), message(0, "w".repeat(2000)));
+
+        List<String> errors = new ArrayList<>();
+        read(MailArchive.open(directory, 0, 1000), new ArrayList<>(), errors);
+
+        assertThat(errors).containsExactly("big.eml: Message exceeds 1000 bytes");
+    }
+
+    private static String message(int index, String padding) {
+        return "From sender@example.com Tue Mar  5 14:30:15 2024\n"
+                + "From: sender@example.com\n"
+                + "Subject: Message " + index + "\n"
+                + "\n"
+                + "Body " + index + " " + padding + "\n"
+                + "\n";
+    }
+
+    private static void read(MailArchive archive, List<MimeParser.Message> messages, List<String> errors)
+            throws IOException {
+        try (archive) {
+            MailArchive.RawMessage raw;
+            while ((raw = archive.next()) != null) {
+                if (raw.error() != null) {
+                    errors.add(raw.source() + ": " + raw.error());
+                } else {
+                    messages.add(MimeParser.parse(raw.bytes(), 100_000, archive.quotesFromLines()));
+                }
+            }
+        }
+    }
+
+    private Path resource(String name) throws URISyntaxException {
+        return Path.of(getClass().getClassLoader().getResource(name).toURI());
+    }
+}
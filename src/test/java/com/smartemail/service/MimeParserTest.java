@@ -0,0 +1,135 @@
+package com.smartemail.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import org.junit.jupiter.api.Test;
+
+class MimeParserTest {
+
+    @Test
+    void foldedHeadersAndEncodedWordsAreDecoded() {
+        MimeParser.Message message = parse("""
+                From: "Doe, Jane" <jane@example.com>
+                To: Bob <bob@example.com>, carol@example.com
+                Subject: =?UTF-8?B?R3LDvMOfIGF1cw==?=
+                 =?UTF-8?Q?_M=C3=BCnchen?=
+                Message-ID: <abc@example.com>
+
+                Hello
+                """, false);
+
+        assertThat(message.from()).isEqualTo("jane@example.com");
+        assertThat(message.to()).isEqualTo("bob@example.com");
+        assertThat(message.subject()).isEqualTo("Grüß aus München");
+        assertThat(message.messageId()).isEqualTo("abc@example.com");
+        assertThat(message.text()).isEqualTo("Hello");
+    }
+
+    @Test
+    void plainAlternativeWinsAndAttachmentsAreSkipped() {
+        MimeParser.Message message = parse("""
+                Subject: Report
+                Content-Type: multipart/mixed; boundary="outer"
+
+                --outer
+                Content-Type: multipart/alternative; boundary=inner
+
+                --inner
+                Content-Type: text/html
+
+                <p>Rich</p>
+                --inner
+                Content-Type: text/plain; charset=utf-8
+                Content-Transfer-Encoding: quoted-printable
+
+                Caf=C3=A9 numbers are=
+                 attached
+                --inner--
+                --outer
+                Content-Type: text/plain
+                Content-Disposition: attachment; filename="numbers.txt"
+
+                secret attachment text
+                --outer--
+                """, false);
+
+        assertThat(message.text()).isEqualTo("Café numbers are attached");
+    }
+
+    @Test
+    void htmlOnlyBodiesAreReducedToText() {
+        MimeParser.Message message = parse("""
+                Content-Type: text/html
+                Content-Transfer-Encoding: base64
+
+                PGh0bWw+PGhlYWQ+PHN0eWxlPnB7fTwvc3R5bGU+PC9oZWFkPjxwPkEgJmFtcDsgQjwvcD48cD5DPC9wPjwvaHRtbD4=
+                """, false);
+
+        assertThat(message.text()).isEqualTo("A & B\nC");
+    }
+
+    @Test
+    void quotedFromLinesAreUnquotedOnlyForMbox() {
+        String raw = """
+                Subject: Quote
+
+                >From the start
+                >>From the quote
+                 >From not at line start
+                """;
+
+        assertThat(parse(raw, true).text()).isEqualTo("From the start\n>From the quote\n >From not at line start");
+        assertThat(parse(raw, false).text()).startsWith(">From the start");
+    }
+
+    @Test
+    void currentDateFormatIsParsed() {
+        assertThat(date("Tue, 05 Mar 2024 14:30:15 +0100")).isEqualTo(local(2024, 3, 5, 14, 30, 15, "+01:00"));
+        assertThat(date("Tue, 5 Mar 2024 14:30:15 -0000 (UTC)")).isEqualTo(local(2024, 3, 5, 14, 30, 15, "Z"));
+    }
+
+    @Test
+    void obsoleteDateFormsAreParsed() {
+        // No day of week
+        assertThat(date("5 Mar 2024 14:30:15 +0000")).isEqualTo(local(2024, 3, 5, 14, 30, 15, "Z"));
+        // Zone names
+        assertThat(date("Tue, 5 Mar 2024 14:30:15 GMT")).isEqualTo(local(2024, 3, 5, 14, 30, 15, "Z"));
+        assertThat(date("Tue, 5 Mar 2024 09:30:15 EST")).isEqualTo(local(2024, 3, 5, 14, 30, 15, "Z"));
+        assertThat(date("Tue, 5 Mar 2024 07:30:15 PDT")).isEqualTo(local(2024, 3, 5, 14, 30, 15, "Z"));
+        assertThat(date("Tue, 5 Mar 2024 14:30:15 UT")).isEqualTo(local(2024, 3, 5, 14, 30, 15, "Z"));
+        // Two-digit years, no seconds, extra whitespace, a full month name
+        assertThat(date("Tue,  5 Mar 99 14:30 +0000")).isEqualTo(local(1999, 3, 5, 14, 30, 0, "Z"));
+        assertThat(date("5 March 24 14:30:15 +0000")).isEqualTo(local(2024, 3, 5, 14, 30, 15, "Z"));
+        // Military and unknown zones have no reliable offset and are read as -0000
+        assertThat(date("5 Mar 2024 14:30:15 Q")).isEqualTo(local(2024, 3, 5, 14, 30, 15, "Z"));
+        // No zone at all
+        assertThat(date("5 Mar 2024 14:30:15")).isEqualTo(local(2024, 3, 5, 14, 30, 15, "Z"));
+    }
+
+    @Test
+    void invalidDatesAreDropped() {
+        assertThat(date("yesterday")).isNull();
+        assertThat(date("31 Feb 2024 10:00:00 +0000")).isNull();
+        assertThat(date("5 Foo 2024 10:00:00 +0000")).isNull();
+        assertThat(date("5 Mar 2024 25:00:00 +0000")).isNull();
+    }
+
+    private static LocalDateTime date(String header) {
+        return parse("Date: " + header + "\n\nbody\n", false).date();
+    }
+
+    private static LocalDateTime local(int year, int month, int day, int hour, int minute, int second, String offset) {
+        return LocalDateTime.of(year, month, day, hour, minute, second).atOffset(ZoneOffset.of(offset))
+                .atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+    }
+
+    private static MimeParser.Message parse(String raw, boolean quotedFromLines) {
+        return MimeParser.parse(ByteBuffer.wrap(raw.getBytes(StandardCharsets.UTF_8)), 10_000, quotedFromLines);
+    }
+}
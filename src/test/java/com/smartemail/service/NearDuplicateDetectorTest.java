@@ -0,0 +1,171 @@
+package com.smartemail.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.smartemail.model.Email;
+import com.smartemail.repository.EmailRepository;
+
+class NearDuplicateDetectorTest {
+
+    private static final String NEWSLETTER = "Weekly digest: the team shipped the new billing page, fixed the login "
+            + "timeout, moved the standup to ten, and the offsite agenda is in the shared folder for review";
+
+    private EmailRepository emailRepository;
+    private NearDuplicateDetector detector;
+
+    @BeforeEach
+    void setUp() {
+        emailRepository = mock(EmailRepository.class);
+        ShardRouter shardRouter = mock(ShardRouter.class);
+        when(shardRouter.readForUser(anyLong(), any())).thenAnswer(invocation -> {
+            Supplier<?> work = invocation.getArgument(1);
+            return work.get();
+        });
+        detector = new NearDuplicateDetector();
+        ReflectionTestUtils.setField(detector, "emailRepository", emailRepository);
+        ReflectionTestUtils.setField(detector, "shardRouter", shardRouter);
+        ReflectionTestUtils.setField(detector, "minSimilarity", 0.7);
+        ReflectionTestUtils.setField(detector, "maxBucketSize", 1);
+        ReflectionTestUtils.setField(detector, "maxUsers", 1);
+        ReflectionTestUtils.setField(detector, "maxBytes", Long.MAX_VALUE);
+        ReflectionTestUtils.setField(detector, "indexingBatchSize", 100);
+    }
+
+    @Test
+    void indexIsBuiltFromTheUsersEmailsOnFirstUse() {
+        stored(1L, email(1L, 1L, NEWSLETTER), email(2L, 1L, NEWSLETTER));
+
+        assertThat(detector.findDuplicate(email(null, 1L, NEWSLETTER))).isEqualTo(1L);
+        assertThat(detector.getClusters(1L)).singleElement()
+                .satisfies(cluster -> assertThat(cluster.getEmailIds()).containsExactly(1L, 2L));
+    }
+
+    @Test
+    void clustersOutliveTheirBucketSlots() {
+        stored(1L, email(1L, 1L, NEWSLETTER), email(2L, 1L, NEWSLETTER));
+        detector.getClusters(1L);
+
+        // Each shares one band with the newsletter without matching it, so together they take all its bucket slots
+        List<String> displacing = partialMatches();
+        for (int i = 0; i < displacing.size(); i++) {
+            detector.register(email(10L + i, 1L, displacing.get(i)));
+        }
+
+        assertThat(detector.findDuplicate(email(null, 1L, NEWSLETTER))).isNull();
+        assertThat(detector.getClusters(1L)).singleElement()
+                .satisfies(cluster -> assertThat(cluster.getEmailIds()).containsExactly(1L, 2L));
+    }
+
+    @Test
+    void leastRecentlyUsedUsersAreEvictedAndRebuilt() {
+        stored(1L, email(1L, 1L, NEWSLETTER), email(2L, 1L, NEWSLETTER));
+        stored(2L, email(3L, 2L, NEWSLETTER));
+
+        detector.getClusters(1L);
+        detector.getClusters(2L);
+        assertThat(detector.getUserCount()).isEqualTo(1);
+        assertThat(detector.getClusters(1L)).hasSize(1);
+
+        verify(emailRepository, times(2)).findByUserIdAndIdGreaterThanOrderByIdAsc(eq(1L), eq(0L), any(Pageable.class));
+    }
+
+    @Test
+    void deletedRepresentativeIsReplacedByTheOldestMember() {
+        stored(1L, email(1L, 1L, NEWSLETTER), email(2L, 1L, NEWSLETTER), email(3L, 1L, NEWSLETTER));
+        detector.getClusters(1L);
+
+        detector.remove(1L, 1L);
+
+        assertThat(detector.findDuplicate(email(null, 1L, NEWSLETTER))).isEqualTo(2L);
+    }
+
+    @Test
+    void duplicatesOfADeletedEmailPointAtTheOldestRemainingOne() {
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[] {1L, 2L});
+        rows.add(new Object[] {1L, 3L});
+        rows.add(new Object[] {5L, 6L});
+        when(emailRepository.findDuplicatesOf(List.of(1L, 5L))).thenReturn(rows);
+
+        detector.repointDuplicates(List.of(1L, 5L));
+
+        verify(emailRepository).clearDuplicateOf(eq(2L), any(LocalDateTime.class));
+        verify(emailRepository).updateDuplicateOf(eq(1L), eq(2L), any(LocalDateTime.class));
+        verify(emailRepository).clearDuplicateOf(eq(6L), any(LocalDateTime.class));
+        verify(emailRepository, never()).updateDuplicateOf(eq(5L), anyLong(), any(LocalDateTime.class));
+    }
+
+    private void stored(Long userId, Email... emails) {
+        when(emailRepository.findByUserIdAndIdGreaterThanOrderByIdAsc(eq(userId), eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(emails));
+    }
+
+    // One rewrite of the newsletter per band that shares that band with it but stays below the similarity
+    // threshold, both to the newsletter and to the other rewrites
+    private List<String> partialMatches() {
+        long[] original = detector.signature("Digest", NEWSLETTER);
+        String[] words = NEWSLETTER.split(" ");
+        List<String> matches = new ArrayList<>();
+        List<long[]> signatures = new ArrayList<>();
+        Random random = new Random(7);
+        for (int band = 0; band < 8; band++) {
+            boolean found = false;
+            for (int attempt = 0; attempt < 100_000 && !found; attempt++) {
+                String[] rewritten = words.clone();
+                for (int i = 0; i < rewritten.length; i++) {
+                    if (random.nextInt(3) == 0) {
+                        rewritten[i] = "changed" + attempt + "x" + i;
+                    }
+                }
+                String candidate = String.join(" ", rewritten);
+                long[] signature = detector.signature("Digest", candidate);
+                found = similarity(original, signature) < 0.7 && sharesBand(original, signature, band)
+                        && signatures.stream().allMatch(other -> similarity(other, signature) < 0.7);
+                if (found) {
+                    matches.add(candidate);
+                    signatures.add(signature);
+                }
+            }
+            assertThat(found).as("rewrite sharing band " + band).isTrue();
+        }
+        return matches;
+    }
+
+    private static double similarity(long[] a, long[] b) {
+        int equal = 0;
+        for (int i = 0; i < a.length; i++) {
+            equal += a[i] == b[i] ? 1 : 0;
+        }
+        return (double) equal / a.length;
+    }
+
+    private static boolean sharesBand(long[] a, long[] b, int band) {
+        return Arrays.equals(a, band * 4, band * 4 + 4, b, band * 4, band * 4 + 4);
+    }
+
+    private static Email email(Long id, Long userId, String body) {
+        Email email = new Email(userId, "news@example.com", "me@example.com", "Digest", body, 1L, null);
+        email.setId(id);
+        return email;
+    }
+}
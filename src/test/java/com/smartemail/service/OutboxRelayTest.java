@@ -0,0 +1,114 @@
+package com.smartemail.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.smartemail.model.OutboxEvent;
+import com.smartemail.model.OutboxOffset;
+import com.smartemail.repository.OutboxEventRepository;
+import com.smartemail.repository.OutboxOffsetRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class OutboxRelayTest {
+
+    private final List<Long> stored = new ArrayList<>();
+    private final List<Long> published = new ArrayList<>();
+    private final OutboxOffset offset = new OutboxOffset("test", 0);
+    private OutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        OutboxEventRepository eventRepository = mock(OutboxEventRepository.class);
+        when(eventRepository.findByIdGreaterThanOrderByIdAsc(anyLong(), any(Pageable.class))).thenAnswer(invocation -> {
+            long afterId = invocation.getArgument(0);
+            Pageable page = invocation.getArgument(1);
+            return stored.stream().filter(id -> id > afterId).sorted().limit(page.getPageSize()).map(OutboxRelayTest::event).toList();
+        });
+        OutboxOffsetRepository offsetRepository = mock(OutboxOffsetRepository.class);
+        when(offsetRepository.findForUpdate("test", 0)).thenReturn(Optional.of(offset));
+        ShardRouter shardRouter = mock(ShardRouter.class);
+        when(shardRouter.shardsFor(null)).thenReturn(List.of(0));
+
+        OutboxSink sink = new OutboxSink() {
+            @Override
+            public String getName() {
+                return "test";
+            }
+
+            @Override
+            public void publish(List<OutboxEvent> events) {
+                events.forEach(event -> published.add(event.getId()));
+            }
+        };
+
+        relay = new OutboxRelay();
+        ReflectionTestUtils.setField(relay, "eventRepository", eventRepository);
+        ReflectionTestUtils.setField(relay, "offsetRepository", offsetRepository);
+        ReflectionTestUtils.setField(relay, "shardRouter", shardRouter);
+        ReflectionTestUtils.setField(relay, "transactionManager", mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(relay, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(relay, "sinks", List.of(sink));
+        ReflectionTestUtils.setField(relay, "enabled", true);
+        ReflectionTestUtils.setField(relay, "batchSize", 10);
+        ReflectionTestUtils.setField(relay, "maxBatchesPerRun", 5);
+        ReflectionTestUtils.setField(relay, "settleMillis", 60_000L);
+        relay.init();
+    }
+
+    @Test
+    void eventsAboveAHoleWaitForItToFillIn() {
+        stored.addAll(List.of(1L, 2L, 4L));
+        relay.relay();
+        assertThat(published).containsExactly(1L, 2L);
+        assertThat(offset.getLastEventId()).isEqualTo(2L);
+
+        // The slower transaction commits; order is kept
+        stored.add(3L);
+        relay.relay();
+        assertThat(published).containsExactly(1L, 2L, 3L, 4L);
+        assertThat(offset.getLastEventId()).isEqualTo(4L);
+    }
+
+    @Test
+    void holeIsSkippedOnceItHasBeenOpenForTheSettleTime() {
+        stored.addAll(List.of(1L, 3L, 4L, 6L));
+        relay.relay();
+        assertThat(published).containsExactly(1L);
+
+        ReflectionTestUtils.setField(relay, "settleMillis", 0L);
+        relay.relay();
+
+        // The hole at 2 has settled; the one at 5 is seen now and settles at once as well
+        assertThat(published).containsExactly(1L, 3L, 4L, 6L);
+        assertThat(offset.getLastEventId()).isEqualTo(6L);
+    }
+
+    @Test
+    void freshEventsWithoutHolesAreRelayedRightAway() {
+        stored.addAll(List.of(1L, 2L, 3L));
+
+        relay.relay();
+
+        assertThat(published).containsExactly(1L, 2L, 3L);
+    }
+
+    private static OutboxEvent event(Long id) {
+        OutboxEvent event = new OutboxEvent();
+        event.setId(id);
+        return event;
+    }
+}
@@ -0,0 +1,44 @@
+package com.smartemail.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.smartemail.model.Email;
+
+class SentimentAnalyzerTest {
+
+    private SentimentAnalyzer analyzer;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        analyzer = new SentimentAnalyzer();
+        analyzer.init();
+    }
+
+    @Test
+    void exclamationEmphasisesOnlyItsOwnSentence() {
+        double great = analyzer.score("great.");
+        double upset = analyzer.score("upset.");
+
+        assertThat(analyzer.score("great. upset!")).isCloseTo(great + upset * 1.05, within(1e-6));
+        assertThat(analyzer.score("great! upset.")).isCloseTo(great * 1.05 + upset, within(1e-6));
+    }
+
+    @Test
+    void repeatedExclamationMarksCompound() {
+        double great = analyzer.score("great");
+
+        assertThat(analyzer.score("great!!!")).isCloseTo(great * 1.05 * 1.05 * 1.05, within(1e-6));
+    }
+
+    @Test
+    void negationFlipsValenceWithinTheSentence() {
+        assertThat(analyzer.analyze("Update", "I am not happy with this.")).isEqualTo(Email.Sentiment.NEGATIVE);
+        assertThat(analyzer.analyze("Update", "Not now. I am happy with this.")).isEqualTo(Email.Sentiment.POSITIVE);
+    }
+}
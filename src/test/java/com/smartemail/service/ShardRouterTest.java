@@ -0,0 +1,137 @@
+package com.smartemail.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.smartemail.config.ShardRoutingDataSource;
+import com.smartemail.config.ShardingProperties;
+
+class ShardRouterTest {
+
+    private static final int SHARDS = 3;
+    private static final int ID_RANGE_BITS = 40;
+
+    private final List<JdbcTemplate> shards = new ArrayList<>();
+    private ShardMap shardMap;
+    private JdbcTemplate jdbcTemplate;
+    private ShardRouter shardRouter;
+
+    @BeforeEach
+    void setUp() {
+        Map<Object, Object> targets = new HashMap<>();
+        long run = System.nanoTime();
+        for (int shard = 0; shard < SHARDS; shard++) {
+            DataSource dataSource = new DriverManagerDataSource(
+                    "jdbc:h2:mem:shard-" + shard + "-" + run + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+            JdbcTemplate shardTemplate = new JdbcTemplate(dataSource);
+            for (String table : List.of("emails", "followups", "templates", "email_threads", "sync_tombstones")) {
+                shardTemplate.execute("CREATE TABLE " + table + " (id BIGINT AUTO_INCREMENT PRIMARY KEY, user_id BIGINT)");
+            }
+            shards.add(shardTemplate);
+            targets.put(shard, dataSource);
+        }
+        ShardRoutingDataSource routing = new ShardRoutingDataSource();
+        routing.setTargetDataSources(targets);
+        routing.setDefaultTargetDataSource(targets.get(0));
+        routing.afterPropertiesSet();
+
+        ShardingProperties properties = new ShardingProperties();
+        properties.setEnabled(true);
+        properties.setIdRangeBits(ID_RANGE_BITS);
+        properties.setShards(List.of(new ShardingProperties.Shard(), new ShardingProperties.Shard()));
+
+        shardMap = mock(ShardMap.class);
+        jdbcTemplate = new JdbcTemplate(routing);
+        shardRouter = new ShardRouter();
+        ReflectionTestUtils.setField(shardRouter, "shardingProperties", properties);
+        ReflectionTestUtils.setField(shardRouter, "shardMap", shardMap);
+        ReflectionTestUtils.setField(shardRouter, "transactionManager", new DataSourceTransactionManager(routing));
+        ReflectionTestUtils.setField(shardRouter, "jdbcTemplate", jdbcTemplate);
+    }
+
+    @Test
+    void fanOutCollectsRowsFromEveryShard() {
+        for (int shard = 0; shard < SHARDS; shard++) {
+            shards.get(shard).update("INSERT INTO emails (id, user_id) VALUES (?, ?)", shard + 1, 100 + shard);
+        }
+
+        List<Long> users = shardRouter.fanOut(shard ->
+                jdbcTemplate.queryForList("SELECT user_id FROM emails", Long.class));
+
+        assertThat(users).containsExactly(100L, 101L, 102L);
+    }
+
+    @Test
+    void userWorkRunsOnTheAssignedShard() {
+        when(shardMap.getShard(7L)).thenReturn(2);
+        shards.get(2).update("INSERT INTO emails (id, user_id) VALUES (1, 7)");
+
+        Integer count = shardRouter.readForUser(7L,
+                () -> jdbcTemplate.queryForObject("SELECT COUNT(*) FROM emails WHERE user_id = 7", Integer.class));
+        shardRouter.writeForUser(7L, () -> jdbcTemplate.update("INSERT INTO emails (id, user_id) VALUES (2, 7)"));
+
+        assertThat(count).isEqualTo(1);
+        assertThat(shards.get(2).queryForObject("SELECT COUNT(*) FROM emails", Integer.class)).isEqualTo(2);
+        assertThat(shards.get(0).queryForObject("SELECT COUNT(*) FROM emails", Integer.class)).isZero();
+    }
+
+    @Test
+    void locateFindsRowsOnTheirHomeShard() {
+        long id = (2L << ID_RANGE_BITS) + 5;
+        shards.get(2).update("INSERT INTO emails (id, user_id) VALUES (?, 1)", id);
+
+        Optional<ShardRouter.Located<Long>> located = shardRouter.locate(id, shard -> userOf(id));
+
+        assertThat(located).hasValueSatisfying(found -> {
+            assertThat(found.shard()).isEqualTo(2);
+            assertThat(found.value()).isEqualTo(1L);
+        });
+    }
+
+    @Test
+    void locateFindsRowsMovedOffTheirHomeShard() {
+        // Generated on shard 1, then moved with its user to shard 0
+        long id = (1L << ID_RANGE_BITS) + 9;
+        shards.get(0).update("INSERT INTO emails (id, user_id) VALUES (?, 3)", id);
+
+        assertThat(shardRouter.locate(id, shard -> userOf(id)))
+                .hasValueSatisfying(found -> assertThat(found.shard()).isZero());
+        assertThat(shardRouter.locate(id + 1, shard -> userOf(id + 1))).isEmpty();
+    }
+
+    @Test
+    void idRangesAreReservedOnceAndNeverMovedBack() {
+        shardRouter.reserveIdRanges();
+        shards.get(1).update("INSERT INTO emails (user_id) VALUES (1)");
+        shards.get(2).update("INSERT INTO emails (user_id) VALUES (1)");
+
+        // A restart must not reset the counters to the start of the range
+        shardRouter.reserveIdRanges();
+        shards.get(1).update("INSERT INTO emails (user_id) VALUES (2)");
+
+        assertThat(shards.get(1).queryForList("SELECT id FROM emails ORDER BY id", Long.class))
+                .containsExactly(1L << ID_RANGE_BITS, (1L << ID_RANGE_BITS) + 1);
+        assertThat(shards.get(2).queryForObject("SELECT id FROM emails", Long.class)).isEqualTo(2L << ID_RANGE_BITS);
+        assertThat(shardRouter.homeShardForId((2L << ID_RANGE_BITS) + 1)).isEqualTo(2);
+    }
+
+    private Optional<Long> userOf(long id) {
+        return jdbcTemplate.queryForList("SELECT user_id FROM emails WHERE id = ?", Long.class, id).stream().findFirst();
+    }
+}
@@ -0,0 +1,150 @@
+package com.smartemail.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.smartemail.model.ChangeLogEntry;
+import com.smartemail.model.Email;
+import com.smartemail.model.OutboxEvent;
+
+class StatusWriteBufferTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private Outbox outbox;
+    private ChangeLog changeLog;
+    private StatusWriteBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        DataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:write-behind-" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE emails (id BIGINT PRIMARY KEY, archived BOOLEAN, updated_at TIMESTAMP)");
+        for (long id = 1; id <= 3; id++) {
+            jdbcTemplate.update("INSERT INTO emails (id, archived) VALUES (?, FALSE)", id);
+        }
+
+        ShardRouter shardRouter = mock(ShardRouter.class);
+        when(shardRouter.shardsFor(null)).thenReturn(List.of(0));
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(1).run();
+            return null;
+        }).when(shardRouter).withShard(eq(0), any());
+        outbox = mock(Outbox.class);
+        changeLog = mock(ChangeLog.class);
+
+        buffer = new StatusWriteBuffer();
+        ReflectionTestUtils.setField(buffer, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(buffer, "shardRouter", shardRouter);
+        ReflectionTestUtils.setField(buffer, "changeLog", changeLog);
+        ReflectionTestUtils.setField(buffer, "outbox", outbox);
+        ReflectionTestUtils.setField(buffer, "transactionTemplate",
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource)));
+        ReflectionTestUtils.setField(buffer, "enabled", true);
+        ReflectionTestUtils.setField(buffer, "maxPending", 2);
+        ReflectionTestUtils.setField(buffer, "batchSize", 500);
+    }
+
+    @Test
+    void fullBufferIsFlushedToTheDatabase() {
+        buffer.bufferArchived(1L, true);
+        buffer.bufferArchived(1L, false);
+        buffer.bufferArchived(1L, true);
+        assertThat(archived(1L)).isFalse();
+        assertThat(buffer.overlay(email(1L)).getArchived()).isTrue();
+
+        buffer.bufferArchived(2L, true);
+
+        assertThat(archived(1L)).isTrue();
+        assertThat(archived(2L)).isTrue();
+        assertThat(buffer.getPendingCount()).isZero();
+        assertThat(buffer.getBufferedChanges()).isEqualTo(4);
+        assertThat(buffer.getWrittenRows()).isEqualTo(2);
+        verify(changeLog).recordEmails(eq(ChangeLogEntry.Action.UPDATED), any());
+    }
+
+    @Test
+    void discardWaitsForARunningFlushAndOverlayShowsClaimedFlips() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // Holds the flush inside its transaction, after the batch update
+        doAnswer(invocation -> {
+            writing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(outbox).appendChanges(eq(OutboxEvent.AggregateType.EMAIL), eq(OutboxEvent.EventType.UPDATED), anyMap());
+
+        buffer.bufferArchived(1L, true);
+        CompletableFuture<Void> flush = CompletableFuture.runAsync(buffer::flush);
+        assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Claimed but not committed: still overlaid, though no longer pending
+        assertThat(buffer.getPendingCount()).isZero();
+        assertThat(buffer.overlay(email(1L)).getArchived()).isTrue();
+
+        // A newer flip wins over the claimed one
+        buffer.bufferArchived(1L, false);
+        assertThat(buffer.overlay(email(1L)).getArchived()).isFalse();
+
+        // A full update's discard cannot slip in before the claimed flip is written
+        CompletableFuture<Void> discard = CompletableFuture.runAsync(() -> buffer.discardEmail(1L));
+        Thread.sleep(100);
+        assertThat(discard).isNotDone();
+
+        release.countDown();
+        flush.get(5, TimeUnit.SECONDS);
+        discard.get(5, TimeUnit.SECONDS);
+
+        assertThat(archived(1L)).isTrue();
+        assertThat(buffer.getPendingCount()).isZero();
+        // Nothing buffered is left, so reads show the row as stored
+        assertThat(buffer.overlay(email(1L)).getArchived()).isFalse();
+    }
+
+    @Test
+    void failedFlushPutsFlipsBackUnlessChangedAgain() {
+        buffer.bufferArchived(1L, true);
+        doThrow(new IllegalStateException("outbox down")).when(outbox)
+                .appendChanges(eq(OutboxEvent.AggregateType.EMAIL), eq(OutboxEvent.EventType.UPDATED), anyMap());
+
+        assertThatThrownBy(buffer::flush).isInstanceOf(IllegalStateException.class);
+
+        assertThat(archived(1L)).isFalse();
+        assertThat(buffer.getPendingCount()).isEqualTo(1);
+        assertThat(buffer.overlay(email(1L)).getArchived()).isTrue();
+    }
+
+    private Boolean archived(Long id) {
+        return jdbcTemplate.queryForObject("SELECT archived FROM emails WHERE id = ?", Boolean.class, id);
+    }
+
+    private static Email email(Long id) {
+        Email email = new Email();
+        email.setId(id);
+        email.setArchived(false);
+        return email;
+    }
+}
@@ -0,0 +1,162 @@
+package com.smartemail.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.smartemail.model.ChangeLogEntry;
+import com.smartemail.model.Email;
+import com.smartemail.model.Template;
+import com.smartemail.repository.TemplateRepository;
+
+class TemplateRecommenderTest {
+
+    private TemplateRepository templateRepository;
+    private TemplateRecommender recommender;
+    private long nextId = 1;
+
+    @BeforeEach
+    void setUp() {
+        templateRepository = mock(TemplateRepository.class);
+        ShardRouter shardRouter = mock(ShardRouter.class);
+        when(shardRouter.readForUser(anyLong(), any())).thenAnswer(invocation -> {
+            Supplier<?> work = invocation.getArgument(1);
+            return work.get();
+        });
+        recommender = new TemplateRecommender();
+        ReflectionTestUtils.setField(recommender, "templateRepository", templateRepository);
+        ReflectionTestUtils.setField(recommender, "shardRouter", shardRouter);
+        ReflectionTestUtils.setField(recommender, "maxUsers", 10);
+    }
+
+    @Test
+    void templatesAreOrderedBySimilarityAndUnrelatedOnesLeftOut() {
+        stored(1L,
+                template(1L, "Meeting reschedule", "Can we move our meeting to next week?"),
+                template(1L, "Invoice copy", "Attached is a copy of the invoice"),
+                template(1L, "Invoice payment", "The overdue invoice payment is scheduled for Friday"));
+
+        List<TemplateRecommender.TemplateSuggestion> suggestions = recommender.suggest(
+                email(1L, "Invoice overdue", "The March invoice is overdue, when is the payment coming?"), 5);
+
+        assertThat(titles(suggestions)).containsExactly("Invoice payment", "Invoice copy");
+        assertThat(suggestions.get(0).getScore()).isGreaterThan(suggestions.get(1).getScore());
+        assertThat(suggestions).allSatisfy(suggestion -> assertThat(suggestion.getScore()).isBetween(0.0, 1.0));
+    }
+
+    @Test
+    void rareTermsOutweighTermsEveryTemplateShares() {
+        stored(1L,
+                template(1L, "Project kickoff", "Project kickoff notes and project plan"),
+                template(1L, "Project status", "Project status for the project team"),
+                template(1L, "Project budget", "Project budget"));
+
+        List<TemplateRecommender.TemplateSuggestion> suggestions =
+                recommender.suggest(email(1L, "Project project project", "Budget"), 3);
+
+        assertThat(suggestions.get(0).getTitle()).isEqualTo("Project budget");
+        assertThat(suggestions).hasSize(3);
+    }
+
+    @Test
+    void anEmailWithATemplatesWordsScoresOne() {
+        stored(1L, template(1L, "Offsite agenda", "Agenda for the offsite: travel, venue, dinner"),
+                template(1L, "Travel booking", "Travel booking confirmed"));
+
+        List<TemplateRecommender.TemplateSuggestion> suggestions = recommender.suggest(
+                email(1L, "Offsite agenda", "Agenda for the offsite: travel, venue, dinner"), 1);
+
+        assertThat(suggestions).singleElement().satisfies(suggestion -> {
+            assertThat(suggestion.getTitle()).isEqualTo("Offsite agenda");
+            assertThat(suggestion.getScore()).isCloseTo(1.0, within(1e-6));
+        });
+    }
+
+    @Test
+    void stopWordsPlaceholdersAndCaseAreIgnored() {
+        stored(1L, template(1L, "Thanks", "Thanks for your note, {invoice}"),
+                template(1L, "Receipt", "RECEIPT attached"));
+
+        assertThat(recommender.suggest(email(1L, "Hello", "Please let us know if you have any"), 5)).isEmpty();
+        assertThat(recommender.suggest(email(1L, "Invoice", "invoice"), 5)).isEmpty();
+        assertThat(titles(recommender.suggest(email(1L, "receipt", null), 5))).containsExactly("Receipt");
+        assertThat(recommender.suggest(email(1L, "receipt", null), 0)).isEmpty();
+    }
+
+    @Test
+    void savedAndDeletedTemplatesUpdateALoadedIndexInPlace() {
+        stored(1L, template(1L, "Invoice copy", "Attached is a copy of the invoice"));
+        Template unloaded = template(2L, "Invoice", "Invoice");
+        recommender.templateSaved(unloaded);
+        verify(templateRepository, never()).findByUserId(2L);
+
+        Email email = email(1L, "Invoice reminder", "Reminder about the unpaid invoice");
+        assertThat(titles(recommender.suggest(email, 5))).containsExactly("Invoice copy");
+
+        Template reminder = template(1L, "Invoice reminder", "Friendly reminder that the invoice is unpaid");
+        recommender.templateSaved(reminder);
+        assertThat(titles(recommender.suggest(email, 5))).containsExactly("Invoice reminder", "Invoice copy");
+
+        reminder.setTitle("Shipping update");
+        reminder.setBody("Your parcel has shipped");
+        recommender.templateSaved(reminder);
+        assertThat(titles(recommender.suggest(email, 5))).containsExactly("Invoice copy");
+
+        recommender.templateDeleted(1L, 1L);
+        assertThat(recommender.suggest(email, 5)).isEmpty();
+        verify(templateRepository, times(1)).findByUserId(1L);
+    }
+
+    @Test
+    void remoteTemplateChangesDropTheIndexesHoldingIt() {
+        Template moved = template(1L, "Invoice copy", "Attached is a copy of the invoice");
+        stored(1L, moved);
+        stored(2L, template(2L, "Invoice payment", "Invoice payment is scheduled"));
+        recommender.suggest(email(1L, "Invoice", "invoice"), 5);
+        recommender.suggest(email(2L, "Invoice", "invoice"), 5);
+
+        // Moved to user 2 on another node: the change names the new owner only
+        moved.setUserId(2L);
+        stored(1L);
+        recommender.onRemoteChange(new ChangeLogEntry(ChangeLogEntry.EntityType.TEMPLATE,
+                ChangeLogEntry.Action.UPDATED, moved.getId(), 2L, "node-b"));
+
+        stored(2L, template(2L, "Invoice payment", "Invoice payment is scheduled"), moved);
+        assertThat(recommender.suggest(email(1L, "Invoice", "invoice"), 5)).isEmpty();
+        assertThat(recommender.suggest(email(2L, "Invoice", "invoice"), 5)).hasSize(2);
+        verify(templateRepository, times(2)).findByUserId(1L);
+        verify(templateRepository, times(2)).findByUserId(2L);
+    }
+
+    private void stored(Long userId, Template... templates) {
+        when(templateRepository.findByUserId(userId)).thenReturn(new ArrayList<>(List.of(templates)));
+    }
+
+    private Template template(Long userId, String title, String body) {
+        Template template = new Template(userId, title, body);
+        template.setId(nextId++);
+        return template;
+    }
+
+    private static Email email(Long userId, String subject, String body) {
+        return new Email(userId, "bob@example.com", "ann@example.com", subject, body, 1L, null);
+    }
+
+    private static List<String> titles(List<TemplateRecommender.TemplateSuggestion> suggestions) {
+        return suggestions.stream().map(TemplateRecommender.TemplateSuggestion::getTitle).toList();
+    }
+}
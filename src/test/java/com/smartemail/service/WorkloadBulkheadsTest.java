@@ -0,0 +1,114 @@
+package com.smartemail.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.smartemail.config.WorkloadClass;
+import com.smartemail.config.WorkloadContext;
+import com.smartemail.config.WorkloadProperties;
+import com.smartemail.exception.TooManyRequestsException;
+import com.smartemail.exception.WorkloadTimeoutException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class WorkloadBulkheadsTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private WorkloadBulkheads bulkheads;
+
+    @BeforeEach
+    void setUp() {
+        WorkloadProperties properties = new WorkloadProperties();
+        properties.setEnabled(true);
+        WorkloadProperties.Settings write = new WorkloadProperties.Settings();
+        write.setMaxConcurrent(1);
+        write.setQueueCapacity(1);
+        write.setTimeoutMs(200);
+        properties.getClasses().put(WorkloadClass.WRITE, write);
+
+        bulkheads = new WorkloadBulkheads();
+        ReflectionTestUtils.setField(bulkheads, "properties", properties);
+        ReflectionTestUtils.setField(bulkheads, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(bulkheads, "requestThreads", 200);
+        bulkheads.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+    }
+
+    @Test
+    void callRunsOnTheCallersThreadBoundToItsClass() throws Throwable {
+        Thread caller = Thread.currentThread();
+
+        Object result = bulkheads.execute(WorkloadClass.WRITE,
+                () -> Thread.currentThread() == caller ? WorkloadContext.current() : null);
+
+        assertThat(result).isEqualTo(WorkloadClass.WRITE);
+        assertThat(WorkloadContext.current()).isNull();
+    }
+
+    @Test
+    void startedCallRunsPastTheTimeout() throws Exception {
+        CompletableFuture<Object> running = holdSlot();
+
+        Thread.sleep(300);
+        release.countDown();
+
+        assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("done");
+    }
+
+    @Test
+    void callerWaitingTooLongForASlotIsRefusedWithoutRunning() throws Exception {
+        holdSlot();
+        AtomicBoolean ran = new AtomicBoolean();
+
+        assertThatThrownBy(() -> bulkheads.execute(WorkloadClass.WRITE, () -> ran.getAndSet(true)))
+                .isInstanceOf(WorkloadTimeoutException.class);
+        assertThat(ran).isFalse();
+    }
+
+    @Test
+    void fullQueueIsRefusedRightAway() throws Exception {
+        holdSlot();
+        CompletableFuture<Object> queued = CompletableFuture.supplyAsync(() -> call(() -> "queued"));
+        Thread.sleep(50);
+
+        assertThatThrownBy(() -> bulkheads.execute(WorkloadClass.WRITE, () -> "third"))
+                .isInstanceOf(TooManyRequestsException.class);
+
+        release.countDown();
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("queued");
+    }
+
+    // Takes the only slot until release is counted down
+    private CompletableFuture<Object> holdSlot() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture<Object> running = CompletableFuture.supplyAsync(() -> call(() -> {
+            started.countDown();
+            release.await();
+            return "done";
+        }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        return running;
+    }
+
+    private Object call(WorkloadBulkheads.Work<?> work) {
+        try {
+            return bulkheads.execute(WorkloadClass.WRITE, work);
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+}